@@ -26,6 +26,13 @@ public class EmployeeController {
         BaseResponse response = employeeService.create(employeeRequest);
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
+    @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
+    @GetMapping("/repairers/load")
+    public ResponseEntity<BaseResponse> getRepairerLoad() {
+        BaseResponse response = employeeService.getRepairerLoad();
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
     @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
     @GetMapping("/{employeeId}")
     public ResponseEntity<BaseResponse> findById(@PathVariable long employeeId) {
@@ -3,20 +3,31 @@ package com.example.demo.controller;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.request.HistoryProductRequest;
 import com.example.demo.service.HistoryProductService;
+import com.example.demo.service.impl.GoodsReceiptService;
+import com.example.demo.service.impl.IdempotencyService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.security.DigestInputStream;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/history")
 public class HistoryProductController {
     private final HistoryProductService historyProductService;
+    private final IdempotencyService idempotencyService;
+    private final GoodsReceiptService goodsReceiptService;
 
-    public HistoryProductController(HistoryProductService historyProductService) {
+    public HistoryProductController(HistoryProductService historyProductService,
+                                    IdempotencyService idempotencyService,
+                                    GoodsReceiptService goodsReceiptService) {
         this.historyProductService = historyProductService;
+        this.idempotencyService = idempotencyService;
+        this.goodsReceiptService = goodsReceiptService;
     }
     @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
     @GetMapping()
@@ -39,8 +50,24 @@ public class HistoryProductController {
     @PreAuthorize("hasAuthority('MANAGER')")
     @PostMapping()
     public ResponseEntity<BaseResponse> createHistory(
-            @Valid @RequestBody HistoryProductRequest historyProductRequest) {
-        BaseResponse response = historyProductService.createHistory(historyProductRequest , true,true);
+            @Valid @RequestBody HistoryProductRequest historyProductRequest,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        BaseResponse response = idempotencyService.execute(idempotencyKey, "POST /api/history",
+                () -> idempotencyService.hash(historyProductRequest),
+                () -> historyProductService.createHistory(historyProductRequest , true,true));
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping(value = "/receipts", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<BaseResponse> receiveGoods(
+            HttpServletRequest request,
+            @RequestParam(name = "note", required = false) String note,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) throws IOException {
+        DigestInputStream input = IdempotencyService.digesting(request.getInputStream());
+        BaseResponse response = idempotencyService.execute(idempotencyKey, "POST /api/history/receipts",
+                () -> IdempotencyService.digestOf(input),
+                () -> goodsReceiptService.receive(input, request.getContentType(), note));
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 }
@@ -1,30 +1,53 @@
 package com.example.demo.controller;
 
+import com.example.demo.event.OrderBoardBroadcaster;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.request.InsertOrder;
 import com.example.demo.service.OrderService;
+import com.example.demo.service.impl.IdempotencyService;
+import com.example.demo.service.impl.OrderImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final OrderImportService orderImportService;
+    private final OrderBoardBroadcaster orderBoardBroadcaster;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService,
+                           OrderImportService orderImportService, OrderBoardBroadcaster orderBoardBroadcaster) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
+        this.orderImportService = orderImportService;
+        this.orderBoardBroadcaster = orderBoardBroadcaster;
     }
 
     @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
     @PostMapping("")
-    public ResponseEntity<BaseResponse> create(@Valid @RequestBody InsertOrder insertOrder) {
-        BaseResponse response = orderService.create(insertOrder);
+    public ResponseEntity<BaseResponse> create(@Valid @RequestBody InsertOrder insertOrder,
+                                               @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        BaseResponse response = idempotencyService.execute(idempotencyKey, "POST /api/orders",
+                () -> idempotencyService.hash(insertOrder), () -> orderService.create(insertOrder));
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<BaseResponse> importOrders(HttpServletRequest request) throws IOException {
+        BaseResponse response = orderImportService.importOrders(request.getInputStream(), request.getContentType());
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
@@ -36,6 +59,13 @@ public class OrderController {
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    // dispatch board: committed order changes as Server-Sent Events, resumable with Last-Event-ID
+    @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return orderBoardBroadcaster.subscribe(lastEventId);
+    }
+
     @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
     @GetMapping("/{orderId}")
     public ResponseEntity<BaseResponse> getById(@PathVariable long orderId) {
@@ -64,4 +94,18 @@ public class OrderController {
         BaseResponse response = orderService.toInvoice(orderId);
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
+
+    @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
+    @GetMapping("/{orderId}/invoice-status")
+    public ResponseEntity<BaseResponse> getInvoiceStatus(@PathVariable long orderId) {
+        BaseResponse response = orderService.getInvoiceStatus(orderId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping("/summary/rebuild")
+    public ResponseEntity<BaseResponse> rebuildSummary() {
+        BaseResponse response = orderService.rebuildSummary();
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
 }
@@ -6,6 +6,8 @@ import com.example.demo.model.BaseResponse;
 import com.example.demo.model.request.ProductRequest;
 import com.example.demo.repository.ImageRepository;
 import com.example.demo.service.ProductService;
+import com.example.demo.service.impl.StockAlertIndex;
+import com.example.demo.service.impl.StockSnapshotService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -25,9 +27,16 @@ public class ProductController {
 
     private final ImageRepository imageRepository;
 
-    public ProductController(ProductService productService, ImageRepository imageRepository) {
+    private final StockSnapshotService stockSnapshotService;
+
+    private final StockAlertIndex stockAlertIndex;
+
+    public ProductController(ProductService productService, ImageRepository imageRepository,
+                             StockSnapshotService stockSnapshotService, StockAlertIndex stockAlertIndex) {
         this.productService = productService;
         this.imageRepository = imageRepository;
+        this.stockSnapshotService = stockSnapshotService;
+        this.stockAlertIndex = stockAlertIndex;
     }
 
     @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
@@ -37,6 +46,20 @@ public class ProductController {
         return ResponseEntity.ok(productService.getByParams(params));
     }
 
+    @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
+    @GetMapping("/stock-at")
+    public ResponseEntity<BaseResponse> getStockAt(@RequestParam String at,
+            @RequestParam(required = false) Long productId) {
+        BaseResponse response = stockSnapshotService.getStockAt(at, productId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
+    @GetMapping("/alerts")
+    public ResponseEntity<BaseResponse> getStockAlerts() {
+        return ResponseEntity.ok(stockAlertIndex.getStockAlerts());
+    }
+
     @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
     @GetMapping("/{productId}")
     public ResponseEntity<BaseResponse> getProductById(@PathVariable Long productId) {
@@ -92,4 +115,11 @@ public class ProductController {
         BaseResponse response = productService.updateImage(file, imageId);
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping("/status/backfill")
+    public ResponseEntity<BaseResponse> backfillStockStatus() {
+        BaseResponse response = productService.backfillStockStatus();
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
 }
@@ -1,7 +1,11 @@
 package com.example.demo.controller;
 
 import com.example.demo.model.BaseResponse;
-import com.example.demo.service.impl.StatisticService;
+import com.example.demo.service.impl.CachedStatisticService;
+import com.example.demo.service.impl.CostLayerService;
+import com.example.demo.service.impl.DemandForecastService;
+import com.example.demo.service.impl.ProductDailyStatService;
+import com.example.demo.service.impl.StatisticDashboardService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -12,10 +16,24 @@ import java.util.Map;
 @RequestMapping("/api/statistics")
 public class StatisticController {
 
-    private final StatisticService statisticService;
+    private final CachedStatisticService statisticService;
 
-    public StatisticController(StatisticService statisticService) {
+    private final DemandForecastService demandForecastService;
+
+    private final CostLayerService costLayerService;
+
+    private final ProductDailyStatService productDailyStatService;
+
+    private final StatisticDashboardService statisticDashboardService;
+
+    public StatisticController(CachedStatisticService statisticService, DemandForecastService demandForecastService,
+                               CostLayerService costLayerService, ProductDailyStatService productDailyStatService,
+                               StatisticDashboardService statisticDashboardService) {
         this.statisticService = statisticService;
+        this.demandForecastService = demandForecastService;
+        this.costLayerService = costLayerService;
+        this.productDailyStatService = productDailyStatService;
+        this.statisticDashboardService = statisticDashboardService;
     }
 
     @PreAuthorize("hasAuthority('MANAGER')")
@@ -82,4 +100,48 @@ public class StatisticController {
         return ResponseEntity.status(response.getStatusCode()).body(response);
     }
 
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @GetMapping("/dashboard")
+    public ResponseEntity<BaseResponse> dashboard(@RequestParam Map<String, String> map) {
+        return ResponseEntity.ok(statisticDashboardService.getDashboard(map));
+    }
+
+    @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
+    @GetMapping("/reorder-suggestions")
+    public ResponseEntity<BaseResponse> reorderSuggestions(@RequestParam(defaultValue = "false") boolean all) {
+        return ResponseEntity.ok(demandForecastService.getReorderSuggestions(all));
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping("/forecast/backfill")
+    public ResponseEntity<BaseResponse> backfillForecasts() {
+        return ResponseEntity.ok(demandForecastService.backfillForecasts());
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @GetMapping("/valuation")
+    public ResponseEntity<BaseResponse> valuation(@RequestParam String from, @RequestParam String to) {
+        return ResponseEntity.ok(costLayerService.getValuation(from, to));
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping("/valuation/rebuild")
+    public ResponseEntity<BaseResponse> rebuildValuation() {
+        return ResponseEntity.ok(costLayerService.rebuildCostLayers());
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping("/products/rebuild")
+    public ResponseEntity<BaseResponse> rebuildProductStatistics(@RequestParam String from, @RequestParam String to) {
+        BaseResponse response = productDailyStatService.rebuildDailyStats(from, to);
+        statisticService.invalidateAll();
+        return ResponseEntity.ok(response);
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @GetMapping("/cache")
+    public ResponseEntity<BaseResponse> cacheStats() {
+        return ResponseEntity.ok(statisticService.getCacheStats());
+    }
+
 }
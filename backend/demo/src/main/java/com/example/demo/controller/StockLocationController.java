@@ -0,0 +1,49 @@
+package com.example.demo.controller;
+
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.request.StockLocationRequest;
+import com.example.demo.model.request.StockTransferRequest;
+import com.example.demo.service.impl.LocationStockService;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/locations")
+public class StockLocationController {
+    private final LocationStockService locationStockService;
+
+    public StockLocationController(LocationStockService locationStockService) {
+        this.locationStockService = locationStockService;
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping("")
+    public ResponseEntity<BaseResponse> create(@Valid @RequestBody StockLocationRequest stockLocationRequest) {
+        BaseResponse response = locationStockService.createLocation(stockLocationRequest);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
+    @GetMapping("")
+    public ResponseEntity<BaseResponse> getAll() {
+        BaseResponse response = locationStockService.getLocations();
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PreAuthorize("hasAnyAuthority('MANAGER','DISPATCHER')")
+    @GetMapping("/{locationId}/stock")
+    public ResponseEntity<BaseResponse> getStock(@PathVariable long locationId) {
+        BaseResponse response = locationStockService.getLocationStock(locationId);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+
+    @PreAuthorize("hasAuthority('MANAGER')")
+    @PostMapping("/transfers")
+    public ResponseEntity<BaseResponse> transfer(@Valid @RequestBody StockTransferRequest stockTransferRequest) {
+        BaseResponse response = locationStockService.transfer(stockTransferRequest);
+        return ResponseEntity.status(response.getStatusCode()).body(response);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Units of one import not exported yet, at the unit cost they came in with.
+// A layer is deleted once it is used up, so the table only holds what is in stock.
+@Entity
+@Table(name = "cost_layer", indexes = @Index(name = "idx_cost_layer_product", columnList = "productId"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CostLayerEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private LocalDateTime openedAt;
+
+    private double unitCost;
+
+    private int remaining;
+}
@@ -0,0 +1,36 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Cost of one ledger row: units and value in for an import, units and FIFO cost of goods sold out for an export.
+@Entity
+@Table(name = "cost_movement", indexes = {
+        @Index(name = "idx_cost_movement_moved_at", columnList = "movedAt"),
+        @Index(name = "idx_cost_movement_product", columnList = "productId")})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CostMovementEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private LocalDateTime movedAt;
+
+    // signed like history_product.difference
+    private int quantity;
+
+    private double amount;
+}
@@ -0,0 +1,34 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Exponentially weighted mean and variance of one product's daily exports, plus the day still being counted.
+@Entity
+@Table(name = "demand_forecast")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DemandForecastEntity {
+
+    @Id
+    private Long productId;
+
+    @Column(nullable = false)
+    private LocalDate bucketDate;
+
+    private int bucketQuantity;
+
+    private double dailyMean;
+
+    private double dailyVariance;
+
+    // closed days folded into the mean and variance
+    private int foldedDays;
+}
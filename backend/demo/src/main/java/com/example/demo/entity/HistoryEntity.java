@@ -11,7 +11,9 @@ import lombok.NoArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 
 @Entity
-@Table(name = "history_product")
+@Table(name = "history_product", indexes = {
+        @Index(name = "idx_history_product_create_date", columnList = "createDate"),
+        @Index(name = "idx_history_product_product", columnList = "product_id, id")})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -29,6 +31,8 @@ public class HistoryEntity extends BaseEntity {
     private Double priceIn;
     private Double priceOut;
     private String unit;
+    // an export that sold the units, as opposed to a count adjustment or a transfer
+    private Boolean sale;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private ProductEntity product;
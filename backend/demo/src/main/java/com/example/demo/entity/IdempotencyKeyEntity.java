@@ -0,0 +1,38 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyKeyEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true, nullable = false, length = 100)
+    private String idempotencyKey;
+
+    private String scope;
+
+    // SHA-256 of the request body, hex
+    @Column(length = 64)
+    private String requestHash;
+
+    private Integer statusCode;
+
+    @Lob
+    private String response;
+
+    private LocalDateTime createAt;
+}
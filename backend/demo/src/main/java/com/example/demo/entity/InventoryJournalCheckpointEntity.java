@@ -0,0 +1,25 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Offset up to which a journal directory's movements are in products and history_product.
+// Written in the same transaction as the batch it covers.
+@Entity
+@Table(name = "inventory_journal_checkpoint")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventoryJournalCheckpointEntity {
+
+    @Id
+    private String journal;
+
+    private long appliedOffset;
+}
@@ -0,0 +1,40 @@
+package com.example.demo.entity;
+
+import com.example.demo.entity.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "invoice_outbox", indexes = @Index(name = "idx_invoice_outbox_status", columnList = "status, id"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvoiceOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true, nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status;
+
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createAt;
+
+    private LocalDateTime claimedAt;
+
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,31 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Units of one product held at one location; the counter a sale at that location locks.
+@Entity
+@Table(name = "location_stock", indexes = {
+        @Index(name = "uk_location_stock_location_product", columnList = "locationId, productId", unique = true),
+        @Index(name = "idx_location_stock_product", columnList = "productId")})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationStockEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long locationId;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private int quantity;
+}
@@ -0,0 +1,38 @@
+package com.example.demo.entity;
+
+import com.example.demo.entity.enums.StatMetric;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// One share of a metric's total for a month. Writers add to a random slot, so concurrent orders and
+// ledger writes rarely wait on the same row; the month's value is the sum of its slots.
+@Entity
+@Table(name = "monthly_stat", indexes = @Index(name = "uk_monthly_stat_metric_month_slot",
+        columnList = "metric, statMonth, slot", unique = true))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MonthlyStatEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatMetric metric;
+
+    // first day of the month
+    @Column(nullable = false)
+    private LocalDate statMonth;
+
+    private int slot;
+
+    private double amount;
+}
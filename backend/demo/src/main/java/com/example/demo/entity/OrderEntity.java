@@ -6,7 +6,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_create_date_id", columnList = "createDate, id"))
 @Builder
 @Setter
 @NoArgsConstructor
@@ -21,6 +21,9 @@ public class OrderEntity extends BaseEntity {
     private String motorbikeCode;
     private String motorbikeName;
 
+    // stock location the products are reserved at; null for the stock no location holds
+    private Long locationId;
+
     @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.MERGE)
     @JoinColumn(name = "dispatcher_id")
     private EmployeeEntity dispatcher;
@@ -70,4 +73,8 @@ public class OrderEntity extends BaseEntity {
     public String getMotorbikeName() {
         return motorbikeName;
     }
+
+    public Long getLocationId() {
+        return locationId;
+    }
 }
@@ -4,12 +4,14 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 @Entity
 @Table(name = "order_product")
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Setter
 public class OrderProduct extends BaseEntity {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id")
@@ -24,6 +26,10 @@ public class OrderProduct extends BaseEntity {
     private Double price;
     private String unit;
 
+    // products.storage_quantity when the order was invoiced; only written by native SQL, see InvoiceOutboxService
+    @Column(insertable = false, updatable = false)
+    private Integer quantityLeft;
+
     public OrderEntity getOrder() {
         return order;
     }
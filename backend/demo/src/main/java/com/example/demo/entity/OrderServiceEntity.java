@@ -8,6 +8,7 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Setter
 public class OrderServiceEntity extends BaseEntity {
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,55 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Read model of the order list, one row per order keyed by the order id.
+// Written only through OrderSummaryRepository; search_* columns hold the upper-cased values the filters match.
+@Entity
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_create_date_id", columnList = "createDate, id"),
+        @Index(name = "idx_order_summary_customer_id", columnList = "customerId"),
+        @Index(name = "idx_order_summary_dispatcher_id", columnList = "dispatcherId"),
+        @Index(name = "idx_order_summary_repairer_id", columnList = "repairerId"),
+        @Index(name = "idx_order_summary_search_code", columnList = "searchCode")
+})
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummaryEntity {
+
+    @Id
+    private Long id;
+
+    private String code;
+    private String type;
+    private Boolean isActive;
+    private LocalDateTime createDate;
+    private String motorbikeCode;
+
+    private Long customerId;
+    private String customerCode;
+    private String customerName;
+
+    private Long dispatcherId;
+    private String dispatcherName;
+
+    private Long repairerId;
+    private String repairerName;
+
+    private Double totalService;
+    private Double totalProduct;
+
+    private String searchCode;
+    private String searchMotorbikeCode;
+    private String searchCustomerCode;
+    private String searchCustomerName;
+    private String searchDispatcherName;
+    private String searchRepairerName;
+}
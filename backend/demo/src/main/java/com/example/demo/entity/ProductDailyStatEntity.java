@@ -0,0 +1,47 @@
+package com.example.demo.entity;
+
+import com.example.demo.entity.enums.Action;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// history_product summed per day, product, direction and unit price: price_in for imports, price_out for exports.
+// Quantity and amount are positive in both directions.
+@Entity
+@Table(name = "product_daily_stat", indexes = @Index(name = "uk_product_daily_stat_key",
+        columnList = "statDate, action, productId, price", unique = true))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductDailyStatEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate statDate;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Action action;
+
+    private double price;
+
+    // as on one of the day's ledger rows
+    private String productName;
+
+    private String unit;
+
+    private long quantity;
+
+    private double amount;
+}
@@ -0,0 +1,27 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A change to products.storage_quantity made at a location and not folded into the total yet.
+// Appending a row locks nothing another sale needs; the rows are folded in batches.
+@Entity
+@Table(name = "stock_delta", indexes = @Index(name = "idx_stock_delta_product", columnList = "productId"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockDeltaEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private int difference;
+}
@@ -0,0 +1,22 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+// A place stock is kept and sold from, e.g. the front counter or the back warehouse.
+@Entity
+@Table(name = "stock_location")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class StockLocationEntity extends BaseEntity {
+    private String code;
+    private String name;
+}
@@ -0,0 +1,32 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Quantity of one product at the end of one day, as summed from the ledger.
+@Entity
+@Table(name = "stock_snapshot", indexes = @Index(name = "uk_stock_snapshot_date_product",
+        columnList = "snapshotDate, productId", unique = true))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockSnapshotEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate snapshotDate;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private int quantity;
+}
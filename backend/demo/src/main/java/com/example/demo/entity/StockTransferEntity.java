@@ -0,0 +1,31 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Stock moved between locations. A missing side is the stock not assigned to any location yet.
+@Entity
+@Table(name = "stock_transfer", indexes = @Index(name = "idx_stock_transfer_create_date", columnList = "createDate"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockTransferEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long fromLocationId;
+
+    private Long toLocationId;
+
+    private String note;
+
+    private LocalDateTime createDate;
+}
@@ -0,0 +1,29 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "stock_transfer_line", indexes = @Index(name = "idx_stock_transfer_line_transfer",
+        columnList = "transferId"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockTransferLineEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long transferId;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private int quantity;
+}
@@ -0,0 +1,5 @@
+package com.example.demo.entity.enums;
+
+public enum OrderAction {
+    CREATED, UPDATED, INVOICED, DELETED
+}
@@ -0,0 +1,6 @@
+package com.example.demo.entity.enums;
+
+public enum OrderLineKind {
+    PRODUCT,
+    SERVICE
+}
@@ -0,0 +1,8 @@
+package com.example.demo.entity.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    PROCESSING,
+    DONE,
+    FAILED
+}
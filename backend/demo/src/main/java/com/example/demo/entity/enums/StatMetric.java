@@ -0,0 +1,7 @@
+package com.example.demo.entity.enums;
+
+public enum StatMetric {
+    IMPORT_SPEND,
+    EXPORT_REVENUE,
+    SERVICE_REVENUE
+}
@@ -0,0 +1,24 @@
+package com.example.demo.entity.enums;
+
+public enum StockStatus {
+    IN_STOCK,
+    LOW_STOCK,
+    OUT_STOCK;
+
+    public static StockStatus of(Integer storageQuantity, Integer quantityWarning) {
+        int quantity = storageQuantity == null ? 0 : storageQuantity;
+        if (quantityWarning != null && quantity >= quantityWarning) {
+            return IN_STOCK;
+        }
+        return quantity > 0 ? LOW_STOCK : OUT_STOCK;
+    }
+
+    // the same rule in SQL, for statements that write products without loading the entity
+    public static final String SQL = "case when storage_quantity >= quantity_warning then 'IN_STOCK' " +
+            "when storage_quantity > 0 then 'LOW_STOCK' else 'OUT_STOCK' end";
+
+    // the rule applied to the quantity a statement is about to write
+    public static String sql(String storageQuantity) {
+        return SQL.replace("storage_quantity", storageQuantity);
+    }
+}
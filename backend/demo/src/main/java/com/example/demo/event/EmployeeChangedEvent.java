@@ -0,0 +1,16 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.EmployeeEntity;
+import org.springframework.context.ApplicationEvent;
+
+// An employee was created, edited or deactivated.
+public class EmployeeChangedEvent extends ApplicationEvent {
+
+    public EmployeeChangedEvent(EmployeeEntity employee) {
+        super(employee);
+    }
+
+    public EmployeeEntity getEmployee() {
+        return (EmployeeEntity) getSource();
+    }
+}
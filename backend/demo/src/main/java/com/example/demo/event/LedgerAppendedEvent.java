@@ -0,0 +1,19 @@
+package com.example.demo.event;
+
+import com.example.demo.model.stock.LedgerEntry;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+// history_product rows written by the StockLedgerWriter, all dated when the event is published.
+public class LedgerAppendedEvent extends ApplicationEvent {
+
+    public LedgerAppendedEvent(List<LedgerEntry> entries) {
+        super(entries);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<LedgerEntry> getEntries() {
+        return (List<LedgerEntry>) getSource();
+    }
+}
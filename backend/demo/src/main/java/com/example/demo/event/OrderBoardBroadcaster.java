@@ -0,0 +1,167 @@
+package com.example.demo.event;
+
+import com.example.demo.model.response.orderReponse.OrderBoardEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Single in-process fan-out of committed order changes to the dispatch board streams.
+// Each subscriber has a bounded queue drained on a shared sender pool; a subscriber whose queue
+// overflows is dropped and reconnects with Last-Event-ID. The last HISTORY_SIZE events are kept for replay.
+@Slf4j
+@Component
+public class OrderBoardBroadcaster {
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final int BUFFER_SIZE = 256;
+    private static final int HISTORY_SIZE = 1000;
+
+    private final Executor sender;
+    private final int bufferSize;
+    private final int historySize;
+    private final Deque<OrderBoardEvent> history = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private long sequence;
+
+    public OrderBoardBroadcaster() {
+        this(Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "order-board-sender");
+            thread.setDaemon(true);
+            return thread;
+        }), BUFFER_SIZE, HISTORY_SIZE);
+    }
+
+    OrderBoardBroadcaster(Executor sender, int bufferSize, int historySize) {
+        this.sender = sender;
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = this.register(new Sink() {
+            @Override
+            public void send(OrderBoardEvent event) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getId()))
+                        .name(event.getAction() == null ? "reset" : event.getAction().name().toLowerCase(Locale.ROOT))
+                        .data(event, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        }, lastEventId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(throwable -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    // runs once per committed change, whatever the number of open boards
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        synchronized (this) {
+            OrderBoardEvent boardEvent = new OrderBoardEvent(++sequence, event.getAction(), event.getOrder());
+            history.addLast(boardEvent);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            subscribers.forEach(subscriber -> this.offer(subscriber, boardEvent));
+        }
+    }
+
+    synchronized Subscriber register(Sink sink, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(sink, new ArrayBlockingQueue<>(bufferSize));
+        if (lastEventId != null && lastEventId != sequence) {
+            long oldest = history.isEmpty() ? sequence + 1 : history.peekFirst().getId();
+            List<OrderBoardEvent> missed = history.stream()
+                    .filter(event -> event.getId() > lastEventId)
+                    .toList();
+            // ids from before a restart, or a gap that history or the buffer cannot cover:
+            // the client reloads the list once instead
+            if (lastEventId > sequence || lastEventId + 1 < oldest || missed.size() > bufferSize) {
+                subscriber.queue.offer(new OrderBoardEvent(sequence, null, null));
+            } else {
+                subscriber.queue.addAll(missed);
+            }
+        }
+        subscribers.add(subscriber);
+        this.schedule(subscriber);
+        return subscriber;
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void offer(Subscriber subscriber, OrderBoardEvent event) {
+        if (!subscriber.queue.offer(event)) {
+            log.info("Dropping slow order board subscriber after {} queued events", bufferSize);
+            this.drop(subscriber);
+            return;
+        }
+        this.schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+            sender.execute(() -> this.drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            OrderBoardEvent event;
+            while (subscribers.contains(subscriber) && (event = subscriber.queue.poll()) != null) {
+                subscriber.sink.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            this.drop(subscriber);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (subscribers.contains(subscriber)) {
+            this.schedule(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.queue.clear();
+            subscriber.sink.close();
+        }
+    }
+
+    interface Sink {
+        void send(OrderBoardEvent event) throws IOException;
+
+        void close();
+    }
+
+    static final class Subscriber {
+        private final Sink sink;
+        private final BlockingQueue<OrderBoardEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(Sink sink, BlockingQueue<OrderBoardEvent> queue) {
+            this.sink = sink;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.enums.OrderAction;
+import com.example.demo.model.response.orderReponse.BaseOrder;
+import org.springframework.context.ApplicationEvent;
+
+public class OrderChangedEvent extends ApplicationEvent {
+    private final OrderAction action;
+
+    public OrderChangedEvent(BaseOrder order, OrderAction action) {
+        super(order);
+        this.action = action;
+    }
+
+    public BaseOrder getOrder() {
+        return (BaseOrder) getSource();
+    }
+
+    public OrderAction getAction() {
+        return action;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.event;
+
+import com.example.demo.model.statistic.OrderLineChange;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+// Signed quantity changes of order_product and order_service lines, each on the day its line was created.
+public class OrderLinesChangedEvent extends ApplicationEvent {
+
+    public OrderLinesChangedEvent(List<OrderLineChange> changes) {
+        super(changes);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<OrderLineChange> getChanges() {
+        return (List<OrderLineChange>) getSource();
+    }
+}
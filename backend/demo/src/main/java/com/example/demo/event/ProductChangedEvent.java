@@ -0,0 +1,16 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.ProductEntity;
+import org.springframework.context.ApplicationEvent;
+
+// A product was created, edited or deactivated; its stock and threshold are absolute here.
+public class ProductChangedEvent extends ApplicationEvent {
+
+    public ProductChangedEvent(ProductEntity product) {
+        super(product);
+    }
+
+    public ProductEntity getProduct() {
+        return (ProductEntity) getSource();
+    }
+}
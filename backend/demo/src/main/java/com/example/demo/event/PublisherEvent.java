@@ -1,10 +1,20 @@
 package com.example.demo.event;
 
+import com.example.demo.entity.EmployeeEntity;
 import com.example.demo.entity.ForgotPasswordEntity;
+import com.example.demo.entity.ProductEntity;
+import com.example.demo.entity.ServiceEntity;
+import com.example.demo.entity.enums.OrderAction;
 import com.example.demo.model.response.PasswordResponse;
+import com.example.demo.model.response.orderReponse.BaseOrder;
+import com.example.demo.model.statistic.OrderLineChange;
+import com.example.demo.model.stock.LedgerEntry;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 @Component
 public class PublisherEvent {
     private final ApplicationEventPublisher eventPublisher;
@@ -20,4 +30,34 @@ public class PublisherEvent {
     public void sendPassWordToEmail(PasswordResponse passwordResponse) {
         eventPublisher.publishEvent(new PasswordEvent(passwordResponse));
     }
+
+    public void orderChanged(BaseOrder order, OrderAction action) {
+        eventPublisher.publishEvent(new OrderChangedEvent(order, action));
+    }
+
+    public void stockChanged(Map<Long, Integer> differences) {
+        eventPublisher.publishEvent(new StockChangedEvent(differences));
+    }
+
+    public void productChanged(ProductEntity product) {
+        eventPublisher.publishEvent(new ProductChangedEvent(product));
+    }
+
+    public void serviceChanged(ServiceEntity service) {
+        eventPublisher.publishEvent(new ServiceChangedEvent(service));
+    }
+
+    public void employeeChanged(EmployeeEntity employee) {
+        eventPublisher.publishEvent(new EmployeeChangedEvent(employee));
+    }
+
+    public void ledgerAppended(List<LedgerEntry> entries) {
+        eventPublisher.publishEvent(new LedgerAppendedEvent(entries));
+    }
+
+    public void orderLinesChanged(List<OrderLineChange> changes) {
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new OrderLinesChangedEvent(changes));
+        }
+    }
 }
@@ -0,0 +1,16 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.ServiceEntity;
+import org.springframework.context.ApplicationEvent;
+
+// A service was created, edited or deactivated.
+public class ServiceChangedEvent extends ApplicationEvent {
+
+    public ServiceChangedEvent(ServiceEntity service) {
+        super(service);
+    }
+
+    public ServiceEntity getService() {
+        return (ServiceEntity) getSource();
+    }
+}
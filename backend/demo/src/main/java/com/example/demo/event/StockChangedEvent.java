@@ -0,0 +1,19 @@
+package com.example.demo.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Map;
+
+// Relative stock movements: product id -> signed change. Movements commute, so listeners can
+// apply them in commit order without reading the products back.
+public class StockChangedEvent extends ApplicationEvent {
+
+    public StockChangedEvent(Map<Long, Integer> differences) {
+        super(differences);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<Long, Integer> getDifferences() {
+        return (Map<Long, Integer>) getSource();
+    }
+}
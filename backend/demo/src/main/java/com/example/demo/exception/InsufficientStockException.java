@@ -0,0 +1,16 @@
+package com.example.demo.exception;
+
+import java.util.List;
+
+public class InsufficientStockException extends BaseException {
+    private final List<Long> productIds;
+
+    public InsufficientStockException(List<Long> productIds) {
+        super("Không tìm thấy sản phẩm theo id = " + productIds + " hoặc hết sản phẩm trong kho.");
+        this.productIds = productIds;
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
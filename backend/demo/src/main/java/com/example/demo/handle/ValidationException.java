@@ -3,6 +3,7 @@ package com.example.demo.handle;
 import com.example.demo.exception.BaseException;
 import com.example.demo.exception.CreateAccountException;
 import com.example.demo.exception.EntityNotFoundException;
+import com.example.demo.exception.InsufficientStockException;
 import com.example.demo.model.BaseResponse;
 import jakarta.mail.MessagingException;
 import lombok.extern.slf4j.Slf4j;
@@ -69,6 +70,17 @@ public class ValidationException {
                 .build();
     }
 
+    @ExceptionHandler(InsufficientStockException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public BaseResponse handleInsufficientStock(InsufficientStockException exception) {
+        log.error(exception.getMessage());
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.BAD_REQUEST.value())
+                .message(exception.getMessage())
+                .data(exception.getProductIds())
+                .build();
+    }
+
     @ExceptionHandler(BaseException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public BaseResponse handleBaseException(Exception exception) {
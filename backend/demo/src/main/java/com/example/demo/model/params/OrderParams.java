@@ -1,6 +1,7 @@
 package com.example.demo.model.params;
 
 import com.example.demo.utils.DateFormat;
+import com.example.demo.utils.SeekCursor;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -23,6 +24,10 @@ public class OrderParams extends BaseParams {
   private String type;
   private LocalDateTime startTime;
   private LocalDateTime endTime;
+  private boolean cursorMode;
+  private boolean withCount;
+  private LocalDateTime cursorCreateDate;
+  private Long cursorId;
 
   public OrderParams(Map<String, String> map) {
     super(map);
@@ -38,5 +43,16 @@ public class OrderParams extends BaseParams {
       startTime = DateFormat.toLocalDateTime(map.get("startTime"), true).withHour(0).withMinute(0).minusDays(1);
       endTime = DateFormat.toLocalDateTime(map.get("endTime"), true).withHour(0).withMinute(0);
     }
+
+    // "cursor" present (empty for the first page) switches to keyset paging
+    if (map.containsKey("cursor")) {
+      this.cursorMode = true;
+      this.withCount = Boolean.parseBoolean(map.get("withCount"));
+      if (map.get("cursor") != null && !map.get("cursor").isBlank()) {
+        SeekCursor cursor = SeekCursor.decode(map.get("cursor"));
+        this.cursorCreateDate = cursor.getCreateDate();
+        this.cursorId = cursor.getId();
+      }
+    }
   }
 }
\ No newline at end of file
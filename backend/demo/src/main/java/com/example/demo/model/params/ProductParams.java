@@ -1,7 +1,11 @@
 package com.example.demo.model.params;
 
+import java.util.Locale;
 import java.util.Map;
 
+import com.example.demo.entity.enums.StockStatus;
+import com.example.demo.exception.BaseException;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -14,12 +18,18 @@ import lombok.NoArgsConstructor;
 public class ProductParams extends BaseParams {
   private String name;
   private String code;
-  private String status;
+  private StockStatus status;
 
   public ProductParams(Map<String, String> params) {
     super(params);
     this.name = params.get("name");
     this.code = params.get("code");
-    this.status = params.get("status");
+    if (params.get("status") != null) {
+      try {
+        this.status = StockStatus.valueOf(params.get("status").trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new BaseException("Trạng thái tồn kho không hợp lệ: " + params.get("status"));
+      }
+    }
   }
 }
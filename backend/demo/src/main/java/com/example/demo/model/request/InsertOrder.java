@@ -16,10 +16,12 @@ public class InsertOrder {
     @NotNull(message = "Khách hàng không được trống.")
     private Long customerId;
 
+    // may be left empty when assignment is "least-loaded"
     @Positive(message = "id phải lớn hơn 0.")
-    @NotNull(message = "Nhân viên sửa chữa không được trống.")
     private Long repairerId;
 
+    private String assignment;
+
     @NotBlank(message = "Biển số xe là bắt buộc.")
     private String motorbikeCode;
 
@@ -29,6 +31,11 @@ public class InsertOrder {
     private String type;
 
     private String note;
+
+    // products are taken from this location; empty takes them from the stock no location holds
+    @Positive(message = "id phải lớn hơn 0.")
+    private Long locationId;
+
     private List<ServiceOrders> services;
     private List<ProductOrders> products;
 }
@@ -0,0 +1,15 @@
+package com.example.demo.model.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@Builder
+@Data
+@AllArgsConstructor
+public class ReceiptLine {
+    private String code;
+    private Integer quantity;
+}
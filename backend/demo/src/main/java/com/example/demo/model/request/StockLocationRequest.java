@@ -0,0 +1,19 @@
+package com.example.demo.model.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@Builder
+@Data
+@AllArgsConstructor
+public class StockLocationRequest {
+    @NotBlank(message = "Mã kho là bắt buộc.")
+    private String code;
+
+    @NotBlank(message = "Tên kho là bắt buộc.")
+    private String name;
+}
@@ -0,0 +1,27 @@
+package com.example.demo.model.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@NoArgsConstructor
+@Builder
+@Data
+@AllArgsConstructor
+public class StockTransferRequest {
+    // null: stock not assigned to any location
+    private Long fromLocationId;
+
+    private Long toLocationId;
+
+    private String note;
+
+    @Valid
+    @NotEmpty(message = "Danh sách linh kiện không được trống.")
+    private List<ProductOrders> products;
+}
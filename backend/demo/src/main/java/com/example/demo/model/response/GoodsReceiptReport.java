@@ -0,0 +1,18 @@
+package com.example.demo.model.response;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class GoodsReceiptReport {
+    private long lines;
+    private long products;
+    private long units;
+    private long failed;
+    private long elapsedMillis;
+    private List<ImportError> errors;
+    private List<ReceivedProduct> received;
+}
@@ -0,0 +1,11 @@
+package com.example.demo.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ImportError {
+    private long line;
+    private String message;
+}
@@ -0,0 +1,17 @@
+package com.example.demo.model.response;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class ImportReport {
+    private long total;
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    private double recordsPerSecond;
+    private List<ImportError> errors;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.model.response;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Builder
+public class InventoryValuation {
+    private LocalDate from;
+    private LocalDate to;
+    private double openingValue;
+    private double importedValue;
+    private double cogs;
+    private double closingValue;
+    private List<ProductValuation> products;
+}
@@ -0,0 +1,14 @@
+package com.example.demo.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LocationQuantity {
+    private Long locationId;
+    private Long productId;
+    private String code;
+    private String name;
+    private int quantity;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ProductValuation {
+    private Long productId;
+    private String name;
+    private double openingValue;
+    private int importedQuantity;
+    private double importedValue;
+    private int exportedQuantity;
+    // FIFO cost of the exported units
+    private double cogs;
+    private int closingQuantity;
+    private double closingValue;
+}
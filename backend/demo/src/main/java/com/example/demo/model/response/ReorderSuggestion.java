@@ -0,0 +1,18 @@
+package com.example.demo.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ReorderSuggestion {
+    private Long productId;
+    private String code;
+    private String name;
+    private int storageQuantity;
+    // expected units exported per day and their standard deviation
+    private double dailyDemand;
+    private double dailyDeviation;
+    private int reorderPoint;
+    private int suggestedQuantity;
+}
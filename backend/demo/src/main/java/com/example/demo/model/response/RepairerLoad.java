@@ -0,0 +1,13 @@
+package com.example.demo.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RepairerLoad {
+    private Long id;
+    private String code;
+    private String name;
+    private int openOrders;
+}
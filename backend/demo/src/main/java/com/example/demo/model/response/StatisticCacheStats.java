@@ -0,0 +1,20 @@
+package com.example.demo.model.response;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class StatisticCacheStats {
+    private long size;
+    private long maxSize;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long loadCount;
+    private long loadFailureCount;
+    private double averageLoadMillis;
+    private long evictionCount;
+    // entries dropped because a committed write touched their days
+    private long invalidatedCount;
+}
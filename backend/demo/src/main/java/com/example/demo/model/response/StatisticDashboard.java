@@ -0,0 +1,16 @@
+package com.example.demo.model.response;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@Builder
+public class StatisticDashboard {
+    // part name -> data of that statistic, missing when the part failed
+    private Map<String, Object> parts;
+    // part name -> why it has no data
+    private Map<String, String> errors;
+    private long elapsedMillis;
+}
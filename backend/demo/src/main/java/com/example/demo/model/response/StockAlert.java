@@ -0,0 +1,20 @@
+package com.example.demo.model.response;
+
+import com.example.demo.entity.enums.StockStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class StockAlert {
+    private Long id;
+    private String code;
+    private String name;
+    private int storageQuantity;
+    private Integer quantityWarning;
+    private StockStatus status;
+    // when the product entered its current status
+    private LocalDateTime since;
+}
@@ -14,6 +14,7 @@ public class BaseOrder {
     private String customerCode;
     private String dispatcherName;
     private String repairerName;
+    private Long repairerId;
     private String motorbikeCode;
     private LocalDateTime createDate;
     private String type;
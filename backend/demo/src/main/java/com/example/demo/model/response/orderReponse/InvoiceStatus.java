@@ -0,0 +1,17 @@
+package com.example.demo.model.response.orderReponse;
+
+import com.example.demo.entity.enums.OutboxStatus;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+public class InvoiceStatus {
+    private Long orderId;
+    private OutboxStatus status;
+    private int attempts;
+    private String lastError;
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,14 @@
+package com.example.demo.model.response.orderReponse;
+
+import com.example.demo.entity.enums.OrderAction;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class OrderBoardEvent {
+    private long id;
+    // null for the reset event sent when a resumed stream can no longer be replayed
+    private OrderAction action;
+    private BaseOrder order;
+}
@@ -0,0 +1,21 @@
+package com.example.demo.model.statistic;
+
+import com.example.demo.entity.enums.OrderLineKind;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+@Builder
+public class OrderLineChange {
+    private OrderLineKind kind;
+    // product or service id
+    private Long itemId;
+    // create date of the line the quantity is counted on
+    private LocalDate day;
+    private int quantity;
+    private String name;
+    private Double price;
+    private String unit;
+}
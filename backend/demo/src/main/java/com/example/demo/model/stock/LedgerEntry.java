@@ -0,0 +1,20 @@
+package com.example.demo.model.stock;
+
+import com.example.demo.entity.enums.Action;
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class LedgerEntry {
+    private Long productId;
+    private String productName;
+    private String unit;
+    private Double priceIn;
+    private Double priceOut;
+    private int difference;
+    private int quantityLeft;
+    private Action action;
+    private String note;
+    private boolean sale;
+}
@@ -0,0 +1,15 @@
+package com.example.demo.model.stock;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class StockItem {
+    private Long id;
+    private String name;
+    private Double price;
+    private String unit;
+    private Integer quantity;
+    private Integer storageQuantity;
+}
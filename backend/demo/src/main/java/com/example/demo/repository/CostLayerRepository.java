@@ -0,0 +1,31 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.CostLayerEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CostLayerRepository extends JpaRepository<CostLayerEntity, Long> {
+    // per product: units in, value in, units out, cost of goods sold in [?1, ?2)
+    @Query(value = "select product_id, " +
+            "sum(case when quantity > 0 then quantity else 0 end), " +
+            "sum(case when quantity > 0 then amount else 0 end), " +
+            "sum(case when quantity < 0 then -quantity else 0 end), " +
+            "sum(case when quantity < 0 then -amount else 0 end) " +
+            "from cost_movement where moved_at >= ?1 and moved_at < ?2 group by product_id", nativeQuery = true)
+    List<Object[]> getMovementsBetween(LocalDateTime from, LocalDateTime to);
+
+    // per product: net units and value moved from ?1 on
+    @Query(value = "select product_id, sum(quantity), sum(amount) from cost_movement where moved_at >= ?1 " +
+            "group by product_id", nativeQuery = true)
+    List<Object[]> getMovementsSince(LocalDateTime from);
+
+    // per product: units and value in stock now
+    @Query(value = "select product_id, sum(remaining), sum(remaining * unit_cost) from cost_layer " +
+            "group by product_id", nativeQuery = true)
+    List<Object[]> getOpenValues();
+}
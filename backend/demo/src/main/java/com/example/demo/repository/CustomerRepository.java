@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -49,4 +51,7 @@ public interface CustomerRepository extends BaseRepository<CustomerEntity> {
         int countByEmail(String email);
 
         Optional<CustomerEntity> findByIdAndIsActive(Long id, Boolean isActive);
+
+        @Query(value = "select id from customers where id in (:ids) and is_active = true", nativeQuery = true)
+        List<Long> getActiveIds(@Param("ids") Collection<Long> ids);
 }
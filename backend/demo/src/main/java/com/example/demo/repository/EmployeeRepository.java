@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -90,4 +91,11 @@ public interface EmployeeRepository extends BaseRepository<EmployeeEntity> {
             "where e.email = :email and e.isActive = true")
     boolean existsByEmailAndIsActive(@Param("email") String email);
 
+    @Query(value = "select id, code, name from employees where is_active = true and type = 'REPAIRER'",
+            nativeQuery = true)
+    List<Object[]> getActiveRepairers();
+
+    @Query(value = "select id from employees where id in (:ids) and is_active = true and type = 'REPAIRER'",
+            nativeQuery = true)
+    List<Long> getActiveRepairerIds(@Param("ids") Collection<Long> ids);
 }
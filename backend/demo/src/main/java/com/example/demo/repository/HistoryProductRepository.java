@@ -3,7 +3,6 @@ package com.example.demo.repository;
 import com.example.demo.entity.HistoryEntity;
 import com.example.demo.model.params.HistoryParams;
 import com.example.demo.model.params.StatisticInYear;
-import com.example.demo.model.params.StatisticProductParams;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
@@ -56,110 +55,15 @@ public interface HistoryProductRepository extends BaseRepository<HistoryEntity>
                         "order by c.id; ", nativeQuery = true)
         List<Object[]> statisticHistoryProduct();
 
-        // @Query(value = "WITH CaculationIn AS (" +
-        // "SELECT p.id, p.code, p.name, p.unit, p.price_in AS price," +
-        // " SUM(h_p.difference) AS total_quantity_in," +
-        // // " SUM(h_p.price_in) AS total_price_in," +
-        // " SUM(h_p.price_in * h_p.difference) AS total_income_in " +
-        // "FROM history_product AS h_p " +
-        // "INNER JOIN products AS p ON h_p.product_id = p.id " +
-        // "WHERE h_p.difference > 0 " +
-        // "GROUP BY p.id, p.code, p.name, p.unit, p.price_in " +
-        // ") " +
-        // "SELECT c.id, c.code, c.name, c.unit, c.price," +
-        // " c.total_quantity_in AS total_quantity," +
-        // " (c.total_quantity_in * c.total_price_in) AS total_income " +
-        // "FROM CaculationIn AS c " +
-        // "ORDER BY c.id", nativeQuery = true)
-        @Query(value = "WITH CalculationIn AS (" +
-                        "SELECT h_p.product_id as id, p.code, h_p.product_name as name, h_p.unit, h_p.price_in AS price,"
-                        +
-                        "       SUM(h_p.difference) AS total_quantity_in," +
-                        "       SUM(-h_p.price_in * h_p.difference) AS total_income_in " +
-                        "FROM history_product AS h_p " +
-                        "INNER JOIN products AS p ON h_p.product_id = p.id " +
-                        "WHERE h_p.difference > 0 " +
-                        "AND (:#{#params.startTime} is null or :#{#params.endTime} is null or " +
-                        "h_p.create_date between :#{#params.startTime} and :#{#params.endTime}) " +
-                        "GROUP BY h_p.product_id, p.code, h_p.product_name, h_p.unit, h_p.price_in " +
-                        ") " +
-                        "SELECT c_in.id, c_in.code, c_in.name, c_in.unit, c_in.price," +
-                        "       c_in.total_quantity_in AS total_quantity," +
-                        "       c_in.total_income_in AS total_income " +
-                        "FROM CalculationIn AS c_in " +
-                        "ORDER BY c_in.id", nativeQuery = true)
-        Page<Object[]> statisticHistoryProductIn(
-                        @Param("params") StatisticProductParams statisticProductParams, Pageable pageable);
-
-        // @Query(value = "WITH CaculationOut AS (" +
-        // "SELECT p.id, p.code, p.name, p.unit, p.price_out AS price," +
-        // " SUM(h_p.difference) AS total_quantity_out," +
-        // // " SUM(h_p.price_out) AS total_price_out," +
-        // " SUM(h_p.price_out * h_p.difference) AS total_income_out " +
-        // "FROM history_product AS h_p " +
-        // "INNER JOIN products AS p ON h_p.product_id = p.id " +
-        // "WHERE h_p.difference < 0 " +
-        // "GROUP BY p.id, p.code, p.name, p.unit, p.price_out " +
-        // ") " +
-        // "SELECT c_out.id, c_out.code, c_out.name, c_out.unit, c_out.price," +
-        // " c_out.total_quantity_out AS total_quantity," +
-        // " (c_out.total_quantity_out * c_out.total_price_out) AS total_income " +
-        // "FROM CaculationOut AS c_out " +
-        // "ORDER BY c_out.id", nativeQuery = true)
-        @Query(value = "WITH CalculationOut AS (" +
-                        "SELECT h_p.product_id as id, p.code, h_p.product_name as name, h_p.unit, h_p.price_out AS price,"
-                        +
-                        "       SUM(-h_p.difference) AS total_quantity_out," +
-                        "       SUM(-h_p.price_out * h_p.difference) AS total_income_out " +
-                        "FROM history_product AS h_p " +
-                        "INNER JOIN products AS p ON h_p.product_id = p.id " +
-                        "WHERE h_p.difference < 0 " +
-                        "AND (:#{#params.startTime} is null or :#{#params.endTime} is null or " +
-                        "h_p.create_date between :#{#params.startTime} and :#{#params.endTime}) " +
-                        "GROUP BY h_p.product_id, p.code, h_p.product_name, h_p.unit, h_p.price_out " +
-                        ") " +
-                        "SELECT c_out.id, c_out.code, c_out.name, c_out.unit, c_out.price," +
-                        "       c_out.total_quantity_out AS total_quantity," +
-                        "       c_out.total_income_out AS total_income " +
-                        "FROM CalculationOut AS c_out " +
-                        "ORDER BY c_out.id", nativeQuery = true)
-        Page<Object[]> statisticHistoryProductOut(
-                        @Param("params") StatisticProductParams statisticProductParams, Pageable pageable);
-
-        @Query(value = "with recursive dates as ( " +
-                        "select curdate() - interval (1 - day(curdate())) day as yyyymm, 1 as lev " +
-                        "union all " +
-                        "select yyyymm - interval 1 month, lev + 1 " +
-                        "from dates " +
-                        "where lev < 12) " +
-                        "select DATE_FORMAT(d.yyyymm, '%m') as month, DATE_FORMAT(d.yyyymm, '%Y') as year, sum(hp.difference * hp.price_in) as expense "
-                        +
-                        "from dates d left join " +
-                        "history_product hp " +
-                        "on hp.create_date >= d.yyyymm - interval 1 month " +
-                        "and hp.create_date < d.yyyymm  " +
-                        "and hp.difference > 0 " +
-                        "group by year, month " +
-                        "order by year, month;", nativeQuery = true)
-        List<Object[]> statisticProductInYear();
-
-        @Query(value = "with recursive dates as ( " +
-                        "select curdate() - interval (1 - day(curdate())) day as yyyymm, 1 as lev " +
-                        "union all " +
-                        "select yyyymm - interval 1 month, lev + 1 " +
-                        "from dates " +
-                        "where lev < 12) " +
-                        "select DATE_FORMAT(d.yyyymm, '%m') as month, DATE_FORMAT(d.yyyymm, '%Y') as year, sum(hp.difference * hp.price_out) as expense "
-                        +
-                        "from dates d left join " +
-                        "history_product hp " +
-                        "on hp.create_date >= d.yyyymm - interval 1 month " +
-                        "and hp.create_date < d.yyyymm  " +
-                        "and hp.difference < 0 " +
-                        "group by year, month " +
-                        "order by year, month;", nativeQuery = true)
-
-        List<Object[]> statisticProductOutInYear();
+        // units sold per product per day, for products with ids in [?1, ?2]. Rows written before the sale flag
+        // existed count when they carry the note of an invoice export.
+        @Query(value = "select product_id, cast(create_date as date) export_day, -sum(difference) " +
+                        "from history_product " +
+                        "where product_id between ?1 and ?2 and action = 'EXPORT' " +
+                        "and (sale = true or sale is null and note like 'Xuất bởi %') " +
+                        "group by product_id, cast(create_date as date) " +
+                        "order by product_id, export_day", nativeQuery = true)
+        List<Object[]> getDailyExports(long fromProductId, long toProductId);
 
 }
 
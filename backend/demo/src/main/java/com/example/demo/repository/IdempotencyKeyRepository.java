@@ -0,0 +1,27 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, Long> {
+    @Query(value = "select * from idempotency_keys where idempotency_key = ?1", nativeQuery = true)
+    Optional<IdempotencyKeyEntity> getByKey(String key);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from idempotency_keys where create_at < ?1", nativeQuery = true)
+    int deleteCreatedBefore(LocalDateTime time);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from idempotency_keys where idempotency_key = ?1 and create_at < ?2", nativeQuery = true)
+    int deleteByKeyCreatedBefore(String key, LocalDateTime time);
+}
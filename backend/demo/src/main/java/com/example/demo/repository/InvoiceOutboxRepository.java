@@ -0,0 +1,19 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.InvoiceOutboxEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InvoiceOutboxRepository extends JpaRepository<InvoiceOutboxEntity, Long> {
+    @Query(value = "select * from invoice_outbox where order_id = ?1", nativeQuery = true)
+    Optional<InvoiceOutboxEntity> getByOrderId(Long orderId);
+
+    @Query(value = "select id, order_id from invoice_outbox where status = 'PENDING' order by id limit ?1",
+            nativeQuery = true)
+    List<Object[]> getPending(int limit);
+}
@@ -0,0 +1,17 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.MonthlyStatEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface MonthlyStatRepository extends JpaRepository<MonthlyStatEntity, Long> {
+    // month, total of the metric for months from ?2 on
+    @Query(value = "select stat_month, sum(amount) from monthly_stat " +
+            "where metric = ?1 and stat_month >= ?2 group by stat_month", nativeQuery = true)
+    List<Object[]> getTotalsSince(String metric, LocalDate fromMonth);
+}
@@ -2,10 +2,13 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.OrderProduct;
 import com.example.demo.model.params.TimeParams;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -23,7 +26,42 @@ public interface OrderProductsRepository extends BaseRepository<OrderProduct> {
                         "where " +
                         "(:#{#time.startTime} is null or :#{#time.endTime} is null " +
                         "or o_p.create_date between :#{#time.startTime} and :#{#time.endTime}) " +
-                        "group by o_p.id " +
+                        "group by o_p.product_id, p.name, p.price_out, p.unit " +
                         "order by sum desc;", nativeQuery = true)
         List<Object[]> statisticTopProduct(@Param("time") TimeParams timeParams);
+
+        // largest first within a day, so a full day summary keeps the top products
+        @Query(value = "select cast(o_p.create_date as date) as line_date, o_p.product_id, sum(o_p.quantity) as sum, " +
+                        "p.name, p.price_out, p.unit " +
+                        "from order_product as o_p " +
+                        "inner join products as p on p.id = o_p.product_id " +
+                        "where o_p.create_date >= ?1 " +
+                        "group by cast(o_p.create_date as date), o_p.product_id, p.name, p.price_out, p.unit " +
+                        "order by line_date, sum desc", nativeQuery = true)
+        List<Object[]> getDailyQuantitiesSince(LocalDateTime from);
+
+        @Query(value = "select count(*) from order_product where create_date is null or create_date < ?1",
+                        nativeQuery = true)
+        long countCreatedBefore(LocalDateTime from);
+
+        @Query(value = "select p.id, o_p.name, o_p.price, o_p.unit, o_p.quantity, p.storage_quantity " +
+                        "from order_product as o_p " +
+                        "left join products as p on p.id = o_p.product_id " +
+                        "where o_p.order_id = ?1 " +
+                        "order by o_p.id", nativeQuery = true)
+        List<Object[]> getOrderDetailLines(Long orderId);
+
+        @Query(value = "select o_p.order_id, o_p.product_id, o_p.quantity, e.code, o_p.quantity_left " +
+                        "from order_product as o_p " +
+                        "inner join orders as o on o.id = o_p.order_id " +
+                        "left join employees as e on e.id = o.repairer_id " +
+                        "where o_p.order_id in (:orderIds) " +
+                        "order by o_p.order_id, o_p.id", nativeQuery = true)
+        List<Object[]> getInvoiceLines(@Param("orderIds") Collection<Long> orderIds);
+
+        @Modifying(flushAutomatically = true)
+        @Query(value = "update order_product set quantity_left = " +
+                        "(select p.storage_quantity from products as p where p.id = order_product.product_id) " +
+                        "where order_id = ?1", nativeQuery = true)
+        int recordQuantitiesLeft(Long orderId);
 }
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -55,21 +56,24 @@ public interface OrderServiceRepository extends BaseRepository<OrderServiceEntit
                         "order by sum desc;", nativeQuery = true)
         List<Object[]> statisticTopInService(@Param("time") TimeParams timeParams);
 
-        @Query(value = "with recursive dates as ( " +
-                        "      select curdate() - interval (1 - day(curdate())) day as yyyymm, 1 as lev " +
-                        "      union all " +
-                        "      select yyyymm - interval 1 month, lev + 1 " +
-                        "      from dates " +
-                        "      where lev < 12 " +
-                        "     ) " +
-                        "select DATE_FORMAT(d.yyyymm, '%m') as month, DATE_FORMAT(d.yyyymm, '%Y') as year, sum(t.price*t.quantity) as cnt "
-                        +
-                        "from dates d left join " +
-                        "     order_service t " +
-                        "     on t.create_date >= d.yyyymm - interval 1 month and  " +
-                        "        t.create_date < d.yyyymm  " +
-                        "group by month, year " +
-                        "order by year, month;", nativeQuery = true)
-        List<Object[]> statisticServiceUsageInTimeMonth();
+        // largest first within a day, so a full day summary keeps the top services
+        @Query(value = "select cast(o_s.create_date as date) as line_date, o_s.service_id, sum(o_s.quantity) as sum, " +
+                        "s.name, s.price, null as unit " +
+                        "from order_service as o_s " +
+                        "inner join services as s on s.id = o_s.service_id " +
+                        "where o_s.create_date >= ?1 " +
+                        "group by cast(o_s.create_date as date), o_s.service_id, s.name, s.price " +
+                        "order by line_date, sum desc", nativeQuery = true)
+        List<Object[]> getDailyQuantitiesSince(LocalDateTime from);
 
+        @Query(value = "select count(*) from order_service where create_date is null or create_date < ?1",
+                        nativeQuery = true)
+        long countCreatedBefore(LocalDateTime from);
+
+        @Query(value = "select s.id, o_s.name, o_s.price, o_s.quantity " +
+                        "from order_service as o_s " +
+                        "left join services as s on s.id = o_s.service_id " +
+                        "where o_s.order_id = ?1 " +
+                        "order by o_s.id", nativeQuery = true)
+        List<Object[]> getOrderDetailLines(Long orderId);
 }
@@ -0,0 +1,107 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.OrderSummaryEntity;
+import com.example.demo.model.params.OrderParams;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderSummaryRepository extends JpaRepository<OrderSummaryEntity, Long> {
+
+    String SUMMARY_CONDITIONS = "from order_summary as s " +
+            "where s.is_active = true and " +
+            "(:#{#orderParams.code} is null or s.search_code like concat('%',UPPER(:#{#orderParams.code}),'%')) and " +
+            "(:#{#orderParams.customerCode} is null or s.search_customer_code like concat('%',UPPER(:#{#orderParams.customerCode}),'%')) and " +
+            "(:#{#orderParams.customerName} is null or s.search_customer_name like concat('%',UPPER(:#{#orderParams.customerName}),'%')) and " +
+            "(:#{#orderParams.dispatcherName} is null or s.search_dispatcher_name like concat('%',UPPER(:#{#orderParams.dispatcherName}),'%')) and " +
+            "(:#{#orderParams.repairerName} is null or s.search_repairer_name like concat('%',UPPER(:#{#orderParams.repairerName}),'%')) and " +
+            "(:#{#orderParams.motorbikeCode} is null or s.search_motorbike_code like concat('%',UPPER(:#{#orderParams.motorbikeCode}),'%')) and " +
+            "(:#{#orderParams.type} is null or s.type like concat('%',UPPER(:#{#orderParams.type}),'%')) and " +
+            "(:#{#orderParams.startTime} is null or " +
+            ":#{#orderParams.endTime} is null or " +
+            "s.create_date between :#{#orderParams.startTime} and :#{#orderParams.endTime}) ";
+
+    String SUMMARY_COLUMNS = "select s.id, s.code, s.customer_code, s.customer_name, s.dispatcher_name, " +
+            "s.repairer_name, s.motorbike_code, s.create_date, s.type, s.repairer_id ";
+
+    // the summary row of an order, built from the write tables
+    String INSERT_SUMMARY = "insert into order_summary (id, code, type, is_active, create_date, motorbike_code, " +
+            "customer_id, customer_code, customer_name, dispatcher_id, dispatcher_name, repairer_id, repairer_name, " +
+            "total_service, total_product, search_code, search_motorbike_code, search_customer_code, " +
+            "search_customer_name, search_dispatcher_name, search_repairer_name) " +
+            "select o.id, o.code, o.type, o.is_active, o.create_date, o.motorbike_code, " +
+            "c.id, c.code, c.name, e.id, e.name, e1.id, e1.name, " +
+            "(select coalesce(sum(os.price * os.quantity), 0) from order_service as os where os.order_id = o.id), " +
+            "(select coalesce(sum(op.price * op.quantity), 0) from order_product as op where op.order_id = o.id), " +
+            "UPPER(o.code), UPPER(o.motorbike_code), UPPER(c.code), UPPER(c.name), UPPER(e.name), UPPER(e1.name) " +
+            "from orders as o " +
+            "left join employees as e on e.id = o.dispatcher_id " +
+            "left join employees as e1 on e1.id = o.repairer_id " +
+            "left join customers as c on c.id = o.customer_id ";
+
+    @Query(value = SUMMARY_COLUMNS + SUMMARY_CONDITIONS, nativeQuery = true)
+    Page<Object[]> getSummaryByConditions(@Param("orderParams") OrderParams orderParams, Pageable pageable);
+
+    // keyset page ordered by (create_date, id) desc; seeks past the cursor instead of skipping rows
+    @Query(value = SUMMARY_COLUMNS + SUMMARY_CONDITIONS +
+            "and s.create_date is not null and " +
+            "(:#{#orderParams.cursorId} is null or s.create_date < :#{#orderParams.cursorCreateDate} or " +
+            "(s.create_date = :#{#orderParams.cursorCreateDate} and s.id < :#{#orderParams.cursorId})) " +
+            "order by s.create_date desc, s.id desc", nativeQuery = true)
+    List<Object[]> getSummaryByConditionsAfter(@Param("orderParams") OrderParams orderParams, Pageable pageable);
+
+    @Query(value = SUMMARY_COLUMNS + "from order_summary as s where s.id = ?1", nativeQuery = true)
+    List<Object[]> getSummaryById(Long orderId);
+
+    @Query(value = "select count(*) " + SUMMARY_CONDITIONS, nativeQuery = true)
+    long countSummaryByConditions(@Param("orderParams") OrderParams orderParams);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = "delete from order_summary where id in (:ids)", nativeQuery = true)
+    int deleteByOrderIds(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = INSERT_SUMMARY + "where o.id in (:ids)", nativeQuery = true)
+    int insertByOrderIds(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from order_summary where id between ?1 and ?2", nativeQuery = true)
+    int deleteByIdBetween(long from, long to);
+
+    @Transactional
+    @Modifying
+    @Query(value = INSERT_SUMMARY + "where o.id between ?1 and ?2", nativeQuery = true)
+    int insertByIdBetween(long from, long to);
+
+    @Query(value = "select coalesce(max(id), 0) from orders", nativeQuery = true)
+    long getMaxOrderId();
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = "update order_summary set customer_code = :code, customer_name = :name, " +
+            "search_customer_code = UPPER(:code), search_customer_name = UPPER(:name) " +
+            "where customer_id = :customerId", nativeQuery = true)
+    int renameCustomer(@Param("customerId") Long customerId, @Param("code") String code, @Param("name") String name);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = "update order_summary set " +
+            "dispatcher_name = case when dispatcher_id = :employeeId then :name else dispatcher_name end, " +
+            "search_dispatcher_name = case when dispatcher_id = :employeeId then UPPER(:name) else search_dispatcher_name end, " +
+            "repairer_name = case when repairer_id = :employeeId then :name else repairer_name end, " +
+            "search_repairer_name = case when repairer_id = :employeeId then UPPER(:name) else search_repairer_name end " +
+            "where dispatcher_id = :employeeId or repairer_id = :employeeId", nativeQuery = true)
+    int renameEmployee(@Param("employeeId") Long employeeId, @Param("name") String name);
+}
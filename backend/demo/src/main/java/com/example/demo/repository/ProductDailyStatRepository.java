@@ -0,0 +1,34 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.ProductDailyStatEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface ProductDailyStatRepository extends JpaRepository<ProductDailyStatEntity, Long> {
+    // products imported or exported per product, name, unit and price for days in [from, to);
+    // imports keep their negative income
+    @Query(value = "SELECT s.product_id AS id, p.code, s.product_name AS name, s.unit, s.price," +
+            "       SUM(s.quantity) AS total_quantity," +
+            "       CASE WHEN :action = 'IMPORT' THEN -SUM(s.amount) ELSE SUM(s.amount) END AS total_income " +
+            "FROM product_daily_stat AS s " +
+            "INNER JOIN products AS p ON s.product_id = p.id " +
+            "WHERE s.action = :action " +
+            "AND (:from is null or :to is null or (s.stat_date >= :from and s.stat_date < :to)) " +
+            "GROUP BY s.product_id, p.code, s.product_name, s.unit, s.price " +
+            "ORDER BY s.product_id",
+            countQuery = "SELECT count(*) FROM (SELECT 1 FROM product_daily_stat AS s " +
+                    "INNER JOIN products AS p ON s.product_id = p.id " +
+                    "WHERE s.action = :action " +
+                    "AND (:from is null or :to is null or (s.stat_date >= :from and s.stat_date < :to)) " +
+                    "GROUP BY s.product_id, p.code, s.product_name, s.unit, s.price) AS g",
+            nativeQuery = true)
+    Page<Object[]> statisticByAction(@Param("action") String action, @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to, Pageable pageable);
+}
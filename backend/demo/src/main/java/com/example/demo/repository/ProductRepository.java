@@ -1,13 +1,19 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.ProductEntity;
+import com.example.demo.entity.enums.StockStatus;
 
 import com.example.demo.model.params.ProductParams;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface ProductRepository extends BaseRepository<ProductEntity> {
@@ -18,9 +24,17 @@ public interface ProductRepository extends BaseRepository<ProductEntity> {
                         "and is_active = true", nativeQuery = true)
         int checkExistByIdAndQuantity(Long productId, int quantity);
 
+        @Query(value = "select id, name, price_out, unit, storage_quantity " +
+                        "from products " +
+                        "where id in (:ids) " +
+                        "and is_active = true", nativeQuery = true)
+        List<Object[]> getStockByIds(@Param("ids") Collection<Long> ids);
+
+        // exact status match on the (is_active, status) index; the null check goes through a boolean
+        // because Hibernate cannot bind an enum parameter that only appears in IS NULL
         @Query("SELECT p FROM ProductEntity p " +
                         "WHERE " +
-                        "(:#{#productParams.status} IS NULL OR upper(p.status) LIKE concat('%', upper(:#{#productParams.status}), '%')) and "
+                        "(:#{#productParams.status == null} = TRUE OR p.status = :#{#productParams.status}) and "
                         +
                         "(:#{#productParams.code} IS NULL OR upper(p.code) LIKE concat('%', upper(:#{#productParams.code}), '%')) and "
                         +
@@ -29,4 +43,31 @@ public interface ProductRepository extends BaseRepository<ProductEntity> {
                         "(p.isActive = TRUE)")
         Page<ProductEntity> getAllByParams(@Param("productParams") ProductParams productParams, Pageable pageable);
 
+        @Query(value = "select id, name, unit, price_in, price_out, storage_quantity from products where id in (:ids)",
+                        nativeQuery = true)
+        List<Object[]> getLedgerInfoByIds(@Param("ids") Collection<Long> ids);
+
+        // same columns, with the rows locked until the caller's transaction ends
+        @Query(value = "select id, name, unit, price_in, price_out, storage_quantity from products where id in (:ids) " +
+                        "order by id for update", nativeQuery = true)
+        List<Object[]> lockLedgerInfoByIds(@Param("ids") Collection<Long> ids);
+
+        @Query(value = "select id, code, name from products where upper(code) in (:codes) and is_active = true",
+                        nativeQuery = true)
+        List<Object[]> getByCodes(@Param("codes") Collection<String> codes);
+
+        @Query(value = "select id, code, name, storage_quantity, quantity_warning from products where is_active = true",
+                        nativeQuery = true)
+        List<Object[]> getStockLevels();
+
+        @Query(value = "select coalesce(max(id), 0) from products", nativeQuery = true)
+        long getMaxId();
+
+        // only rows whose stored status disagrees with their quantity are written
+        @Transactional
+        @Modifying
+        @Query(value = "update products set status = " + StockStatus.SQL + " " +
+                        "where id between ?1 and ?2 and (status is null or status <> " + StockStatus.SQL + ")",
+                        nativeQuery = true)
+        int backfillStatusBetween(long from, long to);
 }
@@ -8,6 +8,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ServiceRepository extends BaseRepository<ServiceEntity> {
     @Query(value = "select s.id , s.name , s.price , s.code " +
@@ -25,4 +28,7 @@ public interface ServiceRepository extends BaseRepository<ServiceEntity> {
             +
             "(:#{#service.price} is null or s.price = :#{#service.price}) and is_active = true", nativeQuery = true)
     Page<Object[]> getByParamsInService(@Param("service") BaseService baseService, Pageable pageable);
+
+    @Query(value = "select id, name, price from services where id in (:ids) and is_active = true", nativeQuery = true)
+    List<Object[]> getByIds(@Param("ids") Collection<Long> ids);
 }
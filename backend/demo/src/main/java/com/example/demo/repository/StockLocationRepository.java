@@ -0,0 +1,16 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.StockLocationEntity;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockLocationRepository extends BaseRepository<StockLocationEntity> {
+    Optional<StockLocationEntity> findByIdAndIsActive(Long id, Boolean isActive);
+
+    List<StockLocationEntity> findAllByIsActiveOrderById(Boolean isActive);
+
+    boolean existsByCode(String code);
+}
@@ -0,0 +1,64 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.StockSnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshotEntity, Long> {
+    // product_id, quantity: the stock on hand now, unfolded location sales included, plus the units that left
+    // without a ledger row yet (open orders, invoices the outbox has not written), i.e. where the ledger is heading
+    String ANCHOR_SQL = "select p.id product_id, p.storage_quantity " +
+            "+ coalesce((select sum(d.difference) from stock_delta d where d.product_id = p.id), 0) " +
+            "+ coalesce((select sum(o_p.quantity) from order_product o_p " +
+            "inner join orders o on o.id = o_p.order_id " +
+            "left join invoice_outbox x on x.order_id = o.id " +
+            "where o_p.product_id = p.id " +
+            "and (o.type = 'ORDER' and o.is_active = true or x.status <> 'DONE')), 0) quantity " +
+            "from products p";
+
+    @Query(value = "select min(snapshot_date) from stock_snapshot where snapshot_date >= ?1", nativeQuery = true)
+    LocalDate getFirstSnapshotDateFrom(LocalDate date);
+
+    @Modifying
+    @Query(value = "delete from stock_snapshot where snapshot_date between ?1 and ?2", nativeQuery = true)
+    int deleteSnapshots(LocalDate from, LocalDate to);
+
+    // day ?1 = the anchor minus the ledger rows from ?2, the end of that day, on
+    @Modifying
+    @Query(value = "insert into stock_snapshot (snapshot_date, product_id, quantity) " +
+            "select ?1, a.product_id, a.quantity - coalesce(d.delta, 0) " +
+            "from (" + ANCHOR_SQL + ") a " +
+            "left join (select h.product_id, sum(h.difference) delta from history_product h " +
+            "where h.create_date >= ?2 group by h.product_id) d on d.product_id = a.product_id",
+            nativeQuery = true)
+    int insertSnapshot(LocalDate day, LocalDateTime to);
+
+    // id, code, name, quantity before ?2: the ?1 snapshot minus the ledger rows in [?2, ?3)
+    @Query(value = "select p.id, p.code, p.name, coalesce(s.quantity, 0) - coalesce(d.delta, 0) " +
+            "from products p " +
+            "left join stock_snapshot s on s.snapshot_date = ?1 and s.product_id = p.id " +
+            "left join (select h.product_id, sum(h.difference) delta from history_product h " +
+            "where h.create_date >= ?2 and h.create_date < ?3 group by h.product_id) d on d.product_id = p.id " +
+            "where (?4 is null or p.id = ?4) " +
+            "order by p.id",
+            nativeQuery = true)
+    List<Object[]> getStockBefore(LocalDate snapshotDay, LocalDateTime at, LocalDateTime to, Long productId);
+
+    // id, code, name, quantity before ?1: the anchor minus the ledger rows from ?1 on
+    @Query(value = "select p.id, p.code, p.name, a.quantity - coalesce(d.delta, 0) " +
+            "from products p " +
+            "inner join (" + ANCHOR_SQL + ") a on a.product_id = p.id " +
+            "left join (select h.product_id, sum(h.difference) delta from history_product h " +
+            "where h.create_date >= ?1 group by h.product_id) d on d.product_id = p.id " +
+            "where (?2 is null or p.id = ?2) " +
+            "order by p.id",
+            nativeQuery = true)
+    List<Object[]> getStockFromAnchor(LocalDateTime at, Long productId);
+}
@@ -2,10 +2,13 @@ package com.example.demo.schedule;
 
 import com.example.demo.entity.ForgotPasswordEntity;
 import com.example.demo.repository.ForgotPasswordRepository;
+import com.example.demo.repository.IdempotencyKeyRepository;
+import com.example.demo.service.impl.IdempotencyService;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Configuration
@@ -13,9 +16,12 @@ import java.util.List;
 public class ConfigSchedule {
 
     private final ForgotPasswordRepository forgotPasswordRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
 
-    public ConfigSchedule(ForgotPasswordRepository forgotPasswordRepository) {
+    public ConfigSchedule(ForgotPasswordRepository forgotPasswordRepository,
+                          IdempotencyKeyRepository idempotencyKeyRepository) {
         this.forgotPasswordRepository = forgotPasswordRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
     }
 
     @Scheduled(cron = "0 0 0 * * ?")
@@ -24,4 +30,9 @@ public class ConfigSchedule {
         List<ForgotPasswordEntity> forgotPasswordEntityList = forgotPasswordRepository.getListByExpiredTime();
         forgotPasswordRepository.deleteAll(forgotPasswordEntityList);
     }
+
+    @Scheduled(cron = "0 30 0 * * ?")
+    public void purgeIdempotencyKeys() {
+        idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(IdempotencyService.TTL));
+    }
 }
@@ -0,0 +1,73 @@
+package com.example.demo.schedule;
+
+import com.example.demo.service.impl.InventoryJournalService;
+import com.example.demo.service.impl.InvoiceOutboxService;
+import com.example.demo.service.impl.LocationStockService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// The workers that run every few hundred milliseconds get a scheduler thread each, so a long nightly
+// @Scheduled job on Spring's shared scheduler never holds them back: the invoice outbox, the location fold
+// and, when the journal is on, the journal applier.
+@Component
+public class WorkerSchedule {
+
+    private final InvoiceOutboxService invoiceOutboxService;
+    private final LocationStockService locationStockService;
+    private final Optional<InventoryJournalService> inventoryJournalService;
+    private final long outboxDelay;
+    private final long outboxInitialDelay;
+    private final long foldDelay;
+    private final long applyDelay;
+    private final long applyInitialDelay;
+    private final List<ThreadPoolTaskScheduler> schedulers = new ArrayList<>();
+
+    public WorkerSchedule(InvoiceOutboxService invoiceOutboxService, LocationStockService locationStockService,
+                          Optional<InventoryJournalService> inventoryJournalService,
+                          @Value("${invoice.outbox.delay-ms:2000}") long outboxDelay,
+                          @Value("${invoice.outbox.initial-delay-ms:10000}") long outboxInitialDelay,
+                          @Value("${stock.location.fold-delay-ms:1000}") long foldDelay,
+                          @Value("${inventory.journal.apply-delay-ms:200}") long applyDelay,
+                          @Value("${inventory.journal.apply-initial-delay-ms:1000}") long applyInitialDelay) {
+        this.invoiceOutboxService = invoiceOutboxService;
+        this.locationStockService = locationStockService;
+        this.inventoryJournalService = inventoryJournalService;
+        this.outboxDelay = outboxDelay;
+        this.outboxInitialDelay = outboxInitialDelay;
+        this.foldDelay = foldDelay;
+        this.applyDelay = applyDelay;
+        this.applyInitialDelay = applyInitialDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        this.schedule("invoice-outbox-", invoiceOutboxService::scheduledProcess, outboxInitialDelay, outboxDelay);
+        this.schedule("location-fold-", locationStockService::fold, 0, foldDelay);
+        inventoryJournalService.ifPresent(journal -> this.schedule("journal-applier-", journal::scheduledApply,
+                applyInitialDelay, applyDelay));
+    }
+
+    @PreDestroy
+    public void stop() {
+        schedulers.forEach(ThreadPoolTaskScheduler::shutdown);
+    }
+
+    // a failed run is logged by the scheduler and the next one still starts after the delay
+    private void schedule(String threadNamePrefix, Runnable worker, long initialDelay, long delay) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(worker, Instant.now().plusMillis(initialDelay), Duration.ofMillis(delay));
+        schedulers.add(scheduler);
+    }
+}
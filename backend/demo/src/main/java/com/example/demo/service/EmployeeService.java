@@ -8,4 +8,6 @@ public interface EmployeeService extends BaseService<EmployeeRequest,Long>{
     BaseResponse getAllActive(int pageNumber, int pageSize);
 
     BaseResponse getEmployeeNoAccount();
+
+    BaseResponse getRepairerLoad();
 }
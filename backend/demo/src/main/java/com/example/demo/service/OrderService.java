@@ -5,4 +5,8 @@ import com.example.demo.model.request.InsertOrder;
 
 public interface OrderService extends BaseService<InsertOrder , Long>{
     BaseResponse toInvoice(long orderId);
+
+    BaseResponse getInvoiceStatus(long orderId);
+
+    BaseResponse rebuildSummary();
 }
@@ -14,4 +14,6 @@ public interface ProductService extends BaseService<ProductRequest, Long> {
     void removeFromInventory(Long productId, int difference, String note);
 
     BaseResponse updateImage(MultipartFile file, long imageId) throws IOException;
+
+    BaseResponse backfillStockStatus();
 }
@@ -0,0 +1,248 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.event.EmployeeChangedEvent;
+import com.example.demo.event.LedgerAppendedEvent;
+import com.example.demo.event.OrderChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.event.ServiceChangedEvent;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.params.StatisticEmployee;
+import com.example.demo.model.params.StatisticProductParams;
+import com.example.demo.model.params.StatisticServiceParams;
+import com.example.demo.model.params.TimeParams;
+import com.example.demo.model.response.StatisticCacheStats;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Range;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Results of the StatisticService reports, cached per endpoint and the parameters its query reads.
+// Each entry remembers the days its query covers and whether it reads the stock ledger or the orders;
+// a committed ledger append or order change drops only the entries of its kind whose days it touched,
+// and an employee or service edit drops the reports that show employees or services.
+// Events only reach the cache of this JVM: other instances, and writes outside those paths
+// (rebuilds, imports of history, SQL by hand), are covered by stat.cache.ttl-minutes or invalidateAll.
+@Slf4j
+@Service
+public class CachedStatisticService {
+
+    private final StatisticService statisticService;
+    private final Cache<String, Entry> cache;
+    private final long maxSize;
+    private final AtomicLong invalidated = new AtomicLong();
+    // moves on every invalidation, so a load that overlapped one is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public CachedStatisticService(StatisticService statisticService,
+                                  @Value("${stat.cache.max-size:500}") long maxSize,
+                                  @Value("${stat.cache.ttl-minutes:10}") long ttlMinutes) {
+        this.statisticService = statisticService;
+        this.maxSize = maxSize;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    private enum Source {
+        LEDGER,
+        ORDERS
+    }
+
+    private record Entry(BaseResponse response, Source source, Range<LocalDate> days) {
+    }
+
+    public BaseResponse statisticServices(Map<String, String> map) {
+        StatisticServiceParams params = new StatisticServiceParams(map);
+        // the query has no date filter
+        return this.get("services|" + params.getPageNumber() + "|" + params.getPageSize(), Source.ORDERS,
+                Range.all(), () -> statisticService.statisticServices(map));
+    }
+
+    public BaseResponse statisticSalaryEmployee(Map<String, String> map) {
+        StatisticEmployee params = new StatisticEmployee(map);
+        return this.get("employees-salary|" + params.getCode() + "|" + params.getName() + "|" + params.getType()
+                        + "|" + params.getStartTime() + "|" + params.getEndTime() + "|" + params.getPageNumber()
+                        + "|" + params.getPageSize(), Source.ORDERS,
+                days(params.getStartTime(), params.getEndTime()), () -> statisticService.statisticSalaryEmployee(map));
+    }
+
+    public BaseResponse statisticHistoryProductIn(Map<String, String> map) {
+        StatisticProductParams params = new StatisticProductParams(map);
+        return this.get("products-in|" + params.getStartTime() + "|" + params.getEndTime() + "|"
+                        + params.getPageNumber() + "|" + params.getPageSize(), Source.LEDGER,
+                days(params.getStartTime(), params.getEndTime()), () -> statisticService.statisticHistoryProductIn(map));
+    }
+
+    public BaseResponse statisticHistoryProductOut(Map<String, String> map) {
+        StatisticProductParams params = new StatisticProductParams(map);
+        return this.get("products-out|" + params.getStartTime() + "|" + params.getEndTime() + "|"
+                        + params.getPageNumber() + "|" + params.getPageSize(), Source.LEDGER,
+                days(params.getStartTime(), params.getEndTime()), () -> statisticService.statisticHistoryProductOut(map));
+    }
+
+    public BaseResponse statisticProductInYear() {
+        return this.get("products-in-year|" + YearMonth.now(), Source.LEDGER, lastTwelveMonths(),
+                statisticService::statisticProductInYear);
+    }
+
+    public BaseResponse statisticProductOutInYear() {
+        return this.get("products-out-year|" + YearMonth.now(), Source.LEDGER, lastTwelveMonths(),
+                statisticService::statisticProductOutInYear);
+    }
+
+    public BaseResponse statisticTopService(Map<String, String> map) {
+        TimeParams params = new TimeParams(map);
+        return this.get("top-service|" + params.getStartTime() + "|" + params.getEndTime(), Source.ORDERS,
+                days(params.getStartTime(), params.getEndTime()), () -> statisticService.statisticTopService(map));
+    }
+
+    public BaseResponse statisticTopProduct(Map<String, String> map) {
+        TimeParams params = new TimeParams(map);
+        return this.get("top-product|" + params.getStartTime() + "|" + params.getEndTime(), Source.ORDERS,
+                days(params.getStartTime(), params.getEndTime()), () -> statisticService.statisticTopProduct(map));
+    }
+
+    public BaseResponse statisticServiceUsageInTimeMonth() {
+        return this.get("services-year|" + YearMonth.now(), Source.ORDERS, lastTwelveMonths(),
+                statisticService::statisticServiceUsageInTimeMonth);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLedgerAppended(LedgerAppendedEvent event) {
+        this.invalidate(Source.LEDGER, Range.singleton(LocalDate.now()));
+    }
+
+    // lines of an order are dated between its creation and now
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        LocalDateTime createDate = event.getOrder().getCreateDate();
+        LocalDate today = LocalDate.now();
+        this.invalidate(Source.ORDERS, Range.closed(
+                createDate == null || createDate.toLocalDate().isAfter(today) ? today : createDate.toLocalDate(),
+                today));
+    }
+
+    // product codes and names are shown by both kinds of report
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        this.invalidate(null, Range.all());
+    }
+
+    // names and prices of services are read by the service reports whatever their days
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onServiceChanged(ServiceChangedEvent event) {
+        this.invalidateReports("services|", "top-service|", "services-year|");
+    }
+
+    // salaries, names and types of employees are read by the salary report whatever its days
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        this.invalidateReports("employees-salary|");
+    }
+
+    public void invalidateOrders(LocalDate from, LocalDate to) {
+        this.invalidate(Source.ORDERS, Range.closed(from, to));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidated.addAndGet(cache.size());
+        cache.invalidateAll();
+    }
+
+    public StatisticCacheStats getStats() {
+        CacheStats stats = cache.stats();
+        return StatisticCacheStats.builder()
+                .size(cache.size())
+                .maxSize(maxSize)
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .loadCount(stats.loadCount())
+                .loadFailureCount(stats.loadExceptionCount())
+                .averageLoadMillis(stats.averageLoadPenalty() / 1e6)
+                .evictionCount(stats.evictionCount())
+                .invalidatedCount(invalidated.get())
+                .build();
+    }
+
+    public BaseResponse getCacheStats() {
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Thống kê bộ nhớ đệm thành công.")
+                .data(this.getStats())
+                .build();
+    }
+
+    private BaseResponse get(String key, Source source, Range<LocalDate> days, Supplier<BaseResponse> loader) {
+        long started = generation.get();
+        Entry entry;
+        try {
+            entry = cache.get(key, () -> new Entry(loader.get(), source, days));
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            Throwables.throwIfUnchecked(cause);
+            throw new IllegalStateException(cause);
+        }
+        if (generation.get() != started) {
+            cache.asMap().remove(key, entry);
+        }
+        return entry.response();
+    }
+
+    private void invalidate(Source source, Range<LocalDate> touched) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(entry -> {
+            boolean hit = (source == null || entry.source() == source) && entry.days().isConnected(touched)
+                    && !entry.days().intersection(touched).isEmpty();
+            if (hit) {
+                invalidated.incrementAndGet();
+            }
+            return hit;
+        });
+    }
+
+    private void invalidateReports(String... prefixes) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> {
+            boolean hit = Arrays.stream(prefixes).anyMatch(key::startsWith);
+            if (hit) {
+                invalidated.incrementAndGet();
+            }
+            return hit;
+        });
+    }
+
+    // the days a report covers; open when either end is missing, as the queries then skip the filter
+    private static Range<LocalDate> days(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) {
+            return Range.all();
+        }
+        if (end.isBefore(start)) {
+            return Range.closedOpen(start.toLocalDate(), start.toLocalDate());
+        }
+        return Range.closed(start.toLocalDate(), end.toLocalDate());
+    }
+
+    private static Range<LocalDate> lastTwelveMonths() {
+        return Range.atLeast(YearMonth.now().minusMonths(11).atDay(1));
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.event.LedgerAppendedEvent;
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.InventoryValuation;
+import com.example.demo.model.response.ProductValuation;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.repository.CostLayerRepository;
+import com.example.demo.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// FIFO inventory valuation. Every IMPORT ledger row opens a cost layer at its price_in, and every EXPORT
+// consumes the oldest layers of its product, in the transaction that writes the ledger rows.
+// Used-up layers are deleted, and each ledger row leaves one cost_movement row with its value in or its
+// cost of goods sold out. A period reads only its own movements; the value at its end is the value of the
+// open layers minus the movements after it.
+@Slf4j
+@Service
+public class CostLayerService {
+
+    private static final int REPLAY_CHUNK = 5000;
+    private static final int LAYER_PAGE = 100;
+    // keyset over the layers of one product, locked so concurrent exports cannot consume the same units.
+    // Every layer holds at least one unit, so a page of as many layers as units missing always covers them.
+    private static final String SELECT_LAYERS_SQL = "select id, unit_cost, remaining from cost_layer " +
+            "where product_id = ? and id > ? order by id limit ? for update";
+    private static final String INSERT_LAYER_SQL = "insert into cost_layer (product_id, opened_at, unit_cost, " +
+            "remaining) values (?, ?, ?, ?)";
+    private static final String UPDATE_LAYER_SQL = "update cost_layer set remaining = ? where id = ?";
+    private static final String DELETE_LAYER_SQL = "delete from cost_layer where id = ?";
+    private static final String INSERT_MOVEMENT_SQL = "insert into cost_movement (product_id, moved_at, quantity, " +
+            "amount) values (?, ?, ?, ?)";
+    private static final String SELECT_LEDGER_SQL = "select id, difference, price_in, create_date " +
+            "from history_product where product_id = ? and id > ? order by id limit ?";
+    private static final String SELECT_LEDGER_PRODUCTS_SQL = "select distinct product_id from history_product " +
+            "where product_id is not null order by product_id";
+    // stock writers hold this row while they append ledger rows, so none lands mid-replay
+    private static final String LOCK_PRODUCT_SQL = "select id from products where id = ? for update";
+
+    private final CostLayerRepository costLayerRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CostLayerService(CostLayerRepository costLayerRepository, ProductRepository productRepository,
+                            JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.costLayerRepository = costLayerRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // runs inside the ledger writer's transaction: one locked read per exported product, then three batches
+    @EventListener
+    public void onLedgerAppended(LedgerAppendedEvent event) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<Long, StoredLayers> stored = new HashMap<>();
+        // layers opened by this batch, newer than every stored one
+        Map<Long, Deque<Layer>> opened = new LinkedHashMap<>();
+        List<Object[]> movements = new ArrayList<>();
+        for (LedgerEntry entry : event.getEntries()) {
+            double unitCost = entry.getPriceIn() == null ? 0 : entry.getPriceIn();
+            if (entry.getDifference() > 0) {
+                opened.computeIfAbsent(entry.getProductId(), id -> new ArrayDeque<>())
+                        .addLast(new Layer(null, unitCost, entry.getDifference()));
+                movements.add(new Object[]{entry.getProductId(), now, entry.getDifference(),
+                        entry.getDifference() * unitCost});
+            } else if (entry.getDifference() < 0) {
+                int quantity = -entry.getDifference();
+                StoredLayers layers = stored.computeIfAbsent(entry.getProductId(), StoredLayers::new);
+                Cost cost = new Cost(quantity);
+                layers.consume(cost);
+                take(opened.getOrDefault(entry.getProductId(), new ArrayDeque<>()), cost, null);
+                movements.add(new Object[]{entry.getProductId(), now, entry.getDifference(),
+                        -this.settle(entry.getProductId(), cost, unitCost)});
+            }
+        }
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        stored.values().forEach(layers -> layers.touched.forEach(layer -> {
+            if (layer.remaining == 0) {
+                deletes.add(new Object[]{layer.id});
+            } else {
+                updates.add(new Object[]{layer.remaining, layer.id});
+            }
+        }));
+        List<Object[]> inserts = new ArrayList<>();
+        opened.forEach((productId, layers) -> layers.forEach(layer ->
+                inserts.add(new Object[]{productId, now, layer.unitCost, layer.remaining})));
+        this.batch(DELETE_LAYER_SQL, deletes);
+        this.batch(UPDATE_LAYER_SQL, updates);
+        this.batch(INSERT_LAYER_SQL, inserts);
+        this.batch(INSERT_MOVEMENT_SQL, movements);
+    }
+
+    // rebuilds layers and movements by replaying history_product in id order, one product and one
+    // transaction at a time, so locks and undo stay small; returns the ledger rows replayed
+    public long rebuild() {
+        long rows = 0;
+        for (Long productId : jdbcTemplate.queryForList(SELECT_LEDGER_PRODUCTS_SQL, Long.class)) {
+            rows += transactionTemplate.execute(status -> this.rebuild(productId));
+        }
+        // products whose ledger rows are gone
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from cost_layer where product_id not in (" + SELECT_LEDGER_PRODUCTS_SQL + ")");
+            jdbcTemplate.update("delete from cost_movement where product_id not in (" + SELECT_LEDGER_PRODUCTS_SQL
+                    + ")");
+        });
+        log.info("Cost layers rebuilt from {} ledger rows", rows);
+        return rows;
+    }
+
+    private long rebuild(Long productId) {
+        jdbcTemplate.query(LOCK_PRODUCT_SQL, resultSet -> {
+        }, productId);
+        jdbcTemplate.update("delete from cost_layer where product_id = ?", productId);
+        jdbcTemplate.update("delete from cost_movement where product_id = ?", productId);
+        Deque<Layer> layers = new ArrayDeque<>();
+        long lastId = 0;
+        long rows = 0;
+        List<Object[]> chunk;
+        while (!(chunk = jdbcTemplate.query(SELECT_LEDGER_SQL, (resultSet, rowNum) -> new Object[]{
+                resultSet.getLong(1), resultSet.getInt(2),
+                resultSet.getObject(3) == null ? 0 : resultSet.getDouble(3), resultSet.getTimestamp(4)},
+                productId, lastId, REPLAY_CHUNK)).isEmpty()) {
+            List<Object[]> movements = new ArrayList<>();
+            for (Object[] row : chunk) {
+                int difference = (Integer) row[1];
+                double unitCost = (Double) row[2];
+                if (difference > 0) {
+                    layers.addLast(new Layer(null, unitCost, difference));
+                    movements.add(new Object[]{productId, row[3], difference, difference * unitCost});
+                } else if (difference < 0) {
+                    Cost cost = new Cost(-difference);
+                    take(layers, cost, null);
+                    movements.add(new Object[]{productId, row[3], difference,
+                            -this.settle(productId, cost, unitCost)});
+                }
+            }
+            this.batch(INSERT_MOVEMENT_SQL, movements);
+            lastId = (Long) chunk.get(chunk.size() - 1)[0];
+            rows += chunk.size();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        layers.forEach(layer -> inserts.add(new Object[]{productId, now, layer.unitCost, layer.remaining}));
+        this.batch(INSERT_LAYER_SQL, inserts);
+        return rows;
+    }
+
+    public BaseResponse rebuildCostLayers() {
+        long rows = this.rebuild();
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Đã tính lại giá vốn từ " + rows + " dòng lịch sử.")
+                .data(rows)
+                .build();
+    }
+
+    // from and to are both included
+    public InventoryValuation getValuation(LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        Map<Long, double[]> period = this.toMap(costLayerRepository.getMovementsBetween(start, end));
+        Map<Long, double[]> open = this.toMap(costLayerRepository.getOpenValues());
+        Map<Long, double[]> after = this.toMap(costLayerRepository.getMovementsSince(end));
+
+        Set<Long> ids = new TreeSet<>(period.keySet());
+        open.keySet().forEach(ids::add);
+        after.keySet().forEach(ids::add);
+        Map<Long, String> names = new HashMap<>();
+        if (!ids.isEmpty()) {
+            productRepository.getLedgerInfoByIds(ids).forEach(row ->
+                    names.put(((Number) row[0]).longValue(), (String) row[1]));
+        }
+        List<ProductValuation> products = new ArrayList<>();
+        for (Long id : ids) {
+            double[] moved = period.getOrDefault(id, new double[4]);
+            double[] now = open.getOrDefault(id, new double[2]);
+            double[] since = after.getOrDefault(id, new double[2]);
+            int closingQuantity = (int) (now[0] - since[0]);
+            double closingValue = now[1] - since[1];
+            double openingValue = closingValue - moved[1] + moved[3];
+            if (closingQuantity == 0 && moved[0] == 0 && moved[2] == 0 && Math.abs(openingValue) < 1e-9) {
+                continue;
+            }
+            products.add(new ProductValuation(id, names.get(id), openingValue, (int) moved[0], moved[1],
+                    (int) moved[2], moved[3], closingQuantity, closingValue));
+        }
+        products.sort(Comparator.comparingDouble(ProductValuation::getCogs).reversed()
+                .thenComparing(ProductValuation::getProductId));
+        return InventoryValuation.builder()
+                .from(from)
+                .to(to)
+                .openingValue(products.stream().mapToDouble(ProductValuation::getOpeningValue).sum())
+                .importedValue(products.stream().mapToDouble(ProductValuation::getImportedValue).sum())
+                .cogs(products.stream().mapToDouble(ProductValuation::getCogs).sum())
+                .closingValue(products.stream().mapToDouble(ProductValuation::getClosingValue).sum())
+                .products(products)
+                .build();
+    }
+
+    // from, to: yyyy-MM-dd
+    public BaseResponse getValuation(String from, String to) {
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = LocalDate.parse(from);
+            end = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            throw new BaseException("Không thể chuyển về thời gian.");
+        }
+        if (end.isBefore(start)) {
+            throw new BaseException("Ngày kết thúc phải sau ngày bắt đầu.");
+        }
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Giá trị tồn kho từ " + from + " đến " + to)
+                .data(this.getValuation(start, end))
+                .build();
+    }
+
+    // consumes from the front of layers until the cost is covered or the layers run out;
+    // touched, when given, collects every layer consumed from, once
+    private static void take(Deque<Layer> layers, Cost cost, List<Layer> touched) {
+        while (cost.missing > 0 && !layers.isEmpty()) {
+            Layer layer = layers.peekFirst();
+            int used = Math.min(layer.remaining, cost.missing);
+            layer.remaining -= used;
+            cost.missing -= used;
+            cost.amount += used * layer.unitCost;
+            // FIFO: a layer consumed again is still the last one touched
+            if (touched != null && (touched.isEmpty() || touched.get(touched.size() - 1) != layer)) {
+                touched.add(layer);
+            }
+            if (layer.remaining == 0) {
+                layers.removeFirst();
+            }
+        }
+    }
+
+    // units exported beyond every layer, e.g. stock from before the layers existed, are costed at fallbackCost
+    private double settle(Long productId, Cost cost, double fallbackCost) {
+        if (cost.missing > 0) {
+            log.warn("No cost layer left for {} units of product {}, costed at {}", cost.missing, productId,
+                    fallbackCost);
+            cost.amount += cost.missing * fallbackCost;
+            cost.missing = 0;
+        }
+        return cost.amount;
+    }
+
+    private Map<Long, double[]> toMap(List<Object[]> rows) {
+        Map<Long, double[]> values = new HashMap<>();
+        rows.forEach(row -> {
+            double[] columns = new double[row.length - 1];
+            for (int i = 1; i < row.length; i++) {
+                columns[i - 1] = row[i] == null ? 0 : ((Number) row[i]).doubleValue();
+            }
+            values.put(((Number) row[0]).longValue(), columns);
+        });
+        return values;
+    }
+
+    private void batch(String sql, List<Object[]> args) {
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, args);
+        }
+    }
+
+    private static final class Layer {
+        private final Long id;
+        private final double unitCost;
+        private int remaining;
+
+        private Layer(Long id, double unitCost, int remaining) {
+            this.id = id;
+            this.unitCost = unitCost;
+            this.remaining = remaining;
+        }
+    }
+
+    private static final class Cost {
+        private int missing;
+        private double amount;
+
+        private Cost(int missing) {
+            this.missing = missing;
+        }
+    }
+
+    // the stored layers of one product, read oldest first and only as far as exports need them
+    private final class StoredLayers {
+        private final Long productId;
+        private final Deque<Layer> loaded = new ArrayDeque<>();
+        private final List<Layer> touched = new ArrayList<>();
+        private long lastId;
+        private boolean exhausted;
+
+        private StoredLayers(Long productId) {
+            this.productId = productId;
+        }
+
+        private void consume(Cost cost) {
+            while (cost.missing > 0) {
+                if (loaded.isEmpty() && !this.load(cost.missing)) {
+                    return;
+                }
+                take(loaded, cost, touched);
+            }
+        }
+
+        // reads just enough further layers to cover quantity
+        private boolean load(int quantity) {
+            if (exhausted) {
+                return false;
+            }
+            List<Layer> layers = jdbcTemplate.query(SELECT_LAYERS_SQL, (resultSet, rowNum) ->
+                            new Layer(resultSet.getLong(1), resultSet.getDouble(2), resultSet.getInt(3)),
+                    productId, lastId, Math.min(quantity, LAYER_PAGE));
+            if (layers.isEmpty()) {
+                exhausted = true;
+                return false;
+            }
+            loaded.addAll(layers);
+            lastId = layers.get(layers.size() - 1).id;
+            return true;
+        }
+    }
+}
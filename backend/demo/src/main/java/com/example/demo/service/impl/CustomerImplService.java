@@ -13,19 +13,25 @@ import com.example.demo.service.CustomerService;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
 public class CustomerImplService implements CustomerService {
     private final CustomerRepository customerRepository;
     private final AccountRepository accountRepository;
+    private final OrderSummaryService orderSummaryService;
 
-    public CustomerImplService(CustomerRepository customerRepository, AccountRepository accountRepository) {
+    public CustomerImplService(CustomerRepository customerRepository, AccountRepository accountRepository,
+                               OrderSummaryService orderSummaryService) {
         this.customerRepository = customerRepository;
         this.accountRepository = accountRepository;
+        this.orderSummaryService = orderSummaryService;
     }
 
     @Override
@@ -91,6 +97,7 @@ public class CustomerImplService implements CustomerService {
     }
 
     @Override
+    @Transactional
     public BaseResponse update(CustomerRequest customerRequest, Long customerId) {
         try {
             CustomerEntity existingCustomer = customerRepository.findByIdAndIsActive(customerId, true)
@@ -117,11 +124,15 @@ public class CustomerImplService implements CustomerService {
                 }
             }
 
+            boolean renamed = !Objects.equals(existingCustomer.getName(), customerRequest.getName());
             existingCustomer.setName(customerRequest.getName());
             existingCustomer.setPhone(customerRequest.getPhone());
             existingCustomer.setAddress(customerRequest.getAddress());
             existingCustomer.setEmail(customerRequest.getEmail());
             CustomerEntity updatedCustomer = customerRepository.save(existingCustomer);
+            if (renamed) {
+                orderSummaryService.renameCustomer(customerId, updatedCustomer.getCode(), updatedCustomer.getName());
+            }
 
             return BaseResponse.builder()
                     .statusCode(HttpStatus.OK.value())
@@ -135,6 +146,8 @@ public class CustomerImplService implements CustomerService {
                     .data(null)
                     .build();
         } catch (Exception e) {
+            // the entity and its order summary rows commit together or not at all
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return BaseResponse.builder()
                     .statusCode(HttpStatus.INTERNAL_SERVER_ERROR.value())
                     .message("Cập nhật khách hàng không thành công!")
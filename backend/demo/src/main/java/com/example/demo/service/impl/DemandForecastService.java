@@ -0,0 +1,331 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.DemandForecastEntity;
+import com.example.demo.entity.enums.Action;
+import com.example.demo.event.LedgerAppendedEvent;
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.ReorderSuggestion;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.repository.DemandForecastRepository;
+import com.example.demo.repository.HistoryProductRepository;
+import com.example.demo.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Daily demand per product from the EXPORT ledger rows that sold units, updated as the rows are written instead
+// of re-reading history. Count adjustments and other exports are not demand.
+// Each product counts the units exported on the current day; once a later day starts, that day and any days
+// without exports are folded into an exponentially weighted mean and variance with weight forecast.alpha.
+// The state lives in memory and is written to demand_forecast every forecast.flush-delay-ms and on shutdown;
+// backfill() rebuilds it from history_product with parallel scans over product id ranges. Sales committed
+// while it runs are counted in the old state and replayed on the new one before it is swapped in.
+@Slf4j
+@Service
+public class DemandForecastService {
+
+    private static final String UPDATE_SQL = "update demand_forecast set bucket_date = ?, bucket_quantity = ?, " +
+            "daily_mean = ?, daily_variance = ?, folded_days = ? where product_id = ?";
+    private static final String INSERT_SQL = "insert into demand_forecast (bucket_date, bucket_quantity, " +
+            "daily_mean, daily_variance, folded_days, product_id) values (?, ?, ?, ?, ?, ?)";
+    // a longer run of empty days leaves the mean at zero anyway
+    private static final int MAX_EMPTY_DAYS = 3650;
+
+    private final DemandForecastRepository demandForecastRepository;
+    private final HistoryProductRepository historyProductRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final double alpha;
+    private final int leadTimeDays;
+    private final int reviewDays;
+    private final double safetyFactor;
+    private final int backfillChunk;
+    private final int backfillThreads;
+
+    private final Map<Long, DemandForecastEntity> states = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Object lock = new Object();
+    // sales committed while a backfill runs, guarded by lock; null when no backfill runs
+    private List<LedgerEntry> buffered;
+
+    public DemandForecastService(DemandForecastRepository demandForecastRepository,
+                                 HistoryProductRepository historyProductRepository,
+                                 ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${forecast.alpha:0.1}") double alpha,
+                                 @Value("${forecast.lead-time-days:7}") int leadTimeDays,
+                                 @Value("${forecast.review-days:14}") int reviewDays,
+                                 @Value("${forecast.safety-factor:1.65}") double safetyFactor,
+                                 @Value("${forecast.backfill-chunk:1000}") int backfillChunk,
+                                 @Value("${forecast.backfill-threads:4}") int backfillThreads) {
+        this.demandForecastRepository = demandForecastRepository;
+        this.historyProductRepository = historyProductRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.alpha = alpha;
+        this.leadTimeDays = leadTimeDays;
+        this.reviewDays = reviewDays;
+        this.safetyFactor = safetyFactor;
+        this.backfillChunk = backfillChunk;
+        this.backfillThreads = backfillThreads;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        states.clear();
+        demandForecastRepository.findAll().forEach(state -> states.put(state.getProductId(), state));
+        log.info("Demand forecast loaded for {} products", states.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLedgerAppended(LedgerAppendedEvent event) {
+        List<LedgerEntry> sales = event.getEntries().stream()
+                .filter(entry -> entry.getAction() == Action.EXPORT && entry.isSale())
+                .toList();
+        if (sales.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            this.count(states, sales, LocalDate.now());
+            if (buffered != null) {
+                buffered.addAll(sales);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        this.flush();
+    }
+
+    @Scheduled(fixedDelayString = "${forecast.flush-delay-ms:60000}")
+    public synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(dirty);
+        ids.forEach(dirty::remove);
+        this.write(ids.stream().map(states::get).filter(Objects::nonNull).toList());
+    }
+
+    // replaces the whole state with one computed from history_product; returns the number of products seeded
+    public synchronized int backfill() {
+        synchronized (lock) {
+            buffered = new ArrayList<>();
+        }
+        try {
+            return this.reseed();
+        } finally {
+            synchronized (lock) {
+                buffered = null;
+            }
+        }
+    }
+
+    private int reseed() {
+        long maxId = productRepository.getMaxId();
+        LocalDate today = LocalDate.now();
+        Map<Long, DemandForecastEntity> seeded = new HashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(backfillThreads);
+        try {
+            List<Future<Map<Long, DemandForecastEntity>>> chunks = new ArrayList<>();
+            for (long from = 1; from <= maxId; from += backfillChunk) {
+                long start = from;
+                long end = Math.min(from + backfillChunk - 1, maxId);
+                chunks.add(executor.submit(() -> this.seed(start, end, today)));
+            }
+            for (Future<Map<Long, DemandForecastEntity>> chunk : chunks) {
+                seeded.putAll(chunk.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BaseException("Tính lại dự báo bị gián đoạn.");
+        } catch (ExecutionException e) {
+            throw new BaseException("Không thể tính lại dự báo: " + e.getCause().getMessage());
+        } finally {
+            executor.shutdown();
+        }
+        transactionTemplate.executeWithoutResult(status -> demandForecastRepository.deleteAllInBatch());
+        this.write(new ArrayList<>(seeded.values()));
+        synchronized (lock) {
+            // a sale committed just before the scan read its product may be counted twice until the next backfill
+            dirty.clear();
+            this.count(seeded, buffered, LocalDate.now());
+            states.clear();
+            states.putAll(seeded);
+        }
+        log.info("Demand forecast backfilled for {} products from {} chunks", seeded.size(),
+                (maxId + backfillChunk - 1) / backfillChunk);
+        return seeded.size();
+    }
+
+    public BaseResponse backfillForecasts() {
+        int products = this.backfill();
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Đã tính lại dự báo cho " + products + " linh kiện.")
+                .data(products)
+                .build();
+    }
+
+    // products at or below their reorder point, or every forecast product with all = true,
+    // largest suggested quantity first
+    public List<ReorderSuggestion> getSuggestions(boolean all) {
+        LocalDate today = LocalDate.now();
+        List<ReorderSuggestion> suggestions = new ArrayList<>();
+        for (Object[] row : productRepository.getStockLevels()) {
+            Long id = ((Number) row[0]).longValue();
+            DemandForecastEntity state = states.get(id);
+            if (state == null) {
+                continue;
+            }
+            double mean;
+            double deviation;
+            synchronized (state) {
+                this.advance(state, today);
+                if (state.getFoldedDays() == 0) {
+                    continue;
+                }
+                mean = state.getDailyMean();
+                deviation = Math.sqrt(state.getDailyVariance());
+            }
+            int stock = row[3] == null ? 0 : ((Number) row[3]).intValue();
+            int reorderPoint = this.coverage(mean, deviation, leadTimeDays);
+            // order up to the demand over the lead time and the following review period
+            int suggested = stock <= reorderPoint
+                    ? Math.max(0, this.coverage(mean, deviation, leadTimeDays + reviewDays) - stock)
+                    : 0;
+            if (all || suggested > 0) {
+                suggestions.add(new ReorderSuggestion(id, (String) row[1], (String) row[2], stock, mean, deviation,
+                        reorderPoint, suggested));
+            }
+        }
+        suggestions.sort(Comparator.comparingInt(ReorderSuggestion::getSuggestedQuantity).reversed()
+                .thenComparing(ReorderSuggestion::getProductId));
+        return suggestions;
+    }
+
+    public BaseResponse getReorderSuggestions(boolean all) {
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Lấy gợi ý nhập hàng thành công.")
+                .data(this.getSuggestions(all))
+                .build();
+    }
+
+    private Map<Long, DemandForecastEntity> seed(long fromProductId, long toProductId, LocalDate today) {
+        Map<Long, DemandForecastEntity> seeded = new HashMap<>();
+        for (Object[] row : historyProductRepository.getDailyExports(fromProductId, toProductId)) {
+            Long id = ((Number) row[0]).longValue();
+            LocalDate day = row[1] instanceof Date date ? date.toLocalDate() : (LocalDate) row[1];
+            DemandForecastEntity state = seeded.computeIfAbsent(id, key -> this.newState(key, day));
+            this.advance(state, day);
+            state.setBucketQuantity(state.getBucketQuantity() + ((Number) row[2]).intValue());
+        }
+        seeded.values().forEach(state -> this.advance(state, today));
+        return seeded;
+    }
+
+    // adds the exported units to today's count of each product, creating its state on the first sale
+    private void count(Map<Long, DemandForecastEntity> target, List<LedgerEntry> sales, LocalDate today) {
+        for (LedgerEntry entry : sales) {
+            DemandForecastEntity state = target.computeIfAbsent(entry.getProductId(), id -> this.newState(id, today));
+            synchronized (state) {
+                this.advance(state, today);
+                state.setBucketQuantity(state.getBucketQuantity() - entry.getDifference());
+            }
+            dirty.add(entry.getProductId());
+        }
+    }
+
+    // safety stock included: mean demand over the days plus safetyFactor standard deviations
+    private int coverage(double mean, double deviation, int days) {
+        return (int) Math.ceil(mean * days + safetyFactor * deviation * Math.sqrt(days));
+    }
+
+    private DemandForecastEntity newState(Long productId, LocalDate day) {
+        return DemandForecastEntity.builder()
+                .productId(productId)
+                .bucketDate(day)
+                .build();
+    }
+
+    // closes the counted day and the empty days after it, up to but excluding day
+    private void advance(DemandForecastEntity state, LocalDate day) {
+        long elapsed = ChronoUnit.DAYS.between(state.getBucketDate(), day);
+        if (elapsed <= 0) {
+            return;
+        }
+        this.fold(state, state.getBucketQuantity());
+        for (long i = 1; i < Math.min(elapsed, MAX_EMPTY_DAYS); i++) {
+            this.fold(state, 0);
+        }
+        state.setBucketDate(day);
+        state.setBucketQuantity(0);
+    }
+
+    private void fold(DemandForecastEntity state, int quantity) {
+        if (state.getFoldedDays() == 0) {
+            state.setDailyMean(quantity);
+            state.setDailyVariance(0);
+        } else {
+            double difference = quantity - state.getDailyMean();
+            double increment = alpha * difference;
+            state.setDailyMean(state.getDailyMean() + increment);
+            state.setDailyVariance((1 - alpha) * (state.getDailyVariance() + difference * increment));
+        }
+        state.setFoldedDays(state.getFoldedDays() + 1);
+    }
+
+    // one update batch, then one insert batch for the products without a row yet
+    private void write(List<DemandForecastEntity> forecasts) {
+        if (forecasts.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = forecasts.stream().map(state -> {
+            synchronized (state) {
+                return new Object[]{state.getBucketDate(), state.getBucketQuantity(), state.getDailyMean(),
+                        state.getDailyVariance(), state.getFoldedDays(), state.getProductId()};
+            }
+        }).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+            List<Object[]> missing = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    missing.add(rows.get(i));
+                }
+            }
+            if (!missing.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, missing);
+            }
+        });
+    }
+}
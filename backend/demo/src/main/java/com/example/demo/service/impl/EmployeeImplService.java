@@ -5,6 +5,7 @@ import com.example.demo.entity.EmployeeEntity;
 import com.example.demo.entity.enums.Gender;
 import com.example.demo.entity.enums.TypeEmployee;
 import com.example.demo.exception.CreateAccountException;
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.params.EmployeeParams;
@@ -23,9 +24,12 @@ import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,10 +38,18 @@ import java.util.stream.Collectors;
 public class EmployeeImplService implements EmployeeService {
     private final EmployeeRepository employeeRepository;
     private final AccountRepository accountRepository;
+    private final OrderSummaryService orderSummaryService;
+    private final RepairerWorkloadIndex repairerWorkloadIndex;
+    private final PublisherEvent publisherEvent;
 
-    public EmployeeImplService(EmployeeRepository employeeRepository, AccountRepository accountRepository) {
+    public EmployeeImplService(EmployeeRepository employeeRepository, AccountRepository accountRepository,
+                               OrderSummaryService orderSummaryService,
+                               RepairerWorkloadIndex repairerWorkloadIndex, PublisherEvent publisherEvent) {
         this.employeeRepository = employeeRepository;
         this.accountRepository = accountRepository;
+        this.orderSummaryService = orderSummaryService;
+        this.repairerWorkloadIndex = repairerWorkloadIndex;
+        this.publisherEvent = publisherEvent;
     }
 
     @Override
@@ -95,6 +107,8 @@ public class EmployeeImplService implements EmployeeService {
                     .getPrincipal()).getAccount();
             employee.setCreateBy(accountCreate);
             EmployeeEntity employee1 = employeeRepository.save(employee);
+            repairerWorkloadIndex.updateRepairer(employee1);
+            publisherEvent.employeeChanged(employee1);
             AccountCreateAndUpdate accountResponseCreate = this.changeTypeAccount(accountCreate);
             return BaseResponse.builder()
                     .statusCode(HttpStatus.CREATED.value())
@@ -111,6 +125,7 @@ public class EmployeeImplService implements EmployeeService {
     }
 
     @Override
+    @Transactional
     public BaseResponse update(EmployeeRequest employeeRequest, Long aLong) {
         try {
             EmployeeEntity employee = employeeRepository.findById(aLong).orElseThrow(() -> {
@@ -138,6 +153,7 @@ public class EmployeeImplService implements EmployeeService {
                 }
             }
 
+            boolean renamed = !Objects.equals(employee.getName(), employeeRequest.getName());
             employee.setName(employeeRequest.getName());
             employee.setBirthday(DateFormat.stringToDate(employeeRequest.getBirthday()));
             employee.setPhone(employeeRequest.getPhone());
@@ -151,12 +167,20 @@ public class EmployeeImplService implements EmployeeService {
             employee.setModifyBy(((CustomUserDetail) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
                     .getAccount());
             employeeRepository.save(employee);
+            repairerWorkloadIndex.updateRepairer(employee);
+            publisherEvent.employeeChanged(employee);
+            if (renamed) {
+                orderSummaryService.renameEmployee(aLong, employee.getName());
+            }
             return BaseResponse.builder()
                     .message("Cập nhật nhân viên thành công.")
                     .statusCode(HttpStatus.OK.value())
                     .data(null)
                     .build();
         } catch (Exception e) {
+            // the entity and its order summary rows commit together or not at all
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.error("Update employee {} failed", aLong, e);
             return BaseResponse.builder()
                     .statusCode(HttpStatus.INTERNAL_SERVER_ERROR.value())
                     .message("Cập nhật nhân viên không thành công!")
@@ -172,6 +196,8 @@ public class EmployeeImplService implements EmployeeService {
         });
         employee.setIsActive(false);
         employeeRepository.save(employee);
+        repairerWorkloadIndex.updateRepairer(employee);
+        publisherEvent.employeeChanged(employee);
         return BaseResponse.builder()
                 .data(null)
                 .statusCode(HttpStatus.NO_CONTENT.value())
@@ -215,6 +241,15 @@ public class EmployeeImplService implements EmployeeService {
                 .build();
     }
 
+    @Override
+    public BaseResponse getRepairerLoad() {
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Nhận khối lượng công việc của thợ sửa chữa thành công.")
+                .data(repairerWorkloadIndex.getLoads())
+                .build();
+    }
+
     @Override
     public BaseResponse getEmployeeNoAccount() {
         List<Object[]> employeeObjs = employeeRepository.getAllByNoAccount();
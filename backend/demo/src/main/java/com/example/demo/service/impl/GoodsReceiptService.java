@@ -0,0 +1,198 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.request.ReceiptLine;
+import com.example.demo.model.response.GoodsReceiptReport;
+import com.example.demo.model.response.ImportError;
+import com.example.demo.model.response.ReceivedProduct;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.utils.CsvLine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Iterables;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Posts a supplier delivery note streamed as NDJSON or CSV. Lines are merged per product code and every
+// line is checked before anything is written; a note with any bad line posts nothing. A valid note is
+// applied in one transaction: one batched stock UPDATE and one ledger batch for the whole delivery.
+@Slf4j
+@Service
+public class GoodsReceiptService {
+
+    private static final int LOOKUP_CHUNK = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String DEFAULT_NOTE = "Nhập hàng theo phiếu giao";
+
+    private final ProductRepository productRepository;
+    private final StockMutationService stockMutationService;
+    private final ObjectMapper objectMapper;
+
+    public GoodsReceiptService(ProductRepository productRepository, StockMutationService stockMutationService,
+                               ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.stockMutationService = stockMutationService;
+        this.objectMapper = objectMapper;
+    }
+
+    public BaseResponse receive(InputStream input, String contentType, String note) {
+        boolean csv = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv");
+        long start = System.nanoTime();
+        Receipt receipt = new Receipt();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            if (csv) {
+                this.readCsv(reader, receipt);
+            } else {
+                this.readNdjson(reader, receipt);
+            }
+        } catch (IOException e) {
+            throw new BaseException("Không đọc được phiếu nhập: " + e.getMessage());
+        }
+
+        Map<String, Object[]> products = new HashMap<>();
+        for (List<String> codes : Iterables.partition(receipt.quantities.keySet(), LOOKUP_CHUNK)) {
+            productRepository.getByCodes(codes)
+                    .forEach(row -> products.put(((String) row[1]).toUpperCase(Locale.ROOT), row));
+        }
+        receipt.firstLine.forEach((code, line) -> {
+            if (!products.containsKey(code)) {
+                receipt.fail(line, "Không tìm thấy sản phẩm theo mã = " + code + ".");
+            }
+        });
+        if (receipt.failed > 0) {
+            receipt.errors.sort(Comparator.comparingLong(ImportError::getLine));
+            return BaseResponse.builder()
+                    .statusCode(HttpStatus.BAD_REQUEST.value())
+                    .message("Phiếu nhập có dòng không hợp lệ, chưa nhập kho sản phẩm nào.")
+                    .data(this.report(receipt, start, List.of()))
+                    .build();
+        }
+
+        Map<Long, Integer> differences = new LinkedHashMap<>();
+        receipt.quantities.forEach((code, quantity) ->
+                differences.put(((Number) products.get(code)[0]).longValue(), quantity));
+        Map<Long, Integer> quantityLeft = differences.isEmpty() ? Map.of()
+                : stockMutationService.apply(differences, note == null || note.isBlank() ? DEFAULT_NOTE : note);
+        List<ReceivedProduct> received = new ArrayList<>(differences.size());
+        receipt.quantities.forEach((code, quantity) -> {
+            Object[] product = products.get(code);
+            Long productId = ((Number) product[0]).longValue();
+            received.add(new ReceivedProduct(productId, (String) product[1], (String) product[2], quantity,
+                    quantityLeft.get(productId)));
+        });
+        GoodsReceiptReport report = this.report(receipt, start, received);
+        log.info("Received {} units of {} products from {} lines in {} ms", report.getUnits(),
+                report.getProducts(), report.getLines(), report.getElapsedMillis());
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.CREATED.value())
+                .message("Nhập kho theo phiếu giao thành công.")
+                .data(report)
+                .build();
+    }
+
+    private GoodsReceiptReport report(Receipt receipt, long start, List<ReceivedProduct> received) {
+        return GoodsReceiptReport.builder()
+                .lines(receipt.lines)
+                .products(receipt.quantities.size())
+                .units(receipt.quantities.values().stream().mapToLong(Integer::longValue).sum())
+                .failed(receipt.failed)
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .errors(receipt.errors)
+                .received(received)
+                .build();
+    }
+
+    private void readNdjson(BufferedReader reader, Receipt receipt) throws IOException {
+        String text;
+        long line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            receipt.lines++;
+            try {
+                receipt.add(line, objectMapper.readValue(text, ReceiptLine.class));
+            } catch (IOException e) {
+                receipt.fail(line, "Dòng không phải JSON hợp lệ.");
+            }
+        }
+    }
+
+    // header: code,quantity
+    private void readCsv(BufferedReader reader, Receipt receipt) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        List<String> names = CsvLine.split(header).stream().map(String::trim).toList();
+        int codeColumn = names.indexOf("code");
+        int quantityColumn = names.indexOf("quantity");
+        if (codeColumn < 0 || quantityColumn < 0) {
+            throw new BaseException("Phiếu nhập CSV cần có cột code và quantity.");
+        }
+        String text;
+        long line = 1;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            receipt.lines++;
+            List<String> values = CsvLine.split(text);
+            try {
+                String quantity = quantityColumn < values.size() ? values.get(quantityColumn).trim() : "";
+                receipt.add(line, ReceiptLine.builder()
+                        .code(codeColumn < values.size() ? values.get(codeColumn).trim() : null)
+                        .quantity(quantity.isEmpty() ? null : Integer.parseInt(quantity))
+                        .build());
+            } catch (NumberFormatException e) {
+                receipt.fail(line, "Giá trị số không hợp lệ: " + e.getMessage());
+            }
+        }
+    }
+
+    private static class Receipt {
+        private long lines;
+        private long failed;
+        private final Map<String, Integer> quantities = new LinkedHashMap<>();
+        // where each code first appears, to point unknown codes at a line
+        private final Map<String, Long> firstLine = new HashMap<>();
+        private final List<ImportError> errors = new ArrayList<>();
+
+        private void add(long line, ReceiptLine receiptLine) {
+            if (receiptLine.getCode() == null || receiptLine.getCode().isBlank()) {
+                this.fail(line, "Mã sản phẩm không được trống.");
+                return;
+            }
+            if (receiptLine.getQuantity() == null || receiptLine.getQuantity() <= 0) {
+                this.fail(line, "Số lượng phải lớn hơn 0.");
+                return;
+            }
+            // codes are matched without regard to case
+            String code = receiptLine.getCode().trim().toUpperCase(Locale.ROOT);
+            try {
+                quantities.merge(code, receiptLine.getQuantity(), Math::addExact);
+            } catch (ArithmeticException e) {
+                this.fail(line, "Tổng số lượng của mã " + code + " vượt quá giới hạn.");
+                return;
+            }
+            firstLine.putIfAbsent(code, line);
+        }
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportError(line, message));
+            }
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.entity.HistoryEntity;
-import com.example.demo.entity.ProductEntity;
 import com.example.demo.entity.enums.Action;
 import com.example.demo.exception.BaseException;
 import com.example.demo.exception.EntityNotFoundException;
+import com.example.demo.exception.InsufficientStockException;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.params.HistoryParams;
+import com.example.demo.model.request.HistoryDetail;
 import com.example.demo.model.request.HistoryProductRequest;
 import com.example.demo.model.response.HistoryProductResponse;
+import com.example.demo.model.stock.LedgerEntry;
 import com.example.demo.repository.HistoryProductRepository;
 import com.example.demo.repository.ProductRepository;
 import com.example.demo.service.HistoryProductService;
@@ -17,20 +19,26 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class HistoryProductImplService implements HistoryProductService {
     private final HistoryProductRepository historyProductRepository;
     private final ProductRepository productRepository;
+    private final StockMutationService stockMutationService;
+    private final StockLedgerWriter stockLedgerWriter;
 
     public HistoryProductImplService(HistoryProductRepository historyProductRepository,
-                                     ProductRepository productRepository) {
+                                     ProductRepository productRepository,
+                                     StockMutationService stockMutationService,
+                                     StockLedgerWriter stockLedgerWriter) {
         this.historyProductRepository = historyProductRepository;
         this.productRepository = productRepository;
+        this.stockMutationService = stockMutationService;
+        this.stockLedgerWriter = stockLedgerWriter;
     }
 
     @Override
@@ -73,50 +81,49 @@ public class HistoryProductImplService implements HistoryProductService {
     @Override
     @Transactional
     public BaseResponse createHistory(HistoryProductRequest historyProductRequest, Boolean check, Boolean checkImOrEx) {
-        historyProductRequest.getHistoryDetails().stream().forEach(historyDetail -> {
-            ProductEntity product = productRepository.findById(historyDetail.getProductId())
-                    .orElseThrow(() -> {
-                        throw new EntityNotFoundException("Product", "Id",
-                                String.valueOf(historyDetail.getProductId()));
-                    });
-            Boolean checkImportOrExport = checkImOrEx;
-            if (check) {
-                if (historyDetail.getDifference() >= 0) {
-                    checkImportOrExport = true;
-                } else {
-                    String productName = "";
-
-                    Optional<ProductEntity> productEntity = productRepository.findById(historyDetail.getProductId());
-                    if (productEntity.isPresent()) {
-                        productName = productEntity.get().getName();
-                    }
-
-                    if (productRepository.checkExistByIdAndQuantity(historyDetail.getProductId(),
-                            -historyDetail.getDifference()) == 0) {
-                        throw new BaseException(
-                                "Kho không có đủ linh kiện: " + productName);
-                    }
-                    checkImportOrExport = false;
-                }
+        List<HistoryDetail> historyDetails = historyProductRequest.getHistoryDetails();
+        if (check) {
+            // one guarded UPDATE per product, one ledger row per line
+            try {
+                stockMutationService.applyLines(historyDetails.stream()
+                        .map(historyDetail -> new StockMutationService.Line(historyDetail.getProductId(),
+                                historyDetail.getDifference()))
+                        .collect(Collectors.toList()), historyProductRequest.getNote());
+            } catch (InsufficientStockException e) {
+                String names = productRepository.getLedgerInfoByIds(e.getProductIds()).stream()
+                        .map(row -> (String) row[1])
+                        .collect(Collectors.joining(", "));
+                throw new BaseException("Kho không có đủ linh kiện: " + names);
             }
-            HistoryEntity history = HistoryEntity.builder()
-                    .product(product)
-                    .priceOut(product.getPriceOut())
-                    .priceIn(product.getPriceIn())
-                    .productName(product.getName())
-                    .unit(product.getUnit())
-                    .action(checkImportOrExport ? Action.IMPORT : Action.EXPORT)
-                    .quantityLeft(!check ? product.getStorageQuantity()
-                            : product.getStorageQuantity() + historyDetail.getDifference())
-                    .note(historyProductRequest.getNote())
-                    .difference(historyDetail.getDifference())
-                    .build();
-            historyProductRepository.save(history);
-            if (check) {
-                product.setStorageQuantity(product.getStorageQuantity() + historyDetail.getDifference());
-                productRepository.save(product);
+        } else if (!historyDetails.isEmpty()) {
+            // record only: every referenced product in one query, every ledger row in one batch
+            Map<Long, Object[]> products = productRepository.getLedgerInfoByIds(historyDetails.stream()
+                            .map(HistoryDetail::getProductId)
+                            .collect(Collectors.toSet())).stream()
+                    .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> row));
+            List<LedgerEntry> entries = new ArrayList<>(historyDetails.size());
+            for (HistoryDetail historyDetail : historyDetails) {
+                Object[] product = products.get(historyDetail.getProductId());
+                if (product == null) {
+                    throw new EntityNotFoundException("Product", "Id", String.valueOf(historyDetail.getProductId()));
+                }
+                if (historyDetail.getDifference() == 0) {
+                    continue;
+                }
+                entries.add(LedgerEntry.builder()
+                        .productId(historyDetail.getProductId())
+                        .productName((String) product[1])
+                        .unit((String) product[2])
+                        .priceIn(product[3] == null ? null : ((Number) product[3]).doubleValue())
+                        .priceOut(product[4] == null ? null : ((Number) product[4]).doubleValue())
+                        .difference(historyDetail.getDifference())
+                        .quantityLeft(product[5] == null ? 0 : ((Number) product[5]).intValue())
+                        .action(checkImOrEx ? Action.IMPORT : Action.EXPORT)
+                        .note(historyProductRequest.getNote())
+                        .build());
             }
-        });
+            stockLedgerWriter.append(entries);
+        }
         return BaseResponse.builder()
                 .data(null)
                 .statusCode(HttpStatus.CREATED.value())
@@ -0,0 +1,224 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.IdempotencyKeyEntity;
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.demo.security.CustomUserDetail;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs a mutation once per Idempotency-Key and account. Completed responses are kept in a bounded TTL cache and
+// in idempotency_keys, whose unique key ("<account id>:<key>") is written in the same transaction as the mutation.
+// A replay must carry the same request body, compared by its SHA-256, or it is rejected instead of answered.
+@Service
+public class IdempotencyService {
+
+    public static final Duration TTL = Duration.ofHours(24);
+    private static final long WAIT_SECONDS = 30;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final Cache<String, Completed> completed = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(TTL)
+            .build();
+    private final ConcurrentMap<String, CompletableFuture<Completed>> inFlight = new ConcurrentHashMap<>();
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionTemplate transactionTemplate, ObjectMapper objectMapper) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    // requestHash is read at most once: after the action on a first run, before the comparison on a replay
+    public BaseResponse execute(String key, String scope, Supplier<String> requestHash,
+                                Supplier<BaseResponse> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BaseException("Idempotency-Key dài tối đa " + MAX_KEY_LENGTH + " ký tự.");
+        }
+        String storedKey = this.currentAccountId() + ":" + key;
+        Supplier<String> hash = Suppliers.memoize(requestHash::get);
+        Completed cached = completed.getIfPresent(storedKey);
+        if (cached != null && !this.expired(cached.createAt())) {
+            return this.check(cached, key, scope, hash);
+        }
+        CompletableFuture<Completed> future = new CompletableFuture<>();
+        CompletableFuture<Completed> running = inFlight.putIfAbsent(storedKey, future);
+        if (running != null) {
+            return this.check(this.await(running), key, scope, hash);
+        }
+        try {
+            Completed result = this.run(storedKey, key, scope, hash, action);
+            completed.put(storedKey, result);
+            future.complete(result);
+            return result.response();
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(storedKey, future);
+        }
+    }
+
+    // fingerprint of a request body that was bound from JSON
+    public String hash(Object body) {
+        try {
+            return Hashing.sha256().hashBytes(objectMapper.writeValueAsBytes(body)).toString();
+        } catch (JsonProcessingException e) {
+            throw new BaseException("Không đọc được nội dung yêu cầu.");
+        }
+    }
+
+    // wraps a streamed body so its fingerprint is taken while it is read
+    public static DigestInputStream digesting(InputStream input) {
+        try {
+            return new DigestInputStream(input, MessageDigest.getInstance("SHA-256"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // reads what the action left of the body, so a replay is fingerprinted without being processed
+    public static String digestOf(DigestInputStream input) {
+        try {
+            ByteStreams.exhaust(input);
+        } catch (IOException e) {
+            // the reader closed the stream after reading it to the end
+        }
+        return HexFormat.of().formatHex(input.getMessageDigest().digest());
+    }
+
+    private Completed run(String storedKey, String key, String scope, Supplier<String> hash,
+                          Supplier<BaseResponse> action) {
+        IdempotencyKeyEntity stored = idempotencyKeyRepository.getByKey(storedKey).orElse(null);
+        if (stored != null) {
+            if (!this.expired(stored.getCreateAt())) {
+                return this.replay(stored, key, scope, hash);
+            }
+            // an expired key starts a new request, whether or not the nightly purge has removed it yet
+            idempotencyKeyRepository.deleteByKeyCreatedBefore(storedKey, LocalDateTime.now().minus(TTL));
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                IdempotencyKeyEntity entity;
+                try {
+                    entity = idempotencyKeyRepository.saveAndFlush(IdempotencyKeyEntity.builder()
+                            .idempotencyKey(storedKey)
+                            .scope(scope)
+                            .createAt(LocalDateTime.now())
+                            .build());
+                } catch (DataIntegrityViolationException e) {
+                    throw new KeyTaken();
+                }
+                BaseResponse response = action.get();
+                entity.setRequestHash(hash.get());
+                entity.setStatusCode(response.getStatusCode());
+                entity.setResponse(this.toJson(response));
+                idempotencyKeyRepository.save(entity);
+                return new Completed(scope, entity.getRequestHash(), response, entity.getCreateAt());
+            });
+        } catch (KeyTaken e) {
+            // another instance committed the same key first; violations raised by the action itself propagate
+            return idempotencyKeyRepository.getByKey(storedKey)
+                    .map(entity -> this.replay(entity, key, scope, hash))
+                    .orElseThrow(() -> new BaseException("Yêu cầu với Idempotency-Key " + key + " đang được xử lý."));
+        }
+    }
+
+    private Completed replay(IdempotencyKeyEntity entity, String key, String scope, Supplier<String> hash) {
+        Completed stored;
+        try {
+            stored = new Completed(entity.getScope(), entity.getRequestHash(),
+                    objectMapper.readValue(entity.getResponse(), BaseResponse.class), entity.getCreateAt());
+        } catch (JsonProcessingException e) {
+            throw new BaseException("Không đọc được kết quả của Idempotency-Key " + key + ".");
+        }
+        this.check(stored, key, scope, hash);
+        return stored;
+    }
+
+    private BaseResponse check(Completed stored, String key, String scope, Supplier<String> hash) {
+        if (!stored.scope().equals(scope) || !hash.get().equals(stored.requestHash())) {
+            throw new BaseException("Idempotency-Key " + key + " đã được dùng cho yêu cầu khác.");
+        }
+        return stored.response();
+    }
+
+    private boolean expired(LocalDateTime createAt) {
+        return createAt != null && createAt.isBefore(LocalDateTime.now().minus(TTL));
+    }
+
+    // keys of different accounts never meet; requests without an authenticated account share one space
+    private String currentAccountId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetail user) {
+            return String.valueOf(user.getAccount().getId());
+        }
+        return "-";
+    }
+
+    private Completed await(CompletableFuture<Completed> running) {
+        try {
+            return running.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new BaseException(e.getMessage());
+        } catch (TimeoutException e) {
+            throw new BaseException("Yêu cầu trùng lặp đang được xử lý, vui lòng thử lại.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BaseException("Yêu cầu bị gián đoạn.");
+        }
+    }
+
+    private String toJson(BaseResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new BaseException("Không lưu được kết quả của yêu cầu.");
+        }
+    }
+
+    private record Completed(String scope, String requestHash, BaseResponse response, LocalDateTime createAt) {
+    }
+
+    // rolls the transaction back when the key insert loses to another instance
+    private static class KeyTaken extends RuntimeException {
+        private KeyTaken() {
+            super(null, null, false, false);
+        }
+    }
+}
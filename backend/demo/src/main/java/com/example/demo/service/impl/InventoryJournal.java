@@ -0,0 +1,262 @@
+package com.example.demo.service.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only journal of stock movements in fixed-size memory-mapped segment files.
+// Offsets are logical (segment index * segment size + position), so they only ever grow.
+// Record: int payload length | long crc32 of the payload | payload. A zero length ends the written part
+// of a segment; -1 closes a segment early because the next record did not fit.
+public class InventoryJournal implements Closeable {
+
+    private static final int HEADER = 12;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int MAX_NOTE_BYTES = 1000;
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Object syncLock = new Object();
+
+    private long segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long writeOffset;
+    private volatile long durableOffset;
+
+    // startOffset: where a journal without segment files begins, so offsets never fall behind a checkpoint
+    public InventoryJournal(Path directory, int segmentSize, long startOffset) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        List<Long> indexes = this.segmentIndexes();
+        if (indexes.isEmpty()) {
+            this.openSegment((startOffset + segmentSize - 1) / segmentSize);
+            writeOffset = segmentIndex * segmentSize;
+        } else {
+            this.openSegment(indexes.get(indexes.size() - 1));
+            int end = this.scanEnd(segment);
+            // a torn record from a crash is cut off and its bytes cleared
+            for (int position = end; position < segmentSize; position++) {
+                segment.put(position, (byte) 0);
+            }
+            segment.force();
+            writeOffset = segmentIndex * segmentSize + end;
+        }
+        durableOffset = writeOffset;
+    }
+
+    public record Entry(long offset, long nextOffset, String note, Map<Long, Integer> movements) {
+    }
+
+    // returns the offset right after the record; it is durable once sync(offset) returns
+    public synchronized long append(String note, Map<Long, Integer> movements) {
+        byte[] payload = encode(note, movements);
+        int size = HEADER + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + size + " bytes exceeds the segment size");
+        }
+        int position = (int) (writeOffset - segmentIndex * segmentSize);
+        if (position + size > segmentSize) {
+            this.roll(position);
+            position = 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        segment.putInt(position, payload.length);
+        segment.putLong(position + 4, crc.getValue());
+        segment.put(position + HEADER, payload);
+        writeOffset += size;
+        return writeOffset;
+    }
+
+    // group commit: one caller forces the segment for every record appended so far, the others wait
+    // behind it and return without a force of their own once it covers their offset
+    public void sync(long offset) {
+        if (durableOffset >= offset) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableOffset >= offset) {
+                return;
+            }
+            long target;
+            MappedByteBuffer buffer;
+            synchronized (this) {
+                target = writeOffset;
+                buffer = segment;
+            }
+            buffer.force();
+            durableOffset = target;
+        }
+    }
+
+    public long getDurableOffset() {
+        return durableOffset;
+    }
+
+    // durable records from offset on, at most maxEntries of them
+    public List<Entry> read(long offset, int maxEntries) throws IOException {
+        long to = durableOffset;
+        List<Entry> entries = new ArrayList<>();
+        Map<Long, ByteBuffer> views = new HashMap<>();
+        while (offset < to && entries.size() < maxEntries) {
+            long index = offset / segmentSize;
+            int position = (int) (offset % segmentSize);
+            ByteBuffer buffer = views.get(index);
+            if (buffer == null) {
+                buffer = this.view(index);
+                views.put(index, buffer);
+            }
+            int length = position + HEADER > segmentSize ? END_OF_SEGMENT : buffer.getInt(position);
+            if (length <= 0) {
+                offset = (index + 1) * segmentSize;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (crc.getValue() != buffer.getLong(position + 4)) {
+                throw new IllegalStateException("Corrupt inventory journal record at offset " + offset);
+            }
+            long next = offset + HEADER + length;
+            entries.add(decode(offset, next, payload));
+            offset = next;
+        }
+        return entries;
+    }
+
+    // drops segment files that end at or before offset
+    public void deleteBefore(long offset) throws IOException {
+        long current;
+        synchronized (this) {
+            current = segmentIndex;
+        }
+        for (Long index : this.segmentIndexes()) {
+            if (index < current && (index + 1) * segmentSize <= offset) {
+                Files.deleteIfExists(this.segmentPath(index));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segment.force();
+        channel.close();
+    }
+
+    private void roll(int position) {
+        if (position + 4 <= segmentSize) {
+            segment.putInt(position, END_OF_SEGMENT);
+        }
+        segment.force();
+        try {
+            channel.close();
+            this.openSegment(segmentIndex + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writeOffset = segmentIndex * segmentSize;
+    }
+
+    private void openSegment(long index) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(this.segmentPath(index).toFile(), "rw")) {
+            if (file.length() < segmentSize) {
+                file.setLength(segmentSize);
+            }
+        }
+        channel = FileChannel.open(this.segmentPath(index), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentIndex = index;
+    }
+
+    private ByteBuffer view(long index) throws IOException {
+        synchronized (this) {
+            if (index == segmentIndex) {
+                return segment.duplicate();
+            }
+        }
+        try (FileChannel file = FileChannel.open(this.segmentPath(index), StandardOpenOption.READ)) {
+            return file.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+        }
+    }
+
+    // position after the last intact record
+    private int scanEnd(ByteBuffer buffer) {
+        int position = 0;
+        while (position + HEADER <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER + length > segmentSize) {
+                return position;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (crc.getValue() != buffer.getLong(position + 4)) {
+                return position;
+            }
+            position += HEADER + length;
+        }
+        return position;
+    }
+
+    private List<Long> segmentIndexes() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%020d%s", index, SUFFIX));
+    }
+
+    private static byte[] encode(String note, Map<Long, Integer> movements) {
+        byte[] noteBytes = note == null ? new byte[0] : note.getBytes(StandardCharsets.UTF_8);
+        int noteLength = Math.min(noteBytes.length, MAX_NOTE_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(2 + noteLength + 4 + movements.size() * 12);
+        buffer.putShort((short) (note == null ? -1 : noteLength));
+        buffer.put(noteBytes, 0, noteLength);
+        buffer.putInt(movements.size());
+        movements.forEach((productId, difference) -> buffer.putLong(productId).putInt(difference));
+        return buffer.array();
+    }
+
+    private static Entry decode(long offset, long nextOffset, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        short noteLength = buffer.getShort();
+        String note = null;
+        if (noteLength >= 0) {
+            byte[] noteBytes = new byte[noteLength];
+            buffer.get(noteBytes);
+            note = new String(noteBytes, StandardCharsets.UTF_8);
+        }
+        int count = buffer.getInt();
+        Map<Long, Integer> movements = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            movements.put(buffer.getLong(), buffer.getInt());
+        }
+        return new Entry(offset, nextOffset, note, movements);
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.enums.Action;
+import com.example.demo.entity.enums.StockStatus;
+import com.example.demo.exception.EntityNotFoundException;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Journal mode for stock movements, on with inventory.journal.enabled=true.
+// A movement is admitted in the caller's transaction with its product rows locked: a removal must fit in the
+// unassigned stock (LocationStockService.UNASSIGNED) plus the journaled movements not applied yet, and is held
+// against stock from then on. The record is appended to the InventoryJournal once the caller commits and is
+// durable when the commit returns; a rollback drops the hold and journals nothing. A scheduled applier drains
+// durable records into products and history_product in large batches and moves the checkpoint in the same
+// transaction; on startup every record after the checkpoint counts against stock again and is applied.
+// Order reservations and transfers out of unassigned stock lock the same rows and leave room for the journaled
+// removals (pendingRemovals), so an admitted movement always fits when it is applied.
+// A crash between the caller's commit and the append loses the movement; its ledger row never appears.
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "inventory.journal.enabled", havingValue = "true")
+public class InventoryJournalService {
+
+    private static final String APPLY_SQL = "update products " +
+            "set status = " + StockStatus.sql("storage_quantity + ?") + ", " +
+            "storage_quantity = storage_quantity + ? " +
+            "where id = ? and (? >= 0 or " + LocationStockService.UNASSIGNED + " + ? >= 0)";
+    // total on hand and the unassigned part of it, which is what a removal may take
+    private static final String LOCK_STOCK_SQL = "select id, storage_quantity, " + LocationStockService.UNASSIGNED +
+            " from products where id in (%s) order by id for update";
+    private static final String SELECT_CHECKPOINT_SQL = "select applied_offset from inventory_journal_checkpoint " +
+            "where journal = ?";
+    private static final String INSERT_CHECKPOINT_SQL = "insert into inventory_journal_checkpoint " +
+            "(journal, applied_offset) values (?, ?)";
+    private static final String UPDATE_CHECKPOINT_SQL = "update inventory_journal_checkpoint set applied_offset = ? " +
+            "where journal = ?";
+
+    private final ProductRepository productRepository;
+    private final StockLedgerWriter stockLedgerWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    // checkpoint key: each journal directory keeps its own offset
+    private final String journalName;
+    private final int segmentSize;
+    private final int applyBatch;
+
+    // Product id -> journaled difference not yet in products.storage_quantity, split by sign. Both change only
+    // while the product row is locked, except that committed imports are added after the commit, so a check
+    // holding the row lock never counts a movement both in the stored quantity and here.
+    // Imports: committed and journaled, not applied.
+    private final Map<Long, Integer> pendingImports = new ConcurrentHashMap<>();
+    // Removals: admitted in a transaction still open, or committed and not applied.
+    private final Map<Long, Integer> pendingRemovals = new ConcurrentHashMap<>();
+
+    private InventoryJournal journal;
+    private volatile long appliedOffset;
+
+    public InventoryJournalService(ProductRepository productRepository, StockLedgerWriter stockLedgerWriter,
+                                   JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   @Value("${inventory.journal.directory:data/inventory-journal}") String directory,
+                                   @Value("${inventory.journal.segment-size:16777216}") int segmentSize,
+                                   @Value("${inventory.journal.apply-batch:5000}") int applyBatch) {
+        this.productRepository = productRepository;
+        this.stockLedgerWriter = stockLedgerWriter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.directory = Path.of(directory);
+        this.journalName = this.directory.toAbsolutePath().normalize().toString();
+        this.segmentSize = segmentSize;
+        this.applyBatch = applyBatch;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        List<Long> checkpoint = jdbcTemplate.queryForList(SELECT_CHECKPOINT_SQL, Long.class, journalName);
+        if (checkpoint.isEmpty()) {
+            jdbcTemplate.update(INSERT_CHECKPOINT_SQL, journalName, 0L);
+        }
+        appliedOffset = checkpoint.isEmpty() ? 0L : checkpoint.get(0);
+        journal = new InventoryJournal(directory, segmentSize, appliedOffset);
+        long offset = appliedOffset;
+        int replayed = 0;
+        List<InventoryJournal.Entry> entries;
+        while (!(entries = journal.read(offset, applyBatch)).isEmpty()) {
+            entries.forEach(entry -> entry.movements().forEach(this::addPending));
+            offset = entries.get(entries.size() - 1).nextOffset();
+            replayed += entries.size();
+        }
+        log.info("Inventory journal opened at {}: {} movements to replay from offset {}", directory, replayed,
+                appliedOffset);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        this.applyPending();
+        journal.close();
+    }
+
+    // differences: product id -> signed change, in the caller's transaction if there is one.
+    // Returns product id -> quantity once the change is applied.
+    public Map<Long, Integer> append(Map<Long, Integer> differences, String note) {
+        return transactionTemplate.execute(status -> this.admit(differences, note));
+    }
+
+    // product id -> journaled removals not applied yet (zero or less); read with the product rows locked
+    public Map<Long, Integer> pendingRemovals(Collection<Long> productIds) {
+        Map<Long, Integer> removals = new HashMap<>();
+        productIds.forEach(id -> removals.put(id, pendingRemovals.getOrDefault(id, 0)));
+        return removals;
+    }
+
+    // run by WorkerSchedule every inventory.journal.apply-delay-ms
+    public void scheduledApply() {
+        try {
+            this.applyPending();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // returns the number of journal records applied
+    public synchronized int applyPending() throws IOException {
+        int applied = 0;
+        List<InventoryJournal.Entry> entries;
+        while (!(entries = journal.read(appliedOffset, applyBatch)).isEmpty()) {
+            this.applyEntries(entries);
+            applied += entries.size();
+        }
+        if (applied > 0) {
+            journal.deleteBefore(appliedOffset);
+            log.info("Applied {} journaled stock movements up to offset {}", applied, appliedOffset);
+        }
+        return applied;
+    }
+
+    public int getPendingProducts() {
+        return (int) pendingImports.keySet().stream()
+                .filter(id -> !pendingRemovals.containsKey(id))
+                .count() + pendingRemovals.size();
+    }
+
+    private Map<Long, Integer> admit(Map<Long, Integer> differences, String note) {
+        Map<Long, int[]> stock = this.lockStock(differences.keySet());
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        List<Long> shortIds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> difference : differences.entrySet()) {
+            Long id = difference.getKey();
+            int[] stored = stock.get(id);
+            if (stored == null) {
+                throw new EntityNotFoundException("Product", "Id", id.toString());
+            }
+            int moved = pendingImports.getOrDefault(id, 0) + pendingRemovals.getOrDefault(id, 0)
+                    + difference.getValue();
+            if (difference.getValue() < 0 && stored[1] + moved < 0) {
+                shortIds.add(id);
+            }
+            quantities.put(id, stored[0] + moved);
+        }
+        if (!shortIds.isEmpty()) {
+            throw new InsufficientStockException(shortIds);
+        }
+        Map<Long, Integer> removals = differences.entrySet().stream()
+                .filter(difference -> difference.getValue() < 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        removals.forEach(this::addPending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                long offset;
+                try {
+                    offset = journal.append(note, differences);
+                } catch (RuntimeException e) {
+                    removals.forEach(InventoryJournalService.this::removePending);
+                    throw e;
+                }
+                differences.forEach((id, difference) -> {
+                    if (difference > 0) {
+                        addPending(id, difference);
+                    }
+                });
+                journal.sync(offset);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    removals.forEach(InventoryJournalService.this::removePending);
+                }
+            }
+        });
+        return quantities;
+    }
+
+    private void applyEntries(List<InventoryJournal.Entry> entries) {
+        long next = entries.get(entries.size() - 1).nextOffset();
+        // pending movements taken out in the transaction, put back if it does not commit
+        List<Map.Entry<Long, Integer>> taken = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                this.apply(entries, taken);
+                jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, next, journalName);
+            });
+        } catch (RuntimeException e) {
+            taken.forEach(movement -> this.addPending(movement.getKey(), movement.getValue()));
+            throw e;
+        }
+        appliedOffset = next;
+    }
+
+    // Applies the records in order against the locked product rows and writes their ledger rows.
+    // Each applied movement leaves pending before the rows are unlocked.
+    private void apply(List<InventoryJournal.Entry> entries, List<Map.Entry<Long, Integer>> taken) {
+        TreeSet<Long> ids = new TreeSet<>();
+        entries.forEach(entry -> ids.addAll(entry.movements().keySet()));
+        Map<Long, Object[]> rows = productRepository.lockLedgerInfoByIds(ids).stream()
+                .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> row));
+        Map<Long, Integer> running = new HashMap<>();
+        rows.forEach((id, row) -> running.put(id, row[5] == null ? 0 : ((Number) row[5]).intValue()));
+        Map<Long, Integer> sums = new LinkedHashMap<>();
+        List<LedgerEntry> ledger = new ArrayList<>();
+        for (InventoryJournal.Entry entry : entries) {
+            entry.movements().forEach((id, difference) -> {
+                Object[] row = rows.get(id);
+                if (row == null) {
+                    log.warn("Dropping journaled movement of {} for missing product {}", difference, id);
+                } else {
+                    int quantityLeft = running.merge(id, difference, Integer::sum);
+                    sums.merge(id, difference, Integer::sum);
+                    ledger.add(LedgerEntry.builder()
+                            .productId(id)
+                            .productName((String) row[1])
+                            .unit((String) row[2])
+                            .priceIn(row[3] == null ? null : ((Number) row[3]).doubleValue())
+                            .priceOut(row[4] == null ? null : ((Number) row[4]).doubleValue())
+                            .difference(difference)
+                            .quantityLeft(quantityLeft)
+                            .action(difference >= 0 ? Action.IMPORT : Action.EXPORT)
+                            .note(entry.note())
+                            .build());
+                }
+                this.removePending(id, difference);
+                taken.add(Map.entry(id, difference));
+            });
+        }
+        List<Long> applied = new ArrayList<>(sums.keySet());
+        int[] updated = jdbcTemplate.batchUpdate(APPLY_SQL, applied.stream()
+                .map(id -> new Object[]{sums.get(id), sums.get(id), id, sums.get(id), sums.get(id)})
+                .collect(Collectors.toList()));
+        for (int i = 0; i < updated.length; i++) {
+            // every other writer leaves room for the admitted removals, so this only happens when the stock was
+            // changed behind the services' back; the batch is retried until it is corrected
+            if (updated[i] == 0) {
+                throw new IllegalStateException("Journaled movements no longer fit in the unassigned stock of " +
+                        "product " + applied.get(i));
+            }
+        }
+        stockLedgerWriter.append(ledger);
+    }
+
+    // product id -> {storage_quantity, unassigned stock}, with the rows locked until the transaction ends
+    private Map<Long, int[]> lockStock(Collection<Long> ids) {
+        Map<Long, int[]> stock = new HashMap<>();
+        List<Long> sorted = new ArrayList<>(new TreeSet<>(ids));
+        jdbcTemplate.query(String.format(LOCK_STOCK_SQL, String.join(", ", Collections.nCopies(sorted.size(), "?"))),
+                resultSet -> {
+                    stock.put(resultSet.getLong(1), new int[]{resultSet.getInt(2), resultSet.getInt(3)});
+                }, sorted.toArray());
+        return stock;
+    }
+
+    private void addPending(Long productId, Integer difference) {
+        this.mergePending(difference < 0 ? pendingRemovals : pendingImports, productId, difference);
+    }
+
+    private void removePending(Long productId, Integer difference) {
+        this.mergePending(difference < 0 ? pendingRemovals : pendingImports, productId, -difference);
+    }
+
+    private void mergePending(Map<Long, Integer> pending, Long productId, int difference) {
+        if (difference != 0) {
+            pending.merge(productId, difference, (current, added) -> current + added == 0 ? null : current + added);
+        }
+    }
+}
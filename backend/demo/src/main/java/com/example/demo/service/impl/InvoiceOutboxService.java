@@ -0,0 +1,180 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.InvoiceOutboxEntity;
+import com.example.demo.entity.enums.Action;
+import com.example.demo.entity.enums.OutboxStatus;
+import com.example.demo.exception.EntityNotFoundException;
+import com.example.demo.model.response.orderReponse.InvoiceStatus;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.repository.InvoiceOutboxRepository;
+import com.example.demo.repository.OrderProductsRepository;
+import com.example.demo.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Transactional outbox for toInvoice: the order commits as INVOICE with a PENDING row here, and the
+// worker writes the EXPORT ledger rows of many invoices in one batch afterwards.
+// The stock left of each product is recorded on the order lines when the order is invoiced, so the ledger
+// shows the quantity of that moment rather than whatever the worker finds later.
+@Slf4j
+@Service
+public class InvoiceOutboxService {
+
+    private static final int BATCH_SIZE = 200;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration CLAIM_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final String CLAIM_SQL = "update invoice_outbox " +
+            "set status = 'PROCESSING', attempts = attempts + 1, claimed_at = ? " +
+            "where id = ? and status = 'PENDING'";
+    private static final String DONE_SQL = "update invoice_outbox " +
+            "set status = 'DONE', processed_at = ?, last_error = null where id = ?";
+    private static final String RETRY_SQL = "update invoice_outbox " +
+            "set status = case when attempts >= ? then 'FAILED' else 'PENDING' end, last_error = ? where id = ?";
+    private static final String RESET_STUCK_SQL = "update invoice_outbox " +
+            "set status = 'PENDING' where status = 'PROCESSING' and claimed_at < ?";
+
+    private final InvoiceOutboxRepository invoiceOutboxRepository;
+    private final OrderProductsRepository orderProductsRepository;
+    private final ProductRepository productRepository;
+    private final StockLedgerWriter stockLedgerWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public InvoiceOutboxService(InvoiceOutboxRepository invoiceOutboxRepository,
+                                OrderProductsRepository orderProductsRepository,
+                                ProductRepository productRepository, StockLedgerWriter stockLedgerWriter,
+                                JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.invoiceOutboxRepository = invoiceOutboxRepository;
+        this.orderProductsRepository = orderProductsRepository;
+        this.productRepository = productRepository;
+        this.stockLedgerWriter = stockLedgerWriter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public InvoiceStatus enqueue(Long orderId) {
+        orderProductsRepository.recordQuantitiesLeft(orderId);
+        InvoiceOutboxEntity outbox = invoiceOutboxRepository.save(InvoiceOutboxEntity.builder()
+                .orderId(orderId)
+                .status(OutboxStatus.PENDING)
+                .createAt(LocalDateTime.now())
+                .build());
+        return this.toStatus(outbox);
+    }
+
+    public InvoiceStatus getStatus(Long orderId) {
+        return invoiceOutboxRepository.getByOrderId(orderId).map(this::toStatus).orElseThrow(() -> {
+            throw new EntityNotFoundException("Invoice", "OrderId", orderId.toString());
+        });
+    }
+
+    // run by WorkerSchedule every invoice.outbox.delay-ms
+    public void scheduledProcess() {
+        int processed = this.processPending();
+        if (processed > 0) {
+            log.info("Finalised {} invoices", processed);
+        }
+    }
+
+    // returns the number of outbox rows claimed by this call
+    public int processPending() {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(RESET_STUCK_SQL, Timestamp.valueOf(now.minus(CLAIM_TIMEOUT)));
+        List<Object[]> pending = invoiceOutboxRepository.getPending(BATCH_SIZE);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        int[] claimed = jdbcTemplate.batchUpdate(CLAIM_SQL, pending.stream()
+                .map(row -> new Object[]{Timestamp.valueOf(now), ((Number) row[0]).longValue()})
+                .collect(Collectors.toList()));
+        // order id -> outbox id, only the rows this worker won
+        Map<Long, Long> outboxByOrder = new LinkedHashMap<>();
+        for (int i = 0; i < claimed.length; i++) {
+            if (claimed[i] > 0) {
+                outboxByOrder.put(((Number) pending.get(i)[1]).longValue(), ((Number) pending.get(i)[0]).longValue());
+            }
+        }
+        if (outboxByOrder.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> this.finalizeInvoices(outboxByOrder));
+        } catch (RuntimeException e) {
+            log.warn("Invoice batch of {} failed, retrying one by one", outboxByOrder.size(), e);
+            outboxByOrder.forEach((orderId, outboxId) -> {
+                try {
+                    transactionTemplate.executeWithoutResult(
+                            status -> this.finalizeInvoices(Map.of(orderId, outboxId)));
+                } catch (RuntimeException single) {
+                    String message = String.valueOf(single.getMessage());
+                    jdbcTemplate.update(RETRY_SQL, MAX_ATTEMPTS,
+                            message.length() > 1000 ? message.substring(0, 1000) : message, outboxId);
+                }
+            });
+        }
+        return outboxByOrder.size();
+    }
+
+    private void finalizeInvoices(Map<Long, Long> outboxByOrder) {
+        List<Object[]> lines = orderProductsRepository.getInvoiceLines(outboxByOrder.keySet());
+        Set<Long> productIds = lines.stream().map(line -> ((Number) line[1]).longValue()).collect(Collectors.toSet());
+        Map<Long, Object[]> products = productIds.isEmpty() ? Map.of()
+                : productRepository.getLedgerInfoByIds(productIds).stream()
+                .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> row));
+        List<LedgerEntry> entries = new ArrayList<>(lines.size());
+        for (Object[] line : lines) {
+            Long productId = ((Number) line[1]).longValue();
+            Object[] product = products.get(productId);
+            if (product == null) {
+                throw new EntityNotFoundException("Product", "Id", productId.toString());
+            }
+            // rows queued before quantities were recorded fall back to the current stock
+            Object recorded = line[4] != null ? line[4] : product[5];
+            int quantityLeft = recorded == null ? 0 : ((Number) recorded).intValue();
+            entries.add(LedgerEntry.builder()
+                    .productId(productId)
+                    .productName((String) product[1])
+                    .unit((String) product[2])
+                    .priceIn(product[3] == null ? null : ((Number) product[3]).doubleValue())
+                    .priceOut(product[4] == null ? null : ((Number) product[4]).doubleValue())
+                    .difference(-((Number) line[2]).intValue())
+                    // stock already left the shelf when the order was created
+                    .quantityLeft(quantityLeft)
+                    .action(Action.EXPORT)
+                    .sale(true)
+                    .note("Xuất bởi " + line[3])
+                    .build());
+        }
+        stockLedgerWriter.append(entries);
+        Timestamp processedAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(DONE_SQL, outboxByOrder.values().stream()
+                .map(outboxId -> new Object[]{processedAt, outboxId})
+                .collect(Collectors.toList()));
+    }
+
+    private InvoiceStatus toStatus(InvoiceOutboxEntity outbox) {
+        return InvoiceStatus.builder()
+                .orderId(outbox.getOrderId())
+                .status(outbox.getStatus())
+                .attempts(outbox.getAttempts())
+                .lastError(outbox.getLastError())
+                .processedAt(outbox.getProcessedAt())
+                .build();
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.StockLocationEntity;
+import com.example.demo.entity.StockTransferEntity;
+import com.example.demo.entity.StockTransferLineEntity;
+import com.example.demo.entity.enums.StockStatus;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.BaseException;
+import com.example.demo.exception.EntityNotFoundException;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.request.ProductOrders;
+import com.example.demo.model.request.StockLocationRequest;
+import com.example.demo.model.request.StockTransferRequest;
+import com.example.demo.model.response.LocationQuantity;
+import com.example.demo.model.stock.StockItem;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.StockLocationRepository;
+import com.example.demo.repository.StockTransferLineRepository;
+import com.example.demo.repository.StockTransferRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Stock per location. A sale at a location takes a guarded relative UPDATE on its (location, product) row
+// and appends a stock_delta row, so sales at different locations never wait on the same lock.
+// products.storage_quantity stays the total on hand: the deltas are folded into it in batches every
+// stock.location.fold-delay-ms. Stock that no transfer has put at a location yet is the unassigned rest of it.
+@Service
+public class LocationStockService {
+
+    // stock no location holds, counting the location sales not folded in yet; the one guard every statement
+    // that takes unassigned stock from products checks
+    public static final String UNASSIGNED = "(products.storage_quantity " +
+            "+ coalesce((select sum(d.difference) from stock_delta d where d.product_id = products.id), 0) " +
+            "- coalesce((select sum(l.quantity) from location_stock l where l.product_id = products.id), 0))";
+
+    private static final int FOLD_BATCH = 5000;
+    private static final String TAKE_SQL = "update location_stock set quantity = quantity - ? " +
+            "where location_id = ? and product_id = ? and quantity >= ?";
+    private static final String PUT_SQL = "update location_stock set quantity = quantity + ? " +
+            "where location_id = ? and product_id = ?";
+    private static final String INSERT_SQL = "insert into location_stock (location_id, product_id, quantity) " +
+            "values (?, ?, ?)";
+    private static final String INSERT_DELTA_SQL = "insert into stock_delta (product_id, difference) values (?, ?)";
+    // locked, so two instances never fold the same rows
+    private static final String SELECT_DELTAS_SQL = "select id, product_id, difference from stock_delta " +
+            "order by id limit ? for update";
+    // rows are deleted by id: a range would also take rows committed after the read
+    private static final String DELETE_DELTA_SQL = "delete from stock_delta where id = ?";
+    // status is assigned before the quantity it is derived from, see StockMutationService
+    private static final String FOLD_SQL = "update products " +
+            "set status = " + StockStatus.sql("storage_quantity + ?") + ", " +
+            "storage_quantity = storage_quantity + ? " +
+            "where id = ?";
+    // with the product row locked against other transfers and the journal
+    private static final String UNASSIGNED_SQL = "select " + UNASSIGNED + " from products " +
+            "where id = ? and is_active = true for update";
+    private static final String SELECT_STOCK_SQL = "select l.location_id, p.id, p.code, p.name, l.quantity " +
+            "from location_stock l join products p on p.id = l.product_id " +
+            "where l.location_id = ? and l.quantity > 0 order by p.id";
+
+    private final StockLocationRepository stockLocationRepository;
+    private final StockTransferRepository stockTransferRepository;
+    private final StockTransferLineRepository stockTransferLineRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PublisherEvent publisherEvent;
+    private final Optional<InventoryJournalService> inventoryJournalService;
+
+    public LocationStockService(StockLocationRepository stockLocationRepository,
+                                StockTransferRepository stockTransferRepository,
+                                StockTransferLineRepository stockTransferLineRepository,
+                                ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager, PublisherEvent publisherEvent,
+                                Optional<InventoryJournalService> inventoryJournalService) {
+        this.stockLocationRepository = stockLocationRepository;
+        this.stockTransferRepository = stockTransferRepository;
+        this.stockTransferLineRepository = stockTransferLineRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.publisherEvent = publisherEvent;
+        this.inventoryJournalService = inventoryJournalService;
+    }
+
+    public StockLocationEntity getLocation(Long locationId) {
+        return stockLocationRepository.findByIdAndIsActive(locationId, true).orElseThrow(() -> {
+            throw new EntityNotFoundException("StockLocation", "Id", locationId.toString());
+        });
+    }
+
+    // quantities: product id -> merged quantity, taken from locationId; the same contract as
+    // StockReservationService.reserve, with storageQuantity being what is left at the location
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, StockItem> reserve(Long locationId, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        Map<Long, Object[]> rows = productRepository.getStockByIds(quantities.keySet()).stream()
+                .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> row));
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        List<Long> shortIds = ids.stream()
+                .filter(id -> !rows.containsKey(id))
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (!shortIds.isEmpty()) {
+            throw new InsufficientStockException(shortIds);
+        }
+        Map<Long, Integer> left = this.take(locationId, quantities);
+
+        Map<Long, Integer> differences = new LinkedHashMap<>();
+        quantities.forEach((id, quantity) -> differences.put(id, -quantity));
+        this.appendDeltas(differences);
+
+        Map<Long, StockItem> reserved = new LinkedHashMap<>();
+        ids.forEach(id -> {
+            Object[] row = rows.get(id);
+            reserved.put(id, StockItem.builder()
+                    .id(id)
+                    .name((String) row[1])
+                    .price(row[2] == null ? null : ((Number) row[2]).doubleValue())
+                    .unit((String) row[3])
+                    .quantity(quantities.get(id))
+                    .storageQuantity(left.get(id))
+                    .build());
+        });
+        return reserved;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long locationId, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        this.put(locationId, quantities);
+        this.appendDeltas(quantities);
+    }
+
+    @Transactional
+    public BaseResponse transfer(StockTransferRequest request) {
+        if (Objects.equals(request.getFromLocationId(), request.getToLocationId())) {
+            throw new BaseException("Kho chuyển và kho nhận phải khác nhau.");
+        }
+        if (request.getFromLocationId() != null) {
+            this.getLocation(request.getFromLocationId());
+        }
+        if (request.getToLocationId() != null) {
+            this.getLocation(request.getToLocationId());
+        }
+        Map<Long, Integer> quantities = request.getProducts().stream()
+                .collect(Collectors.toMap(ProductOrders::getId, ProductOrders::getQuantity, Integer::sum,
+                        LinkedHashMap::new));
+        if (request.getFromLocationId() != null) {
+            this.take(request.getFromLocationId(), quantities);
+        } else {
+            List<Long> shortIds = new ArrayList<>();
+            quantities.forEach((id, quantity) -> {
+                List<Integer> unassigned = jdbcTemplate.queryForList(UNASSIGNED_SQL, Integer.class, id);
+                // journaled removals not applied yet still come out of the unassigned stock
+                int pending = inventoryJournalService
+                        .map(journal -> journal.pendingRemovals(List.of(id)).get(id))
+                        .orElse(0);
+                if (unassigned.isEmpty() || unassigned.get(0) == null || unassigned.get(0) + pending < quantity) {
+                    shortIds.add(id);
+                }
+            });
+            if (!shortIds.isEmpty()) {
+                throw new InsufficientStockException(shortIds);
+            }
+        }
+        if (request.getToLocationId() != null) {
+            this.put(request.getToLocationId(), quantities);
+        }
+
+        StockTransferEntity transfer = stockTransferRepository.save(StockTransferEntity.builder()
+                .fromLocationId(request.getFromLocationId())
+                .toLocationId(request.getToLocationId())
+                .note(request.getNote())
+                .createDate(LocalDateTime.now())
+                .build());
+        stockTransferLineRepository.saveAll(quantities.entrySet().stream()
+                .map(entry -> StockTransferLineEntity.builder()
+                        .transferId(transfer.getId())
+                        .productId(entry.getKey())
+                        .quantity(entry.getValue())
+                        .build())
+                .collect(Collectors.toList()));
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.CREATED.value())
+                .message("Chuyển kho thành công.")
+                .data(transfer)
+                .build();
+    }
+
+    public BaseResponse createLocation(StockLocationRequest request) {
+        if (stockLocationRepository.existsByCode(request.getCode())) {
+            return BaseResponse.builder()
+                    .statusCode(HttpStatus.BAD_REQUEST.value())
+                    .message("Mã kho đã tồn tại trong hệ thống.")
+                    .data(null)
+                    .build();
+        }
+        StockLocationEntity location = StockLocationEntity.builder()
+                .code(request.getCode())
+                .name(request.getName())
+                .build();
+        location.setIsActive(true);
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.CREATED.value())
+                .message("Tạo kho thành công.")
+                .data(stockLocationRepository.save(location))
+                .build();
+    }
+
+    public BaseResponse getLocations() {
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Lấy danh sách kho thành công.")
+                .data(stockLocationRepository.findAllByIsActiveOrderById(true))
+                .build();
+    }
+
+    public BaseResponse getLocationStock(Long locationId) {
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Lấy tồn kho thành công.")
+                .data(this.getStock(locationId))
+                .build();
+    }
+
+    public List<LocationQuantity> getStock(Long locationId) {
+        this.getLocation(locationId);
+        return jdbcTemplate.query(SELECT_STOCK_SQL, (resultSet, rowNum) -> new LocationQuantity(
+                resultSet.getLong(1), resultSet.getLong(2), resultSet.getString(3), resultSet.getString(4),
+                resultSet.getInt(5)), locationId);
+    }
+
+    // folds pending deltas into products.storage_quantity, one batch per call; returns the rows folded.
+    // WorkerSchedule runs it every stock.location.fold-delay-ms.
+    public synchronized int fold() {
+        Integer folded = transactionTemplate.execute(status -> {
+            List<Object[]> deltas = jdbcTemplate.query(SELECT_DELTAS_SQL, (resultSet, rowNum) -> new Object[]{
+                    resultSet.getLong(1), resultSet.getLong(2), resultSet.getInt(3)}, FOLD_BATCH);
+            if (deltas.isEmpty()) {
+                return 0;
+            }
+            Map<Long, Integer> sums = new LinkedHashMap<>();
+            deltas.forEach(delta -> sums.merge((Long) delta[1], (Integer) delta[2], Integer::sum));
+            jdbcTemplate.batchUpdate(FOLD_SQL, sums.entrySet().stream()
+                    .filter(entry -> entry.getValue() != 0)
+                    .map(entry -> new Object[]{entry.getValue(), entry.getValue(), entry.getValue(), entry.getKey()})
+                    .collect(Collectors.toList()));
+            jdbcTemplate.batchUpdate(DELETE_DELTA_SQL, deltas.stream()
+                    .map(delta -> new Object[]{delta[0]})
+                    .collect(Collectors.toList()));
+            return deltas.size();
+        });
+        return folded == null ? 0 : folded;
+    }
+
+    // guarded decrement of every line at the location; all short ids are reported together.
+    // Returns product id -> quantity left at the location.
+    private Map<Long, Integer> take(Long locationId, Map<Long, Integer> quantities) {
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        int[] updated = jdbcTemplate.batchUpdate(TAKE_SQL, ids.stream()
+                .map(id -> new Object[]{quantities.get(id), locationId, id, quantities.get(id)})
+                .collect(Collectors.toList()));
+        List<Long> shortIds = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                shortIds.add(ids.get(i));
+            }
+        }
+        if (!shortIds.isEmpty()) {
+            throw new InsufficientStockException(shortIds);
+        }
+        return this.quantitiesAt(locationId, ids);
+    }
+
+    private void put(Long locationId, Map<Long, Integer> quantities) {
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        int[] updated = jdbcTemplate.batchUpdate(PUT_SQL, ids.stream()
+                .map(id -> new Object[]{quantities.get(id), locationId, id})
+                .collect(Collectors.toList()));
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                inserts.add(new Object[]{locationId, ids.get(i), quantities.get(ids.get(i))});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+    }
+
+    private Map<Long, Integer> quantitiesAt(Long locationId, List<Long> productIds) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        String placeholders = productIds.stream().map(id -> "?").collect(Collectors.joining(", "));
+        List<Object> args = new ArrayList<>();
+        args.add(locationId);
+        args.addAll(productIds);
+        jdbcTemplate.query("select product_id, quantity from location_stock where location_id = ? " +
+                        "and product_id in (" + placeholders + ")",
+                resultSet -> {
+                    quantities.put(resultSet.getLong(1), resultSet.getInt(2));
+                }, args.toArray());
+        return quantities;
+    }
+
+    private void appendDeltas(Map<Long, Integer> differences) {
+        jdbcTemplate.batchUpdate(INSERT_DELTA_SQL, differences.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue()})
+                .collect(Collectors.toList()));
+        publisherEvent.stockChanged(differences);
+    }
+}
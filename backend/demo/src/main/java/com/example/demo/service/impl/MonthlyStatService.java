@@ -0,0 +1,156 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.enums.StatMetric;
+import com.example.demo.event.LedgerAppendedEvent;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.repository.MonthlyStatRepository;
+import com.example.demo.utils.SqlUpsert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Monthly totals of import spend, export revenue and service revenue, added to monthly_stat by the code that
+// writes the raw rows: ledger appends (imports and invoices), order saves and the order import.
+// Amounts keep the signs of the raw sums, so export revenue is negative like difference * price_out.
+// A scheduled reconciliation recomputes the recent months from history_product and order_service.
+@Slf4j
+@Service
+public class MonthlyStatService {
+
+    private static final int SLOTS = 16;
+    // adds to the slot or creates it, see SqlUpsert
+    private static final String UPSERT_SQL = "insert into monthly_stat (metric, stat_month, slot, amount) " +
+            "values (?, ?, ?, ?) on duplicate key update amount = amount + values(amount)";
+    private static final String MERGE_SQL = "merge into monthly_stat t using (values (cast(? as varchar(255)), " +
+            "cast(? as date), cast(? as int), cast(? as double precision))) s (metric, stat_month, slot, amount) " +
+            "on t.metric = s.metric and t.stat_month = s.stat_month and t.slot = s.slot " +
+            "when matched then update set amount = t.amount + s.amount " +
+            "when not matched then insert (metric, stat_month, slot, amount) " +
+            "values (s.metric, s.stat_month, s.slot, s.amount)";
+    private static final String INSERT_SQL = "insert into monthly_stat (metric, stat_month, slot, amount) " +
+            "values (?, ?, ?, ?)";
+    private static final String DELETE_SQL = "delete from monthly_stat where stat_month >= ?";
+    private static final String LEDGER_TOTALS_SQL = "select year(create_date), month(create_date), " +
+            "sum(case when difference > 0 then difference * coalesce(price_in, 0) else 0 end), " +
+            "sum(case when difference < 0 then difference * coalesce(price_out, 0) else 0 end) " +
+            "from history_product where create_date >= ? group by year(create_date), month(create_date)";
+    private static final String SERVICE_TOTALS_SQL = "select year(create_date), month(create_date), " +
+            "sum(price * quantity) " +
+            "from order_service where create_date >= ? group by year(create_date), month(create_date)";
+
+    private final MonthlyStatRepository monthlyStatRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileMonths;
+    private final SqlUpsert upsert;
+
+    public MonthlyStatService(MonthlyStatRepository monthlyStatRepository, JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${stat.monthly.reconcile-months:2}") int reconcileMonths) {
+        this.monthlyStatRepository = monthlyStatRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.reconcileMonths = reconcileMonths;
+        this.upsert = new SqlUpsert(jdbcTemplate, UPSERT_SQL, MERGE_SQL);
+    }
+
+    // history written before the table existed is summed once
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (monthlyStatRepository.count() > 0) {
+            return;
+        }
+        Timestamp first = jdbcTemplate.queryForObject("select min(create_date) from (" +
+                "select min(create_date) as create_date from history_product union all " +
+                "select min(create_date) from order_service) as firsts", Timestamp.class);
+        if (first != null) {
+            this.reconcile(YearMonth.from(first.toLocalDateTime()));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(StatMetric metric, YearMonth month, double amount) {
+        if (amount == 0) {
+            return;
+        }
+        Date statMonth = Date.valueOf(month.atDay(1));
+        int slot = ThreadLocalRandom.current().nextInt(SLOTS);
+        upsert.execute(List.<Object[]>of(new Object[]{metric.name(), statMonth, slot, amount}));
+    }
+
+    @EventListener
+    public void onLedgerAppended(LedgerAppendedEvent event) {
+        double spend = 0;
+        double revenue = 0;
+        for (LedgerEntry entry : event.getEntries()) {
+            if (entry.getDifference() > 0 && entry.getPriceIn() != null) {
+                spend += entry.getDifference() * entry.getPriceIn();
+            } else if (entry.getDifference() < 0 && entry.getPriceOut() != null) {
+                revenue += entry.getDifference() * entry.getPriceOut();
+            }
+        }
+        YearMonth month = YearMonth.now();
+        this.add(StatMetric.IMPORT_SPEND, month, spend);
+        this.add(StatMetric.EXPORT_REVENUE, month, revenue);
+    }
+
+    @Scheduled(cron = "${stat.monthly.reconcile-cron:0 30 2 * * *}")
+    public void scheduledReconcile() {
+        this.reconcile(YearMonth.now().minusMonths(reconcileMonths - 1));
+    }
+
+    // recomputes every month from the given one on; returns the rows written.
+    // The rows are deleted first, so writers still adding to them finish before the raw totals are read.
+    public int reconcile(YearMonth from) {
+        Timestamp start = Timestamp.valueOf(from.atDay(1).atStartOfDay());
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(DELETE_SQL, Date.valueOf(from.atDay(1)));
+            List<Object[]> inserts = new ArrayList<>();
+            jdbcTemplate.query(LEDGER_TOTALS_SQL, resultSet -> {
+                Date month = Date.valueOf(LocalDate.of(resultSet.getInt(1), resultSet.getInt(2), 1));
+                inserts.add(new Object[]{StatMetric.IMPORT_SPEND.name(), month, 0, resultSet.getDouble(3)});
+                inserts.add(new Object[]{StatMetric.EXPORT_REVENUE.name(), month, 0, resultSet.getDouble(4)});
+            }, start);
+            jdbcTemplate.query(SERVICE_TOTALS_SQL, resultSet -> {
+                Date month = Date.valueOf(LocalDate.of(resultSet.getInt(1), resultSet.getInt(2), 1));
+                inserts.add(new Object[]{StatMetric.SERVICE_REVENUE.name(), month, 0, resultSet.getDouble(3)});
+            }, start);
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            return inserts.size();
+        });
+        log.info("Monthly statistics reconciled from {}: {} rows", from, rows);
+        return rows == null ? 0 : rows;
+    }
+
+    // the last months up to the current one, oldest first; months without rows are null
+    public Map<YearMonth, Double> getTotals(StatMetric metric, int months) {
+        YearMonth first = YearMonth.now().minusMonths(months - 1);
+        Map<YearMonth, Double> stored = new HashMap<>();
+        monthlyStatRepository.getTotalsSince(metric.name(), first.atDay(1)).forEach(row -> stored.put(
+                YearMonth.from(row[0] instanceof Date date ? date.toLocalDate() : (LocalDate) row[0]),
+                ((Number) row[1]).doubleValue()));
+        Map<YearMonth, Double> totals = new LinkedHashMap<>();
+        for (int i = 0; i < months; i++) {
+            totals.put(first.plusMonths(i), stored.get(first.plusMonths(i)));
+        }
+        return totals;
+    }
+}
@@ -1,19 +1,26 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.entity.*;
+import com.example.demo.entity.enums.OrderAction;
+import com.example.demo.entity.enums.OrderLineKind;
+import com.example.demo.entity.enums.StatMetric;
 import com.example.demo.entity.enums.TypeEmployee;
 import com.example.demo.entity.enums.TypeOrder;
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.exception.BaseException;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.params.OrderParams;
 import com.example.demo.model.request.*;
+import com.example.demo.model.response.CursorPage;
 import com.example.demo.model.response.StoreResponse;
 import com.example.demo.model.response.orderReponse.*;
+import com.example.demo.model.statistic.OrderLineChange;
+import com.example.demo.model.stock.StockItem;
 import com.example.demo.repository.*;
 import com.example.demo.security.CustomUserDetail;
-import com.example.demo.service.HistoryProductService;
 import com.example.demo.service.OrderService;
+import com.example.demo.utils.SeekCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -25,12 +32,16 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderImplService implements OrderService {
 
+    public static final String LEAST_LOADED = "least-loaded";
+
     private final OrderRepository orderRepository;
     private final CustomerRepository customerRepository;
     private final EmployeeRepository employeeRepository;
@@ -39,9 +50,15 @@ public class OrderImplService implements OrderService {
     private final ProductRepository productRepository;
     private final OrderProductsRepository orderProductsRepository;
     private final OrderServiceRepository orderServiceRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
 
-    private final HistoryProductService historyProductService;
-    private final StoreRepository storeRepository;
+    private final StockReservationService stockReservationService;
+    private final LocationStockService locationStockService;
+    private final MonthlyStatService monthlyStatService;
+    private final InvoiceOutboxService invoiceOutboxService;
+    private final OrderSummaryService orderSummaryService;
+    private final PublisherEvent publisherEvent;
+    private final RepairerWorkloadIndex repairerWorkloadIndex;
 
     public OrderImplService(OrderRepository orderRepository,
                             CustomerRepository customerRepository,
@@ -50,7 +67,14 @@ public class OrderImplService implements OrderService {
                             ProductRepository productRepository,
                             OrderProductsRepository orderProductsRepository,
                             OrderServiceRepository orderServiceRepository,
-                            HistoryProductService historyProductService, StoreRepository storeRepository) {
+                            OrderSummaryRepository orderSummaryRepository,
+                            StockReservationService stockReservationService,
+                            LocationStockService locationStockService,
+                            MonthlyStatService monthlyStatService,
+                            InvoiceOutboxService invoiceOutboxService,
+                            OrderSummaryService orderSummaryService,
+                            PublisherEvent publisherEvent,
+                            RepairerWorkloadIndex repairerWorkloadIndex) {
         this.orderRepository = orderRepository;
         this.customerRepository = customerRepository;
         this.employeeRepository = employeeRepository;
@@ -58,8 +82,14 @@ public class OrderImplService implements OrderService {
         this.productRepository = productRepository;
         this.orderProductsRepository = orderProductsRepository;
         this.orderServiceRepository = orderServiceRepository;
-        this.historyProductService = historyProductService;
-        this.storeRepository = storeRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.stockReservationService = stockReservationService;
+        this.locationStockService = locationStockService;
+        this.monthlyStatService = monthlyStatService;
+        this.invoiceOutboxService = invoiceOutboxService;
+        this.orderSummaryService = orderSummaryService;
+        this.publisherEvent = publisherEvent;
+        this.repairerWorkloadIndex = repairerWorkloadIndex;
     }
 
     @Override
@@ -80,17 +110,23 @@ public class OrderImplService implements OrderService {
 
         // save list service to table
         orderServiceRepository.saveAll(orderServiceEntities);
+        monthlyStatService.add(StatMetric.SERVICE_REVENUE, YearMonth.now(), orderServiceEntities.stream()
+                .mapToDouble(orderService -> orderService.getPrice() * orderService.getQuantity())
+                .sum());
 
-        // create list product
-        List<OrderProduct> products = insertOrder.getProducts().stream().map(productOrders -> {
-            return productInOrderToEntity(orderSaved, productOrders);
-        }).collect(Collectors.toList());
+        // reserve stock and create list product
+        List<OrderProduct> products = this.reserveProducts(orderSaved, insertOrder.getProducts());
         // save products to table
         orderProductsRepository.saveAll(products);
+        List<OrderLineChange> changes = new ArrayList<>();
+        orderServiceEntities.forEach(line -> changes.add(this.lineChange(line, line.getQuantity())));
+        products.forEach(line -> changes.add(this.lineChange(line, line.getQuantity())));
+        publisherEvent.orderLinesChanged(changes);
+        this.refreshSummary(orderSaved.getId(), OrderAction.CREATED);
         return BaseResponse.builder()
                 .statusCode(HttpStatus.CREATED.value())
                 .message("tạo đơn hàng thành công.")
-                .data(this.entityToResponse(orderSaved, orderServiceEntities, products))
+                .data(this.orderDetail(orderSaved.getId()))
                 .build();
     }
 
@@ -103,11 +139,6 @@ public class OrderImplService implements OrderService {
                 throw new EntityNotFoundException("OrderEntity", "Id", orderId.toString());
             }).getRepairer();
             employeeRepository.save(employeeRepairer);
-            orderProductsRepository.getAllByOrderId(orderId).stream().forEach(orderProduct -> {
-                ProductEntity product = orderProduct.getProduct();
-                product.setStorageQuantity(product.getStorageQuantity() + orderProduct.getQuantity());
-                productRepository.save(product);
-            });
         }
         CustomerEntity customer = this.customerRepository.findByIdAndIsActive(insertOrder.getCustomerId(), true)
                 .orElseThrow(() -> {
@@ -123,6 +154,13 @@ public class OrderImplService implements OrderService {
         // {
         // throw new BaseException("Nhân viên điều phối không được phép.");
         // }
+        if (LEAST_LOADED.equalsIgnoreCase(insertOrder.getAssignment())) {
+            insertOrder.setRepairerId(repairerWorkloadIndex.leastLoaded().orElseThrow(() -> {
+                throw new BaseException("Không có thợ sửa chữa nào đang làm việc.");
+            }));
+        } else if (insertOrder.getRepairerId() == null) {
+            throw new BaseException("Nhân viên sửa chữa không được trống.");
+        }
         EmployeeEntity employeeRepairer = this.employeeRepository.getRepairerIsActive(insertOrder.getRepairerId())
                 .orElseThrow(() -> {
                     throw new BaseException(new StringBuilder("Không tìm thấy nhân viên theo id = ")
@@ -132,42 +170,8 @@ public class OrderImplService implements OrderService {
         if (!employeeRepairer.getType().toString().equalsIgnoreCase(TypeEmployee.REPAIRER.toString())) {
             throw new BaseException("Nhân viên sửa chữa không hợp lệ.");
         }
-        Set<ProductOrders> orderProductSet = new HashSet<>(insertOrder.getProducts());
-        List<ProductOrders> productOrdersUpdate = new ArrayList<>();
-        for (ProductOrders productOrders : orderProductSet) {
-            ProductOrders productOrdersFinal = new ProductOrders();
-            productOrdersFinal.setId(productOrders.getId());
-            productOrdersFinal.setQuantity(
-                    insertOrder.getProducts().stream()
-                            .filter(productOrders1 -> {
-                                return productOrders1.getId() == productOrders.getId();
-                            })
-                            .mapToInt(productOrders1 -> (Integer) productOrders1.getQuantity()).sum());
-            productOrdersUpdate.add(productOrdersFinal);
-        }
-        insertOrder.setProducts(productOrdersUpdate);
-        insertOrder.getProducts().stream().forEach(productOrders -> {
-            if (productRepository.checkExistByIdAndQuantity(productOrders.getId(), productOrders.getQuantity()) == 0) {
-                throw new BaseException(
-                        new StringBuilder("Không tìm thấy sản phẩm theo id = ").append(productOrders.getId())
-                                .append(" hoặc hết sản phẩm trong kho.").toString());
-            }
-        });
-        Set<ServiceOrders> serviceOrdersSet = new HashSet<>(insertOrder.getServices());
-        List<ServiceOrders> serviceOrdersFinal = new ArrayList<>();
-        for (ServiceOrders serviceOrders : serviceOrdersSet) {
-            ServiceOrders serviceOrders1 = new ServiceOrders();
-            serviceOrders1.setId(serviceOrders.getId());
-            serviceOrders1.setQuantity(
-                    insertOrder.getServices().stream()
-                            .filter(serviceOrders2 -> {
-                                return serviceOrders2.getId() == serviceOrders.getId();
-                            })
-                            .mapToInt(serviceOrders2 -> (Integer) serviceOrders2.getQuantity())
-                            .sum());
-            serviceOrdersFinal.add(serviceOrders1);
-        }
-        insertOrder.setServices(serviceOrdersFinal);
+        insertOrder.setProducts(mergeProductLines(insertOrder.getProducts()));
+        insertOrder.setServices(mergeServiceLines(insertOrder.getServices()));
         insertOrder.getServices().stream().forEach(serviceOrders -> {
             if (!serviceRepository.existsByIdAndIsActive(serviceOrders.getId(), true)) {
                 throw new BaseException(
@@ -180,6 +184,10 @@ public class OrderImplService implements OrderService {
             order = orderRepository.findById(orderId).orElseThrow(() -> {
                 throw new EntityNotFoundException("Order", "Id", orderId.toString());
             });
+            // reserved lines would otherwise be released at a location they were never taken from
+            if (insertOrder.getLocationId() != null && !insertOrder.getLocationId().equals(order.getLocationId())) {
+                throw new BaseException("Không thể đổi kho của đơn hàng.");
+            }
             order.setType(TypeOrder.valueOf(insertOrder.getType()));
             order.setNote(insertOrder.getNote());
             order.setMotorbikeName(insertOrder.getMotorbikeName());
@@ -190,6 +198,9 @@ public class OrderImplService implements OrderService {
             order.setModifyBy(((CustomUserDetail) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
                     .getAccount());
         } else {
+            if (insertOrder.getLocationId() != null) {
+                locationStockService.getLocation(insertOrder.getLocationId());
+            }
             order = OrderEntity.builder()
                     .type(TypeOrder.ORDER)
                     .note(insertOrder.getNote())
@@ -198,6 +209,7 @@ public class OrderImplService implements OrderService {
                     .dispatcher(employeeDispatcher)
                     .repairer(employeeRepairer)
                     .customerEntity(customer)
+                    .locationId(insertOrder.getLocationId())
                     .build();
             order.setIsActive(true);
             order.setCreateBy(((CustomUserDetail) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
@@ -213,59 +225,196 @@ public class OrderImplService implements OrderService {
     @Override
     public BaseResponse update(InsertOrder insertOrder, Long aLong) {
         OrderEntity orderUpdate = this.createOrUpdate(insertOrder, aLong);
-        // get all services and products in old order
-        List<OrderServiceEntity> orderServiceEntities = orderServiceRepository.getAllByOrderId(aLong);
-        List<OrderProduct> orderProducts = orderProductsRepository.getAllByOrderId(aLong);
-
-        // handle service
-        List<OrderServiceEntity> orderServicesDeleteEntity = orderServiceEntities.stream()
-                .filter(orderServiceEntity -> {
-                    return !insertOrder.getServices().stream()
-                            .anyMatch(serviceOrders -> serviceOrders.getId() == orderServiceEntity.getService().getId()
-                                    && serviceOrders.getQuantity() == orderServiceEntity.getQuantity());
-                }).collect(Collectors.toList());
-        List<OrderServiceEntity> orderServicesSaveEntity = insertOrder.getServices()
-                .stream()
-                .filter(serviceOrders -> {
-                    return !orderServiceEntities.stream()
-                            .anyMatch(orderServiceEntity -> orderServiceEntity.getService().getId() == serviceOrders
-                                    .getId()
-                                    && orderServiceEntity.getQuantity() == serviceOrders.getQuantity());
-                })
-                .map(serviceOrders -> {
-                    return serviceInOrderToEntity(orderUpdate, serviceOrders);
-                }).collect(Collectors.toList());
-        orderServiceRepository.deleteAll(orderServicesDeleteEntity);
-        orderServiceRepository.saveAll(orderServicesSaveEntity);
-
-        // handle product
-        orderProductsRepository.deleteAll(orderProducts);
-        List<OrderProduct> orderProductList = insertOrder.getProducts().stream().map(productOrders -> {
-            return this.productInOrderToEntity(orderUpdate, productOrders);
-        }).collect(Collectors.toList());
-        orderProductsRepository.saveAll(orderProductList);
+        // only added, removed and quantity-changed lines are written
+        this.updateServiceLines(orderUpdate, insertOrder.getServices());
+        this.updateProductLines(orderUpdate, insertOrder.getProducts());
+        this.refreshSummary(orderUpdate.getId(), OrderAction.UPDATED);
         return BaseResponse.builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Cập nhật đơn hàng thành công.")
-                .data(this.entityToResponse(orderUpdate, orderServiceRepository.getAllByOrderId(orderUpdate.getId()),
-                        orderProductsRepository.getAllByOrderId(orderUpdate.getId())))
+                .data(this.orderDetail(orderUpdate.getId()))
+                .build();
+    }
+
+    // stock moves by the net delta per product: increases are reserved, decreases released
+    private void updateProductLines(OrderEntity order, List<ProductOrders> productOrders) {
+        Map<Long, List<OrderProduct>> oldLines = orderProductsRepository.getAllByOrderId(order.getId()).stream()
+                .collect(Collectors.groupingBy(orderProduct -> orderProduct.getProduct().getId(), LinkedHashMap::new,
+                        Collectors.toList()));
+        Map<Long, Integer> newQuantities = productOrders.stream()
+                .collect(Collectors.toMap(ProductOrders::getId, ProductOrders::getQuantity, Integer::sum,
+                        LinkedHashMap::new));
+        Map<Long, Integer> increases = new LinkedHashMap<>();
+        Map<Long, Integer> decreases = new LinkedHashMap<>();
+        List<OrderProduct> deleted = new ArrayList<>();
+        List<OrderProduct> saved = new ArrayList<>();
+        List<OrderLineChange> changes = new ArrayList<>();
+        oldLines.forEach((productId, lines) -> {
+            int oldQuantity = lines.stream().mapToInt(OrderProduct::getQuantity).sum();
+            int newQuantity = newQuantities.getOrDefault(productId, 0);
+            if (newQuantity > oldQuantity) {
+                increases.put(productId, newQuantity - oldQuantity);
+            } else if (newQuantity < oldQuantity) {
+                decreases.put(productId, oldQuantity - newQuantity);
+            }
+            if (newQuantity == 0) {
+                deleted.addAll(lines);
+                return;
+            }
+            // older orders may hold the same product on several lines: keep the first one
+            deleted.addAll(lines.subList(1, lines.size()));
+            if (lines.size() > 1 || lines.get(0).getQuantity() != newQuantity) {
+                changes.add(this.lineChange(lines.get(0), newQuantity - lines.get(0).getQuantity()));
+                lines.get(0).setQuantity(newQuantity);
+                saved.add(lines.get(0));
+            }
+        });
+        newQuantities.forEach((productId, quantity) -> {
+            if (!oldLines.containsKey(productId)) {
+                increases.put(productId, quantity);
+            }
+        });
+        this.release(order, decreases);
+        Map<Long, StockItem> reserved = this.reserve(order, increases);
+        newQuantities.keySet().stream()
+                .filter(productId -> !oldLines.containsKey(productId))
+                .forEach(productId -> {
+                    OrderProduct line = this.productInOrderToEntity(order, reserved.get(productId));
+                    changes.add(this.lineChange(line, line.getQuantity()));
+                    saved.add(line);
+                });
+        deleted.forEach(line -> changes.add(this.lineChange(line, -line.getQuantity())));
+        orderProductsRepository.deleteAll(deleted);
+        orderProductsRepository.saveAll(saved);
+        publisherEvent.orderLinesChanged(changes);
+    }
+
+    private void updateServiceLines(OrderEntity order, List<ServiceOrders> serviceOrders) {
+        Map<Long, List<OrderServiceEntity>> oldLines = orderServiceRepository.getAllByOrderId(order.getId()).stream()
+                .collect(Collectors.groupingBy(orderService -> orderService.getService().getId(), LinkedHashMap::new,
+                        Collectors.toList()));
+        List<OrderServiceEntity> deleted = new ArrayList<>();
+        List<OrderServiceEntity> saved = new ArrayList<>();
+        Set<Long> requestedIds = new HashSet<>();
+        // revenue change per month the changed lines were created in
+        Map<YearMonth, Double> revenue = new HashMap<>();
+        List<OrderLineChange> changes = new ArrayList<>();
+        serviceOrders.forEach(serviceOrder -> {
+            requestedIds.add(serviceOrder.getId());
+            List<OrderServiceEntity> lines = oldLines.get(serviceOrder.getId());
+            if (lines == null) {
+                OrderServiceEntity line = this.serviceInOrderToEntity(order, serviceOrder);
+                revenue.merge(YearMonth.now(), line.getPrice() * line.getQuantity(), Double::sum);
+                changes.add(this.lineChange(line, line.getQuantity()));
+                saved.add(line);
+                return;
+            }
+            deleted.addAll(lines.subList(1, lines.size()));
+            if (lines.size() > 1 || !lines.get(0).getQuantity().equals(serviceOrder.getQuantity())) {
+                OrderServiceEntity line = lines.get(0);
+                revenue.merge(this.monthOf(line), line.getPrice() * (serviceOrder.getQuantity() - line.getQuantity()),
+                        Double::sum);
+                changes.add(this.lineChange(line, serviceOrder.getQuantity() - line.getQuantity()));
+                line.setQuantity(serviceOrder.getQuantity());
+                saved.add(line);
+            }
+        });
+        oldLines.forEach((serviceId, lines) -> {
+            if (!requestedIds.contains(serviceId)) {
+                deleted.addAll(lines);
+            }
+        });
+        deleted.forEach(line -> {
+            revenue.merge(this.monthOf(line), -line.getPrice() * line.getQuantity(), Double::sum);
+            changes.add(this.lineChange(line, -line.getQuantity()));
+        });
+        orderServiceRepository.deleteAll(deleted);
+        orderServiceRepository.saveAll(saved);
+        revenue.forEach((month, amount) -> monthlyStatService.add(StatMetric.SERVICE_REVENUE, month, amount));
+        publisherEvent.orderLinesChanged(changes);
+    }
+
+    // quantity is counted on the day the line was created; new lines are created today
+    private OrderLineChange lineChange(OrderServiceEntity line, int quantity) {
+        return OrderLineChange.builder()
+                .kind(OrderLineKind.SERVICE)
+                .itemId(line.getService().getId())
+                .day(line.getCreateDate() == null ? LocalDate.now() : line.getCreateDate().toLocalDate())
+                .quantity(quantity)
+                .name(line.getName())
+                .price(line.getPrice())
+                .build();
+    }
+
+    private OrderLineChange lineChange(OrderProduct line, int quantity) {
+        return OrderLineChange.builder()
+                .kind(OrderLineKind.PRODUCT)
+                .itemId(line.getProduct().getId())
+                .day(line.getCreateDate() == null ? LocalDate.now() : line.getCreateDate().toLocalDate())
+                .quantity(quantity)
+                .name(line.getName())
+                .price(line.getPrice())
+                .unit(line.getUnit())
                 .build();
     }
 
-    public OrderProduct productInOrderToEntity(OrderEntity orderUpdate, ProductOrders productOrders) {
-        ProductEntity product = this.productRepository.findById(productOrders.getId()).get();
-        product.setStorageQuantity(product.getStorageQuantity() - productOrders.getQuantity());
-        productRepository.save(product);
+    private YearMonth monthOf(OrderServiceEntity line) {
+        return line.getCreateDate() == null ? YearMonth.now() : YearMonth.from(line.getCreateDate());
+    }
+
+    private List<OrderProduct> reserveProducts(OrderEntity order, List<ProductOrders> productOrders) {
+        Map<Long, StockItem> reserved = this.reserve(order, productOrders.stream()
+                .collect(Collectors.toMap(ProductOrders::getId, ProductOrders::getQuantity, Integer::sum,
+                        LinkedHashMap::new)));
+        return reserved.values().stream()
+                .map(stockItem -> this.productInOrderToEntity(order, stockItem))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, StockItem> reserve(OrderEntity order, Map<Long, Integer> quantities) {
+        if (order.getLocationId() != null) {
+            return locationStockService.reserve(order.getLocationId(), quantities);
+        }
+        return stockReservationService.reserve(quantities);
+    }
+
+    private void release(OrderEntity order, Map<Long, Integer> quantities) {
+        if (order.getLocationId() != null) {
+            locationStockService.release(order.getLocationId(), quantities);
+        } else {
+            stockReservationService.release(quantities);
+        }
+    }
+
+    public OrderProduct productInOrderToEntity(OrderEntity orderUpdate, StockItem stockItem) {
         return OrderProduct.builder()
                 .order(orderUpdate)
-                .product(product)
-                .quantity(productOrders.getQuantity())
-                .name(product.getName())
-                .price(product.getPriceOut())
-                .unit(product.getUnit())
+                .product(productRepository.getReferenceById(stockItem.getId()))
+                .quantity(stockItem.getQuantity())
+                .name(stockItem.getName())
+                .price(stockItem.getPrice())
+                .unit(stockItem.getUnit())
                 .build();
     }
 
+    private List<ProductOrders> mergeProductLines(List<ProductOrders> productOrders) {
+        Map<Long, Integer> quantities = productOrders.stream()
+                .collect(Collectors.toMap(ProductOrders::getId, ProductOrders::getQuantity, Integer::sum,
+                        LinkedHashMap::new));
+        return quantities.entrySet().stream()
+                .map(entry -> new ProductOrders(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private List<ServiceOrders> mergeServiceLines(List<ServiceOrders> serviceOrders) {
+        Map<Long, Integer> quantities = serviceOrders.stream()
+                .collect(Collectors.toMap(ServiceOrders::getId, ServiceOrders::getQuantity, Integer::sum,
+                        LinkedHashMap::new));
+        return quantities.entrySet().stream()
+                .map(entry -> new ServiceOrders(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
     private OrderServiceEntity serviceInOrderToEntity(OrderEntity orderUpdate,
             ServiceOrders serviceOrders) {
         ServiceEntity service = this.serviceRepository.findById(serviceOrders.getId()).get();
@@ -280,6 +429,7 @@ public class OrderImplService implements OrderService {
                 .build();
     }
 
+    @Transactional
     @Override
     public BaseResponse deleteById(Long aLong) {
         OrderEntity order = orderRepository.findById(aLong).orElseThrow(() -> {
@@ -287,6 +437,7 @@ public class OrderImplService implements OrderService {
         });
         order.setIsActive(false);
         orderRepository.save(order);
+        this.refreshSummary(aLong, OrderAction.DELETED);
         return BaseResponse.builder()
                 .statusCode(HttpStatus.NO_CONTENT.value())
                 .message("Xóa đơn hàng thành công.")
@@ -295,51 +446,57 @@ public class OrderImplService implements OrderService {
 
     @Override
     public BaseResponse getById(Long aLong) {
-        OrderEntity order = orderRepository.findById(aLong).orElseThrow(() -> {
-            throw new EntityNotFoundException("Order", "Id", aLong.toString());
-        });
         return BaseResponse.builder()
                 .message("Nhận đơn hàng thành công.")
                 .statusCode(HttpStatus.OK.value())
-                .data(this.entityToResponse(order, orderServiceRepository.getAllByOrderId(order.getId()),
-                        orderProductsRepository.getAllByOrderId(order.getId())))
+                .data(this.orderDetail(aLong))
                 .build();
     }
 
+    @Transactional
     @Override
     public BaseResponse toInvoice(long orderId) {
         OrderEntity order = orderRepository.getByIdAndType(orderId, "ORDER").orElseThrow(() -> {
             throw new BaseException("Đơn hàng không được tìm thấy theo id: " + orderId);
         });
-        EmployeeEntity employee = order.getRepairer();
-        List<OrderProduct> orderProducts = orderProductsRepository.getAllByOrderId(orderId);
-        HistoryProductRequest historyProductRequest = new HistoryProductRequest();
-        historyProductRequest.setNote("Xuất bởi " + employee.getCode());
-        List<HistoryDetail> historyDetails = new ArrayList<>();
-        orderProducts.stream().forEach(orderProduct -> {
-            historyDetails.add(
-                    HistoryDetail.builder()
-                            .productId(orderProduct.getProduct().getId())
-                            .difference(orderProduct.getQuantity() * -1)
-                            .build());
-        });
-        historyProductRequest.setHistoryDetails(historyDetails);
-        historyProductService.createHistory(historyProductRequest, false, false);
         order.setType(TypeOrder.INVOICE);
         orderRepository.save(order);
+        this.refreshSummary(orderId, OrderAction.INVOICED);
+        // the EXPORT ledger rows are written by InvoiceOutboxService after commit
         return BaseResponse.builder()
-                .data(null)
+                .data(invoiceOutboxService.enqueue(orderId))
                 .statusCode(HttpStatus.OK.value())
                 .message("Để hóa đơn thành công.")
                 .build();
     }
 
+    @Override
+    public BaseResponse rebuildSummary() {
+        return BaseResponse.builder()
+                .data(orderSummaryService.rebuild())
+                .statusCode(HttpStatus.OK.value())
+                .message("Dựng lại bảng tóm tắt đơn hàng thành công.")
+                .build();
+    }
+
+    @Override
+    public BaseResponse getInvoiceStatus(long orderId) {
+        return BaseResponse.builder()
+                .data(invoiceOutboxService.getStatus(orderId))
+                .statusCode(HttpStatus.OK.value())
+                .message("Nhận trạng thái hóa đơn thành công.")
+                .build();
+    }
+
     @Override
     public BaseResponse getByParams(Map<String, String> params) {
         OrderParams orderParams = new OrderParams(params);
+        if (orderParams.isCursorMode()) {
+            return this.getByCursor(orderParams);
+        }
         Sort sort = Sort.by(orderParams.getSortOrder(), orderParams.getSortBy());
         Pageable pageable = PageRequest.of(orderParams.getPageNumber() - 1, orderParams.getPageSize(), sort);
-        Page<Object[]> objects = orderRepository.getOrderByConditions(orderParams, pageable);
+        Page<Object[]> objects = orderSummaryRepository.getSummaryByConditions(orderParams, pageable);
         List<BaseOrder> baseOrders = objects.getContent().stream().map(objects1 -> {
             return this.entityToBase(objects1);
         }).collect(Collectors.toList());
@@ -350,92 +507,110 @@ public class OrderImplService implements OrderService {
                 .build();
     }
 
-    private OrderResponse entityToResponse(OrderEntity order, List<OrderServiceEntity> orderServiceEntities,
-            List<OrderProduct> orderProducts) {
-        CustomerEntity customerEntity = order.getCustomerEntity();
-        EmployeeEntity employeeDispatcher = order.getDispatcher();
-        EmployeeEntity employeeRepairer = order.getRepairer();
-        StoreEntity storeEntity = storeRepository.findById(1L).get();
+    // header, product lines and service lines: three statements whatever the line count
+    private OrderResponse orderDetail(Long orderId) {
+        Object[] order = orderRepository.getOrderDetail(orderId).stream().findFirst().orElseThrow(() -> {
+            throw new EntityNotFoundException("Order", "Id", orderId.toString());
+        });
         return OrderResponse.builder()
-                .id(order.getId())
-                .code(order.getCode())
-                .modifiedDate(order.getModifyDate())
+                .id(toLong(order[0]))
+                .code((String) order[1])
+                .modifiedDate(order[2] == null ? null : ((Timestamp) order[2]).toLocalDateTime())
+                .note((String) order[3])
                 .storeResponse(
                         StoreResponse.builder()
-                                .phone(storeEntity.getPhone())
-                                .name(storeEntity.getName())
-                                .address(storeEntity.getAddress())
-                                .email(storeEntity.getEmail())
-                                .vat(storeEntity.getVat())
+                                .phone((String) order[24])
+                                .name((String) order[25])
+                                .address((String) order[26])
+                                .email((String) order[27])
+                                .vat(order[28] == null ? null : ((Number) order[28]).doubleValue())
                                 .build()
                 )
                 .infoCustomer(
                         InfoCustomer.builder()
-                                .id(customerEntity.getId())
-                                .code(customerEntity.getCode())
-                                .name(customerEntity.getName())
-                                .phone(customerEntity.getPhone())
-                                .email(customerEntity.getEmail())
-                                .address(customerEntity.getAddress())
-                                .motorbikeCode(order.getMotorbikeCode())
-                                .motorbikeName(order.getMotorbikeName())
-                                .build())
-                .infoDispatcher(
-                        InfoEmployee.builder()
-                                .id(employeeDispatcher.getId())
-                                .code(employeeDispatcher.getCode())
-                                .name(employeeDispatcher.getName())
-                                .phone(employeeDispatcher.getPhone())
-                                .email(employeeDispatcher.getEmail())
-                                .status(employeeDispatcher.getIsActive())
+                                .id(toLong(order[6]))
+                                .code((String) order[7])
+                                .name((String) order[8])
+                                .phone((String) order[9])
+                                .email((String) order[10])
+                                .address((String) order[11])
+                                .motorbikeCode((String) order[4])
+                                .motorbikeName((String) order[5])
                                 .build())
-                .infoRepairer(
-                        InfoEmployee.builder()
-                                .id(employeeRepairer.getId())
-                                .code(employeeRepairer.getCode())
-                                .name(employeeRepairer.getName())
-                                .phone(employeeRepairer.getPhone())
-                                .email(employeeRepairer.getEmail())
-                                .status(employeeRepairer.getIsActive())
-                                .build())
-                .note(order.getNote())
+                .infoDispatcher(this.infoEmployee(order, 12))
+                .infoRepairer(this.infoEmployee(order, 18))
                 .infoServices(
-                        orderServiceEntities.stream().map(orderServiceEntity -> {
-                            Long serviceId = 0L;
-                            Optional<ServiceEntity> serviceEntity = serviceRepository
-                                    .findById(orderServiceEntity.getService().getId());
-                            if (serviceEntity.isPresent()) {
-                                serviceId = serviceEntity.get().getId();
-                            }
-                            return InfoService.builder()
-                                    .id(serviceId)
-                                    .name(orderServiceEntity.getName())
-                                    .price(orderServiceEntity.getPrice())
-                                    .quantity(orderServiceEntity.getQuantity())
-                                    .build();
-                        }).collect(Collectors.toList()))
+                        orderServiceRepository.getOrderDetailLines(orderId).stream()
+                                .map(line -> InfoService.builder()
+                                        .id(line[0] == null ? 0L : toLong(line[0]))
+                                        .name((String) line[1])
+                                        .price(line[2] == null ? null : ((Number) line[2]).doubleValue())
+                                        .quantity(line[3] == null ? null : ((Number) line[3]).intValue())
+                                        .build())
+                                .collect(Collectors.toList()))
                 .infoProducts(
-                        orderProducts.stream().map(orderProduct -> {
-                            Integer storageQuantity = 0;
-                            Long productId = 0L;
-                            Optional<ProductEntity> productEntity = productRepository
-                                    .findById(orderProduct.getProduct().getId());
-                            if (productEntity.isPresent()) {
-                                storageQuantity = productEntity.get().getStorageQuantity();
-                                productId = productEntity.get().getId();
-                            }
-                            return InfoProduct.builder()
-                                    .id(productId)
-                                    .name(orderProduct.getName())
-                                    .quantity(orderProduct.getQuantity())
-                                    .price(orderProduct.getPrice())
-                                    .unit(orderProduct.getUnit())
-                                    .storageQuantity(storageQuantity)
-                                    .build();
-                        }).collect(Collectors.toList()))
+                        orderProductsRepository.getOrderDetailLines(orderId).stream()
+                                .map(line -> InfoProduct.builder()
+                                        .id(line[0] == null ? 0L : toLong(line[0]))
+                                        .name((String) line[1])
+                                        .price(line[2] == null ? null : ((Number) line[2]).doubleValue())
+                                        .unit((String) line[3])
+                                        .quantity(line[4] == null ? null : ((Number) line[4]).intValue())
+                                        .storageQuantity(line[5] == null ? 0 : ((Number) line[5]).intValue())
+                                        .build())
+                                .collect(Collectors.toList()))
+                .build();
+    }
+
+    private InfoEmployee infoEmployee(Object[] order, int offset) {
+        if (order[offset] == null) {
+            return null;
+        }
+        return InfoEmployee.builder()
+                .id(toLong(order[offset]))
+                .code((String) order[offset + 1])
+                .name((String) order[offset + 2])
+                .phone((String) order[offset + 3])
+                .email((String) order[offset + 4])
+                .status((Boolean) order[offset + 5])
                 .build();
     }
 
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    private BaseResponse getByCursor(OrderParams orderParams) {
+        int size = orderParams.getPageSize();
+        // one extra row tells whether there is a next page without counting
+        List<Object[]> objects = orderSummaryRepository.getSummaryByConditionsAfter(orderParams,
+                PageRequest.of(0, size + 1));
+        List<BaseOrder> baseOrders = objects.stream().limit(size).map(this::entityToBase).collect(Collectors.toList());
+        String nextCursor = null;
+        if (objects.size() > size) {
+            BaseOrder last = baseOrders.get(size - 1);
+            nextCursor = new SeekCursor(last.getCreateDate(), last.getId()).encode();
+        }
+        return BaseResponse.builder()
+                .message("Nhận đơn hàng thành công.")
+                .statusCode(HttpStatus.OK.value())
+                .data(CursorPage.<BaseOrder>builder()
+                        .content(baseOrders)
+                        .size(size)
+                        .nextCursor(nextCursor)
+                        .totalElements(orderParams.isWithCount()
+                                ? orderSummaryRepository.countSummaryByConditions(orderParams) : null)
+                        .build())
+                .build();
+    }
+
+    // the summary row doubles as the dispatch board payload, delivered after commit
+    private void refreshSummary(Long orderId, OrderAction action) {
+        orderSummaryService.refresh(orderId);
+        orderSummaryRepository.getSummaryById(orderId).stream().findFirst()
+                .ifPresent(row -> publisherEvent.orderChanged(this.entityToBase(row), action));
+    }
+
     private BaseOrder entityToBase(Object[] objects) {
         return BaseOrder.builder()
                 .id((Long) objects[0])
@@ -444,6 +619,7 @@ public class OrderImplService implements OrderService {
                 .customerName((String) objects[3])
                 .dispatcherName((String) objects[4])
                 .repairerName((String) objects[5])
+                .repairerId(toLong(objects[9]))
                 .motorbikeCode((String) objects[6])
                 .createDate(((Timestamp) objects[7]).toLocalDateTime())
                 .type((String) objects[8])
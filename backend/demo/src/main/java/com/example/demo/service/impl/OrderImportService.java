@@ -0,0 +1,555 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.constant.CodeConstant;
+import com.example.demo.entity.AccountEntity;
+import com.example.demo.entity.enums.OrderLineKind;
+import com.example.demo.entity.enums.StatMetric;
+import com.example.demo.entity.enums.TypeOrder;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.request.InsertOrder;
+import com.example.demo.model.request.ProductOrders;
+import com.example.demo.model.request.ServiceOrders;
+import com.example.demo.model.response.ImportError;
+import com.example.demo.model.response.ImportReport;
+import com.example.demo.model.statistic.OrderLineChange;
+import com.example.demo.repository.CustomerRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.OrderSummaryRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ServiceRepository;
+import com.example.demo.security.CustomUserDetail;
+import com.example.demo.utils.CsvLine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Bulk import of historical orders. Records are streamed from NDJSON or CSV and written in chunks:
+// one batched lookup per referenced table and one JDBC batch per target table, in one transaction per chunk.
+// A record without a type is imported as an INVOICE: history that does not move stock. ORDER records are open
+// orders and reserve their products in the chunk transaction, like orders created through the API, so later
+// edits and invoicing release and export units that were really taken. An optional createDate dates the order
+// and its lines; without it they are dated at import time.
+@Slf4j
+@Service
+public class OrderImportService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_ORDER_SQL = "insert into orders (type, note, motorbike_code, motorbike_name, " +
+            "dispatcher_id, repairer_id, customer_id, create_by, create_date, modify_date, is_active) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, true)";
+    private static final String UPDATE_ORDER_CODE_SQL = "update orders set code = ? where id = ?";
+    private static final String INSERT_ORDER_SERVICE_SQL = "insert into order_service (order_id, service_id, " +
+            "quantity, name, price, create_date, modify_date) values (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ORDER_PRODUCT_SQL = "insert into order_product (order_id, product_id, " +
+            "quantity, name, price, unit, create_date, modify_date) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final CustomerRepository customerRepository;
+    private final EmployeeRepository employeeRepository;
+    private final ProductRepository productRepository;
+    private final ServiceRepository serviceRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final RepairerWorkloadIndex repairerWorkloadIndex;
+    private final MonthlyStatService monthlyStatService;
+    private final CachedStatisticService cachedStatisticService;
+    private final PublisherEvent publisherEvent;
+    private final StockReservationService stockReservationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderImportService(CustomerRepository customerRepository, EmployeeRepository employeeRepository,
+                              ProductRepository productRepository, ServiceRepository serviceRepository,
+                              OrderSummaryRepository orderSummaryRepository,
+                              RepairerWorkloadIndex repairerWorkloadIndex, MonthlyStatService monthlyStatService,
+                              CachedStatisticService cachedStatisticService, PublisherEvent publisherEvent,
+                              StockReservationService stockReservationService,
+                              JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper) {
+        this.customerRepository = customerRepository;
+        this.employeeRepository = employeeRepository;
+        this.productRepository = productRepository;
+        this.serviceRepository = serviceRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.repairerWorkloadIndex = repairerWorkloadIndex;
+        this.monthlyStatService = monthlyStatService;
+        this.cachedStatisticService = cachedStatisticService;
+        this.publisherEvent = publisherEvent;
+        this.stockReservationService = stockReservationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public BaseResponse importOrders(InputStream input, String contentType) {
+        AccountEntity account = ((CustomUserDetail) SecurityContextHolder.getContext().getAuthentication()
+                .getPrincipal()).getAccount();
+        if (account.getEmployee() == null) {
+            throw new BaseException("Không tìm thấy DispatcherId.");
+        }
+        boolean csv = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv");
+        long start = System.nanoTime();
+        Report report = new Report();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RecordReader records = csv ? new CsvReader(reader) : new NdjsonReader(reader);
+            List<ImportRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+            ImportRecord record;
+            while ((record = records.next()) != null) {
+                report.total++;
+                if (record.error() != null) {
+                    report.fail(record.line(), record.error());
+                    continue;
+                }
+                chunk.add(record);
+                if (chunk.size() == CHUNK_SIZE) {
+                    this.importChunk(chunk, account, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                this.importChunk(chunk, account, report);
+            }
+        } catch (IOException e) {
+            throw new BaseException("Không đọc được dữ liệu nhập: " + e.getMessage());
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        report.errors.sort(Comparator.comparingLong(ImportError::getLine));
+        if (report.imported > 0) {
+            // imported rows bypass the order events
+            repairerWorkloadIndex.rebuild();
+            cachedStatisticService.invalidateOrders(report.earliest, LocalDate.now());
+        }
+        log.info("Imported {} of {} orders in {} ms", report.imported, report.total, elapsedMillis);
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Nhập đơn hàng hoàn tất.")
+                .data(ImportReport.builder()
+                        .total(report.total)
+                        .imported(report.imported)
+                        .failed(report.failed)
+                        .elapsedMillis(elapsedMillis)
+                        .recordsPerSecond(elapsedMillis == 0 ? report.imported
+                                : report.imported * 1000.0 / elapsedMillis)
+                        .errors(report.errors)
+                        .build())
+                .build();
+    }
+
+    private void importChunk(List<ImportRecord> chunk, AccountEntity account, Report report) {
+        Set<Long> customerIds = this.activeIds(chunk, order -> Set.of(order.getCustomerId()),
+                customerRepository::getActiveIds);
+        Set<Long> repairerIds = this.activeIds(chunk, order -> Set.of(order.getRepairerId()),
+                employeeRepository::getActiveRepairerIds);
+        Map<Long, Object[]> products = this.rowsById(chunk, order -> this.ids(order.getProducts(),
+                ProductOrders::getId), productRepository::getStockByIds);
+        Map<Long, Object[]> services = this.rowsById(chunk, order -> this.ids(order.getServices(),
+                ServiceOrders::getId), serviceRepository::getByIds);
+
+        List<ImportRecord> valid = new ArrayList<>(chunk.size());
+        // stock left for the open orders of this chunk; the reservation itself is guarded again
+        Map<Long, Integer> available = new HashMap<>();
+        products.forEach((id, row) -> available.put(id, row[4] == null ? 0 : ((Number) row[4]).intValue()));
+        for (ImportRecord record : chunk) {
+            String error = this.validateReferences(record.order(), customerIds, repairerIds, products, services);
+            if (error == null && isOpen(record.order())) {
+                error = this.takeStock(record.order(), available);
+            }
+            if (error == null) {
+                valid.add(record);
+            } else {
+                report.fail(record.line(), error);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> this.writeChunk(valid, account, products, services));
+            report.imported += valid.size();
+            valid.forEach(record -> {
+                LocalDate day = record.createDate() == null ? LocalDate.now() : record.createDate().toLocalDate();
+                if (report.earliest == null || day.isBefore(report.earliest)) {
+                    report.earliest = day;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Import chunk of {} orders failed", valid.size(), e);
+            valid.forEach(record -> report.fail(record.line(), "Không lưu được đơn hàng: " + e.getMessage()));
+        }
+    }
+
+    private void writeChunk(List<ImportRecord> records, AccountEntity account, Map<Long, Object[]> products,
+                            Map<Long, Object[]> services) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Timestamp> dates = records.stream()
+                .map(record -> Timestamp.valueOf(record.createDate() == null ? now : record.createDate()))
+                .collect(Collectors.toList());
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        records.stream().filter(record -> isOpen(record.order())).forEach(record ->
+                this.merge(record.order().getProducts(), ProductOrders::getId, ProductOrders::getQuantity)
+                        .forEach((productId, quantity) -> reserved.merge(productId, quantity, Math::addExact)));
+        stockReservationService.reserve(reserved);
+
+        List<Long> orderIds = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_ORDER_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < records.size(); i++) {
+                    InsertOrder order = records.get(i).order();
+                    statement.setString(1, order.getType() == null ? TypeOrder.INVOICE.name() : order.getType());
+                    statement.setString(2, order.getNote());
+                    statement.setString(3, order.getMotorbikeCode());
+                    statement.setString(4, order.getMotorbikeName());
+                    statement.setLong(5, account.getEmployee().getId());
+                    statement.setLong(6, order.getRepairerId());
+                    statement.setLong(7, order.getCustomerId());
+                    statement.setObject(8, account.getId());
+                    statement.setTimestamp(9, dates.get(i));
+                    statement.setTimestamp(10, dates.get(i));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                List<Long> ids = new ArrayList<>(records.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                return ids;
+            }
+        });
+        if (orderIds == null || orderIds.size() != records.size()) {
+            throw new BaseException("Không lấy được id của đơn hàng vừa nhập.");
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_ORDER_CODE_SQL, orderIds.stream()
+                .map(id -> new Object[]{CodeConstant.CODE_ORDER + String.format("%06d", id), id})
+                .collect(Collectors.toList()));
+
+        List<Object[]> serviceLines = new ArrayList<>();
+        List<Object[]> productLines = new ArrayList<>();
+        List<OrderLineChange> changes = new ArrayList<>();
+        Map<YearMonth, Double> revenue = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            Long orderId = orderIds.get(i);
+            InsertOrder order = records.get(i).order();
+            Timestamp date = dates.get(i);
+            this.merge(order.getServices(), ServiceOrders::getId, ServiceOrders::getQuantity)
+                    .forEach((serviceId, quantity) -> {
+                        Object[] service = services.get(serviceId);
+                        serviceLines.add(new Object[]{orderId, serviceId, quantity, service[1], service[2], date, date});
+                        if (service[2] != null) {
+                            revenue.merge(YearMonth.from(date.toLocalDateTime()),
+                                    ((Number) service[2]).doubleValue() * quantity, Double::sum);
+                        }
+                        changes.add(OrderLineChange.builder()
+                                .kind(OrderLineKind.SERVICE)
+                                .itemId(serviceId)
+                                .day(date.toLocalDateTime().toLocalDate())
+                                .quantity(quantity)
+                                .name((String) service[1])
+                                .price(service[2] == null ? null : ((Number) service[2]).doubleValue())
+                                .build());
+                    });
+            this.merge(order.getProducts(), ProductOrders::getId, ProductOrders::getQuantity)
+                    .forEach((productId, quantity) -> {
+                        Object[] product = products.get(productId);
+                        productLines.add(new Object[]{orderId, productId, quantity, product[1], product[2],
+                                product[3], date, date});
+                        changes.add(OrderLineChange.builder()
+                                .kind(OrderLineKind.PRODUCT)
+                                .itemId(productId)
+                                .day(date.toLocalDateTime().toLocalDate())
+                                .quantity(quantity)
+                                .name((String) product[1])
+                                .price(product[2] == null ? null : ((Number) product[2]).doubleValue())
+                                .unit((String) product[3])
+                                .build());
+                    });
+        }
+        if (!serviceLines.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ORDER_SERVICE_SQL, serviceLines);
+            revenue.forEach((month, amount) -> monthlyStatService.add(StatMetric.SERVICE_REVENUE, month, amount));
+        }
+        if (!productLines.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ORDER_PRODUCT_SQL, productLines);
+        }
+        orderSummaryRepository.insertByOrderIds(orderIds);
+        publisherEvent.orderLinesChanged(changes);
+    }
+
+    private static boolean isOpen(InsertOrder order) {
+        return TypeOrder.ORDER.name().equals(order.getType());
+    }
+
+    // takes the order's products from available, or says which ones are short
+    private String takeStock(InsertOrder order, Map<Long, Integer> available) {
+        Map<Long, Integer> quantities = this.merge(order.getProducts(), ProductOrders::getId,
+                ProductOrders::getQuantity);
+        List<Long> shortIds = quantities.entrySet().stream()
+                .filter(entry -> available.getOrDefault(entry.getKey(), 0) < entry.getValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!shortIds.isEmpty()) {
+            return "Không đủ hàng trong kho cho sản phẩm id = " + shortIds + ".";
+        }
+        quantities.forEach((id, quantity) -> available.merge(id, -quantity, Integer::sum));
+        return null;
+    }
+
+    private String validateReferences(InsertOrder order, Set<Long> customerIds, Set<Long> repairerIds,
+                                      Map<Long, Object[]> products, Map<Long, Object[]> services) {
+        if (!customerIds.contains(order.getCustomerId())) {
+            return "Không tìm thấy khách hàng theo id = " + order.getCustomerId() + ".";
+        }
+        if (!repairerIds.contains(order.getRepairerId())) {
+            return "Không tìm thấy thợ sửa chữa theo id = " + order.getRepairerId() + ".";
+        }
+        List<Long> missingServices = this.ids(order.getServices(), ServiceOrders::getId).stream()
+                .filter(id -> !services.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missingServices.isEmpty()) {
+            return "Dịch vụ không được tìm thấy bởi id = " + missingServices + ".";
+        }
+        List<Long> missingProducts = this.ids(order.getProducts(), ProductOrders::getId).stream()
+                .filter(id -> !products.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missingProducts.isEmpty()) {
+            return "Không tìm thấy sản phẩm theo id = " + missingProducts + ".";
+        }
+        return null;
+    }
+
+    // checks that do not need the database
+    private static String validate(InsertOrder order) {
+        if (order.getCustomerId() == null || order.getCustomerId() <= 0) {
+            return "Khách hàng không được trống.";
+        }
+        if (order.getRepairerId() == null || order.getRepairerId() <= 0) {
+            return "Nhân viên sửa chữa không được trống.";
+        }
+        if (order.getMotorbikeCode() == null || order.getMotorbikeCode().isBlank()) {
+            return "Biển số xe là bắt buộc.";
+        }
+        if (order.getMotorbikeName() == null || order.getMotorbikeName().isBlank()) {
+            return "Loại xe là bắt buộc.";
+        }
+        if (order.getType() != null && Arrays.stream(TypeOrder.values())
+                .noneMatch(type -> type.name().equals(order.getType()))) {
+            return "Loại đơn hàng không hợp lệ: " + order.getType() + ".";
+        }
+        boolean badService = order.getServices() != null && order.getServices().stream()
+                .anyMatch(line -> line.getId() == null || line.getQuantity() == null || line.getQuantity() <= 0);
+        boolean badProduct = order.getProducts() != null && order.getProducts().stream()
+                .anyMatch(line -> line.getId() == null || line.getQuantity() == null || line.getQuantity() <= 0);
+        if (badService || badProduct) {
+            return "Dòng dịch vụ hoặc sản phẩm thiếu id hoặc số lượng không hợp lệ.";
+        }
+        return null;
+    }
+
+    private Set<Long> activeIds(List<ImportRecord> chunk,
+                                Function<InsertOrder, Collection<Long>> idsOf,
+                                Function<Collection<Long>, List<Long>> lookup) {
+        Set<Long> ids = chunk.stream().flatMap(record -> idsOf.apply(record.order()).stream())
+                .collect(Collectors.toSet());
+        return ids.isEmpty() ? Set.of() : new HashSet<>(lookup.apply(ids));
+    }
+
+    private Map<Long, Object[]> rowsById(List<ImportRecord> chunk,
+                                         Function<InsertOrder, Collection<Long>> idsOf,
+                                         Function<Collection<Long>, List<Object[]>> lookup) {
+        Set<Long> ids = chunk.stream().flatMap(record -> idsOf.apply(record.order()).stream())
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return lookup.apply(ids).stream()
+                .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> row));
+    }
+
+    private <T> List<Long> ids(List<T> lines, Function<T, Long> idOf) {
+        return lines == null ? List.of() : lines.stream().map(idOf).distinct().collect(Collectors.toList());
+    }
+
+    private <T> Map<Long, Integer> merge(List<T> lines, Function<T, Long> idOf,
+                                         Function<T, Integer> quantityOf) {
+        return lines == null ? Map.of() : lines.stream()
+                .collect(Collectors.toMap(idOf, quantityOf, Integer::sum, LinkedHashMap::new));
+    }
+
+    private record ImportRecord(long line, InsertOrder order, LocalDateTime createDate, String error) {
+    }
+
+    // yyyy-MM-dd or an ISO date-time; an order cannot be dated in the future
+    private static ImportRecord record(long line, InsertOrder order, String createDate) {
+        LocalDateTime date = null;
+        if (createDate != null && !createDate.isBlank()) {
+            try {
+                date = createDate.length() <= 10 ? LocalDate.parse(createDate).atStartOfDay()
+                        : LocalDateTime.parse(createDate);
+            } catch (DateTimeParseException e) {
+                return new ImportRecord(line, null, null, "Ngày tạo không hợp lệ: " + createDate + ".");
+            }
+            if (date.isAfter(LocalDateTime.now())) {
+                return new ImportRecord(line, null, null, "Ngày tạo không được ở tương lai.");
+            }
+        }
+        return new ImportRecord(line, order, date, validate(order));
+    }
+
+    private interface RecordReader {
+        ImportRecord next() throws IOException;
+    }
+
+    private class NdjsonReader implements RecordReader {
+        private final BufferedReader reader;
+        private long line;
+
+        NdjsonReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ImportRecord next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+            try {
+                JsonNode node = objectMapper.readTree(text);
+                InsertOrder order = objectMapper.treeToValue(node, InsertOrder.class);
+                return record(line, order, node.path("createDate").asText(null));
+            } catch (IOException e) {
+                return new ImportRecord(line, null, null, "Dòng không phải JSON hợp lệ.");
+            }
+        }
+    }
+
+    // header: customerId,repairerId,motorbikeCode,motorbikeName,type,note,services,products[,createDate]
+    // services/products: "id:quantity" pairs separated by ';'
+    private static class CsvReader implements RecordReader {
+        private final BufferedReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long line;
+
+        CsvReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String header = reader.readLine();
+            line++;
+            if (header != null) {
+                List<String> names = CsvLine.split(header);
+                for (int i = 0; i < names.size(); i++) {
+                    columns.put(names.get(i).trim(), i);
+                }
+            }
+        }
+
+        @Override
+        public ImportRecord next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+            try {
+                List<String> values = CsvLine.split(text);
+                InsertOrder order = InsertOrder.builder()
+                        .customerId(toLong(value(values, "customerId")))
+                        .repairerId(toLong(value(values, "repairerId")))
+                        .motorbikeCode(value(values, "motorbikeCode"))
+                        .motorbikeName(value(values, "motorbikeName"))
+                        .type(value(values, "type"))
+                        .note(value(values, "note"))
+                        .services(lines(value(values, "services")).entrySet().stream()
+                                .map(entry -> new ServiceOrders(entry.getKey(), entry.getValue()))
+                                .collect(Collectors.toList()))
+                        .products(lines(value(values, "products")).entrySet().stream()
+                                .map(entry -> new ProductOrders(entry.getKey(), entry.getValue()))
+                                .collect(Collectors.toList()))
+                        .build();
+                return record(line, order, value(values, "createDate"));
+            } catch (NumberFormatException e) {
+                return new ImportRecord(line, null, null, "Giá trị số không hợp lệ: " + e.getMessage());
+            }
+        }
+
+        private String value(List<String> values, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= values.size() || values.get(index).isBlank()) {
+                return null;
+            }
+            return values.get(index).trim();
+        }
+
+        private static Long toLong(String value) {
+            return value == null ? null : Long.parseLong(value);
+        }
+
+        private static Map<Long, Integer> lines(String value) {
+            Map<Long, Integer> lines = new LinkedHashMap<>();
+            if (value == null) {
+                return lines;
+            }
+            for (String pair : value.split(";")) {
+                if (pair.isBlank()) {
+                    continue;
+                }
+                String[] parts = pair.split(":");
+                if (parts.length != 2) {
+                    throw new NumberFormatException(pair);
+                }
+                lines.merge(Long.parseLong(parts[0].trim()), Integer.parseInt(parts[1].trim()), Integer::sum);
+            }
+            return lines;
+        }
+    }
+
+    private static class Report {
+        private long total;
+        private long imported;
+        private long failed;
+        // day of the oldest imported order
+        private LocalDate earliest;
+        private final List<ImportError> errors = new ArrayList<>();
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportError(line, message));
+            }
+        }
+    }
+}
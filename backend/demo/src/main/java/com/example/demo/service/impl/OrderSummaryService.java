@@ -0,0 +1,91 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.repository.OrderSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+// Keeps order_summary in step with orders. Writers call refresh inside their own transaction,
+// so the summary row commits or rolls back with the order it describes.
+@Slf4j
+@Service
+public class OrderSummaryService {
+
+    private static final long REBUILD_CHUNK = 5000;
+
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    // after commit the caller's transaction is still bound, so the second rename needs its own
+    private final TransactionTemplate afterCommitTemplate;
+
+    public OrderSummaryService(OrderSummaryRepository orderSummaryRepository, TransactionTemplate transactionTemplate) {
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.afterCommitTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.afterCommitTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void refresh(Long orderId) {
+        this.refresh(List.of(orderId));
+    }
+
+    public void refresh(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        orderSummaryRepository.deleteByOrderIds(orderIds);
+        orderSummaryRepository.insertByOrderIds(orderIds);
+    }
+
+    // Renames in the caller's transaction, then once more after it commits: an order written concurrently
+    // may have read the old name and inserted its summary row after the first rename.
+    public void renameCustomer(Long customerId, String code, String name) {
+        orderSummaryRepository.renameCustomer(customerId, code, name);
+        this.afterCommit(() -> orderSummaryRepository.renameCustomer(customerId, code, name));
+    }
+
+    public void renameEmployee(Long employeeId, String name) {
+        orderSummaryRepository.renameEmployee(employeeId, name);
+        this.afterCommit(() -> orderSummaryRepository.renameEmployee(employeeId, name));
+    }
+
+    // backfill by id range, one transaction per chunk so a large table never holds one long transaction
+    public long rebuild() {
+        long start = System.nanoTime();
+        long maxId = orderSummaryRepository.getMaxOrderId();
+        long rows = 0;
+        for (long chunk = 0; chunk <= maxId; chunk += REBUILD_CHUNK) {
+            long from = chunk;
+            long to = chunk + REBUILD_CHUNK - 1;
+            Integer inserted = transactionTemplate.execute(status -> {
+                orderSummaryRepository.deleteByIdBetween(from, to);
+                return orderSummaryRepository.insertByIdBetween(from, to);
+            });
+            rows += inserted == null ? 0 : inserted;
+        }
+        log.info("Rebuilt {} order summary rows in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    private void afterCommit(Runnable rename) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    afterCommitTemplate.executeWithoutResult(status -> rename.run());
+                } catch (RuntimeException e) {
+                    log.warn("Order summary rename after commit failed", e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.enums.Action;
+import com.example.demo.event.LedgerAppendedEvent;
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.utils.SqlUpsert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps product_daily_stat in step with history_product, in the transaction that writes the ledger rows:
+// one upsert per (action, product, price) key of the day, adding to its row or creating it, see SqlUpsert.
+// The in/out statistics read these rows, so their cost follows the days asked for, not the whole ledger.
+@Slf4j
+@Service
+public class ProductDailyStatService {
+
+    private static final String UPSERT_SQL = "insert into product_daily_stat (stat_date, action, product_id, " +
+            "price, product_name, unit, quantity, amount) values (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "on duplicate key update quantity = quantity + values(quantity), amount = amount + values(amount), " +
+            "product_name = values(product_name), unit = values(unit)";
+    private static final String MERGE_SQL = "merge into product_daily_stat t using (values (cast(? as date), " +
+            "cast(? as varchar(255)), cast(? as bigint), cast(? as double precision), cast(? as varchar(255)), " +
+            "cast(? as varchar(255)), cast(? as bigint), cast(? as double precision))) " +
+            "s (stat_date, action, product_id, price, product_name, unit, quantity, amount) " +
+            "on t.stat_date = s.stat_date and t.action = s.action and t.product_id = s.product_id " +
+            "and t.price = s.price " +
+            "when matched then update set quantity = t.quantity + s.quantity, amount = t.amount + s.amount, " +
+            "product_name = s.product_name, unit = s.unit " +
+            "when not matched then insert (stat_date, action, product_id, price, product_name, unit, quantity, " +
+            "amount) values (s.stat_date, s.action, s.product_id, s.price, s.product_name, s.unit, s.quantity, " +
+            "s.amount)";
+    private static final String DELETE_SQL = "delete from product_daily_stat where stat_date >= ? and stat_date < ?";
+    // one statement per direction; the price and sign of the quantity follow the direction
+    private static final String REBUILD_SQL = "insert into product_daily_stat (stat_date, action, product_id, " +
+            "price, product_name, unit, quantity, amount) " +
+            "select cast(create_date as date), ?, product_id, coalesce(%1$s, 0), max(product_name), max(unit), " +
+            "sum(%2$sdifference), sum(%2$sdifference * coalesce(%1$s, 0)) " +
+            "from history_product where difference %3$s 0 and create_date >= ? and create_date < ? " +
+            "group by cast(create_date as date), product_id, coalesce(%1$s, 0)";
+
+    private static final Comparator<List<Object>> KEY_ORDER = Comparator
+            .comparing((List<Object> key) -> (String) key.get(0))
+            .thenComparing(key -> (Long) key.get(1))
+            .thenComparing(key -> (Double) key.get(2));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SqlUpsert upsert;
+
+    public ProductDailyStatService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.upsert = new SqlUpsert(jdbcTemplate, UPSERT_SQL, MERGE_SQL);
+    }
+
+    // rows written before the table existed are summed once
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (jdbcTemplate.queryForObject("select count(*) from product_daily_stat", Long.class) > 0) {
+            return;
+        }
+        Timestamp first = jdbcTemplate.queryForObject("select min(create_date) from history_product",
+                Timestamp.class);
+        if (first != null) {
+            this.rebuild(first.toLocalDateTime().toLocalDate(), LocalDate.now().plusDays(1));
+        }
+    }
+
+    @EventListener
+    public void onLedgerAppended(LedgerAppendedEvent event) {
+        Date today = Date.valueOf(LocalDate.now());
+        Map<List<Object>, Object[]> sums = new LinkedHashMap<>();
+        for (LedgerEntry entry : event.getEntries()) {
+            if (entry.getDifference() == 0) {
+                continue;
+            }
+            boolean imported = entry.getDifference() > 0;
+            Double price = imported ? entry.getPriceIn() : entry.getPriceOut();
+            double unitPrice = price == null ? 0 : price;
+            int quantity = Math.abs(entry.getDifference());
+            Action action = imported ? Action.IMPORT : Action.EXPORT;
+            Object[] sum = sums.computeIfAbsent(List.of(action.name(), entry.getProductId(), unitPrice),
+                    key -> new Object[]{0L, 0.0, null, null});
+            sum[0] = (Long) sum[0] + quantity;
+            sum[1] = (Double) sum[1] + quantity * unitPrice;
+            sum[2] = entry.getProductName();
+            sum[3] = entry.getUnit();
+        }
+        if (sums.isEmpty()) {
+            return;
+        }
+        // a fixed order, so two transactions creating the same rows wait on each other instead of deadlocking
+        List<List<Object>> keys = new ArrayList<>(sums.keySet());
+        keys.sort(KEY_ORDER);
+        upsert.execute(keys.stream()
+                .map(key -> {
+                    Object[] sum = sums.get(key);
+                    return new Object[]{today, key.get(0), key.get(1), key.get(2), sum[2], sum[3], sum[0], sum[1]};
+                })
+                .toList());
+    }
+
+    // recomputes the days in [from, to) from history_product; returns the rows written.
+    // Ledger rows appended for these days while it runs may be counted twice or not at all,
+    // so today is best rebuilt when stock is quiet.
+    public int rebuild(LocalDate from, LocalDate to) {
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.atStartOfDay());
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(DELETE_SQL, Date.valueOf(from), Date.valueOf(to));
+            return jdbcTemplate.update(String.format(REBUILD_SQL, "price_in", "", ">"), Action.IMPORT.name(),
+                    start, end)
+                    + jdbcTemplate.update(String.format(REBUILD_SQL, "price_out", "-", "<"), Action.EXPORT.name(),
+                    start, end);
+        });
+        log.info("Daily product statistics rebuilt for [{}, {}): {} rows", from, to, rows);
+        return rows == null ? 0 : rows;
+    }
+
+    // from, to: yyyy-MM-dd, both included
+    public BaseResponse rebuildDailyStats(String from, String to) {
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = LocalDate.parse(from);
+            end = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            throw new BaseException("Không thể chuyển về thời gian.");
+        }
+        if (end.isBefore(start)) {
+            throw new BaseException("Ngày kết thúc phải sau ngày bắt đầu.");
+        }
+        int rows = this.rebuild(start, end.plusDays(1));
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Đã tính lại thống kê nhập xuất từ " + from + " đến " + to)
+                .data(rows)
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo.service.impl;
 
 import com.example.demo.entity.ImageEntity;
 import com.example.demo.entity.ProductEntity;
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.exception.BaseException;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
@@ -20,6 +21,8 @@ import com.example.demo.service.ProductService;
 import com.google.common.base.CaseFormat;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -40,19 +43,26 @@ import java.util.stream.Collectors;
 @Service
 @Slf4j
 public class ProductImplService implements ProductService {
+    private static final int BACKFILL_CHUNK = 5000;
+
     private final ProductRepository productRepository;
     private final AccountRepository accountRepository;
     private final HistoryProductService historyProductService;
     private final ImageRepository imageRepository;
+    private final StockMutationService stockMutationService;
+    private final PublisherEvent publisherEvent;
 
     List<String> imageTypes = List.of("image/png", "image/jpeg", "image/jpg");
 
     public ProductImplService(ProductRepository productRepository, AccountRepository accountRepository,
-                              HistoryProductService historyProductService, ImageRepository imageRepository) {
+                              HistoryProductService historyProductService, ImageRepository imageRepository,
+                              StockMutationService stockMutationService, PublisherEvent publisherEvent) {
         this.productRepository = productRepository;
         this.accountRepository = accountRepository;
         this.historyProductService = historyProductService;
         this.imageRepository = imageRepository;
+        this.stockMutationService = stockMutationService;
+        this.publisherEvent = publisherEvent;
     }
 
     @Override
@@ -108,6 +118,7 @@ public class ProductImplService implements ProductService {
                                 .build()))
                 .build();
         historyProductService.createHistory(historyProductRequest, false, true);
+        publisherEvent.productChanged(savedProduct);
         return BaseResponse.builder()
                 .statusCode(HttpStatus.CREATED.value())
                 .message("Tạo sản phẩm thành công.")
@@ -128,17 +139,21 @@ public class ProductImplService implements ProductService {
             throw new BaseException("Sản phẩm không tồn tại.");
         });
         ProductEntity existingProduct = optionalProduct;
+        // stock only moves through StockMutationService: the edit keeps the committed quantity, read under the
+        // row lock so no movement can commit between this read and the entity write
+        Object[] locked = productRepository.lockLedgerInfoByIds(List.of(existingProduct.getId())).get(0);
         imageRepository.deleteAllByProductId(existingProduct.getId(), productRequest.getImageId());
         existingProduct.setName(productRequest.getName());
         existingProduct.setPriceIn(productRequest.getPriceIn());
         existingProduct.setPriceOut(productRequest.getPriceOut());
         existingProduct.setBrand(productRequest.getBrand());
         existingProduct.setDescription(productRequest.getDescription());
-        existingProduct.setStorageQuantity(productRequest.getStorageQuantity());
+        existingProduct.setStorageQuantity(locked[5] == null ? null : ((Number) locked[5]).intValue());
         existingProduct.setQuantityWarning(productRequest.getQuantityWarning());
         existingProduct.setUnit(productRequest.getUnit());
         existingProduct.setImageUrl(imageEntity != null ? imageEntity.getUrl() : null);
         ProductEntity updateProduct = productRepository.save(existingProduct);
+        publisherEvent.productChanged(updateProduct);
         if (imageEntity != null) {
             imageEntity.setProductId(updateProduct.getId());
             imageRepository.save(imageEntity);
@@ -157,6 +172,7 @@ public class ProductImplService implements ProductService {
             ProductEntity productEntity = optionalProduct.get();
             productEntity.setIsActive(false);
             productRepository.save(productEntity);
+            publisherEvent.productChanged(productEntity);
             return BaseResponse.builder()
                     .statusCode(HttpStatus.OK.value())
                     .message("Xóa sản phẩm thành công")
@@ -227,27 +243,13 @@ public class ProductImplService implements ProductService {
     @Override
     @Transactional
     public void addToInventory(Long productId, int difference, String note) {
-        ProductEntity product = productRepository.findById(productId).orElseThrow(() -> {
-            throw new EntityNotFoundException("Product", "Id", productId.toString());
-        });
-
-        if (product != null) {
-            product.addToInventory(difference, note);
-            productRepository.save(product);
-        }
+        stockMutationService.apply(productId, difference, note);
     }
 
     @Override
     @Transactional
     public void removeFromInventory(Long productId, int difference, String note) {
-        ProductEntity product = productRepository.findById(productId).orElseThrow(() -> {
-            throw new EntityNotFoundException("Product", "Id", productId.toString());
-        });
-
-        if (product != null) {
-            product.removeFromInventory(difference, note);
-            productRepository.save(product);
-        }
+        stockMutationService.apply(productId, -difference, note);
     }
 
     @Override
@@ -270,6 +272,33 @@ public class ProductImplService implements ProductService {
                 .build();
     }
 
+    @Override
+    public BaseResponse backfillStockStatus() {
+        return BaseResponse.builder()
+                .data(this.backfillStatus())
+                .statusCode(HttpStatus.OK.value())
+                .message("Cập nhật trạng thái tồn kho thành công.")
+                .build();
+    }
+
+    // rows written before the status column existed, or by hand, are corrected at startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        this.backfillStatus();
+    }
+
+    // one short transaction per id range, so a large catalogue is never locked as a whole
+    public long backfillStatus() {
+        long start = System.nanoTime();
+        long maxId = productRepository.getMaxId();
+        long rows = 0;
+        for (long chunk = 0; chunk <= maxId; chunk += BACKFILL_CHUNK) {
+            rows += productRepository.backfillStatusBetween(chunk, chunk + BACKFILL_CHUNK - 1);
+        }
+        log.info("Backfilled stock status of {} products in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
     public ProductResponse entityToResponse(ProductEntity product, AccountCreateAndUpdate accountResponseUpdate,
                                             AccountCreateAndUpdate accountResponseCreate) {
         return ProductResponse.builder()
@@ -280,7 +309,7 @@ public class ProductImplService implements ProductService {
                 .quantityWarning(product.getQuantityWarning())
                 .priceOut(product.getPriceOut())
                 .brand(product.getBrand())
-                .status(product.getStatus())
+                .status(product.getStatus() == null ? null : product.getStatus().name())
                 .description(product.getDescription())
                 .storageQuantity(product.getStorageQuantity())
                 .quantityWarning(product.getQuantityWarning())
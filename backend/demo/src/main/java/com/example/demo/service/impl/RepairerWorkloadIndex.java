@@ -0,0 +1,127 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.EmployeeEntity;
+import com.example.demo.entity.enums.OrderAction;
+import com.example.demo.entity.enums.TypeEmployee;
+import com.example.demo.entity.enums.TypeOrder;
+import com.example.demo.event.OrderChangedEvent;
+import com.example.demo.model.response.RepairerLoad;
+import com.example.demo.model.response.orderReponse.BaseOrder;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Open ORDER-type orders per active repairer, kept in memory.
+// Built from the database at startup and after bulk imports, then moved by committed order changes.
+@Slf4j
+@Service
+public class RepairerWorkloadIndex {
+
+    private final EmployeeRepository employeeRepository;
+    private final OrderRepository orderRepository;
+
+    // repairer id -> [code, name]
+    private final Map<Long, String[]> repairers = new LinkedHashMap<>();
+    // open order id -> repairer id
+    private final Map<Long, Long> openOrders = new HashMap<>();
+    private final Map<Long, Integer> loads = new HashMap<>();
+    // repairer id -> picks whose transaction has not ended yet
+    private final Map<Long, Integer> held = new HashMap<>();
+
+    public RepairerWorkloadIndex(EmployeeRepository employeeRepository, OrderRepository orderRepository) {
+        this.employeeRepository = employeeRepository;
+        this.orderRepository = orderRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        repairers.clear();
+        openOrders.clear();
+        loads.clear();
+        employeeRepository.getActiveRepairers().forEach(row ->
+                repairers.put(((Number) row[0]).longValue(), new String[]{(String) row[1], (String) row[2]}));
+        orderRepository.getOpenOrderRepairers().forEach(row ->
+                this.open(((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+        log.info("Repairer workload index built: {} repairers, {} open orders", repairers.size(), openOrders.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderChanged(OrderChangedEvent event) {
+        BaseOrder order = event.getOrder();
+        this.close(order.getId());
+        if (event.getAction() != OrderAction.DELETED && TypeOrder.ORDER.name().equals(order.getType())
+                && order.getRepairerId() != null) {
+            this.open(order.getId(), order.getRepairerId());
+        }
+    }
+
+    // employee writes commit immediately, so the roster follows them directly
+    public synchronized void updateRepairer(EmployeeEntity employee) {
+        if (Boolean.TRUE.equals(employee.getIsActive()) && employee.getType() == TypeEmployee.REPAIRER) {
+            repairers.put(employee.getId(), new String[]{employee.getCode(), employee.getName()});
+        } else {
+            repairers.remove(employee.getId());
+        }
+    }
+
+    // the pick counts against the repairer until the caller's transaction ends, so concurrent
+    // dispatchers spread out; after a commit the order event has taken its place, after a rollback nothing
+    public synchronized Optional<Long> leastLoaded() {
+        Optional<Long> chosen = repairers.keySet().stream()
+                .min(Comparator.<Long>comparingInt(id -> loads.getOrDefault(id, 0) + held.getOrDefault(id, 0))
+                        .thenComparing(Comparator.naturalOrder()));
+        chosen.ifPresent(this::hold);
+        return chosen;
+    }
+
+    public synchronized List<RepairerLoad> getLoads() {
+        return repairers.entrySet().stream()
+                .map(entry -> new RepairerLoad(entry.getKey(), entry.getValue()[0], entry.getValue()[1],
+                        loads.getOrDefault(entry.getKey(), 0)))
+                .sorted(Comparator.comparingInt(RepairerLoad::getOpenOrders).thenComparing(RepairerLoad::getId))
+                .collect(Collectors.toList());
+    }
+
+    private void hold(Long repairerId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        held.merge(repairerId, 1, Integer::sum);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(repairerId);
+            }
+        });
+    }
+
+    private synchronized void release(Long repairerId) {
+        held.computeIfPresent(repairerId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void open(Long orderId, Long repairerId) {
+        openOrders.put(orderId, repairerId);
+        loads.merge(repairerId, 1, Integer::sum);
+    }
+
+    private void close(Long orderId) {
+        Long repairerId = openOrders.remove(orderId);
+        if (repairerId != null) {
+            loads.computeIfPresent(repairerId, (id, load) -> load > 1 ? load - 1 : null);
+        }
+    }
+}
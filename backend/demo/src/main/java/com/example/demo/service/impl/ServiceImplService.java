@@ -2,6 +2,7 @@ package com.example.demo.service.impl;
 
 import com.example.demo.entity.AccountEntity;
 import com.example.demo.entity.ServiceEntity;
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.exception.BaseException;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
@@ -27,10 +28,13 @@ import java.util.stream.Collectors;
 public class ServiceImplService implements ServiceService {
     private final ServiceRepository serviceRepository;
     private final AccountRepository accountRepository;
+    private final PublisherEvent publisherEvent;
 
-    public ServiceImplService(ServiceRepository serviceRepository, AccountRepository accountRepository) {
+    public ServiceImplService(ServiceRepository serviceRepository, AccountRepository accountRepository,
+                              PublisherEvent publisherEvent) {
         this.serviceRepository = serviceRepository;
         this.accountRepository = accountRepository;
+        this.publisherEvent = publisherEvent;
     }
 
     @Override
@@ -65,6 +69,7 @@ public class ServiceImplService implements ServiceService {
         service.setCreateBy(((CustomUserDetail) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
                 .getAccount());
         ServiceEntity serviceSaved = serviceRepository.save(service);
+        publisherEvent.serviceChanged(serviceSaved);
         return BaseResponse.builder()
                 .statusCode(HttpStatus.CREATED.value())
                 .message("Tạo dịch vụ thành công.")
@@ -86,6 +91,7 @@ public class ServiceImplService implements ServiceService {
         service.setModifyBy(((CustomUserDetail) SecurityContextHolder.getContext().getAuthentication().getPrincipal())
                 .getAccount());
         serviceRepository.save(service);
+        publisherEvent.serviceChanged(service);
         return BaseResponse.builder()
                 .message("Cập nhật dịch vụ thành công.")
                 .statusCode(HttpStatus.OK.value())
@@ -100,6 +106,7 @@ public class ServiceImplService implements ServiceService {
         });
         service.setIsActive(false);
         serviceRepository.save(service);
+        publisherEvent.serviceChanged(service);
         return BaseResponse.builder()
                 .data(null)
                 .message("xóa dịch vụ thành công theo id = " + aLong)
@@ -0,0 +1,70 @@
+package com.example.demo.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Space-Saving summary of weighted counts over at most capacity items.
+// A tracked item's count never undercounts it and count - error never overcounts it. Once the summary is full
+// a new item takes the counter of the smallest one and inherits its count as error, so an item that is not
+// tracked counted at most getUntrackedBound(). Negative weights lower tracked counters only; those of
+// untracked items are dropped, as their counts are already covered by the bound.
+public class SpaceSavingSummary {
+
+    private final int capacity;
+    // item id -> {count, error}
+    private final Map<Long, long[]> counters = new HashMap<>();
+    private long untrackedBound;
+
+    public SpaceSavingSummary(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(long id, long weight) {
+        long[] counter = counters.get(id);
+        if (weight <= 0) {
+            if (counter != null && weight < 0) {
+                counter[0] += weight;
+                if (counter[0] <= 0) {
+                    counters.remove(id);
+                } else {
+                    counter[1] = Math.min(counter[1], counter[0]);
+                }
+            }
+            return;
+        }
+        if (counter != null) {
+            counter[0] += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(id, new long[]{weight, 0});
+            return;
+        }
+        // a scan is cheap at these capacities and only needed once the summary is full
+        Map.Entry<Long, long[]> smallest = null;
+        for (Map.Entry<Long, long[]> entry : counters.entrySet()) {
+            if (smallest == null || entry.getValue()[0] < smallest.getValue()[0]) {
+                smallest = entry;
+            }
+        }
+        long evicted = smallest.getValue()[0];
+        counters.remove(smallest.getKey());
+        counters.put(id, new long[]{evicted + weight, evicted});
+        untrackedBound = Math.max(untrackedBound, evicted);
+    }
+
+    // item id -> {count, error}, copied
+    public synchronized Map<Long, long[]> snapshot() {
+        Map<Long, long[]> copy = new HashMap<>();
+        counters.forEach((id, counter) -> copy.put(id, counter.clone()));
+        return copy;
+    }
+
+    public synchronized long getUntrackedBound() {
+        return untrackedBound;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.StatisticDashboard;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// The manager dashboard in one request: its statistics run in parallel on a bounded pool, each on its own
+// connection, so the answer takes about as long as the slowest of them. A part that fails or is not done
+// by stat.dashboard.part-timeout-ms is reported in errors and the other parts are still returned.
+// Each part runs in a read-only transaction whose timeout is the part timeout, so its queries are cancelled
+// in the database too instead of holding a connection after the answer has gone.
+@Slf4j
+@Service
+public class StatisticDashboardService {
+
+    private final CachedStatisticService statisticService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final long partTimeoutMillis;
+
+    public StatisticDashboardService(CachedStatisticService statisticService,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${stat.dashboard.threads:4}") int threads,
+                                     @Value("${stat.dashboard.queue-size:64}") int queueSize,
+                                     @Value("${stat.dashboard.part-timeout-ms:5000}") long partTimeoutMillis,
+                                     @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.statisticService = statisticService;
+        this.partTimeoutMillis = partTimeoutMillis;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setTimeout((int) Math.max(1, (partTimeoutMillis + 999) / 1000));
+        // the pool also bounds the connections the dashboard takes, at most half of the connection pool
+        // so requests still get theirs; when the queue is full parts fail fast
+        threads = Math.max(1, Math.min(threads, poolSize / 2));
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "statistic-dashboard-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // map: the params of the single statistics, applied to every part that reads them
+    public BaseResponse getDashboard(Map<String, String> map) {
+        Map<String, Supplier<BaseResponse>> parts = new LinkedHashMap<>();
+        parts.put("services", () -> statisticService.statisticServices(map));
+        parts.put("employeesSalary", () -> statisticService.statisticSalaryEmployee(map));
+        parts.put("productsIn", () -> statisticService.statisticHistoryProductIn(map));
+        parts.put("productsOut", () -> statisticService.statisticHistoryProductOut(map));
+        parts.put("productsInYear", statisticService::statisticProductInYear);
+        parts.put("productsOutYear", statisticService::statisticProductOutInYear);
+        parts.put("topService", () -> statisticService.statisticTopService(map));
+        parts.put("topProduct", () -> statisticService.statisticTopProduct(map));
+
+        long start = System.nanoTime();
+        Map<String, Future<BaseResponse>> futures = new LinkedHashMap<>();
+        Map<String, String> errors = new LinkedHashMap<>();
+        parts.forEach((name, part) -> {
+            try {
+                futures.put(name, executor.submit(() -> transactionTemplate.execute(status -> part.get())));
+            } catch (RejectedExecutionException e) {
+                errors.put(name, "Hệ thống đang bận, vui lòng thử lại.");
+            }
+        });
+
+        // every part has the same deadline, counted from when they were all submitted
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(partTimeoutMillis);
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<BaseResponse>> future : futures.entrySet()) {
+            try {
+                BaseResponse response = future.getValue().get(Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                data.put(future.getKey(), response.getData());
+            } catch (TimeoutException e) {
+                future.getValue().cancel(true);
+                errors.put(future.getKey(), "Quá thời gian chờ " + partTimeoutMillis + " ms.");
+            } catch (ExecutionException e) {
+                log.warn("Dashboard part {} failed", future.getKey(), e.getCause());
+                errors.put(future.getKey(), "Không lấy được dữ liệu thống kê.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(pending -> pending.cancel(true));
+                errors.put(future.getKey(), "Bị gián đoạn.");
+                break;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message(errors.isEmpty() ? "Thống kê tổng quan thành công."
+                        : "Thống kê tổng quan thiếu " + errors.size() + " phần.")
+                .data(StatisticDashboard.builder()
+                        .parts(data)
+                        .errors(errors)
+                        .elapsedMillis(elapsedMillis)
+                        .build())
+                .build();
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.entity.enums.Action;
+import com.example.demo.entity.enums.OrderLineKind;
+import com.example.demo.entity.enums.StatMetric;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.params.StatisticEmployee;
 import com.example.demo.model.params.StatisticProductParams;
@@ -7,9 +10,9 @@ import com.example.demo.model.params.StatisticServiceParams;
 import com.example.demo.model.params.TimeParams;
 import com.example.demo.model.statistic.*;
 import com.example.demo.repository.EmployeeRepository;
-import com.example.demo.repository.HistoryProductRepository;
 import com.example.demo.repository.OrderProductsRepository;
 import com.example.demo.repository.OrderServiceRepository;
+import com.example.demo.repository.ProductDailyStatRepository;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -27,16 +30,24 @@ public class StatisticService {
     private final OrderServiceRepository orderServiceRepository;
     private final EmployeeRepository employeeRepository;
 
-    private final HistoryProductRepository historyProductRepository;
-
     private final OrderProductsRepository orderProductsRepository;
 
+    private final ProductDailyStatRepository productDailyStatRepository;
+
+    private final MonthlyStatService monthlyStatService;
+
+    private final TopItemTracker topItemTracker;
+
     public StatisticService(OrderServiceRepository orderServiceRepository, EmployeeRepository employeeRepository,
-            HistoryProductRepository historyProductRepository, OrderProductsRepository orderProductsRepository) {
+            OrderProductsRepository orderProductsRepository,
+            ProductDailyStatRepository productDailyStatRepository, MonthlyStatService monthlyStatService,
+            TopItemTracker topItemTracker) {
         this.orderServiceRepository = orderServiceRepository;
         this.employeeRepository = employeeRepository;
-        this.historyProductRepository = historyProductRepository;
         this.orderProductsRepository = orderProductsRepository;
+        this.productDailyStatRepository = productDailyStatRepository;
+        this.monthlyStatService = monthlyStatService;
+        this.topItemTracker = topItemTracker;
     }
 
     public BaseResponse statisticServices(Map<String, String> map) {
@@ -144,7 +155,7 @@ public class StatisticService {
     public BaseResponse statisticHistoryProductIn(Map<String, String> map) {
         StatisticProductParams productParams = new StatisticProductParams(map);
         Pageable pageable = PageRequest.of(productParams.getPageNumber() - 1, productParams.getPageSize());
-        Page<Object[]> objectsIn = historyProductRepository.statisticHistoryProductIn(productParams, pageable);
+        Page<Object[]> objectsIn = this.statisticByAction(Action.IMPORT, productParams, pageable);
         List<StatisticProducts> statisticProductsIn = mapToStatisticProductList(objectsIn);
 
         System.out.println(productParams);
@@ -159,7 +170,7 @@ public class StatisticService {
     public BaseResponse statisticHistoryProductOut(Map<String, String> map) {
         StatisticProductParams productParams = new StatisticProductParams(map);
         Pageable pageable = PageRequest.of(productParams.getPageNumber() - 1, productParams.getPageSize());
-        Page<Object[]> objectsOut = historyProductRepository.statisticHistoryProductOut(productParams, pageable);
+        Page<Object[]> objectsOut = this.statisticByAction(Action.EXPORT, productParams, pageable);
         List<StatisticProducts> statisticProductsOut = mapToStatisticProductList(objectsOut);
 
         return BaseResponse.builder()
@@ -169,6 +180,13 @@ public class StatisticService {
                 .build();
     }
 
+    // read from the daily rollup; the whole days of [startTime, endTime) are counted
+    private Page<Object[]> statisticByAction(Action action, StatisticProductParams productParams, Pageable pageable) {
+        return productDailyStatRepository.statisticByAction(action.name(),
+                productParams.getStartTime() == null ? null : productParams.getStartTime().toLocalDate(),
+                productParams.getEndTime() == null ? null : productParams.getEndTime().toLocalDate(), pageable);
+    }
+
     private List<StatisticProducts> mapToStatisticProductList(Page<Object[]> objects) {
         return objects.stream().map(object -> {
             Long id = ((Number) object[0]).longValue();
@@ -192,83 +210,83 @@ public class StatisticService {
     }
 
     public BaseResponse statisticProductInYear() {
-        List<Object[]> objects = historyProductRepository.statisticProductInYear();
         return BaseResponse.builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Thống kê chi phí nhập linh kiện theo từng tháng thàng công.")
-                .data(objects.stream().map(objects1 -> {
-                    return StatisticMonth.builder()
-                            .month((String) objects1[0])
-                            .year((String) objects1[1])
-                            .expense((Double) objects1[2]).build();
-                }))
+                .data(this.statisticMonths(StatMetric.IMPORT_SPEND))
                 .build();
     }
 
     public BaseResponse statisticProductOutInYear() {
-        List<Object[]> objects = historyProductRepository.statisticProductOutInYear();
         return BaseResponse.builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Thống kê doang thu xuất linh kiện theo từng tháng thàng công.")
-                .data(objects.stream().map(objects1 -> {
-                    return StatisticMonth.builder()
-                            .month((String) objects1[0])
-                            .year((String) objects1[1])
-                            .expense((Double) objects1[2]).build();
-                }))
+                .data(this.statisticMonths(StatMetric.EXPORT_REVENUE))
                 .build();
     }
 
+    // the last 12 months, current one included
+    private List<StatisticMonth> statisticMonths(StatMetric metric) {
+        return monthlyStatService.getTotals(metric, 12).entrySet().stream()
+                .map(entry -> StatisticMonth.builder()
+                        .month(String.format("%02d", entry.getKey().getMonthValue()))
+                        .year(String.valueOf(entry.getKey().getYear()))
+                        .expense(entry.getValue())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    // answered by the TopItemTracker; the exact queries cover its fallback
     public BaseResponse statisticTopService(Map<String, String> map) {
         TimeParams timeParams = new TimeParams(map);
-        List<Object[]> objects = orderServiceRepository.statisticTopInService(timeParams);
+        List<StatisticTop> tops = topItemTracker.top(OrderLineKind.SERVICE, timeParams)
+                .orElseGet(() -> orderServiceRepository.statisticTopInService(timeParams).stream()
+                        .limit(topItemTracker.getK())
+                        .map(objects1 -> StatisticTop.builder()
+                                .id(((Number) objects1[0]).longValue())
+                                .name((String) objects1[1])
+                                .price((Double) objects1[2])
+                                .quantity(objects1[3] == null ? null : ((Number) objects1[3]).longValue())
+                                .build())
+                        .collect(Collectors.toList()));
         return BaseResponse.builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Thống kê top 10 dịch vụ được sử dụng nhiều nhất trong thời gian.")
-                .data(objects.stream().map(objects1 -> {
-                    return StatisticTop.builder()
-                            .id((Long) objects1[0])
-                            .name((String) objects1[1])
-                            .price((Double) objects1[2])
-                            .quantity(
-                                    (objects1[3] instanceof BigDecimal) ? ((BigDecimal) objects1[3]).longValue() : null)
-                            .build();
-                }))
+                .data(tops)
                 .build();
     }
 
     public BaseResponse statisticTopProduct(Map<String, String> map) {
         TimeParams timeParams = new TimeParams(map);
-        List<Object[]> objects = orderProductsRepository.statisticTopProduct(timeParams);
+        List<StatisticTop> tops = topItemTracker.top(OrderLineKind.PRODUCT, timeParams)
+                .orElseGet(() -> orderProductsRepository.statisticTopProduct(timeParams).stream()
+                        .limit(topItemTracker.getK())
+                        .map(objects1 -> StatisticTop.builder()
+                                .id(((Number) objects1[0]).longValue())
+                                .name((String) objects1[1])
+                                .price((Double) objects1[2])
+                                .unit((String) objects1[3])
+                                .quantity(objects1[4] == null ? null : ((Number) objects1[4]).longValue())
+                                .build())
+                        .collect(Collectors.toList()));
         return BaseResponse.builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Thống kê top 10 dịch vụ được sử dụng nhiều nhất trong thời gian.")
-                .data(objects.stream().map(objects1 -> {
-                    return StatisticTop.builder()
-                            .id((Long) objects1[0])
-                            .name((String) objects1[1])
-                            .price((Double) objects1[2])
-                            .unit((String) objects1[3])
-                            .quantity(
-                                    (objects1[4] instanceof BigDecimal) ? ((BigDecimal) objects1[4]).longValue() : null)
-                            .build();
-                }))
+                .data(tops)
                 .build();
     }
 
     public BaseResponse statisticServiceUsageInTimeMonth() {
-        List<Object[]> objects = orderServiceRepository.statisticServiceUsageInTimeMonth();
         return BaseResponse.builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Thống kê doanh thu dịch vụ theo các tháng trong năm.")
-                .data(objects.stream().map(objects1 -> {
-                    StatisticMonthlyUsage monthlyUsage = StatisticMonthlyUsage.builder()
-                            .month((String) objects1[0])
-                            .year((String) objects1[1])
-                            .expense((Double) objects1[2])
-                            .build();
-                    return monthlyUsage;
-                }))
+                .data(monthlyStatService.getTotals(StatMetric.SERVICE_REVENUE, 12).entrySet().stream()
+                        .map(entry -> StatisticMonthlyUsage.builder()
+                                .month(String.format("%02d", entry.getKey().getMonthValue()))
+                                .year(String.valueOf(entry.getKey().getYear()))
+                                .expense(entry.getValue())
+                                .build())
+                        .collect(Collectors.toList()))
                 .build();
     }
 }
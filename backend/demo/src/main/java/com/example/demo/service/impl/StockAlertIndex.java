@@ -0,0 +1,217 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.email.EmailService;
+import com.example.demo.entity.ProductEntity;
+import com.example.demo.entity.enums.StockStatus;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.event.StockChangedEvent;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.StockAlert;
+import com.example.demo.repository.ProductRepository;
+import jakarta.mail.MessagingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Stock level and status of every active product, kept in memory.
+// Loaded once at startup, then moved by committed stock movements and product edits, so each
+// movement costs one map lookup. Products that cross into or out of LOW_STOCK/OUT_STOCK are collected
+// into a digest that is sent once no crossing has happened for stock.alert.debounce-ms, or at the latest
+// stock.alert.max-delay-ms after the first one.
+@Slf4j
+@Service
+public class StockAlertIndex {
+
+    private final ProductRepository productRepository;
+    private final EmailService emailService;
+    private final List<String> recipients;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+
+    private final Map<Long, Level> levels = new HashMap<>();
+    // product id -> status when the pending digest started, for products that crossed since
+    private final Map<Long, StockStatus> crossed = new LinkedHashMap<>();
+    private long firstCrossingAt;
+    private long lastCrossingAt;
+
+    public StockAlertIndex(ProductRepository productRepository, EmailService emailService,
+                           @Value("${stock.alert.recipients:}") String recipients,
+                           @Value("${stock.alert.debounce-ms:60000}") long debounceMillis,
+                           @Value("${stock.alert.max-delay-ms:600000}") long maxDelayMillis) {
+        this.productRepository = productRepository;
+        this.emailService = emailService;
+        this.recipients = Arrays.stream(recipients.split(","))
+                .map(String::trim)
+                .filter(recipient -> !recipient.isEmpty())
+                .toList();
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        levels.clear();
+        crossed.clear();
+        LocalDateTime now = LocalDateTime.now();
+        productRepository.getStockLevels().forEach(row -> {
+            Level level = new Level((String) row[1], (String) row[2],
+                    row[3] == null ? 0 : ((Number) row[3]).intValue(),
+                    row[4] == null ? null : ((Number) row[4]).intValue());
+            level.status = StockStatus.of(level.quantity, level.warning);
+            level.since = now;
+            levels.put(((Number) row[0]).longValue(), level);
+        });
+        log.info("Stock alert index built: {} products, {} alerts", levels.size(), this.getAlerts().size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStockChanged(StockChangedEvent event) {
+        event.getDifferences().forEach((id, difference) -> {
+            Level level = levels.get(id);
+            // inactive products are not tracked
+            if (level != null) {
+                level.quantity += difference;
+                this.classify(id, level);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        ProductEntity product = event.getProduct();
+        if (!Boolean.TRUE.equals(product.getIsActive())) {
+            levels.remove(product.getId());
+            crossed.remove(product.getId());
+            return;
+        }
+        // edits never move stock, and the entity's quantity may predate movements already applied here;
+        // a tracked product keeps its own and a newly tracked one starts from the committed row
+        Level level = levels.computeIfAbsent(product.getId(), id -> {
+            Level added = new Level(product.getCode(), product.getName(), this.readQuantity(id), null);
+            added.status = StockStatus.IN_STOCK;
+            added.since = LocalDateTime.now();
+            return added;
+        });
+        level.code = product.getCode();
+        level.name = product.getName();
+        level.warning = product.getQuantityWarning();
+        this.classify(product.getId(), level);
+    }
+
+    // out of stock first, then the lowest quantity
+    public synchronized List<StockAlert> getAlerts() {
+        return levels.entrySet().stream()
+                .filter(entry -> entry.getValue().status != StockStatus.IN_STOCK)
+                .map(entry -> this.toAlert(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(StockAlert::getStatus).reversed()
+                        .thenComparingInt(StockAlert::getStorageQuantity)
+                        .thenComparing(StockAlert::getId))
+                .toList();
+    }
+
+    public BaseResponse getStockAlerts() {
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Lấy danh sách cảnh báo tồn kho thành công.")
+                .data(this.getAlerts())
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${stock.alert.check-delay-ms:5000}")
+    public void sendDigest() {
+        List<StockAlert> digest = this.takeDigest(System.currentTimeMillis());
+        if (digest.isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder("<ul>");
+        digest.forEach(alert -> text.append("<li>").append(alert.getCode()).append(" - ").append(alert.getName())
+                .append(": ").append(alert.getStorageQuantity()).append(" (").append(alert.getStatus())
+                .append(")</li>"));
+        text.append("</ul>");
+        if (recipients.isEmpty()) {
+            log.info("Stock alert digest: {}", text);
+            return;
+        }
+        for (String recipient : recipients) {
+            try {
+                emailService.send(recipient, "Cảnh báo tồn kho: " + digest.size() + " linh kiện", text.toString());
+            } catch (MessagingException | RuntimeException e) {
+                log.warn("Could not send the stock alert digest to {}", recipient, e);
+            }
+        }
+    }
+
+    // the products whose status changed since the last digest, once the digest is due
+    private synchronized List<StockAlert> takeDigest(long now) {
+        if (crossed.isEmpty()
+                || now - lastCrossingAt < debounceMillis && now - firstCrossingAt < maxDelayMillis) {
+            return List.of();
+        }
+        List<StockAlert> digest = new ArrayList<>();
+        crossed.forEach((id, before) -> {
+            Level level = levels.get(id);
+            // a product that went back to where it started is left out
+            if (level != null && level.status != before) {
+                digest.add(this.toAlert(id, level));
+            }
+        });
+        crossed.clear();
+        return digest;
+    }
+
+    private void classify(Long id, Level level) {
+        StockStatus status = StockStatus.of(level.quantity, level.warning);
+        if (status == level.status) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (crossed.isEmpty()) {
+            firstCrossingAt = now;
+        }
+        lastCrossingAt = now;
+        crossed.putIfAbsent(id, level.status);
+        level.status = status;
+        level.since = LocalDateTime.now();
+    }
+
+    private int readQuantity(Long id) {
+        return productRepository.getLedgerInfoByIds(List.of(id)).stream()
+                .findFirst()
+                .map(row -> row[5] == null ? 0 : ((Number) row[5]).intValue())
+                .orElse(0);
+    }
+
+    private StockAlert toAlert(Long id, Level level) {
+        return new StockAlert(id, level.code, level.name, level.quantity, level.warning, level.status, level.since);
+    }
+
+    private static final class Level {
+        private String code;
+        private String name;
+        private int quantity;
+        private Integer warning;
+        private StockStatus status;
+        private LocalDateTime since;
+
+        private Level(String code, String name, int quantity, Integer warning) {
+            this.code = code;
+            this.name = name;
+            this.quantity = quantity;
+            this.warning = warning;
+        }
+    }
+}
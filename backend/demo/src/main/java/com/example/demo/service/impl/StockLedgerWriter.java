@@ -0,0 +1,80 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.constant.CodeConstant;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.model.stock.LedgerEntry;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Appends history_product rows with one JDBC batch, then sets their LS codes with a second one.
+// The code is derived from the IDENTITY id, so two round trips is the floor whatever the number of rows.
+@Service
+public class StockLedgerWriter {
+
+    private static final String INSERT_SQL = "insert into history_product (product_id, product_name, unit, " +
+            "price_in, price_out, difference, quantity_left, action, note, sale, create_date, modify_date, " +
+            "is_active) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, true)";
+    private static final String UPDATE_CODE_SQL = "update history_product set code = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PublisherEvent publisherEvent;
+
+    public StockLedgerWriter(JdbcTemplate jdbcTemplate, PublisherEvent publisherEvent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisherEvent = publisherEvent;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Long> append(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (LedgerEntry entry : entries) {
+                    statement.setLong(1, entry.getProductId());
+                    statement.setString(2, entry.getProductName());
+                    statement.setString(3, entry.getUnit());
+                    statement.setObject(4, entry.getPriceIn(), Types.DOUBLE);
+                    statement.setObject(5, entry.getPriceOut(), Types.DOUBLE);
+                    statement.setInt(6, entry.getDifference());
+                    statement.setInt(7, entry.getQuantityLeft());
+                    statement.setString(8, entry.getAction().name());
+                    statement.setString(9, entry.getNote());
+                    statement.setBoolean(10, entry.isSale());
+                    statement.setTimestamp(11, now);
+                    statement.setTimestamp(12, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                List<Long> keys = new ArrayList<>(entries.size());
+                try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                    while (resultSet.next()) {
+                        keys.add(resultSet.getLong(1));
+                    }
+                }
+                return keys;
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE_CODE_SQL, ids.stream()
+                .map(id -> new Object[]{CodeConstant.HISTORY_CODE + String.format("%06d", id), id})
+                .collect(Collectors.toList()));
+        publisherEvent.ledgerAppended(entries);
+        return ids;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.enums.Action;
+import com.example.demo.entity.enums.StockStatus;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.EntityNotFoundException;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.repository.ProductRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Moves stock with a guarded relative UPDATE, so concurrent counters never overwrite each other's
+// change and stock never goes negative, then appends one ledger row per product.
+// The ledger row and the returned quantity come from the row read after the UPDATE, while this
+// transaction still holds its lock, so they are exact without a read-before-write.
+// With inventory.journal.enabled=true movements go to the InventoryJournalService instead.
+// Accepted movements are published as a StockChangedEvent either way.
+@Service
+public class StockMutationService {
+
+    // status is assigned first: MySQL evaluates later assignments against the updated quantity.
+    // A removal may only take the stock no location holds, counting the sales not folded in yet,
+    // like StockReservationService; additions always land.
+    private static final String MUTATE_SQL = "update products " +
+            "set status = " + StockStatus.sql("storage_quantity + ?") + ", " +
+            "storage_quantity = storage_quantity + ? " +
+            "where id = ? and (? >= 0 or " + LocationStockService.UNASSIGNED + " + ? >= 0)";
+
+    private final ProductRepository productRepository;
+    private final StockLedgerWriter stockLedgerWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final Optional<InventoryJournalService> inventoryJournalService;
+    private final PublisherEvent publisherEvent;
+
+    public StockMutationService(ProductRepository productRepository, StockLedgerWriter stockLedgerWriter,
+                                JdbcTemplate jdbcTemplate, Optional<InventoryJournalService> inventoryJournalService,
+                                PublisherEvent publisherEvent) {
+        this.productRepository = productRepository;
+        this.stockLedgerWriter = stockLedgerWriter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryJournalService = inventoryJournalService;
+        this.publisherEvent = publisherEvent;
+    }
+
+    @Transactional
+    public int apply(Long productId, int difference, String note) {
+        return this.apply(Map.of(productId, difference), note).get(productId);
+    }
+
+    // differences: product id -> signed change. Returns product id -> quantity after the change.
+    @Transactional
+    public Map<Long, Integer> apply(Map<Long, Integer> differences, String note) {
+        return this.applyLines(differences.entrySet().stream()
+                .map(difference -> new Line(difference.getKey(), difference.getValue()))
+                .collect(Collectors.toList()), note);
+    }
+
+    // Lines of the same product move its stock once, but each non-zero line keeps its own ledger row,
+    // with the quantity left after it. Returns product id -> quantity after all lines.
+    @Transactional
+    public Map<Long, Integer> applyLines(List<Line> lines, String note) {
+        Map<Long, Integer> differences = new LinkedHashMap<>();
+        lines.forEach(line -> differences.merge(line.productId(), line.difference(), Math::addExact));
+        if (differences.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        if (inventoryJournalService.isPresent()) {
+            Map<Long, Integer> quantities = inventoryJournalService.get().append(differences, note);
+            publisherEvent.stockChanged(differences);
+            return quantities;
+        }
+        // pending entity changes must not be flushed over the relative update later
+        productRepository.flush();
+        List<Long> ids = new ArrayList<>(differences.keySet());
+        int[] updated = jdbcTemplate.batchUpdate(MUTATE_SQL, ids.stream()
+                .map(id -> new Object[]{differences.get(id), differences.get(id), differences.get(id), id,
+                        differences.get(id), differences.get(id)})
+                .collect(Collectors.toList()));
+
+        Map<Long, Object[]> rows = productRepository.getLedgerInfoByIds(ids).stream()
+                .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> row));
+        List<Long> shortIds = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                if (!rows.containsKey(ids.get(i))) {
+                    throw new EntityNotFoundException("Product", "Id", ids.get(i).toString());
+                }
+                shortIds.add(ids.get(i));
+            }
+        }
+        if (!shortIds.isEmpty()) {
+            throw new InsufficientStockException(shortIds);
+        }
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        // walk forward from the quantity before this movement
+        Map<Long, Integer> running = new HashMap<>();
+        ids.forEach(id -> {
+            int quantityLeft = ((Number) rows.get(id)[5]).intValue();
+            quantities.put(id, quantityLeft);
+            running.put(id, quantityLeft - differences.get(id));
+        });
+        List<LedgerEntry> entries = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            if (line.difference() == 0) {
+                continue;
+            }
+            Object[] row = rows.get(line.productId());
+            int quantityLeft = running.merge(line.productId(), line.difference(), Integer::sum);
+            entries.add(LedgerEntry.builder()
+                    .productId(line.productId())
+                    .productName((String) row[1])
+                    .unit((String) row[2])
+                    .priceIn(row[3] == null ? null : ((Number) row[3]).doubleValue())
+                    .priceOut(row[4] == null ? null : ((Number) row[4]).doubleValue())
+                    .difference(line.difference())
+                    .quantityLeft(quantityLeft)
+                    .action(line.difference() >= 0 ? Action.IMPORT : Action.EXPORT)
+                    .note(note)
+                    .build());
+        }
+        stockLedgerWriter.append(entries);
+        publisherEvent.stockChanged(differences);
+        return quantities;
+    }
+
+    public record Line(Long productId, int difference) {
+    }
+}
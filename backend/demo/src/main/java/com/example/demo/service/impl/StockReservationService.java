@@ -0,0 +1,124 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.enums.StockStatus;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.model.stock.StockItem;
+import com.example.demo.repository.ProductRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Reserves stock for a whole order: one read and one guarded batch update, whatever the line count.
+// Orders without a location take only the stock no location holds, see LocationStockService.
+// In journal mode they also leave the journaled removals not applied yet, see InventoryJournalService.
+@Service
+public class StockReservationService {
+
+    // status is assigned before the quantity it is derived from, see StockMutationService;
+    // the last but one argument is the pending journaled removal (zero or less)
+    private static final String RESERVE_SQL = "update products " +
+            "set status = " + StockStatus.sql("storage_quantity - ?") + ", " +
+            "storage_quantity = storage_quantity - ? " +
+            "where id = ? and is_active = true and " + LocationStockService.UNASSIGNED + " + ? >= ?";
+
+    private static final String RELEASE_SQL = "update products " +
+            "set status = " + StockStatus.sql("storage_quantity + ?") + ", " +
+            "storage_quantity = storage_quantity + ? " +
+            "where id = ?";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PublisherEvent publisherEvent;
+    private final Optional<InventoryJournalService> inventoryJournalService;
+
+    public StockReservationService(ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+                                   PublisherEvent publisherEvent,
+                                   Optional<InventoryJournalService> inventoryJournalService) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisherEvent = publisherEvent;
+        this.inventoryJournalService = inventoryJournalService;
+    }
+
+    // quantities: product id -> merged quantity. Every short id is reported, and the caller's
+    // transaction rolls back the rows already decremented.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, StockItem> reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        Map<Long, Object[]> rows = productRepository.getStockByIds(quantities.keySet()).stream()
+                .collect(Collectors.toMap(row -> ((Number) row[0]).longValue(), row -> row));
+        List<Long> shortIds = quantities.entrySet().stream()
+                .filter(entry -> {
+                    Object[] row = rows.get(entry.getKey());
+                    return row == null || row[4] == null || ((Number) row[4]).intValue() < entry.getValue();
+                })
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (!shortIds.isEmpty()) {
+            throw new InsufficientStockException(shortIds);
+        }
+
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        // the journal only changes what is pending while the product row is locked
+        Map<Long, Integer> pending = inventoryJournalService
+                .map(journal -> {
+                    productRepository.lockLedgerInfoByIds(ids);
+                    return journal.pendingRemovals(ids);
+                })
+                .orElseGet(Map::of);
+        List<Object[]> args = ids.stream()
+                .map(id -> new Object[]{quantities.get(id), quantities.get(id), quantities.get(id), id,
+                        pending.getOrDefault(id, 0), quantities.get(id)})
+                .collect(Collectors.toList());
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, args);
+        for (int i = 0; i < updated.length; i++) {
+            // a concurrent order took the stock between the read and the update
+            if (updated[i] == 0) {
+                shortIds.add(ids.get(i));
+            }
+        }
+        if (!shortIds.isEmpty()) {
+            throw new InsufficientStockException(shortIds);
+        }
+
+        Map<Long, Integer> differences = new LinkedHashMap<>();
+        quantities.forEach((id, quantity) -> differences.put(id, -quantity));
+        publisherEvent.stockChanged(differences);
+
+        Map<Long, StockItem> reserved = new LinkedHashMap<>();
+        ids.forEach(id -> {
+            Object[] row = rows.get(id);
+            reserved.put(id, StockItem.builder()
+                    .id(id)
+                    .name((String) row[1])
+                    .price(row[2] == null ? null : ((Number) row[2]).doubleValue())
+                    .unit((String) row[3])
+                    .quantity(quantities.get(id))
+                    .storageQuantity(((Number) row[4]).intValue() - quantities.get(id))
+                    .build());
+        });
+        return reserved;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RELEASE_SQL, quantities.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getValue(), entry.getValue(), entry.getKey()})
+                .collect(Collectors.toList()));
+        publisherEvent.stockChanged(quantities);
+    }
+}
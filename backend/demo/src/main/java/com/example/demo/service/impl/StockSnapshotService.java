@@ -0,0 +1,88 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.StockQuantity;
+import com.example.demo.repository.StockSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// One stock_snapshot row per product per closed day. Not every stock change writes a ledger row (an order
+// takes its units when it is created, its EXPORT row follows when it is invoiced), so a day is not chained from
+// the day before: it is the stock on hand now, with those units added back, minus the ledger rows since the end
+// of the day. Every run rewrites the last stock.snapshot.window-days days, so a late ledger row is picked up.
+// Stock at a past instant is the nearest later snapshot, or the stock now, minus the ledger rows in between.
+@Slf4j
+@Service
+public class StockSnapshotService {
+
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int windowDays;
+
+    public StockSnapshotService(StockSnapshotRepository stockSnapshotRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${stock.snapshot.window-days:7}") int windowDays) {
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.windowDays = windowDays;
+    }
+
+    // after midnight, with a margin for ledger rows of the closing day still being committed
+    @Scheduled(cron = "${stock.snapshot.cron:0 10 0 * * *}")
+    public void scheduledSnapshot() {
+        this.snapshot(LocalDate.now().minusDays(1));
+    }
+
+    // rewrites the window of days ending with until, one transaction per day; returns the number of days written
+    public int snapshot(LocalDate until) {
+        int days = 0;
+        for (LocalDate day = until.minusDays(windowDays - 1); !day.isAfter(until); day = day.plusDays(1)) {
+            LocalDate current = day;
+            Integer rows = transactionTemplate.execute(status -> {
+                stockSnapshotRepository.deleteSnapshots(current, current);
+                return stockSnapshotRepository.insertSnapshot(current, current.plusDays(1).atStartOfDay());
+            });
+            log.info("Stock snapshot of {} written for {} products", current, rows);
+            days++;
+        }
+        return days;
+    }
+
+    public List<StockQuantity> getStockAt(LocalDateTime at, Long productId) {
+        LocalDate snapshotDay = stockSnapshotRepository.getFirstSnapshotDateFrom(at.toLocalDate());
+        List<Object[]> rows = snapshotDay == null
+                ? stockSnapshotRepository.getStockFromAnchor(at, productId)
+                : stockSnapshotRepository.getStockBefore(snapshotDay, at, snapshotDay.plusDays(1).atStartOfDay(),
+                productId);
+        return rows.stream()
+                .map(row -> new StockQuantity(((Number) row[0]).longValue(), (String) row[1], (String) row[2],
+                        ((Number) row[3]).intValue()))
+                .collect(Collectors.toList());
+    }
+
+    // at: yyyy-MM-ddTHH:mm[:ss], or yyyy-MM-dd for the stock at the end of that day
+    public BaseResponse getStockAt(String at, Long productId) {
+        LocalDateTime instant;
+        try {
+            instant = at.length() == 10 ? LocalDate.parse(at).plusDays(1).atStartOfDay() : LocalDateTime.parse(at);
+        } catch (DateTimeParseException e) {
+            throw new BaseException("Không thể chuyển về thời gian.");
+        }
+        return BaseResponse.builder()
+                .data(this.getStockAt(instant, productId))
+                .statusCode(HttpStatus.OK.value())
+                .message("Tồn kho tại thời điểm " + at)
+                .build();
+    }
+}
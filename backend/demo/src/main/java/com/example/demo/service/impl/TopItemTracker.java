@@ -0,0 +1,270 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.ProductEntity;
+import com.example.demo.entity.ServiceEntity;
+import com.example.demo.entity.enums.OrderLineKind;
+import com.example.demo.event.OrderLinesChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.event.ServiceChangedEvent;
+import com.example.demo.model.params.TimeParams;
+import com.example.demo.model.statistic.OrderLineChange;
+import com.example.demo.model.statistic.StatisticTop;
+import com.example.demo.repository.OrderProductsRepository;
+import com.example.demo.repository.OrderServiceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+// Most sold products and most used services, kept in memory as one SpaceSavingSummary per kind and day.
+// Summaries are loaded from the order lines on startup, fed with the committed line changes and merged
+// over the days of a range, so a top-K answer needs no query. A summary holding every item of its day is exact.
+// Ranges reaching past stat.top.retention-days, and every range with stat.top.mode=exact, are left to the
+// exact queries of the StatisticService.
+// The summaries are rebuilt from the order lines every stat.top.reload-cron, which also corrects lines written
+// without an event. A reload builds new tracks off to the side while the old ones keep answering; changes
+// committed meanwhile are applied to both and replayed on the new tracks before they are swapped in.
+@Slf4j
+@Service
+public class TopItemTracker {
+
+    private final OrderProductsRepository orderProductsRepository;
+    private final OrderServiceRepository orderServiceRepository;
+    private final int capacity;
+    private final int k;
+    private final int retentionDays;
+    private final boolean exact;
+    private final Object lock = new Object();
+
+    private volatile Map<OrderLineKind, Track> tracks = new EnumMap<>(OrderLineKind.class);
+    // changes committed while a reload runs, guarded by lock; null when no reload runs
+    private List<Consumer<Map<OrderLineKind, Track>>> buffered;
+
+    public TopItemTracker(OrderProductsRepository orderProductsRepository,
+                          OrderServiceRepository orderServiceRepository,
+                          @Value("${stat.top.capacity:200}") int capacity,
+                          @Value("${stat.top.k:10}") int k,
+                          @Value("${stat.top.retention-days:400}") int retentionDays,
+                          @Value("${stat.top.mode:sketch}") String mode) {
+        this.orderProductsRepository = orderProductsRepository;
+        this.orderServiceRepository = orderServiceRepository;
+        this.capacity = capacity;
+        this.k = k;
+        this.retentionDays = retentionDays;
+        this.exact = "exact".equalsIgnoreCase(mode);
+    }
+
+    private record Label(String name, Double price, String unit) {
+    }
+
+    private static class Track {
+        private final NavigableMap<LocalDate, SpaceSavingSummary> days = new ConcurrentSkipListMap<>();
+        private final Map<Long, Label> labels = new ConcurrentHashMap<>();
+        // first day with a summary; older lines are only counted by the exact queries
+        private volatile LocalDate coveredFrom;
+        // no line of this kind is older than coveredFrom
+        private volatile boolean complete;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        this.reload();
+    }
+
+    @Scheduled(cron = "${stat.top.reload-cron:0 40 2 * * *}")
+    public void reload() {
+        if (exact) {
+            return;
+        }
+        synchronized (lock) {
+            if (buffered != null) {
+                return;
+            }
+            buffered = new ArrayList<>();
+        }
+        try {
+            LocalDate from = LocalDate.now().minusDays(retentionDays - 1);
+            Map<OrderLineKind, Track> loaded = new EnumMap<>(OrderLineKind.class);
+            loaded.put(OrderLineKind.PRODUCT, this.load(from,
+                    orderProductsRepository.getDailyQuantitiesSince(from.atStartOfDay()),
+                    orderProductsRepository.countCreatedBefore(from.atStartOfDay())));
+            loaded.put(OrderLineKind.SERVICE, this.load(from,
+                    orderServiceRepository.getDailyQuantitiesSince(from.atStartOfDay()),
+                    orderServiceRepository.countCreatedBefore(from.atStartOfDay())));
+            synchronized (lock) {
+                // a change committed just before the read started may be counted twice until the next reload
+                buffered.forEach(change -> change.accept(loaded));
+                tracks = loaded;
+            }
+            log.info("Top item tracker loaded {} product and {} service day summaries from {}",
+                    loaded.get(OrderLineKind.PRODUCT).days.size(), loaded.get(OrderLineKind.SERVICE).days.size(), from);
+        } finally {
+            synchronized (lock) {
+                buffered = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderLinesChanged(OrderLinesChangedEvent event) {
+        if (exact) {
+            return;
+        }
+        List<OrderLineChange> changes = event.getChanges();
+        this.apply(tracks -> changes.forEach(change -> {
+            Track track = tracks.get(change.getKind());
+            if (change.getQuantity() > 0 && change.getName() != null) {
+                track.labels.put(change.getItemId(), new Label(change.getName(), change.getPrice(), change.getUnit()));
+            }
+            LocalDate day = change.getDay() == null ? LocalDate.now() : change.getDay();
+            if (day.isBefore(track.coveredFrom)) {
+                return;
+            }
+            track.days.computeIfAbsent(day, key -> new SpaceSavingSummary(capacity))
+                    .add(change.getItemId(), change.getQuantity());
+        }));
+    }
+
+    // the tops show the current product and service details, like the exact queries
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        ProductEntity product = event.getProduct();
+        if (!exact && product.getId() != null) {
+            this.relabel(OrderLineKind.PRODUCT, product.getId(),
+                    new Label(product.getName(), product.getPriceOut(), product.getUnit()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onServiceChanged(ServiceChangedEvent event) {
+        ServiceEntity service = event.getService();
+        if (!exact && service.getId() != null) {
+            this.relabel(OrderLineKind.SERVICE, service.getId(), new Label(service.getName(), service.getPrice(), null));
+        }
+    }
+
+    @Scheduled(cron = "${stat.top.prune-cron:0 20 0 * * *}")
+    public void prune() {
+        if (exact) {
+            return;
+        }
+        LocalDate from = LocalDate.now().minusDays(retentionDays - 1);
+        this.apply(tracks -> tracks.values().forEach(track -> {
+            if (track.coveredFrom == null || !from.isAfter(track.coveredFrom)) {
+                return;
+            }
+            track.coveredFrom = from;
+            NavigableMap<LocalDate, SpaceSavingSummary> expired = track.days.headMap(from, false);
+            if (!expired.isEmpty()) {
+                track.complete = false;
+                expired.clear();
+            }
+        }));
+    }
+
+    // empty when the range has to be answered by the exact query
+    public Optional<List<StatisticTop>> top(OrderLineKind kind, TimeParams timeParams) {
+        Track track = tracks.get(kind);
+        LocalDateTime start = timeParams.getStartTime();
+        LocalDateTime end = timeParams.getEndTime();
+        boolean bounded = start != null && end != null;
+        if (track == null || !(track.complete || bounded && !start.toLocalDate().isBefore(track.coveredFrom))) {
+            return Optional.empty();
+        }
+        if (bounded && end.isBefore(start)) {
+            return Optional.of(List.of());
+        }
+        // TimeParams ends at midnight after the last day
+        NavigableMap<LocalDate, SpaceSavingSummary> days = bounded
+                ? track.days.subMap(start.toLocalDate(), true, end.minusNanos(1).toLocalDate(), true)
+                : track.days;
+
+        // item id -> {count, error, untracked bounds of the summaries that do track it}
+        Map<Long, long[]> totals = new HashMap<>();
+        long untrackedBounds = 0;
+        for (SpaceSavingSummary summary : days.values()) {
+            long bound = summary.getUntrackedBound();
+            untrackedBounds += bound;
+            summary.snapshot().forEach((id, counter) -> {
+                long[] total = totals.computeIfAbsent(id, key -> new long[3]);
+                total[0] += counter[0];
+                total[1] += counter[1];
+                total[2] += bound;
+            });
+        }
+        // an item missing from a full summary may still have counted up to its bound there
+        long bounds = untrackedBounds;
+        List<StatisticTop> tops = new ArrayList<>();
+        totals.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()[0] + bounds - entry.getValue()[2]))
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(k)
+                .forEach(entry -> {
+                    Label label = track.labels.get(entry.getKey());
+                    tops.add(StatisticTop.builder()
+                            .id(entry.getKey())
+                            .name(label == null ? null : label.name())
+                            .price(label == null ? null : label.price())
+                            .unit(label == null ? null : label.unit())
+                            .quantity(entry.getValue())
+                            .build());
+                });
+        return Optional.of(tops);
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    private void apply(Consumer<Map<OrderLineKind, Track>> change) {
+        synchronized (lock) {
+            change.accept(tracks);
+            if (buffered != null) {
+                buffered.add(change);
+            }
+        }
+    }
+
+    private void relabel(OrderLineKind kind, Long id, Label label) {
+        this.apply(tracks -> {
+            Track track = tracks.get(kind);
+            if (track != null && track.labels.containsKey(id)) {
+                track.labels.put(id, label);
+            }
+        });
+    }
+
+    // rows: day, item id, quantity, name, price, unit
+    private Track load(LocalDate from, List<Object[]> rows, long older) {
+        Track track = new Track();
+        track.coveredFrom = from;
+        for (Object[] row : rows) {
+            LocalDate day = row[0] instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) row[0];
+            long id = ((Number) row[1]).longValue();
+            track.days.computeIfAbsent(day, key -> new SpaceSavingSummary(capacity))
+                    .add(id, ((Number) row[2]).longValue());
+            track.labels.put(id, new Label((String) row[3], row[4] == null ? null : ((Number) row[4]).doubleValue(),
+                    (String) row[5]));
+        }
+        track.complete = older == 0;
+        return track;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.utils;
+
+import com.example.demo.exception.BaseException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Opaque paging token: the (create_date, id) of the last row of the previous page.
+@Getter
+@AllArgsConstructor
+public class SeekCursor {
+    private LocalDateTime createDate;
+    private Long id;
+
+    public String encode() {
+        String raw = createDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SeekCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new SeekCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (Exception e) {
+            throw new BaseException("Con trỏ phân trang không hợp lệ.");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.utils;
+
+import com.google.common.base.Suppliers;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Inserts a row or adds to the one with the same unique key, in one statement per row.
+// MySQL runs the INSERT ... ON DUPLICATE KEY UPDATE form, which locks a duplicate row exclusively at once:
+// writers creating the same row queue on it instead of deadlocking on the shared lock a failed INSERT keeps.
+// Other databases (H2 in the tests) run the MERGE form, with the same arguments. A MERGE that loses the race
+// to insert the row fails on the unique key alone and is run again, now matching the row.
+public class SqlUpsert {
+
+    private static final Set<String> ON_DUPLICATE_KEY_DATABASES = Set.of("MySQL", "MariaDB");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String onDuplicateKeySql;
+    private final String mergeSql;
+    private final Supplier<Boolean> onDuplicateKey;
+
+    public SqlUpsert(JdbcTemplate jdbcTemplate, String onDuplicateKeySql, String mergeSql) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.onDuplicateKeySql = onDuplicateKeySql;
+        this.mergeSql = mergeSql;
+        this.onDuplicateKey = Suppliers.memoize(() -> ON_DUPLICATE_KEY_DATABASES.contains(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName())));
+    }
+
+    public void execute(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (onDuplicateKey.get()) {
+            jdbcTemplate.batchUpdate(onDuplicateKeySql, rows);
+            return;
+        }
+        for (Object[] row : rows) {
+            try {
+                jdbcTemplate.update(mergeSql, row);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.update(mergeSql, row);
+            }
+        }
+    }
+}
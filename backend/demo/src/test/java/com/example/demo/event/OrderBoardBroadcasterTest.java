@@ -0,0 +1,107 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.enums.OrderAction;
+import com.example.demo.model.response.orderReponse.BaseOrder;
+import com.example.demo.model.response.orderReponse.OrderBoardEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderBoardBroadcasterTest {
+
+    @Test
+    void testOnOrderChanged_fansOutToEverySubscriber() {
+        // Arrange
+        OrderBoardBroadcaster broadcaster = new OrderBoardBroadcaster(Runnable::run, 4, 10);
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        broadcaster.register(first, null);
+        broadcaster.register(second, null);
+
+        // Act
+        broadcaster.onOrderChanged(changed(7L, OrderAction.CREATED));
+
+        // Assert
+        assertEquals(List.of(1L), first.ids());
+        assertEquals(List.of(1L), second.ids());
+        assertEquals(7L, first.events.get(0).getOrder().getId());
+    }
+
+    @Test
+    void testOnOrderChanged_dropsSlowSubscriber() {
+        // Arrange: the sender never runs, so the queue only fills
+        List<Runnable> pending = new ArrayList<>();
+        OrderBoardBroadcaster broadcaster = new OrderBoardBroadcaster(pending::add, 2, 10);
+        RecordingSink slow = new RecordingSink();
+        broadcaster.register(slow, null);
+
+        // Act
+        for (long i = 1; i <= 3; i++) {
+            broadcaster.onOrderChanged(changed(i, OrderAction.UPDATED));
+        }
+
+        // Assert
+        assertTrue(slow.closed);
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    @Test
+    void testRegister_replaysEventsAfterLastEventId() {
+        // Arrange
+        OrderBoardBroadcaster broadcaster = new OrderBoardBroadcaster(Runnable::run, 4, 10);
+        for (long i = 1; i <= 3; i++) {
+            broadcaster.onOrderChanged(changed(i, OrderAction.UPDATED));
+        }
+        RecordingSink resumed = new RecordingSink();
+
+        // Act
+        broadcaster.register(resumed, 1L);
+
+        // Assert
+        assertEquals(List.of(2L, 3L), resumed.ids());
+    }
+
+    @Test
+    void testRegister_sendsResetWhenHistoryNoLongerCoversTheGap() {
+        // Arrange
+        OrderBoardBroadcaster broadcaster = new OrderBoardBroadcaster(Runnable::run, 4, 2);
+        for (long i = 1; i <= 5; i++) {
+            broadcaster.onOrderChanged(changed(i, OrderAction.UPDATED));
+        }
+        RecordingSink resumed = new RecordingSink();
+
+        // Act
+        broadcaster.register(resumed, 1L);
+
+        // Assert
+        assertEquals(1, resumed.events.size());
+        assertNull(resumed.events.get(0).getAction());
+        assertEquals(5L, resumed.events.get(0).getId());
+    }
+
+    private static OrderChangedEvent changed(long orderId, OrderAction action) {
+        return new OrderChangedEvent(BaseOrder.builder().id(orderId).build(), action);
+    }
+
+    private static class RecordingSink implements OrderBoardBroadcaster.Sink {
+        private final List<OrderBoardEvent> events = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public void send(OrderBoardEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private List<Long> ids() {
+            return events.stream().map(OrderBoardEvent::getId).toList();
+        }
+    }
+}
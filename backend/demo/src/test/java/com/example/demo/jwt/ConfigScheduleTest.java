@@ -2,24 +2,29 @@ package com.example.demo.jwt;
 
 import com.example.demo.entity.ForgotPasswordEntity;
 import com.example.demo.repository.ForgotPasswordRepository;
+import com.example.demo.repository.IdempotencyKeyRepository;
 import com.example.demo.schedule.ConfigSchedule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 public class ConfigScheduleTest {
 
     private ForgotPasswordRepository forgotPasswordRepository;
+    private IdempotencyKeyRepository idempotencyKeyRepository;
     private ConfigSchedule configSchedule;
 
     @BeforeEach
     void setUp() {
         forgotPasswordRepository = mock(ForgotPasswordRepository.class);
-        configSchedule = new ConfigSchedule(forgotPasswordRepository);
+        idempotencyKeyRepository = mock(IdempotencyKeyRepository.class);
+        configSchedule = new ConfigSchedule(forgotPasswordRepository, idempotencyKeyRepository);
     }
 
     @Test
@@ -51,4 +56,13 @@ public class ConfigScheduleTest {
         verify(forgotPasswordRepository, times(1)).getListByExpiredTime();
         verify(forgotPasswordRepository, times(1)).deleteAll(List.of());
     }
+
+    @Test
+    void testPurgeIdempotencyKeys_deletesExpiredKeys() {
+        // Act
+        configSchedule.purgeIdempotencyKeys();
+
+        // Assert
+        verify(idempotencyKeyRepository, times(1)).deleteCreatedBefore(any(LocalDateTime.class));
+    }
 }
@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.EmployeeEntity;
+import com.example.demo.entity.ServiceEntity;
+import com.example.demo.entity.enums.OrderAction;
+import com.example.demo.event.EmployeeChangedEvent;
+import com.example.demo.event.LedgerAppendedEvent;
+import com.example.demo.event.OrderChangedEvent;
+import com.example.demo.event.ServiceChangedEvent;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.StatisticCacheStats;
+import com.example.demo.model.response.orderReponse.BaseOrder;
+import com.example.demo.service.impl.CachedStatisticService;
+import com.example.demo.service.impl.StatisticService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class CachedStatisticServiceTest {
+
+    private StatisticService statisticService;
+    private CachedStatisticService cache;
+
+    @BeforeEach
+    void setUp() {
+        statisticService = mock(StatisticService.class);
+        when(statisticService.statisticHistoryProductIn(anyMap()))
+                .thenAnswer(invocation -> BaseResponse.builder().data(invocation.getArgument(0)).build());
+        when(statisticService.statisticTopService(anyMap()))
+                .thenAnswer(invocation -> BaseResponse.builder().data(invocation.getArgument(0)).build());
+        when(statisticService.statisticServices(anyMap()))
+                .thenAnswer(invocation -> BaseResponse.builder().data(invocation.getArgument(0)).build());
+        when(statisticService.statisticSalaryEmployee(anyMap()))
+                .thenAnswer(invocation -> BaseResponse.builder().data(invocation.getArgument(0)).build());
+        cache = new CachedStatisticService(statisticService, 3, 10);
+    }
+
+    @Test
+    void testGet_servesRepeatedQueryFromCache() {
+        BaseResponse first = cache.statisticHistoryProductIn(Map.of("startTime", day(-2), "endTime", day(0)));
+        // same query with parameters the report does not read
+        BaseResponse second = cache.statisticHistoryProductIn(Map.of("startTime", day(-2), "endTime", day(0),
+                "sortBy", "name"));
+
+        assertSame(first, second);
+        verify(statisticService, times(1)).statisticHistoryProductIn(anyMap());
+        StatisticCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(0.5, stats.getHitRate());
+    }
+
+    @Test
+    void testOnLedgerAppended_dropsOnlyRangesCoveringToday() {
+        Map<String, String> today = Map.of("startTime", day(-2), "endTime", day(0));
+        Map<String, String> lastMonth = Map.of("startTime", day(-40), "endTime", day(-30));
+        Map<String, String> topServices = Map.of("startTime", day(-2), "endTime", day(0));
+        cache.statisticHistoryProductIn(today);
+        cache.statisticHistoryProductIn(lastMonth);
+        cache.statisticTopService(topServices);
+
+        cache.onLedgerAppended(new LedgerAppendedEvent(List.of()));
+        cache.statisticHistoryProductIn(today);
+        cache.statisticHistoryProductIn(lastMonth);
+        cache.statisticTopService(topServices);
+
+        verify(statisticService, times(2)).statisticHistoryProductIn(today);
+        verify(statisticService, times(1)).statisticHistoryProductIn(lastMonth);
+        verify(statisticService, times(1)).statisticTopService(topServices);
+        assertEquals(1, cache.getStats().getInvalidatedCount());
+    }
+
+    @Test
+    void testOnOrderChanged_dropsOnlyOrderReports() {
+        Map<String, String> params = Map.of("startTime", day(-2), "endTime", day(0));
+        cache.statisticHistoryProductIn(params);
+        cache.statisticTopService(params);
+
+        cache.onOrderChanged(new OrderChangedEvent(BaseOrder.builder().id(1L)
+                .createDate(LocalDate.now().minusDays(1).atStartOfDay()).build(), OrderAction.UPDATED));
+        cache.statisticHistoryProductIn(params);
+        cache.statisticTopService(params);
+
+        verify(statisticService, times(1)).statisticHistoryProductIn(params);
+        verify(statisticService, times(2)).statisticTopService(params);
+    }
+
+    @Test
+    void testOnEmployeeAndServiceChanged_dropReportsShowingThem() {
+        Map<String, String> params = Map.of("pageNumber", "1");
+        cache.statisticServices(params);
+        cache.statisticSalaryEmployee(params);
+
+        cache.onEmployeeChanged(new EmployeeChangedEvent(new EmployeeEntity()));
+        cache.statisticServices(params);
+        cache.statisticSalaryEmployee(params);
+        verify(statisticService, times(1)).statisticServices(params);
+        verify(statisticService, times(2)).statisticSalaryEmployee(params);
+
+        cache.onServiceChanged(new ServiceChangedEvent(new ServiceEntity()));
+        cache.statisticServices(params);
+        cache.statisticSalaryEmployee(params);
+        verify(statisticService, times(2)).statisticServices(params);
+        verify(statisticService, times(2)).statisticSalaryEmployee(params);
+    }
+
+    @Test
+    void testGet_evictsBeyondMaxSize() {
+        for (int i = 0; i < 10; i++) {
+            cache.statisticHistoryProductIn(Map.of("pageNumber", String.valueOf(i + 1)));
+        }
+
+        StatisticCacheStats stats = cache.getStats();
+        assertTrue(stats.getSize() <= 3);
+        assertTrue(stats.getEvictionCount() >= 7);
+        assertEquals(10, stats.getLoadCount());
+    }
+
+    private static String day(int offset) {
+        return LocalDate.now().plusDays(offset).toString();
+    }
+}
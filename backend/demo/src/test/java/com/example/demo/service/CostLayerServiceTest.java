@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.enums.Action;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.model.response.InventoryValuation;
+import com.example.demo.model.response.ProductValuation;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.service.impl.CostLayerService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@DataJpaTest
+@Import({CostLayerService.class, StockLedgerWriter.class, PublisherEvent.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = {"/sql/import_cost_clean_up.sql", "/sql/import_stock_clean_up.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class CostLayerServiceTest extends AbstractBaseTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private CostLayerService costLayerService;
+
+    @Autowired
+    private StockLedgerWriter stockLedgerWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+
+    @BeforeEach
+    public void setUp() {
+        productId = jdbcTemplate.queryForObject("select min(id) from products where code like 'STK%'", Long.class);
+        this.append(this.entry(productId, 10, 100.0), this.entry(productId, 5, 120.0));
+        this.append(this.entry(productId, -12, 130.0));
+        // the stored 120 layer goes before the one opened in the same batch
+        this.append(this.entry(productId, 4, 150.0), this.entry(productId, -2, 130.0));
+        this.append(this.entry(productId, -3, 130.0));
+    }
+
+    @Test
+    @DisplayName("Exports consume the oldest layers and used-up layers are dropped")
+    public void exports_consume_layers_fifo() {
+        // 10 x 100 + 2 x 120, then 2 x 120, then 1 x 120 + 2 x 150
+        Assertions.assertEquals(List.of(1000.0, 600.0, -1240.0, 600.0, -240.0, -420.0), jdbcTemplate.queryForList(
+                "select amount from cost_movement order by id", Double.class));
+        Assertions.assertEquals(List.of(Map.of("UNIT_COST", 150.0, "REMAINING", 2)), jdbcTemplate.queryForList(
+                "select unit_cost, remaining from cost_layer"));
+
+        InventoryValuation valuation = costLayerService.getValuation(TODAY, TODAY);
+        ProductValuation product = valuation.getProducts().get(0);
+        Assertions.assertEquals(19, product.getImportedQuantity());
+        Assertions.assertEquals(17, product.getExportedQuantity());
+        Assertions.assertEquals(1900.0, valuation.getCogs(), 1e-9);
+        Assertions.assertEquals(300.0, valuation.getClosingValue(), 1e-9);
+        Assertions.assertEquals(0.0, valuation.getOpeningValue(), 1e-9);
+        // before today nothing was in stock yet
+        Assertions.assertEquals(List.of(), costLayerService.getValuation(TODAY.minusDays(7), TODAY.minusDays(1))
+                .getProducts());
+    }
+
+    @Test
+    @DisplayName("Units exported without a layer are costed at the row's price and replay matches the live state")
+    public void rebuild_matches_live_layers() {
+        Long other = productId + 1;
+        this.append(this.entry(other, -2, 80.0));
+        Assertions.assertEquals(-160.0, jdbcTemplate.queryForObject(
+                "select amount from cost_movement where product_id = ?", Double.class, other));
+
+        List<Map<String, Object>> layers = jdbcTemplate.queryForList(
+                "select product_id, unit_cost, remaining from cost_layer order by product_id");
+        List<Map<String, Object>> movements = jdbcTemplate.queryForList(
+                "select product_id, quantity, amount from cost_movement order by product_id, id");
+
+        Assertions.assertEquals(7, costLayerService.rebuild());
+        Assertions.assertEquals(layers, jdbcTemplate.queryForList(
+                "select product_id, unit_cost, remaining from cost_layer order by product_id"));
+        Assertions.assertEquals(movements, jdbcTemplate.queryForList(
+                "select product_id, quantity, amount from cost_movement order by product_id, id"));
+    }
+
+    private void append(LedgerEntry... entries) {
+        transactionTemplate.executeWithoutResult(status -> stockLedgerWriter.append(List.of(entries)));
+    }
+
+    private LedgerEntry entry(Long productId, int difference, double priceIn) {
+        return LedgerEntry.builder()
+                .productId(productId)
+                .priceIn(priceIn)
+                .difference(difference)
+                .action(difference >= 0 ? Action.IMPORT : Action.EXPORT)
+                .build();
+    }
+}
@@ -2,13 +2,16 @@ package com.example.demo.service;
 
 import com.example.demo.entity.AccountEntity;
 import com.example.demo.entity.CustomerEntity;
+import com.example.demo.entity.OrderSummaryEntity;
 import com.example.demo.entity.enums.Role;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.request.CustomerRequest;
 import com.example.demo.repository.AccountRepository;
 import com.example.demo.repository.CustomerRepository;
+import com.example.demo.repository.OrderSummaryRepository;
 import com.example.demo.service.impl.CustomerImplService;
+import com.example.demo.service.impl.OrderSummaryService;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,6 +21,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.util.Optional;
@@ -26,7 +30,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @Slf4j
 @DataJpaTest
-@Import(CustomerImplService.class)
+@Import({CustomerImplService.class, OrderSummaryService.class})
 @Sql(value = "/sql/import_customer.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @Sql(value = "/sql/import_customer_clean_up.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
 public class CustomerServiceTest /* extends AbstractBaseTest */ {
@@ -40,6 +44,12 @@ public class CustomerServiceTest /* extends AbstractBaseTest */ {
     @Autowired
     private CustomerImplService customerService;
 
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @MockBean
     private StoreService storeService; // Mock the dependency
 
@@ -140,6 +150,20 @@ public class CustomerServiceTest /* extends AbstractBaseTest */ {
         assertTrue(updatedCustomer.get().getModifyDate().isAfter(updatedCustomer.get().getCreateDate()));
     }
 
+    @Test
+    @DisplayName("Customer T05.1: Rename is copied to the order summary")
+    void update_renames_order_summary() {
+        customerRepository.save(customerEntity);
+        orderSummaryRepository.save(OrderSummaryEntity.builder()
+                .id(1L).customerId(1L).customerName("John Doe").searchCustomerName("JOHN DOE").build());
+        customerRequest.setName("John Updated");
+
+        customerService.update(customerRequest, 1L);
+
+        assertEquals("JOHN UPDATED", jdbcTemplate.queryForObject(
+                "select search_customer_name from order_summary where id = 1", String.class));
+    }
+
     @Test
     @DisplayName("Customer T06: Update non-existing customer")
     void update_CustomerNotFound_Failure() {
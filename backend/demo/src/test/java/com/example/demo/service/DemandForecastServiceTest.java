@@ -0,0 +1,128 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.enums.Action;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.model.response.ReorderSuggestion;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.service.impl.DemandForecastService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@DataJpaTest
+@Import({DemandForecastService.class, StockLedgerWriter.class, PublisherEvent.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {"forecast.flush-delay-ms=3600000", "forecast.backfill-chunk=7"})
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = {"/sql/import_forecast_clean_up.sql", "/sql/import_stock_clean_up.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class DemandForecastServiceTest extends AbstractBaseTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private DemandForecastService demandForecastService;
+
+    @Autowired
+    private StockLedgerWriter stockLedgerWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> productIds;
+
+    @BeforeEach
+    public void setUp() {
+        productIds = jdbcTemplate.queryForList("select id from products where code like 'STK%' order by id",
+                Long.class);
+        Long productId = productIds.get(0);
+        // sales of 4, nothing, 2 on the three days before today and 5 today; imports and count adjustments
+        // do not count
+        this.ledger(productId, TODAY.minusDays(3).atTime(8, 0), -3, true);
+        this.ledger(productId, TODAY.minusDays(3).atTime(17, 0), -1, true);
+        this.ledger(productId, TODAY.minusDays(2).atTime(9, 0), 20, false);
+        this.ledger(productId, TODAY.minusDays(2).atTime(10, 0), -6, false);
+        this.ledger(productId, TODAY.minusDays(1).atTime(9, 0), -2, true);
+        this.ledger(productId, TODAY.atStartOfDay(), -5, true);
+    }
+
+    @Test
+    @DisplayName("Backfill folds daily exports into the moving mean and variance")
+    public void backfill_seeds_moving_statistics() {
+        Assertions.assertEquals(1, demandForecastService.backfill());
+
+        // mean 4 -> 3.6 -> 3.44, variance 0 -> 0.9 * 1.6 = 1.44 -> 0.9 * (1.44 + 1.6 * 0.16) = 1.5264
+        Map<String, Object> row = jdbcTemplate.queryForMap("select * from demand_forecast where product_id = ?",
+                productIds.get(0));
+        Assertions.assertEquals(3.44, ((Number) row.get("DAILY_MEAN")).doubleValue(), 1e-9);
+        Assertions.assertEquals(1.5264, ((Number) row.get("DAILY_VARIANCE")).doubleValue(), 1e-9);
+        Assertions.assertEquals(3, ((Number) row.get("FOLDED_DAYS")).intValue());
+        Assertions.assertEquals(5, ((Number) row.get("BUCKET_QUANTITY")).intValue());
+
+        // reorder point ceil(3.44 * 7 + 1.65 * 1.2355 * sqrt(7)) = 30, order up to ceil(3.44 * 21 + ...) = 82
+        List<ReorderSuggestion> suggestions = demandForecastService.getSuggestions(false);
+        Assertions.assertEquals(1, suggestions.size());
+        Assertions.assertEquals(30, suggestions.get(0).getReorderPoint());
+        Assertions.assertEquals(72, suggestions.get(0).getSuggestedQuantity());
+    }
+
+    @Test
+    @DisplayName("Committed exports update today's count without reading history again")
+    public void ledger_rows_update_the_current_day() {
+        demandForecastService.backfill();
+
+        transactionTemplate.executeWithoutResult(status -> stockLedgerWriter.append(List.of(
+                this.entry(productIds.get(0), -3, Action.EXPORT, true),
+                this.entry(productIds.get(0), 4, Action.IMPORT, false),
+                this.entry(productIds.get(0), -7, Action.EXPORT, false),
+                this.entry(productIds.get(1), -1, Action.EXPORT, true))));
+        demandForecastService.flush();
+
+        Assertions.assertEquals(List.of(8, 1), jdbcTemplate.queryForList(
+                "select bucket_quantity from demand_forecast order by product_id", Integer.class));
+        // the new product has no closed day yet, so there is nothing to suggest for it
+        Assertions.assertEquals(List.of(productIds.get(0)), demandForecastService.getSuggestions(true).stream()
+                .map(ReorderSuggestion::getProductId).toList());
+    }
+
+    private LedgerEntry entry(Long productId, int difference, Action action, boolean sale) {
+        return LedgerEntry.builder()
+                .productId(productId)
+                .difference(difference)
+                .quantityLeft(0)
+                .action(action)
+                .sale(sale)
+                .build();
+    }
+
+    private void ledger(Long productId, LocalDateTime at, int difference, boolean sale) {
+        jdbcTemplate.update("insert into history_product (product_id, difference, quantity_left, action, " +
+                        "sale, create_date) values (?, ?, 0, ?, ?, ?)", productId, difference,
+                difference >= 0 ? "IMPORT" : "EXPORT", sale, Timestamp.valueOf(at));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.GoodsReceiptReport;
+import com.example.demo.model.response.ImportError;
+import com.example.demo.service.impl.GoodsReceiptService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import com.example.demo.service.impl.StockMutationService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Slf4j
+@DataJpaTest
+@Import({GoodsReceiptService.class, StockMutationService.class, StockLedgerWriter.class,
+        JacksonAutoConfiguration.class, StatementCounter.class, PublisherEvent.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = "/sql/import_stock_clean_up.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class GoodsReceiptServiceTest extends AbstractBaseTest {
+
+    @Autowired
+    private GoodsReceiptService goodsReceiptService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Test
+    @DisplayName("A 5,000-line delivery posts with a fixed number of statements")
+    public void receive_large_csv_delivery() {
+        // 5,000 lines over the 30 seeded products: 167 units each for the first 20, 166 for the rest
+        String csv = "code,quantity\n" + IntStream.range(0, 5000)
+                .mapToObj(i -> String.format("STK%03d,1", i % 30 + 1))
+                .collect(Collectors.joining("\n"));
+
+        statementCounter.reset();
+        BaseResponse<GoodsReceiptReport> response = goodsReceiptService.receive(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "text/csv", null);
+        GoodsReceiptReport report = response.getData();
+        log.info("Received {} lines in {} ms", report.getLines(), report.getElapsedMillis());
+
+        Assertions.assertEquals(HttpStatus.CREATED.value(), response.getStatusCode());
+        Assertions.assertEquals(5000, report.getLines());
+        Assertions.assertEquals(30, report.getProducts());
+        Assertions.assertEquals(5000, report.getUnits());
+        Assertions.assertEquals(10 + 167, report.getReceived().get(0).getQuantityLeft());
+        Assertions.assertEquals(10 + 166, report.getReceived().get(29).getQuantityLeft());
+        // code lookup, guarded update batch, read-back, ledger insert batch and ledger code batch
+        Assertions.assertEquals(5, statementCounter.count());
+        Assertions.assertEquals(30, jdbcTemplate.queryForObject(
+                "select count(*) from history_product where action = 'IMPORT'", Integer.class));
+        Assertions.assertEquals(300 + 5000, jdbcTemplate.queryForObject(
+                "select sum(storage_quantity) from products where code like 'STK%'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("A delivery with any bad line posts nothing and reports every bad line")
+    public void receive_rejects_whole_note() {
+        String ndjson = String.join("\n",
+                "{\"code\":\"STK001\",\"quantity\":5}",
+                "{\"code\":\"NOPE\",\"quantity\":5}",
+                "{\"code\":\"STK002\",\"quantity\":0}",
+                "not json",
+                "",
+                "{\"code\":\"STK003\",\"quantity\":2}");
+
+        BaseResponse<GoodsReceiptReport> response = goodsReceiptService.receive(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), "application/x-ndjson", "Giao");
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatusCode());
+        Assertions.assertEquals(5, response.getData().getLines());
+        Assertions.assertEquals(3, response.getData().getFailed());
+        Assertions.assertEquals(List.of(2L, 3L, 4L), response.getData().getErrors().stream()
+                .map(ImportError::getLine).collect(Collectors.toList()));
+        Assertions.assertEquals(300, jdbcTemplate.queryForObject(
+                "select sum(storage_quantity) from products where code like 'STK%'", Integer.class));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from history_product",
+                Integer.class));
+    }
+
+    @Test
+    @DisplayName("Codes match without regard to case and a quantity past the int range is rejected")
+    public void receive_normalises_codes() {
+        String ndjson = String.join("\n",
+                "{\"code\":\"stk001\",\"quantity\":5}",
+                "{\"code\":\" STK001 \",\"quantity\":2}",
+                "{\"code\":\"Stk002\",\"quantity\":" + Integer.MAX_VALUE + "}",
+                "{\"code\":\"stk002\",\"quantity\":1}");
+
+        BaseResponse<GoodsReceiptReport> response = goodsReceiptService.receive(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), "application/x-ndjson", null);
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatusCode());
+        Assertions.assertEquals(List.of(4L), response.getData().getErrors().stream()
+                .map(ImportError::getLine).collect(Collectors.toList()));
+
+        response = goodsReceiptService.receive(new ByteArrayInputStream(String.join("\n",
+                "{\"code\":\"stk001\",\"quantity\":5}",
+                "{\"code\":\" STK001 \",\"quantity\":2}").getBytes(StandardCharsets.UTF_8)),
+                "application/x-ndjson", null);
+
+        Assertions.assertEquals(HttpStatus.CREATED.value(), response.getStatusCode());
+        Assertions.assertEquals(1, response.getData().getProducts());
+        Assertions.assertEquals("STK001", response.getData().getReceived().get(0).getCode());
+        Assertions.assertEquals(10 + 7, response.getData().getReceived().get(0).getQuantityLeft());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.exception.BaseException;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
@@ -9,6 +10,8 @@ import com.example.demo.model.response.HistoryProductResponse;
 import com.example.demo.repository.HistoryProductRepository;
 import com.example.demo.repository.ProductRepository;
 import com.example.demo.service.impl.HistoryProductImplService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import com.example.demo.service.impl.StockMutationService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,11 +22,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 @DataJpaTest // Chạy test với cấu hình JPA, sẽ khởi tạo EntityManager, Repository,...
-@Import({HistoryProductImplService.class}) // Import service cần test
+@Import({HistoryProductImplService.class, StockMutationService.class, StockLedgerWriter.class,
+        StatementCounter.class, PublisherEvent.class}) // Import service cần test
 @Sql( // Import dữ liệu mẫu trước và dọn dữ liệu sau khi test
         value = "/sql/import_product.sql",
         executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
@@ -43,6 +48,9 @@ public class HistoryProductServiceTest extends AbstractBaseTest {
     @Autowired
     private HistoryProductImplService historyProductImplService;
 
+    @Autowired
+    private StatementCounter statementCounter;
+
     @Test
     @DisplayName("Get all history product test")
     public void get_all_history_product_test() {
@@ -126,6 +134,33 @@ public class HistoryProductServiceTest extends AbstractBaseTest {
         Assertions.assertEquals("Lịch sử hành động thành công.", response.getMessage());
     }
 
+    @Test
+    @DisplayName("Create history product with many lines uses a constant number of statements")
+    public void create_history_batches_lines() {
+        List<Long> productIds = productRepository.findAll().stream().map(product -> product.getId()).toList();
+        List<HistoryDetail> details = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            details.add(HistoryDetail.builder().productId(productIds.get(i % productIds.size()))
+                    .difference(i % 2 == 0 ? 1 : -1).build());
+        }
+        var historyProductRequest = HistoryProductRequest.builder().note("Kiểm kê").historyDetails(details).build();
+        long before = historyProductRepository.count();
+
+        statementCounter.reset();
+        this.historyProductImplService.createHistory(historyProductRequest, false, true);
+        // one product read, one ledger insert batch and one code batch
+        Assertions.assertEquals(1, statementCounter.count("from products"));
+        Assertions.assertEquals(2, statementCounter.count("history_product"));
+        Assertions.assertEquals(before + 200, historyProductRepository.count());
+
+        statementCounter.reset();
+        this.historyProductImplService.createHistory(historyProductRequest, true, true);
+        // one guarded update batch and one read for the whole adjustment, still one ledger row per line
+        Assertions.assertEquals(2, statementCounter.count("products set") + statementCounter.count("from products"));
+        Assertions.assertEquals(2, statementCounter.count("history_product"));
+        Assertions.assertEquals(before + 400, historyProductRepository.count());
+    }
+
     @Test
     @DisplayName("Get history product by conditions")
     public void get_history_product_by_condition() {
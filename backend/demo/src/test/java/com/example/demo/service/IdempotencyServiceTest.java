@@ -0,0 +1,198 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.AccountEntity;
+import com.example.demo.entity.IdempotencyKeyEntity;
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.repository.IdempotencyKeyRepository;
+import com.example.demo.security.CustomUserDetail;
+import com.example.demo.service.impl.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+@DataJpaTest
+@Import({IdempotencyService.class, JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdempotencyServiceTest extends AbstractBaseTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @AfterEach
+    public void cleanUp() {
+        SecurityContextHolder.clearContext();
+        idempotencyKeyRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Replay returns the first response without running again")
+    public void replay_returns_first_response() {
+        BaseResponse first = idempotencyService.execute("key-1", "POST /api/orders", this::body, this::createOrder);
+        BaseResponse second = idempotencyService.execute("key-1", "POST /api/orders", this::body, this::createOrder);
+
+        Assertions.assertEquals(1, runs.get());
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, idempotencyKeyRepository.count());
+    }
+
+    @Test
+    @DisplayName("Key used for another endpoint is rejected")
+    public void key_reused_for_other_scope() {
+        idempotencyService.execute("key-2", "POST /api/orders", this::body, this::createOrder);
+
+        Assertions.assertThrows(BaseException.class,
+                () -> idempotencyService.execute("key-2", "POST /api/history", this::body, this::createOrder));
+    }
+
+    @Test
+    @DisplayName("Key reused by another account runs its own request")
+    public void key_reused_by_other_account() {
+        this.signIn(1L);
+        BaseResponse first = idempotencyService.execute("key-6", "POST /api/orders", this::body, this::createOrder);
+        this.signIn(2L);
+        BaseResponse second = idempotencyService.execute("key-6", "POST /api/orders", this::body, this::createOrder);
+
+        Assertions.assertEquals(2, runs.get());
+        Assertions.assertNotEquals(first.getData(), second.getData());
+        Assertions.assertEquals(2, idempotencyKeyRepository.count());
+    }
+
+    @Test
+    @DisplayName("Key retried with another body is rejected, from memory and from the table")
+    public void key_reused_with_other_body() {
+        idempotencyService.execute("key-7", "POST /api/orders", this::body, this::createOrder);
+
+        Assertions.assertThrows(BaseException.class, () -> idempotencyService.execute("key-7", "POST /api/orders",
+                () -> "other-body", this::createOrder));
+        // a fresh instance only has the stored row
+        IdempotencyService restarted = new IdempotencyService(idempotencyKeyRepository, transactionTemplate,
+                objectMapper);
+        Assertions.assertThrows(BaseException.class, () -> restarted.execute("key-7", "POST /api/orders",
+                () -> "other-body", this::createOrder));
+        Assertions.assertEquals(1, restarted.execute("key-7", "POST /api/orders", this::body, this::createOrder)
+                .getData());
+        Assertions.assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("Key older than the TTL is treated as a new request")
+    public void expired_key_runs_again() {
+        idempotencyService.execute("key-9", "POST /api/orders", this::body, this::createOrder);
+        IdempotencyKeyEntity stored = idempotencyKeyRepository.getByKey("-:key-9").orElseThrow();
+        stored.setCreateAt(LocalDateTime.now().minus(IdempotencyService.TTL).minusMinutes(1));
+        idempotencyKeyRepository.save(stored);
+
+        // a fresh instance only has the stored row, which is past the TTL
+        IdempotencyService restarted = new IdempotencyService(idempotencyKeyRepository, transactionTemplate,
+                objectMapper);
+        Assertions.assertEquals(2, restarted.execute("key-9", "POST /api/orders", this::body, this::createOrder)
+                .getData());
+        Assertions.assertEquals(2, restarted.execute("key-9", "POST /api/orders", this::body, this::createOrder)
+                .getData());
+        Assertions.assertEquals(2, runs.get());
+    }
+
+    @Test
+    @DisplayName("Failed request releases the key")
+    public void failed_request_releases_key() {
+        Assertions.assertThrows(BaseException.class, () -> idempotencyService.execute("key-3", "POST /api/orders",
+                this::body, () -> {
+                    throw new BaseException("Hết hàng.");
+                }));
+        idempotencyService.execute("key-3", "POST /api/orders", this::body, this::createOrder);
+
+        Assertions.assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("Constraint violation raised by the request itself is not taken for a duplicate key")
+    public void request_violation_propagates() {
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> idempotencyService.execute("key-5",
+                "POST /api/orders", this::body, () -> {
+                    throw new DataIntegrityViolationException("Mã đơn hàng đã tồn tại.");
+                }));
+
+        Assertions.assertEquals(0, idempotencyKeyRepository.count());
+    }
+
+    @Test
+    @DisplayName("Concurrent duplicates wait for the first request")
+    public void concurrent_duplicates_run_once() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<BaseResponse>> calls = IntStream.range(0, 8)
+                    .<Callable<BaseResponse>>mapToObj(i -> () -> idempotencyService.execute("key-4",
+                            "POST /api/orders", this::body, this::slowCreateOrder))
+                    .toList();
+            for (Future<BaseResponse> future : executor.invokeAll(calls)) {
+                Assertions.assertEquals(HttpStatus.CREATED.value(), future.get().getStatusCode());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(1, runs.get());
+    }
+
+    private String body() {
+        return "body";
+    }
+
+    private void signIn(Long accountId) {
+        AccountEntity account = new AccountEntity();
+        account.setId(accountId);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new CustomUserDetail(account), null));
+    }
+
+    private BaseResponse createOrder() {
+        return BaseResponse.builder()
+                .statusCode(HttpStatus.CREATED.value())
+                .message("tạo đơn hàng thành công.")
+                .data(runs.incrementAndGet())
+                .build();
+    }
+
+    private BaseResponse slowCreateOrder() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return this.createOrder();
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo.service;
+
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.impl.InventoryJournalService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import com.example.demo.service.impl.StockMutationService;
+import com.example.demo.service.impl.StockReservationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+@DataJpaTest
+@Import({StockMutationService.class, StockReservationService.class, StockLedgerWriter.class,
+        InventoryJournalService.class, PublisherEvent.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "inventory.journal.enabled=true",
+        "inventory.journal.directory=target/inventory-journal-${random.uuid}",
+        "inventory.journal.apply-initial-delay-ms=3600000"
+})
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = "/sql/import_stock_clean_up.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class InventoryJournalServiceTest extends AbstractBaseTest {
+
+    @Autowired
+    private StockMutationService stockMutationService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private InventoryJournalService inventoryJournalService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockLedgerWriter stockLedgerWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path restartDirectory;
+
+    private Long productId;
+
+    @BeforeEach
+    public void setUp() {
+        productId = jdbcTemplate.queryForObject("select min(id) from products where code like 'STK%'", Long.class);
+    }
+
+    @Test
+    @DisplayName("Journaled movements count against stock before they are applied in one batch")
+    public void journaled_movements_are_applied_later() throws Exception {
+        Assertions.assertEquals(4, stockMutationService.apply(productId, -6, "Bán"));
+        // the stored quantity only moves when the applier runs, but the pending -6 is already counted
+        Assertions.assertEquals(10, this.storageQuantity());
+        Assertions.assertThrows(InsufficientStockException.class,
+                () -> stockMutationService.apply(productId, -6, "Bán"));
+        Assertions.assertEquals(7, stockMutationService.apply(productId, 3, "Nhập"));
+
+        Assertions.assertEquals(2, inventoryJournalService.applyPending());
+        Assertions.assertEquals(7, this.storageQuantity());
+        Assertions.assertEquals(List.of(Map.of("DIFFERENCE", -6, "QUANTITY_LEFT", 4, "ACTION", "EXPORT"),
+                        Map.of("DIFFERENCE", 3, "QUANTITY_LEFT", 7, "ACTION", "IMPORT")),
+                jdbcTemplate.queryForList("select difference, quantity_left, action from history_product " +
+                        "where product_id = ? order by id", productId));
+        Assertions.assertEquals(0, inventoryJournalService.applyPending());
+        Assertions.assertEquals(0, inventoryJournalService.getPendingProducts());
+    }
+
+    @Test
+    @DisplayName("Journaled removals only take the stock no location holds")
+    public void journaled_removal_leaves_location_stock() throws Exception {
+        // 7 of the 10 units sit at a location, and a location sale of 2 is not folded in yet
+        jdbcTemplate.update("insert into location_stock (location_id, product_id, quantity) values (1, ?, 5)",
+                productId);
+        jdbcTemplate.update("insert into stock_delta (product_id, difference) values (?, -2)", productId);
+
+        Assertions.assertThrows(InsufficientStockException.class,
+                () -> stockMutationService.apply(productId, -4, "Bán"));
+        Assertions.assertEquals(7, stockMutationService.apply(productId, -3, "Bán"));
+        Assertions.assertEquals(1, inventoryJournalService.applyPending());
+        Assertions.assertEquals(7, this.storageQuantity());
+    }
+
+    @Test
+    @DisplayName("Movements journaled before a restart are replayed from the checkpoint")
+    public void restart_replays_from_checkpoint() throws Exception {
+        InventoryJournalService before = this.open();
+        before.append(Map.of(productId, -2), "Bán");
+        before.applyPending();
+        before.append(Map.of(productId, -5), "Bán");
+        // no close(): the process stops before the applier drains the second movement
+
+        InventoryJournalService after = this.open();
+        Assertions.assertEquals(8, this.storageQuantity());
+        Assertions.assertThrows(InsufficientStockException.class, () -> after.append(Map.of(productId, -4), "Bán"));
+        Assertions.assertEquals(1, after.applyPending());
+        Assertions.assertEquals(3, this.storageQuantity());
+        Assertions.assertEquals(List.of(8, 3), jdbcTemplate.queryForList(
+                "select quantity_left from history_product where product_id = ? order by id", Integer.class,
+                productId));
+        after.close();
+    }
+
+    @Test
+    @DisplayName("A movement is only journaled once the caller commits")
+    public void rolled_back_movement_is_not_journaled() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Assertions.assertEquals(2, stockMutationService.apply(productId, -8, "Bán"));
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertEquals(0, inventoryJournalService.getPendingProducts());
+        Assertions.assertEquals(0, inventoryJournalService.applyPending());
+        Assertions.assertEquals(0, stockMutationService.apply(productId, -10, "Bán"));
+        Assertions.assertEquals(1, inventoryJournalService.applyPending());
+    }
+
+    @Test
+    @DisplayName("Order reservations leave room for journaled removals not applied yet")
+    public void reservation_respects_pending_removal() throws Exception {
+        Assertions.assertEquals(4, stockMutationService.apply(productId, -6, "Bán"));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Assertions.assertThrows(InsufficientStockException.class, () -> transactionTemplate.executeWithoutResult(
+                status -> stockReservationService.reserve(Map.of(productId, 5))));
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.reserve(Map.of(productId, 4)));
+
+        Assertions.assertEquals(1, inventoryJournalService.applyPending());
+        Assertions.assertEquals(0, this.storageQuantity());
+        Assertions.assertEquals(0, inventoryJournalService.getPendingProducts());
+    }
+
+    private InventoryJournalService open() throws Exception {
+        InventoryJournalService service = new InventoryJournalService(productRepository, stockLedgerWriter,
+                jdbcTemplate, transactionManager, restartDirectory.toString(), 4096, 100);
+        service.open();
+        return service;
+    }
+
+    private int storageQuantity() {
+        return jdbcTemplate.queryForObject("select storage_quantity from products where id = ?", Integer.class,
+                productId);
+    }
+}
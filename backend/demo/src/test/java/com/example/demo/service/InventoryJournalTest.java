@@ -0,0 +1,94 @@
+package com.example.demo.service;
+
+import com.example.demo.service.impl.InventoryJournal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class InventoryJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Records are readable once synced, in append order")
+    public void append_sync_read() throws Exception {
+        try (InventoryJournal journal = new InventoryJournal(directory, 4096, 0)) {
+            long first = journal.append("Nhập", Map.of(1L, 5));
+            long second = journal.append(null, Map.of(2L, -1, 3L, 2));
+            Assertions.assertTrue(journal.read(0, 10).isEmpty());
+
+            journal.sync(second);
+            List<InventoryJournal.Entry> entries = journal.read(0, 10);
+            Assertions.assertEquals(2, entries.size());
+            Assertions.assertEquals("Nhập", entries.get(0).note());
+            Assertions.assertEquals(Map.of(1L, 5), entries.get(0).movements());
+            Assertions.assertNull(entries.get(1).note());
+            Assertions.assertEquals(Map.of(2L, -1, 3L, 2), entries.get(1).movements());
+            Assertions.assertEquals(first, entries.get(1).offset());
+            Assertions.assertEquals(1, journal.read(first, 10).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Full segments roll over and applied ones can be deleted")
+    public void segments_roll_over() throws Exception {
+        try (InventoryJournal journal = new InventoryJournal(directory, 128, 0)) {
+            long offset = 0;
+            for (int i = 0; i < 20; i++) {
+                offset = journal.append("note", Map.of((long) i, i));
+            }
+            journal.sync(offset);
+            List<InventoryJournal.Entry> entries = journal.read(0, 100);
+            Assertions.assertEquals(20, entries.size());
+            Assertions.assertEquals(Map.of(19L, 19), entries.get(19).movements());
+            Assertions.assertTrue(this.segmentCount() > 1);
+
+            journal.deleteBefore(entries.get(19).offset());
+            Assertions.assertEquals(1, this.segmentCount());
+            Assertions.assertEquals(1, journal.read(entries.get(19).offset(), 100).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Reopening cuts off a torn record and keeps appending after the last intact one")
+    public void reopen_after_torn_write() throws Exception {
+        long end;
+        try (InventoryJournal journal = new InventoryJournal(directory, 4096, 0)) {
+            end = journal.append("ok", Map.of(1L, 1));
+            journal.sync(end);
+        }
+        // a record header whose payload never reached the disk
+        try (RandomAccessFile file = new RandomAccessFile(this.segments().get(0).toFile(), "rw")) {
+            file.seek(end);
+            file.writeInt(40);
+            file.writeLong(123L);
+        }
+        try (InventoryJournal journal = new InventoryJournal(directory, 4096, 0)) {
+            Assertions.assertEquals(end, journal.getDurableOffset());
+            Assertions.assertEquals(1, journal.read(0, 10).size());
+            journal.sync(journal.append("after", Map.of(2L, 2)));
+            List<InventoryJournal.Entry> entries = journal.read(0, 10);
+            Assertions.assertEquals(2, entries.size());
+            Assertions.assertEquals("after", entries.get(1).note());
+        }
+    }
+
+    private long segmentCount() throws Exception {
+        return this.segments().size();
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
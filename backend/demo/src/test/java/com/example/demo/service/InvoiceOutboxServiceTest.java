@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.enums.OutboxStatus;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.EntityNotFoundException;
+import com.example.demo.service.impl.InvoiceOutboxService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@DataJpaTest
+@Import({InvoiceOutboxService.class, StockLedgerWriter.class, PublisherEvent.class})
+@TestPropertySource(properties = "invoice.outbox.initial-delay-ms=3600000")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(
+        value = "/sql/import_invoice.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = "/sql/import_invoice_clean_up.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class InvoiceOutboxServiceTest extends AbstractBaseTest {
+
+    @Autowired
+    private InvoiceOutboxService invoiceOutboxService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("Worker writes the ledger of every pending invoice in one batch")
+    public void process_pending_invoices() {
+        Assertions.assertEquals(2, invoiceOutboxService.processPending());
+
+        List<String> codes = jdbcTemplate.queryForList(
+                "select code from history_product where action = 'EXPORT' order by id", String.class);
+        Assertions.assertEquals(3, codes.size());
+        Assertions.assertTrue(codes.stream().allMatch(code -> code.startsWith("LS")));
+        Assertions.assertEquals(-3, jdbcTemplate.queryForObject(
+                "select sum(difference) from history_product where product_id = 1", Integer.class));
+        Assertions.assertEquals("Xuất bởi EMP001", jdbcTemplate.queryForObject(
+                "select distinct note from history_product", String.class));
+        Assertions.assertEquals(3, jdbcTemplate.queryForObject(
+                "select count(*) from history_product where sale = true", Integer.class));
+        Assertions.assertEquals(OutboxStatus.DONE, invoiceOutboxService.getStatus(10L).getStatus());
+        Assertions.assertEquals(1, invoiceOutboxService.getStatus(11L).getAttempts());
+        Assertions.assertEquals(97, jdbcTemplate.queryForObject(
+                "select storage_quantity from products where id = 1", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Processed invoices are not picked up again")
+    public void processed_invoices_are_not_repeated() {
+        invoiceOutboxService.processPending();
+
+        Assertions.assertEquals(0, invoiceOutboxService.processPending());
+        Assertions.assertEquals(3, jdbcTemplate.queryForObject(
+                "select count(*) from history_product", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Ledger shows the stock left when the order was invoiced")
+    public void ledger_uses_quantity_recorded_at_invoice() {
+        jdbcTemplate.update("delete from invoice_outbox where order_id = 11");
+        transactionTemplate.executeWithoutResult(status -> invoiceOutboxService.enqueue(11L));
+        jdbcTemplate.update("update products set storage_quantity = 50 where id = 1");
+
+        invoiceOutboxService.processPending();
+
+        Assertions.assertEquals(List.of(50, 97), jdbcTemplate.queryForList("select h.quantity_left " +
+                "from history_product h where h.product_id = 1 order by h.id", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Status of an order that was never invoiced")
+    public void status_not_found() {
+        Assertions.assertThrows(EntityNotFoundException.class, () -> invoiceOutboxService.getStatus(99L));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.StockLocationEntity;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.BaseException;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.model.request.ProductOrders;
+import com.example.demo.model.request.StockLocationRequest;
+import com.example.demo.model.request.StockTransferRequest;
+import com.example.demo.model.stock.StockItem;
+import com.example.demo.service.impl.LocationStockService;
+import com.example.demo.service.impl.StockReservationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@DataJpaTest
+@Import({LocationStockService.class, StockReservationService.class, PublisherEvent.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = {"/sql/import_location_clean_up.sql", "/sql/import_stock_clean_up.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class LocationStockServiceTest extends AbstractBaseTest {
+
+    @Autowired
+    private LocationStockService locationStockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private List<Long> productIds;
+    private Long counterId;
+    private Long warehouseId;
+
+    @BeforeEach
+    public void setUp() {
+        productIds = jdbcTemplate.queryForList("select id from products where code like 'STK%' order by id", Long.class);
+        counterId = ((StockLocationEntity) locationStockService.createLocation(
+                new StockLocationRequest("QUAY", "Quầy")).getData()).getId();
+        warehouseId = ((StockLocationEntity) locationStockService.createLocation(
+                new StockLocationRequest("KHO", "Kho sau")).getData()).getId();
+    }
+
+    @Test
+    @DisplayName("Sales at a location take its own quantity and reach the total once folded")
+    public void reserve_at_location_then_fold() {
+        Long productId = productIds.get(0);
+        locationStockService.transfer(transfer(null, counterId, productId, 6));
+
+        Map<Long, StockItem> reserved = inTransaction(() -> locationStockService.reserve(counterId,
+                Map.of(productId, 4)));
+        Assertions.assertEquals(2, reserved.get(productId).getStorageQuantity());
+        Assertions.assertThrows(InsufficientStockException.class,
+                () -> inTransaction(() -> locationStockService.reserve(counterId, Map.of(productId, 3))));
+        // orders without a location only get the 4 units no location holds
+        Assertions.assertThrows(InsufficientStockException.class,
+                () -> inTransaction(() -> stockReservationService.reserve(Map.of(productId, 5))));
+        inTransaction(() -> stockReservationService.reserve(Map.of(productId, 4)));
+
+        Assertions.assertEquals(6, storageQuantity(productId));
+        Assertions.assertEquals(1, locationStockService.fold());
+        Assertions.assertEquals(2, storageQuantity(productId));
+        Assertions.assertEquals(0, locationStockService.fold());
+        Assertions.assertEquals(2, locationStockService.getStock(counterId).get(0).getQuantity());
+    }
+
+    @Test
+    @DisplayName("Transfers move stock between locations and never beyond what the source holds")
+    public void transfer_between_locations() {
+        Long productId = productIds.get(1);
+        locationStockService.transfer(transfer(null, warehouseId, productId, 10));
+
+        Assertions.assertThrows(InsufficientStockException.class,
+                () -> locationStockService.transfer(transfer(null, counterId, productId, 1)));
+        Assertions.assertThrows(InsufficientStockException.class,
+                () -> locationStockService.transfer(transfer(warehouseId, counterId, productId, 11)));
+        Assertions.assertThrows(BaseException.class,
+                () -> locationStockService.transfer(transfer(counterId, counterId, productId, 1)));
+        locationStockService.transfer(transfer(warehouseId, counterId, productId, 3));
+        locationStockService.transfer(transfer(warehouseId, counterId, productId, 2));
+
+        Assertions.assertEquals(5, locationStockService.getStock(warehouseId).get(0).getQuantity());
+        Assertions.assertEquals(5, locationStockService.getStock(counterId).get(0).getQuantity());
+        Assertions.assertEquals(10, storageQuantity(productId));
+        Assertions.assertEquals(3, jdbcTemplate.queryForObject("select count(*) from stock_transfer", Integer.class));
+    }
+
+    private StockTransferRequest transfer(Long fromLocationId, Long toLocationId, Long productId, int quantity) {
+        return StockTransferRequest.builder()
+                .fromLocationId(fromLocationId)
+                .toLocationId(toLocationId)
+                .products(List.of(new ProductOrders(productId, quantity)))
+                .build();
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    private int storageQuantity(Long productId) {
+        return jdbcTemplate.queryForObject("select storage_quantity from products where id = ?", Integer.class,
+                productId);
+    }
+}
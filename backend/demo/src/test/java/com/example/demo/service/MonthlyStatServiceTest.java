@@ -0,0 +1,121 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.enums.Action;
+import com.example.demo.entity.enums.StatMetric;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.service.impl.MonthlyStatService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@DataJpaTest
+@Import({MonthlyStatService.class, StockLedgerWriter.class, PublisherEvent.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = {"/sql/import_monthly_stat_clean_up.sql", "/sql/import_stock_clean_up.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class MonthlyStatServiceTest extends AbstractBaseTest {
+
+    private static final YearMonth NOW = YearMonth.now();
+    private static final int READS = 1000;
+
+    @Autowired
+    private MonthlyStatService monthlyStatService;
+
+    @Autowired
+    private StockLedgerWriter stockLedgerWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+
+    @BeforeEach
+    public void setUp() {
+        productId = jdbcTemplate.queryForObject("select min(id) from products where code like 'STK%'", Long.class);
+        // 10 x 100 and 5 x 120 in, 4 x 150 out
+        this.append(this.entry(10, 100.0), this.entry(5, 120.0));
+        this.append(this.entry(-4, 100.0));
+        transactionTemplate.executeWithoutResult(status -> {
+            monthlyStatService.add(StatMetric.SERVICE_REVENUE, NOW, 300.0);
+            monthlyStatService.add(StatMetric.SERVICE_REVENUE, NOW, 200.0);
+        });
+    }
+
+    @Test
+    @DisplayName("Writes are added to the month and read back as the last 12 months")
+    public void totals_follow_writes() {
+        Map<YearMonth, Double> spend = monthlyStatService.getTotals(StatMetric.IMPORT_SPEND, 12);
+        Assertions.assertEquals(12, spend.size());
+        Assertions.assertEquals(NOW, List.copyOf(spend.keySet()).get(11));
+        Assertions.assertEquals(1600.0, spend.get(NOW), 1e-9);
+        Assertions.assertNull(spend.get(NOW.minusMonths(1)));
+        Assertions.assertEquals(-600.0, monthlyStatService.getTotals(StatMetric.EXPORT_REVENUE, 12).get(NOW), 1e-9);
+        Assertions.assertEquals(500.0, monthlyStatService.getTotals(StatMetric.SERVICE_REVENUE, 12).get(NOW), 1e-9);
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            monthlyStatService.getTotals(StatMetric.IMPORT_SPEND, 12);
+        }
+        log.info("{} monthly reads: {} us each", READS,
+                String.format("%.1f", (System.nanoTime() - begin) / 1e3 / READS));
+    }
+
+    @Test
+    @DisplayName("Reconciliation recomputes the months from the ledger, older months included")
+    public void reconcile_matches_ledger() {
+        jdbcTemplate.update("insert into history_product (product_id, difference, quantity_left, price_in, " +
+                "price_out, action, create_date, is_active) values (?, 2, 2, 50, 150, 'IMPORT', ?, true)",
+                productId, Timestamp.valueOf(NOW.minusMonths(3).atDay(15).atStartOfDay()));
+
+        monthlyStatService.reconcile(NOW.minusMonths(11));
+
+        Map<YearMonth, Double> spend = monthlyStatService.getTotals(StatMetric.IMPORT_SPEND, 12);
+        Assertions.assertEquals(1600.0, spend.get(NOW), 1e-9);
+        Assertions.assertEquals(100.0, spend.get(NOW.minusMonths(3)), 1e-9);
+        Assertions.assertEquals(-600.0, monthlyStatService.getTotals(StatMetric.EXPORT_REVENUE, 12).get(NOW), 1e-9);
+        // no order_service rows back the revenue added by hand
+        Assertions.assertNull(monthlyStatService.getTotals(StatMetric.SERVICE_REVENUE, 12).get(NOW));
+    }
+
+    private void append(LedgerEntry... entries) {
+        transactionTemplate.executeWithoutResult(status -> stockLedgerWriter.append(List.of(entries)));
+    }
+
+    // exports at 150
+    private LedgerEntry entry(int difference, double priceIn) {
+        return LedgerEntry.builder()
+                .productId(productId)
+                .priceIn(priceIn)
+                .priceOut(150.0)
+                .difference(difference)
+                .action(difference >= 0 ? Action.IMPORT : Action.EXPORT)
+                .build();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.AccountEntity;
+import com.example.demo.entity.EmployeeEntity;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.ImportReport;
+import com.example.demo.security.CustomUserDetail;
+import com.example.demo.service.impl.CachedStatisticService;
+import com.example.demo.service.impl.MonthlyStatService;
+import com.example.demo.service.impl.OrderImportService;
+import com.example.demo.service.impl.RepairerWorkloadIndex;
+import com.example.demo.service.impl.StatisticService;
+import com.example.demo.service.impl.StockReservationService;
+import com.example.demo.service.impl.TopItemTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.Mockito.when;
+
+@Slf4j
+@DataJpaTest
+@Import({OrderImportService.class, RepairerWorkloadIndex.class, MonthlyStatService.class,
+        CachedStatisticService.class, StatisticService.class, TopItemTracker.class, PublisherEvent.class,
+        StockReservationService.class, JacksonAutoConfiguration.class})
+@Sql(
+        value = "/sql/import_order.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = "/sql/clean_up_import_order.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class OrderImportServiceTest extends AbstractBaseTest {
+
+    @Autowired
+    private OrderImportService orderImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long productId;
+
+    @BeforeEach
+    public void setUp() {
+        EmployeeEntity employee = new EmployeeEntity();
+        employee.setId(1L);
+        AccountEntity account = new AccountEntity();
+        account.setEmployee(employee);
+        CustomUserDetail customUserDetail = Mockito.mock(CustomUserDetail.class);
+        Authentication authentication = Mockito.mock(Authentication.class);
+        SecurityContext securityContext = Mockito.mock(SecurityContext.class);
+        when(customUserDetail.getAccount()).thenReturn(account);
+        when(authentication.getPrincipal()).thenReturn(customUserDetail);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+
+        // import_order.sql inserts explicit ids, keep generated ones clear of them
+        jdbcTemplate.execute("alter table orders alter column id restart with 1000");
+        jdbcTemplate.execute("alter table order_service alter column id restart with 1000");
+        productId = jdbcTemplate.queryForObject("select id from products where code = 'PROD001'", Long.class);
+    }
+
+    @Test
+    @DisplayName("Import NDJSON reports invalid records and writes the rest")
+    public void import_ndjson() {
+        String body = String.join("\n",
+                order(1, "\"services\":[{\"id\":1,\"quantity\":2}],\"products\":[{\"id\":" + productId
+                        + ",\"quantity\":1},{\"id\":" + productId + ",\"quantity\":2}]"),
+                "",
+                order(99, "\"services\":[],\"products\":[]"),
+                "{not json",
+                order(1, "\"services\":[{\"id\":10,\"quantity\":1}],\"products\":[]"));
+
+        ImportReport report = this.importOrders(body, "application/x-ndjson");
+
+        Assertions.assertEquals(4, report.getTotal());
+        Assertions.assertEquals(1, report.getImported());
+        Assertions.assertEquals(3, report.getFailed());
+        Assertions.assertEquals(3, report.getErrors().get(0).getLine());
+        Assertions.assertEquals(4, report.getErrors().get(1).getLine());
+        Assertions.assertEquals(5, report.getErrors().get(2).getLine());
+        Assertions.assertEquals(3, jdbcTemplate.queryForObject(
+                "select quantity from order_product where product_id = ?", Integer.class, productId));
+        String code = jdbcTemplate.queryForObject("select code from orders where motorbike_code = 'IMP'", String.class);
+        Assertions.assertTrue(code.startsWith("HD"));
+    }
+
+    @Test
+    @DisplayName("Import CSV with quoted fields")
+    public void import_csv() {
+        String body = "customerId,repairerId,motorbikeCode,motorbikeName,type,note,services,products\n"
+                + "1,1,IMP,\"Honda, Wave\",INVOICE,\"ghi chú \"\"cũ\"\"\",1:1," + productId + ":2\n"
+                + "1,1,IMP,Honda,ORDER,,1:x,\n";
+
+        ImportReport report = this.importOrders(body, "text/csv");
+
+        Assertions.assertEquals(1, report.getImported());
+        Assertions.assertEquals(3, report.getErrors().get(0).getLine());
+        Assertions.assertEquals("Honda, Wave", jdbcTemplate.queryForObject(
+                "select motorbike_name from orders where motorbike_code = 'IMP'", String.class));
+    }
+
+    @Test
+    @DisplayName("Import reserves stock for open orders only and keeps the given create date")
+    public void import_reserves_open_orders() {
+        int stock = jdbcTemplate.queryForObject("select storage_quantity from products where id = ?",
+                Integer.class, productId);
+        String products = "\"services\":[],\"products\":[{\"id\":" + productId + ",\"quantity\":2}]";
+        String body = String.join("\n",
+                order(1, products + ",\"createDate\":\"2020-05-01\""),
+                order(1, products + ",\"type\":\"ORDER\""),
+                order(1, "\"services\":[],\"products\":[{\"id\":" + productId + ",\"quantity\":" + stock
+                        + "}],\"type\":\"ORDER\""),
+                order(1, products + ",\"createDate\":\"2999-01-01\""));
+
+        ImportReport report = this.importOrders(body, "application/x-ndjson");
+
+        Assertions.assertEquals(2, report.getImported());
+        Assertions.assertEquals(3, report.getErrors().get(0).getLine());
+        Assertions.assertEquals(4, report.getErrors().get(1).getLine());
+        Assertions.assertEquals(stock - 2, jdbcTemplate.queryForObject(
+                "select storage_quantity from products where id = ?", Integer.class, productId));
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from orders where motorbike_code = 'IMP' and type = 'INVOICE' "
+                        + "and create_date = '2020-05-01 00:00:00'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Import spans several chunks")
+    public void import_several_chunks() {
+        String body = IntStream.range(0, 1200)
+                .mapToObj(i -> order(1, "\"services\":[{\"id\":1,\"quantity\":1}],\"products\":[]"))
+                .collect(Collectors.joining("\n"));
+
+        ImportReport report = this.importOrders(body, "application/x-ndjson");
+
+        log.info("imported {} orders at {} records/s", report.getImported(), report.getRecordsPerSecond());
+        Assertions.assertEquals(1200, report.getImported());
+        Assertions.assertEquals(1200, jdbcTemplate.queryForObject(
+                "select count(*) from order_service o_s join orders o on o.id = o_s.order_id " +
+                        "where o.motorbike_code = 'IMP'", Integer.class));
+    }
+
+    private ImportReport importOrders(String body, String contentType) {
+        BaseResponse<ImportReport> response = orderImportService.importOrders(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), contentType);
+        return response.getData();
+    }
+
+    private static String order(long customerId, String lines) {
+        return "{\"customerId\":" + customerId + ",\"repairerId\":1,\"motorbikeCode\":\"IMP\","
+                + "\"motorbikeName\":\"YAMAHA\"," + lines + "}";
+    }
+}
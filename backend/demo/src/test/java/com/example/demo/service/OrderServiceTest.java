@@ -2,21 +2,36 @@ package com.example.demo.service;
 
 import com.example.demo.entity.AccountEntity;
 import com.example.demo.entity.EmployeeEntity;
+import com.example.demo.entity.OrderSummaryEntity;
 import com.example.demo.entity.StoreEntity;
+import com.example.demo.entity.enums.OrderAction;
+import com.example.demo.entity.enums.OutboxStatus;
 import com.example.demo.entity.enums.TypeEmployee;
+import com.example.demo.event.OrderChangedEvent;
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.exception.BaseException;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.request.InsertOrder;
 import com.example.demo.model.request.ProductOrders;
 import com.example.demo.model.request.ServiceOrders;
+import com.example.demo.model.response.CursorPage;
 import com.example.demo.model.response.orderReponse.BaseOrder;
+import com.example.demo.model.response.orderReponse.InvoiceStatus;
 import com.example.demo.model.response.orderReponse.OrderResponse;
 import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.OrderSummaryRepository;
 import com.example.demo.repository.StoreRepository;
 import com.example.demo.security.CustomUserDetail;
 import com.example.demo.service.impl.HistoryProductImplService;
+import com.example.demo.service.impl.InvoiceOutboxService;
+import com.example.demo.service.impl.LocationStockService;
+import com.example.demo.service.impl.MonthlyStatService;
+import com.example.demo.service.impl.OrderSummaryService;
+import com.example.demo.service.impl.RepairerWorkloadIndex;
 import com.example.demo.service.impl.OrderImplService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import com.example.demo.service.impl.StockReservationService;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -28,12 +43,19 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlMergeMode;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -42,7 +64,10 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.when;
 
 @DataJpaTest
-@Import({OrderImplService.class})
+@RecordApplicationEvents
+@Import({OrderImplService.class, StockReservationService.class, InvoiceOutboxService.class,
+        StockLedgerWriter.class, OrderSummaryService.class, PublisherEvent.class, RepairerWorkloadIndex.class,
+        StatementCounter.class, LocationStockService.class, MonthlyStatService.class})
 @Sql(
         value = "/sql/import_order.sql",
         executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
@@ -78,6 +103,21 @@ public class OrderServiceTest extends AbstractBaseTest {
     @Autowired
     private EntityManager entityManager;
 
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    private RepairerWorkloadIndex repairerWorkloadIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     public void setUp() {
         // Tạo dữ liệu giả
@@ -85,6 +125,7 @@ public class OrderServiceTest extends AbstractBaseTest {
         employee.setId(1L);
         employee.setName("Test employee");
         employee.setType(TypeEmployee.REPAIRER);
+        employee.setIsActive(true);
 
         AccountEntity mockAccount = new AccountEntity();
         mockAccount.setEmployee(employee);
@@ -133,6 +174,44 @@ public class OrderServiceTest extends AbstractBaseTest {
         Assertions.assertEquals("TOYOTA", updateResponse.getData().getInfoCustomer().getMotorbikeName());
     }
 
+    @Test
+    @DisplayName("Update order writes only changed lines and moves stock by the delta")
+    public void update_order_writes_only_changed_lines() {
+        var orderRequest = createOrderRequest(1);
+        BaseResponse<OrderResponse> response = this.orderImplService.create(orderRequest);
+        long orderId = response.getData().getId();
+        this.entityManager.flush();
+        this.entityManager.clear();
+        Long lineId = jdbcTemplate.queryForObject("select id from order_product where order_id = ?", Long.class,
+                orderId);
+
+        var orderUpdateRequest = orderRequest.toBuilder()
+                .type("ORDER")
+                .products(List.of(
+                        ProductOrders.builder().id(1L).quantity(3).build(),
+                        ProductOrders.builder().id(2L).quantity(2).build()))
+                .build();
+        statementCounter.reset();
+        this.orderImplService.update(orderUpdateRequest, orderId);
+        this.entityManager.flush();
+
+        Assertions.assertEquals(0, statementCounter.count("delete from order_product"));
+        Assertions.assertEquals(0, statementCounter.count("delete from order_service"));
+        Assertions.assertEquals(lineId, jdbcTemplate.queryForObject(
+                "select id from order_product where order_id = ? and product_id = 1", Long.class, orderId));
+        Assertions.assertEquals(97, storageQuantity(1L));
+        Assertions.assertEquals(48, storageQuantity(2L));
+
+        this.entityManager.clear();
+        this.orderImplService.update(orderUpdateRequest.toBuilder()
+                .products(List.of(ProductOrders.builder().id(2L).quantity(1).build()))
+                .build(), orderId);
+        this.entityManager.flush();
+
+        Assertions.assertEquals(100, storageQuantity(1L));
+        Assertions.assertEquals(49, storageQuantity(2L));
+    }
+
     @Test
     @DisplayName("Delete by id")
     public void delete_by_id() {
@@ -167,6 +246,34 @@ public class OrderServiceTest extends AbstractBaseTest {
         Assertions.assertEquals("Nhận đơn hàng thành công.", response1.getMessage());
     }
 
+    @Test
+    @DisplayName("Get by id runs the same statements whatever the line count")
+    public void get_by_id_statements_are_constant() {
+        var twoLines = createOrderRequest(1).toBuilder()
+                .products(List.of(
+                        ProductOrders.builder().id(1L).quantity(1).build(),
+                        ProductOrders.builder().id(2L).quantity(1).build()))
+                .build();
+        BaseResponse<OrderResponse> created = this.orderImplService.create(twoLines);
+        this.entityManager.flush();
+        this.entityManager.clear();
+
+        // order 2 comes from import_order.sql without product lines
+        statementCounter.reset();
+        BaseResponse<OrderResponse> noLine = this.orderImplService.getById(2L);
+        int noLineStatements = statementCounter.count();
+
+        statementCounter.reset();
+        BaseResponse<OrderResponse> twoLine = this.orderImplService.getById(created.getData().getId());
+        int twoLineStatements = statementCounter.count();
+
+        Assertions.assertEquals(0, noLine.getData().getInfoProducts().size());
+        Assertions.assertEquals(2, twoLine.getData().getInfoProducts().size());
+        Assertions.assertEquals("EMP001", twoLine.getData().getInfoDispatcher().getCode());
+        Assertions.assertEquals(3, noLineStatements);
+        Assertions.assertEquals(noLineStatements, twoLineStatements);
+    }
+
     @Test
     @DisplayName("Get by id not found")
     public void get_by_id_not_found() {
@@ -187,6 +294,21 @@ public class OrderServiceTest extends AbstractBaseTest {
         Assertions.assertEquals("Để hóa đơn thành công.", response1.getMessage());
     }
 
+    @Test
+    @DisplayName("To invoice leaves the ledger to the outbox worker")
+    public void to_invoice_is_pending_until_processed() {
+        BaseResponse<OrderResponse> response = this.orderImplService.create(createOrderRequest(1));
+        long orderId = response.getData().getId();
+        this.entityManager.clear();
+
+        this.orderImplService.toInvoice(orderId);
+        BaseResponse<InvoiceStatus> status = this.orderImplService.getInvoiceStatus(orderId);
+
+        Assertions.assertEquals(OutboxStatus.PENDING, status.getData().getStatus());
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from history_product where action = 'EXPORT'", Integer.class));
+    }
+
     @Test
     @DisplayName("GEt by params")
     public void get_by_params() {
@@ -203,6 +325,88 @@ public class OrderServiceTest extends AbstractBaseTest {
         Assertions.assertEquals("Nhận đơn hàng thành công.", response1.getMessage());
     }
 
+    @Test
+    @DisplayName("Get by params with cursor walks every page once")
+    @Sql("/sql/import_order_cursor.sql")
+    @SqlMergeMode(SqlMergeMode.MergeMode.MERGE)
+    public void get_by_params_with_cursor() {
+        Assertions.assertEquals(26, orderSummaryService.rebuild());
+        Map<String, String> params = new HashMap<>(Map.of("cursor", "", "pageSize", "10", "withCount", "true"));
+        List<BaseOrder> orders = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        CursorPage<BaseOrder> page;
+        do {
+            BaseResponse<CursorPage<BaseOrder>> response = this.orderImplService.getByParams(params);
+            page = response.getData();
+            orders.addAll(page.getContent());
+            pageSizes.add(page.getContent().size());
+            params.put("cursor", page.getNextCursor() == null ? "" : page.getNextCursor());
+            params.remove("withCount");
+        } while (page.getNextCursor() != null);
+
+        Assertions.assertEquals(List.of(10, 10, 5), pageSizes);
+        Assertions.assertEquals(25, new HashSet<>(orders.stream().map(BaseOrder::getId).toList()).size());
+        Assertions.assertEquals(124L, orders.get(0).getId());
+        Assertions.assertEquals(100L, orders.get(24).getId());
+    }
+
+    @Test
+    @DisplayName("Get by params reads the summary table only")
+    public void get_by_params_reads_summary() {
+        BaseResponse<OrderResponse> created = this.orderImplService.create(createOrderRequest(1));
+        long orderId = created.getData().getId();
+
+        OrderSummaryEntity summary = orderSummaryRepository.findById(orderId).orElseThrow();
+        Assertions.assertEquals("NAME", summary.getSearchCustomerName());
+        Assertions.assertEquals(100000D, summary.getTotalService());
+        Assertions.assertEquals(70000D, summary.getTotalProduct());
+
+        statementCounter.reset();
+        BaseResponse<Page<BaseOrder>> response = this.orderImplService.getByParams(
+                Map.of("customerName", "nam", "motorbikeCode", "001"));
+
+        Assertions.assertEquals(List.of(orderId),
+                response.getData().getContent().stream().map(BaseOrder::getId).toList());
+        Assertions.assertEquals(statementCounter.count(), statementCounter.count("from order_summary"));
+        Assertions.assertEquals(0, statementCounter.count("join"));
+    }
+
+    @Test
+    @DisplayName("Order changes are published for the dispatch board")
+    public void order_changes_are_published(ApplicationEvents events) {
+        BaseResponse<OrderResponse> created = this.orderImplService.create(createOrderRequest(1));
+        this.entityManager.clear();
+        this.orderImplService.toInvoice(created.getData().getId());
+
+        List<OrderAction> actions = events.stream(OrderChangedEvent.class).map(OrderChangedEvent::getAction).toList();
+        Assertions.assertEquals(List.of(OrderAction.CREATED, OrderAction.INVOICED), actions);
+        Assertions.assertEquals("INVOICE", events.stream(OrderChangedEvent.class).toList().get(1).getOrder().getType());
+    }
+
+    @Test
+    @DisplayName("Least-loaded assignment picks the repairer from the workload index")
+    public void create_with_least_loaded_repairer(ApplicationEvents events) {
+        repairerWorkloadIndex.rebuild();
+        InsertOrder request = createOrderRequest(1).toBuilder()
+                .repairerId(null)
+                .assignment(OrderImplService.LEAST_LOADED)
+                .build();
+
+        BaseResponse<OrderResponse> created = this.orderImplService.create(request);
+        // the test transaction never commits, so hand the event over directly
+        events.stream(OrderChangedEvent.class).forEach(repairerWorkloadIndex::onOrderChanged);
+
+        Assertions.assertEquals(1L, created.getData().getInfoRepairer().getId());
+        Assertions.assertEquals(1, repairerWorkloadIndex.getLoads().get(0).getOpenOrders());
+    }
+
+    @Test
+    @DisplayName("Get by params with invalid cursor")
+    public void get_by_params_with_invalid_cursor() {
+        Assertions.assertThrows(BaseException.class,
+                () -> this.orderImplService.getByParams(Map.of("cursor", "not-a-cursor")));
+    }
+
     @Test
     @DisplayName("To invoice with order not found")
     public void to_invoice_not_found() {
@@ -255,6 +459,11 @@ public class OrderServiceTest extends AbstractBaseTest {
     }
 
 
+    private int storageQuantity(long productId) {
+        return jdbcTemplate.queryForObject("select storage_quantity from products where id = ?", Integer.class,
+                productId);
+    }
+
     private InsertOrder createOrderRequest(long productId) {
         return InsertOrder.builder()
                 .customerId(1L)
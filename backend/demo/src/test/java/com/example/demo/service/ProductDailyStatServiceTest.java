@@ -0,0 +1,159 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.enums.Action;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.model.statistic.StatisticProducts;
+import com.example.demo.model.stock.LedgerEntry;
+import com.example.demo.service.impl.MonthlyStatService;
+import com.example.demo.service.impl.ProductDailyStatService;
+import com.example.demo.service.impl.StatisticService;
+import com.example.demo.service.impl.TopItemTracker;
+import com.example.demo.service.impl.StockLedgerWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@DataJpaTest
+@Import({ProductDailyStatService.class, StatisticService.class, MonthlyStatService.class, StockLedgerWriter.class,
+        PublisherEvent.class, TopItemTracker.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = {"/sql/import_daily_stat_clean_up.sql", "/sql/import_monthly_stat_clean_up.sql",
+                "/sql/import_stock_clean_up.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class ProductDailyStatServiceTest extends AbstractBaseTest {
+
+    private static final String SELECT_STATS_SQL = "select stat_date, action, product_id, price, product_name, unit, " +
+            "quantity, amount from product_daily_stat order by action, product_id, price";
+
+    @Autowired
+    private ProductDailyStatService productDailyStatService;
+
+    @Autowired
+    private StatisticService statisticService;
+
+    @Autowired
+    private StockLedgerWriter stockLedgerWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+
+    @BeforeEach
+    public void setUp() {
+        productId = jdbcTemplate.queryForObject("select min(id) from products where code like 'STK%'", Long.class);
+        this.append(this.entry(10, 100.0), this.entry(5, 100.0));
+        this.append(this.entry(3, 120.0), this.entry(-4, 100.0));
+        this.append(this.entry(-1, 100.0));
+    }
+
+    @Test
+    @DisplayName("Ledger writes are summed per day and price and answer the in/out statistics")
+    @SuppressWarnings("unchecked")
+    public void statistics_read_daily_rows() {
+        Assertions.assertEquals(3, jdbcTemplate.queryForObject("select count(*) from product_daily_stat",
+                Integer.class));
+
+        List<StatisticProducts> in = ((Page<StatisticProducts>) statisticService.statisticHistoryProductIn(Map.of())
+                .getData()).getContent().stream()
+                .sorted(Comparator.comparing(StatisticProducts::getPrice))
+                .toList();
+        Assertions.assertEquals(2, in.size());
+        Assertions.assertEquals(15L, in.get(0).getQuantity());
+        Assertions.assertEquals(-1500.0, in.get(0).getIncome(), 1e-9);
+        Assertions.assertEquals(3L, in.get(1).getQuantity());
+        Assertions.assertEquals(-360.0, in.get(1).getIncome(), 1e-9);
+
+        List<StatisticProducts> out = ((Page<StatisticProducts>) statisticService.statisticHistoryProductOut(Map.of())
+                .getData()).getContent();
+        Assertions.assertEquals(1, out.size());
+        Assertions.assertEquals("STK001", out.get(0).getCode());
+        Assertions.assertEquals(5L, out.get(0).getQuantity());
+        Assertions.assertEquals(750.0, out.get(0).getIncome(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Rebuilding a range from history_product gives the rows kept by the ledger writes")
+    public void rebuild_matches_incremental_rows() {
+        List<Map<String, Object>> stats = jdbcTemplate.queryForList(SELECT_STATS_SQL);
+
+        Assertions.assertEquals(3, productDailyStatService.rebuild(LocalDate.now(), LocalDate.now().plusDays(1)));
+        Assertions.assertEquals(stats, jdbcTemplate.queryForList(SELECT_STATS_SQL));
+        // days outside the range are left alone
+        Assertions.assertEquals(0, productDailyStatService.rebuild(LocalDate.now().minusDays(3), LocalDate.now()));
+        Assertions.assertEquals(stats, jdbcTemplate.queryForList(SELECT_STATS_SQL));
+    }
+
+    @Test
+    @DisplayName("Concurrent first movements of a key on a day all land in one row")
+    public void concurrent_first_movements_share_one_row() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    this.append(this.entry(2, 999.0));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(2L * threads, jdbcTemplate.queryForObject("select quantity from product_daily_stat " +
+                "where action = 'IMPORT' and price = 999", Long.class));
+    }
+
+    private void append(LedgerEntry... entries) {
+        transactionTemplate.executeWithoutResult(status -> stockLedgerWriter.append(List.of(entries)));
+    }
+
+    // imports at priceIn, exports at 150
+    private LedgerEntry entry(int difference, double priceIn) {
+        return LedgerEntry.builder()
+                .productId(productId)
+                .productName("Linh kiện 1")
+                .unit("Cái")
+                .priceIn(priceIn)
+                .priceOut(150.0)
+                .difference(difference)
+                .action(difference >= 0 ? Action.IMPORT : Action.EXPORT)
+                .build();
+    }
+}
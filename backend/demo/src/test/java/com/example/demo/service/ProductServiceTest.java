@@ -2,6 +2,8 @@ package com.example.demo.service;
 
 import com.example.demo.entity.ImageEntity;
 import com.example.demo.entity.ProductEntity;
+import com.example.demo.entity.enums.StockStatus;
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.exception.BaseException;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
@@ -13,6 +15,9 @@ import com.example.demo.repository.AccountRepository;
 import com.example.demo.repository.ImageRepository;
 import com.example.demo.repository.ProductRepository;
 import com.example.demo.service.impl.ProductImplService;
+import com.example.demo.service.impl.StockLedgerWriter;
+import com.example.demo.service.impl.StockMutationService;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,7 +47,7 @@ import static org.mockito.Mockito.*;
 
 @Slf4j
 @DataJpaTest
-@Import({ProductImplService.class})
+@Import({ProductImplService.class, StockMutationService.class, StockLedgerWriter.class, PublisherEvent.class})
 @Sql(
         value = "/sql/import_product.sql",
         executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
@@ -71,6 +76,9 @@ public class ProductServiceTest extends AbstractBaseTest {
     @Autowired
     private ProductImplService productImplService;
 
+    @Autowired
+    private EntityManager entityManager;
+
     @BeforeEach
     public void setUp() {
 
@@ -285,6 +293,30 @@ public class ProductServiceTest extends AbstractBaseTest {
         verify(imageRepository, times(1)).save(any());
     }
 
+    @Test
+    @DisplayName("Update product keeps stock moved after the client read it")
+    public void update_product_keeps_committed_stock() {
+        var productRequest = this.createNewProduct();
+        BaseResponse<ProductResponse> productCreated = this.productImplService.create(productRequest);
+        var productId = productCreated.getData().getId();
+
+        // a sale lands between the client's read and its edit, which still carries the old quantity
+        this.productImplService.removeFromInventory(productId, 30, "sale");
+        var productUpdateRequest = this.createNewProduct();
+        productUpdateRequest.setName("product_update");
+        productUpdateRequest.setQuantityWarning(80);
+        BaseResponse<ProductResponse> productUpdated = this.productImplService.update(productUpdateRequest, productId);
+        this.entityManager.flush();
+        this.entityManager.clear();
+
+        var product = this.productRepository.findById(productId).orElseThrow();
+        Assertions.assertEquals(70, productUpdated.getData().getStorageQuantity());
+        Assertions.assertEquals(70, product.getStorageQuantity());
+        Assertions.assertEquals(StockStatus.LOW_STOCK, product.getStatus());
+        Assertions.assertEquals("product_update", product.getName());
+        Assertions.assertEquals(1, product.getHistoryList().size());
+    }
+
     @Test
     @DisplayName("Add to inventory with not exist")
     public void add_to_inventory_but_not_exist() {
@@ -301,6 +333,7 @@ public class ProductServiceTest extends AbstractBaseTest {
         var productId = response.getData().getId();
 
         this.productImplService.addToInventory(productId, 1, "note");
+        this.entityManager.clear();
 
         var product = this.productRepository.findById(productId)
                 .orElseThrow();
@@ -324,6 +357,7 @@ public class ProductServiceTest extends AbstractBaseTest {
         var productId = response.getData().getId();
 
         this.productImplService.removeFromInventory(productId, 1, "note");
+        this.entityManager.clear();
 
         var product = this.productRepository.findById(productId)
                 .orElseThrow();
@@ -408,6 +442,30 @@ public class ProductServiceTest extends AbstractBaseTest {
         Assertions.assertEquals(3, response.getData().getContent().size());
     }
 
+    @Test
+    @DisplayName("Stock status is backfilled, follows stock movements and filters by exact match")
+    public void stock_status_follows_movements() {
+        // seeded rows have no stored status yet
+        Assertions.assertEquals(3, this.productImplService.backfillStatus());
+        Assertions.assertEquals(0, this.productImplService.backfillStatus());
+
+        ProductEntity product = this.productRepository.findAll().stream()
+                .filter(p -> p.getStorageQuantity() == 5)
+                .findFirst()
+                .orElseThrow();
+        this.productImplService.removeFromInventory(product.getId(), 4, "note");
+        this.entityManager.clear();
+        Assertions.assertEquals(StockStatus.LOW_STOCK, this.productRepository.findById(product.getId())
+                .orElseThrow().getStatus());
+
+        BaseResponse<Page<ProductResponse>> response = this.productImplService.getByParams(
+                Map.of("status", "low_stock"));
+        Assertions.assertEquals(1, response.getData().getContent().size());
+        Assertions.assertEquals(product.getId(), response.getData().getContent().get(0).getId());
+        Assertions.assertThrows(BaseException.class,
+                () -> this.productImplService.getByParams(Map.of("status", "LOW")));
+    }
+
     private ImageEntity getImageSaved() {
         var image = new ImageEntity();
         image.setId(1L);
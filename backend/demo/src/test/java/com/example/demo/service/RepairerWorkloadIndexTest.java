@@ -0,0 +1,101 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.EmployeeEntity;
+import com.example.demo.entity.enums.OrderAction;
+import com.example.demo.entity.enums.TypeEmployee;
+import com.example.demo.event.OrderChangedEvent;
+import com.example.demo.model.response.RepairerLoad;
+import com.example.demo.model.response.orderReponse.BaseOrder;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.service.impl.RepairerWorkloadIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RepairerWorkloadIndexTest {
+
+    private EmployeeRepository employeeRepository;
+    private OrderRepository orderRepository;
+    private RepairerWorkloadIndex index;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository = mock(EmployeeRepository.class);
+        orderRepository = mock(OrderRepository.class);
+        when(employeeRepository.getActiveRepairers()).thenReturn(List.of(
+                new Object[]{1L, "EMP001", "A"}, new Object[]{2L, "EMP002", "B"}));
+        when(orderRepository.getOpenOrderRepairers()).thenReturn(List.<Object[]>of(
+                new Object[]{10L, 1L}, new Object[]{11L, 1L}, new Object[]{12L, 2L}));
+        index = new RepairerWorkloadIndex(employeeRepository, orderRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void testRebuild_countsOpenOrdersPerRepairer() {
+        List<RepairerLoad> loads = index.getLoads();
+
+        assertEquals(List.of(2L, 1L), loads.stream().map(RepairerLoad::getId).toList());
+        assertEquals(List.of(1, 2), loads.stream().map(RepairerLoad::getOpenOrders).toList());
+        assertEquals(Optional.of(2L), index.leastLoaded());
+    }
+
+    @Test
+    void testOnOrderChanged_movesOrdersBetweenRepairers() {
+        // Act: order 12 is reassigned, order 10 invoiced, order 11 deleted
+        index.onOrderChanged(changed(12L, 1L, "ORDER", OrderAction.UPDATED));
+        index.onOrderChanged(changed(10L, 1L, "INVOICE", OrderAction.INVOICED));
+        index.onOrderChanged(changed(11L, 1L, "ORDER", OrderAction.DELETED));
+
+        // Assert
+        assertEquals(Optional.of(2L), index.leastLoaded());
+        assertEquals(1, index.getLoads().get(1).getOpenOrders());
+        verify(orderRepository, times(1)).getOpenOrderRepairers();
+    }
+
+    @Test
+    void testUpdateRepairer_dropsInactiveRepairer() {
+        EmployeeEntity employee = EmployeeEntity.builder().type(TypeEmployee.REPAIRER).build();
+        employee.setId(2L);
+        employee.setIsActive(false);
+
+        index.updateRepairer(employee);
+
+        assertEquals(Optional.of(1L), index.leastLoaded());
+        assertEquals(1, index.getLoads().size());
+    }
+
+    @Test
+    void testLeastLoaded_holdsPickUntilTransactionEnds() {
+        when(employeeRepository.getActiveRepairers()).thenReturn(List.of(
+                new Object[]{1L, "EMP001", "A"}, new Object[]{2L, "EMP002", "B"}, new Object[]{3L, "EMP003", "C"}));
+        when(orderRepository.getOpenOrderRepairers()).thenReturn(List.of());
+        index.rebuild();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act: two dispatches in flight at once
+            assertEquals(Optional.of(1L), index.leastLoaded());
+            assertEquals(Optional.of(2L), index.leastLoaded());
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert: rolled back picks no longer count
+        assertEquals(Optional.of(1L), index.leastLoaded());
+        assertEquals(0, index.getLoads().get(0).getOpenOrders());
+    }
+
+    private static OrderChangedEvent changed(Long orderId, Long repairerId, String type, OrderAction action) {
+        return new OrderChangedEvent(BaseOrder.builder().id(orderId).repairerId(repairerId).type(type).build(), action);
+    }
+}
@@ -5,6 +5,7 @@ import com.example.demo.entity.EmployeeEntity;
 import com.example.demo.entity.ServiceEntity;
 import com.example.demo.entity.enums.Role;
 import com.example.demo.entity.enums.TypeEmployee; // Assuming this exists
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.exception.EntityNotFoundException;
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.request.ServiceRequest;
@@ -45,6 +46,9 @@ class ServiceImplServiceTest {
     @Mock
     private AccountRepository accountRepository;
 
+    @Mock
+    private PublisherEvent publisherEvent;
+
     @Mock
     private SecurityContext securityContext;
 
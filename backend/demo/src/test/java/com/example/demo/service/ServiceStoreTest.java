@@ -2,6 +2,7 @@ package com.example.demo.service;
 
 import com.example.demo.entity.AccountEntity;
 import com.example.demo.entity.ServiceEntity;
+import com.example.demo.event.PublisherEvent;
 import com.example.demo.model.request.ServiceRequest;
 import com.example.demo.model.response.ServiceResponse;
 import com.example.demo.repository.AccountRepository;
@@ -29,11 +30,14 @@ public class ServiceStoreTest {
     @Mock
     private AccountRepository accountRepository;
 
+    @Mock
+    private PublisherEvent publisherEvent;
+
     ServiceImplService service;
 
     @BeforeEach
     public void setUp() {
-        service = new ServiceImplService(serviceRepository, accountRepository);
+        service = new ServiceImplService(serviceRepository, accountRepository, publisherEvent);
     }
 
     @Test
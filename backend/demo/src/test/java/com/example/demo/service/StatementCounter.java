@@ -0,0 +1,99 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Wraps the test DataSource and records every statement execution (one entry per round trip).
+// Registered from a BeanFactoryPostProcessor so it also wraps a DataSource created during
+// BeanPostProcessor registration (method security pulls in the repositories early).
+class StatementCounter implements BeanFactoryPostProcessor, BeanPostProcessor {
+
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return wrap(dataSource, DataSource.class, (target, method, args) -> {
+                Object result = method.invoke(target, args);
+                return result instanceof Connection connection ? wrapConnection(connection) : result;
+            });
+        }
+        return bean;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        beanFactory.addBeanPostProcessor(this);
+    }
+
+    public void reset() {
+        executed.clear();
+    }
+
+    public int count() {
+        return executed.size();
+    }
+
+    public int count(String table) {
+        String needle = table.toLowerCase(Locale.ROOT);
+        return (int) executed.stream().filter(sql -> sql.contains(needle)).count();
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return wrap(connection, Connection.class, (target, method, args) -> {
+            Object result = method.invoke(target, args);
+            if (result instanceof Statement statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return wrapStatement(statement, sql);
+            }
+            return result;
+        });
+    }
+
+    private Statement wrapStatement(Statement statement, String preparedSql) {
+        Class<?> type = statement instanceof java.sql.CallableStatement ? java.sql.CallableStatement.class
+                : statement instanceof java.sql.PreparedStatement ? java.sql.PreparedStatement.class
+                : Statement.class;
+        return (Statement) wrap(statement, type, (target, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                        : preparedSql;
+                executed.add(sql == null ? "" : sql.toLowerCase(Locale.ROOT));
+            }
+            return method.invoke(target, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T wrap(Object target, Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    try {
+                        return handler.invoke(target, method, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private interface Handler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.BaseException;
+import com.example.demo.model.BaseResponse;
+import com.example.demo.model.response.StatisticDashboard;
+import com.example.demo.service.impl.CachedStatisticService;
+import com.example.demo.service.impl.StatisticDashboardService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class StatisticDashboardServiceTest {
+
+    private CachedStatisticService statisticService;
+    private StatisticDashboardService dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        statisticService = mock(CachedStatisticService.class);
+        Answer<BaseResponse> slow = invocation -> {
+            Thread.sleep(300);
+            return BaseResponse.builder().data(invocation.getMethod().getName()).build();
+        };
+        when(statisticService.statisticServices(anyMap())).thenAnswer(slow);
+        when(statisticService.statisticSalaryEmployee(anyMap())).thenAnswer(slow);
+        when(statisticService.statisticHistoryProductIn(anyMap())).thenAnswer(slow);
+        when(statisticService.statisticHistoryProductOut(anyMap())).thenAnswer(slow);
+        when(statisticService.statisticProductInYear()).thenAnswer(slow);
+        when(statisticService.statisticProductOutInYear()).thenAnswer(slow);
+        when(statisticService.statisticTopService(anyMap())).thenAnswer(slow);
+        when(statisticService.statisticTopProduct(anyMap())).thenAnswer(slow);
+        dashboardService = new StatisticDashboardService(statisticService,
+                mock(PlatformTransactionManager.class), 8, 64, 2000, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dashboardService.close();
+    }
+
+    @Test
+    void testGetDashboard_runsPartsInParallel() {
+        StatisticDashboard dashboard = (StatisticDashboard) dashboardService.getDashboard(Map.of()).getData();
+
+        assertEquals(8, dashboard.getParts().size());
+        assertTrue(dashboard.getErrors().isEmpty());
+        assertEquals("statisticTopProduct", dashboard.getParts().get("topProduct"));
+        // eight parts of 300 ms one after another would take 2.4 s
+        assertTrue(dashboard.getElapsedMillis() < 1500, "took " + dashboard.getElapsedMillis() + " ms");
+    }
+
+    @Test
+    void testGetDashboard_returnsOtherPartsWhenOneFailsOrTimesOut() {
+        when(statisticService.statisticTopService(anyMap())).thenThrow(new BaseException("Lỗi truy vấn"));
+        when(statisticService.statisticProductInYear()).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return BaseResponse.builder().build();
+        });
+
+        StatisticDashboard dashboard = (StatisticDashboard) dashboardService.getDashboard(Map.of()).getData();
+
+        assertEquals(6, dashboard.getParts().size());
+        assertEquals("Không lấy được dữ liệu thống kê.", dashboard.getErrors().get("topService"));
+        assertTrue(dashboard.getErrors().containsKey("productsInYear"));
+        assertTrue(dashboard.getElapsedMillis() < 5000);
+    }
+}
@@ -2,7 +2,9 @@ package com.example.demo.service;
 
 import com.example.demo.model.BaseResponse;
 import com.example.demo.model.statistic.*;
+import com.example.demo.service.impl.MonthlyStatService;
 import com.example.demo.service.impl.StatisticService;
+import com.example.demo.service.impl.TopItemTracker;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,11 +14,12 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
 @DataJpaTest
-@Import({StatisticService.class})
+@Import({StatisticService.class, MonthlyStatService.class, TopItemTracker.class})
 @Sql(
         value = "/sql/statistic.sql",
         executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
@@ -30,6 +33,9 @@ public class StatisticServiceTest extends AbstractBaseTest {
     @Autowired
     private StatisticService statisticService;
 
+    @Autowired
+    private TopItemTracker topItemTracker;
+
     @Test
     @DisplayName("Statistic history product_in")
     public void statistic_history_product_in() {
@@ -93,4 +99,18 @@ public class StatisticServiceTest extends AbstractBaseTest {
 
         Assertions.assertEquals("Thống kê top 10 dịch vụ được sử dụng nhiều nhất trong thời gian.", response.getMessage());
     }
+
+    @Test
+    @DisplayName("Statistic top service from the tracker, exact before its first day")
+    public void statistic_top_service_tracked() {
+        this.topItemTracker.initialize();
+
+        // the seeded lines have no create date, so only the exact query counts them
+        BaseResponse<List<StatisticTop>> all = this.statisticService.statisticTopService(Map.of());
+        BaseResponse<List<StatisticTop>> today = this.statisticService.statisticTopService(
+                Map.of("startTime", LocalDate.now().toString(), "endTime", LocalDate.now().toString()));
+
+        Assertions.assertFalse(all.getData().isEmpty());
+        Assertions.assertTrue(today.getData().isEmpty());
+    }
 }
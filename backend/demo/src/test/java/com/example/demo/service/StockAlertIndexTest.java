@@ -0,0 +1,131 @@
+package com.example.demo.service;
+
+import com.example.demo.email.EmailService;
+import com.example.demo.entity.ProductEntity;
+import com.example.demo.entity.enums.StockStatus;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.event.StockChangedEvent;
+import com.example.demo.model.request.ProductRequest;
+import com.example.demo.model.response.StockAlert;
+import com.example.demo.repository.AccountRepository;
+import com.example.demo.repository.ImageRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.impl.ProductImplService;
+import com.example.demo.service.impl.StockAlertIndex;
+import com.example.demo.service.impl.StockMutationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class StockAlertIndexTest {
+
+    private ProductRepository productRepository;
+    private EmailService emailService;
+    private StockAlertIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        emailService = mock(EmailService.class);
+        when(productRepository.getStockLevels()).thenReturn(List.of(
+                new Object[]{1L, "P1", "A", 10, 5}, new Object[]{2L, "P2", "B", 3, 5},
+                new Object[]{3L, "P3", "C", 0, 5}));
+        index = new StockAlertIndex(productRepository, emailService, "kho@example.com", 0, 0);
+        index.rebuild();
+    }
+
+    @Test
+    void testRebuild_listsLowAndOutOfStock() {
+        List<StockAlert> alerts = index.getAlerts();
+
+        assertEquals(List.of(3L, 2L), alerts.stream().map(StockAlert::getId).toList());
+        assertEquals(List.of(StockStatus.OUT_STOCK, StockStatus.LOW_STOCK),
+                alerts.stream().map(StockAlert::getStatus).toList());
+    }
+
+    @Test
+    void testOnStockChanged_tracksCrossingsWithoutReading() throws Exception {
+        // Act: product 1 drops below its threshold, product 2 is restocked, product 3 moves and comes back
+        index.onStockChanged(new StockChangedEvent(Map.of(1L, -6, 2L, 4)));
+        index.onStockChanged(new StockChangedEvent(Map.of(3L, 1)));
+        index.onStockChanged(new StockChangedEvent(Map.of(3L, -1, 99L, 5)));
+
+        // Assert
+        assertEquals(List.of(3L, 1L), index.getAlerts().stream().map(StockAlert::getId).toList());
+        assertEquals(4, index.getAlerts().get(1).getStorageQuantity());
+        verify(productRepository, times(1)).getStockLevels();
+
+        index.sendDigest();
+        verify(emailService).send(eq("kho@example.com"), anyString(),
+                argThat(text -> text.contains("P1") && text.contains("P2") && !text.contains("P3")));
+        index.sendDigest();
+        verifyNoMoreInteractions(emailService);
+    }
+
+    @Test
+    void testOnProductChanged_followsEditsAndDeactivation() {
+        when(productRepository.getLedgerInfoByIds(List.of(4L))).thenReturn(List.<Object[]>of(
+                new Object[]{4L, "D", "Cái", 1.0, 2.0, 2}));
+        ProductEntity product = ProductEntity.builder().code("P4").name("D").storageQuantity(50).quantityWarning(5)
+                .build();
+        product.setId(4L);
+        product.setIsActive(true);
+        index.onProductChanged(new ProductChangedEvent(product));
+        assertTrue(index.getAlerts().stream().anyMatch(alert -> alert.getId() == 4L));
+
+        // an edit carries a quantity read before later movements: only its name and threshold are taken
+        index.onStockChanged(new StockChangedEvent(Map.of(4L, 1)));
+        product.setName("E");
+        index.onProductChanged(new ProductChangedEvent(product));
+        StockAlert alert = index.getAlerts().stream().filter(a -> a.getId() == 4L).findFirst().orElseThrow();
+        assertEquals(3, alert.getStorageQuantity());
+        assertEquals("E", alert.getName());
+
+        product.setIsActive(false);
+        index.onProductChanged(new ProductChangedEvent(product));
+        index.onStockChanged(new StockChangedEvent(Map.of(4L, -2)));
+        assertEquals(List.of(3L, 2L), index.getAlerts().stream().map(StockAlert::getId).toList());
+    }
+
+    @Test
+    void testProductEdit_carryingAnOldQuantityLeavesTheLevel() {
+        StockMutationService stockMutationService = mock(StockMutationService.class);
+        PublisherEvent publisherEvent = new PublisherEvent(event -> {
+            if (event instanceof ProductChangedEvent productChanged) {
+                index.onProductChanged(productChanged);
+            } else if (event instanceof StockChangedEvent stockChanged) {
+                index.onStockChanged(stockChanged);
+            }
+        });
+        ProductImplService productService = new ProductImplService(productRepository, mock(AccountRepository.class),
+                mock(HistoryProductService.class), mock(ImageRepository.class), stockMutationService, publisherEvent);
+        ProductEntity product = ProductEntity.builder().code("P1").name("A").storageQuantity(10).quantityWarning(5)
+                .build();
+        product.setId(1L);
+        product.setIsActive(true);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.save(any(ProductEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // a sale moved the product to 4 after the client read 10; the edit still carries 10
+        index.onStockChanged(new StockChangedEvent(Map.of(1L, -6)));
+        when(productRepository.lockLedgerInfoByIds(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "A", "Cái", 1.0, 2.0, 4}));
+        productService.update(ProductRequest.builder().name("A2").priceIn(1.0).priceOut(2.0).brand("X")
+                .storageQuantity(10).quantityWarning(5).build(), 1L);
+
+        StockAlert alert = index.getAlerts().stream().filter(a -> a.getId() == 1L).findFirst().orElseThrow();
+        assertEquals(4, alert.getStorageQuantity());
+        assertEquals(StockStatus.LOW_STOCK, alert.getStatus());
+        assertEquals("A2", alert.getName());
+        assertEquals(4, product.getStorageQuantity());
+        verifyNoInteractions(stockMutationService);
+    }
+}
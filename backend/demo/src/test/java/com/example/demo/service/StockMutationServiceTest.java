@@ -0,0 +1,171 @@
+package com.example.demo.service;
+
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.EntityNotFoundException;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.service.impl.StockLedgerWriter;
+import com.example.demo.service.impl.StockMutationService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@DataJpaTest
+@Import({StockMutationService.class, StockLedgerWriter.class, PublisherEvent.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = "/sql/import_stock_clean_up.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class StockMutationServiceTest extends AbstractBaseTest {
+
+    private static final int THREADS = 8;
+    private static final int MUTATIONS_PER_THREAD = 250;
+
+    @Autowired
+    private StockMutationService stockMutationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> productIds;
+
+    @BeforeEach
+    public void setUp() {
+        productIds = jdbcTemplate.queryForList("select id from products where code like 'STK%' order by id", Long.class);
+    }
+
+    @Test
+    @DisplayName("Mutation returns the resulting quantity and writes its ledger row")
+    public void apply_returns_resulting_quantity() {
+        int quantity = stockMutationService.apply(productIds.get(0), -4, "Bán lẻ");
+
+        Assertions.assertEquals(6, quantity);
+        Assertions.assertEquals(6, storageQuantity(productIds.get(0)));
+        Assertions.assertEquals(List.of(Map.of("DIFFERENCE", -4, "QUANTITY_LEFT", 6, "ACTION", "EXPORT")),
+                jdbcTemplate.queryForList("select difference, quantity_left, action from history_product"));
+    }
+
+    @Test
+    @DisplayName("Mutation below zero is rejected and leaves stock untouched")
+    public void apply_rejects_oversell() {
+        Assertions.assertThrows(InsufficientStockException.class,
+                () -> stockMutationService.apply(Map.of(productIds.get(0), -1, productIds.get(1), -11), "Bán lẻ"));
+        Assertions.assertThrows(EntityNotFoundException.class, () -> stockMutationService.apply(-1L, 1, "Nhập"));
+
+        Assertions.assertEquals(10, storageQuantity(productIds.get(0)));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from history_product", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Lines of one product move stock once and keep one ledger row each")
+    public void apply_lines_writes_row_per_line() {
+        Map<Long, Integer> quantities = stockMutationService.applyLines(List.of(
+                new StockMutationService.Line(productIds.get(0), -4),
+                new StockMutationService.Line(productIds.get(0), 0),
+                new StockMutationService.Line(productIds.get(0), 1)), "Kiểm kê");
+
+        Assertions.assertEquals(7, quantities.get(productIds.get(0)));
+        Assertions.assertEquals(List.of(6, 7), jdbcTemplate.queryForList(
+                "select quantity_left from history_product order by id", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Mutation cannot take stock held at a location")
+    public void apply_keeps_location_holdings() {
+        jdbcTemplate.update("insert into location_stock (location_id, product_id, quantity) values (1, ?, 8)",
+                productIds.get(0));
+
+        Assertions.assertThrows(InsufficientStockException.class,
+                () -> stockMutationService.apply(productIds.get(0), -3, "Bán lẻ"));
+        Assertions.assertEquals(8, stockMutationService.apply(productIds.get(0), -2, "Bán lẻ"));
+    }
+
+    @Test
+    @DisplayName("Concurrent counters never lose or oversell stock")
+    public void concurrent_mutations_are_not_lost() throws Exception {
+        List<Long> hot = productIds.subList(0, 3);
+        Map<Long, AtomicInteger> applied = new ConcurrentHashMap<>();
+        hot.forEach(id -> applied.put(id, new AtomicInteger()));
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(t);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < MUTATIONS_PER_THREAD; i++) {
+                    Long productId = hot.get(random.nextInt(hot.size()));
+                    // mostly sales, some restocking
+                    int difference = random.nextInt(4) == 0 ? 1 : -1;
+                    try {
+                        stockMutationService.apply(productId, difference, "stress");
+                        applied.get(productId).addAndGet(difference);
+                        accepted.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        log.info("{} mutations ({} accepted, {} rejected as oversell) by {} threads: {} mutations/s",
+                THREADS * MUTATIONS_PER_THREAD, accepted.get(), rejected.get(), THREADS,
+                String.format("%.0f", THREADS * MUTATIONS_PER_THREAD * 1e9 / elapsedNanos));
+        Assertions.assertTrue(rejected.get() > 0, "the run should drive stock to zero at least once");
+        for (Long productId : hot) {
+            Assertions.assertEquals(10 + applied.get(productId).get(), storageQuantity(productId));
+            // every ledger row continues the one before it: no change was lost or applied twice
+            List<Map<String, Object>> ledger = jdbcTemplate.queryForList(
+                    "select difference, quantity_left from history_product where product_id = ? order by id",
+                    productId);
+            int expected = 10;
+            for (Map<String, Object> row : ledger) {
+                expected += ((Number) row.get("DIFFERENCE")).intValue();
+                Assertions.assertEquals(expected, ((Number) row.get("QUANTITY_LEFT")).intValue());
+                Assertions.assertTrue(expected >= 0);
+            }
+        }
+        Assertions.assertEquals(accepted.get(),
+                jdbcTemplate.queryForObject("select count(*) from history_product", Integer.class));
+    }
+
+    private int storageQuantity(Long productId) {
+        return jdbcTemplate.queryForObject("select storage_quantity from products where id = ?", Integer.class,
+                productId);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.service;
+
+import com.example.demo.event.PublisherEvent;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.model.stock.StockItem;
+import com.example.demo.service.impl.StockReservationService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@DataJpaTest
+@Import({StockReservationService.class, StatementCounter.class, PublisherEvent.class})
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = "/sql/import_stock_clean_up.sql",
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class StockReservationServiceTest extends AbstractBaseTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> productIds;
+
+    @BeforeEach
+    public void setUp() {
+        productIds = jdbcTemplate.queryForList("select id from products where code like 'STK%' order by id", Long.class);
+    }
+
+    @Test
+    @DisplayName("Reserve decrements stock of every product")
+    public void reserve_decrements_stock() {
+        Map<Long, StockItem> reserved = stockReservationService.reserve(Map.of(productIds.get(0), 3));
+
+        Assertions.assertEquals(7, reserved.get(productIds.get(0)).getStorageQuantity());
+        Assertions.assertEquals(7, storageQuantity(productIds.get(0)));
+    }
+
+    @Test
+    @DisplayName("Reserve reports every short product id")
+    public void reserve_reports_short_ids() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(productIds.get(0), 11);
+        quantities.put(productIds.get(1), 1);
+        quantities.put(productIds.get(2), 20);
+        quantities.put(-1L, 1);
+
+        InsufficientStockException exception = Assertions.assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserve(quantities));
+
+        Assertions.assertEquals(List.of(productIds.get(0), productIds.get(2), -1L), exception.getProductIds());
+        Assertions.assertEquals(10, storageQuantity(productIds.get(1)));
+    }
+
+    @Test
+    @DisplayName("Release puts quantities back")
+    public void release_restores_stock() {
+        stockReservationService.release(Map.of(productIds.get(0), 5));
+
+        Assertions.assertEquals(15, storageQuantity(productIds.get(0)));
+    }
+
+    @Test
+    @DisplayName("Round trips per order do not grow with line count")
+    public void round_trips_are_constant() {
+        int oneLine = roundTrips(1);
+        int thirtyLines = roundTrips(30);
+
+        // the per-line check + find + save path cost 3 round trips per line
+        log.info("products round trips: 1 line = {}, 30 lines = {} (previously {} and {})",
+                oneLine, thirtyLines, 3, 3 * 30);
+        Assertions.assertEquals(2, oneLine);
+        Assertions.assertEquals(oneLine, thirtyLines);
+    }
+
+    private int roundTrips(int lines) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        productIds.subList(0, lines).forEach(id -> quantities.put(id, 1));
+        statementCounter.reset();
+        long start = System.nanoTime();
+        stockReservationService.reserve(quantities);
+        log.info("reserved {} lines in {} µs", lines, (System.nanoTime() - start) / 1000);
+        return statementCounter.count("products");
+    }
+
+    private int storageQuantity(Long productId) {
+        return jdbcTemplate.queryForObject("select storage_quantity from products where id = ?", Integer.class,
+                productId);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.service;
+
+import com.example.demo.model.response.StockQuantity;
+import com.example.demo.service.impl.StockSnapshotService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@DataJpaTest
+@Import(StockSnapshotService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {"stock.snapshot.cron=-", "stock.snapshot.window-days=2"})
+@Sql(
+        value = "/sql/import_stock.sql",
+        executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+@Sql(
+        value = {"/sql/import_snapshot_clean_up.sql", "/sql/import_stock_clean_up.sql"},
+        executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD
+)
+public class StockSnapshotServiceTest extends AbstractBaseTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private StockSnapshotService stockSnapshotService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+
+    @BeforeEach
+    public void setUp() {
+        productId = jdbcTemplate.queryForObject("select min(id) from products where code like 'STK%'", Long.class);
+        this.ledger(TODAY.minusDays(3).atTime(8, 0), 10);
+        this.ledger(TODAY.minusDays(2).atTime(15, 0), -3);
+        this.ledger(TODAY.minusDays(1).atTime(10, 0), -2);
+        this.ledger(TODAY.atStartOfDay().plusMinutes(1), -1);
+        jdbcTemplate.update("update products set storage_quantity = 4 where id = ?", productId);
+    }
+
+    @Test
+    @DisplayName("Snapshots walk back from the stock on hand and rewrite a trailing window")
+    public void snapshot_rewrites_window() {
+        Assertions.assertEquals(2, stockSnapshotService.snapshot(TODAY.minusDays(1)));
+        Assertions.assertEquals(2, stockSnapshotService.snapshot(TODAY.minusDays(1)));
+
+        Assertions.assertEquals(List.of(7, 5), this.snapshots(productId));
+        // one row per product per day, products without movements included
+        Assertions.assertEquals(60, jdbcTemplate.queryForObject("select count(*) from stock_snapshot", Integer.class));
+        // stock that predates the ledger still shows
+        Assertions.assertEquals(List.of(10, 10), this.snapshots(productId + 1));
+    }
+
+    @Test
+    @DisplayName("Units held by an open order are still counted until its ledger row is written")
+    public void snapshot_adds_back_open_orders() {
+        jdbcTemplate.update("insert into orders (id, code, type, is_active) values (900, 'HD000900', 'ORDER', true)");
+        jdbcTemplate.update("insert into order_product (order_id, product_id, quantity) values (900, ?, 3)",
+                productId);
+        jdbcTemplate.update("update products set storage_quantity = 1 where id = ?", productId);
+
+        stockSnapshotService.snapshot(TODAY.minusDays(1));
+
+        Assertions.assertEquals(List.of(7, 5), this.snapshots(productId));
+        Assertions.assertEquals(4, this.stockAt(LocalDateTime.now().plusMinutes(1)));
+    }
+
+    @Test
+    @DisplayName("Stock at an instant walks back from the nearest later snapshot or the stock now")
+    public void stock_at_walks_back() {
+        // before any snapshot the ledger is walked back from the stock now
+        Assertions.assertEquals(10, this.stockAt(TODAY.minusDays(2).atTime(12, 0)));
+
+        stockSnapshotService.snapshot(TODAY.minusDays(1));
+        // the snapshot rows are the base, so a change to the ledger they cover no longer shows
+        jdbcTemplate.update("update stock_snapshot set quantity = quantity + 100 where product_id = ?", productId);
+
+        Assertions.assertEquals(110, this.stockAt(TODAY.minusDays(2).atTime(12, 0)));
+        Assertions.assertEquals(107, this.stockAt(TODAY.minusDays(1).atTime(9, 0)));
+        Assertions.assertEquals(105, this.stockAt(TODAY.minusDays(1).atTime(11, 0)));
+        Assertions.assertEquals(4, this.stockAt(LocalDateTime.now().plusMinutes(1)));
+        Assertions.assertEquals(30, stockSnapshotService.getStockAt(LocalDateTime.now(), null).size());
+    }
+
+    private List<Integer> snapshots(Long id) {
+        return jdbcTemplate.queryForList("select quantity from stock_snapshot where product_id = ? " +
+                "order by snapshot_date", Integer.class, id);
+    }
+
+    private int stockAt(LocalDateTime at) {
+        List<StockQuantity> stock = stockSnapshotService.getStockAt(at, productId);
+        Assertions.assertEquals(1, stock.size());
+        return stock.get(0).getQuantity();
+    }
+
+    private void ledger(LocalDateTime at, int difference) {
+        jdbcTemplate.update("insert into history_product (product_id, difference, quantity_left, action, create_date) " +
+                        "values (?, ?, 0, ?, ?)", productId, difference, difference >= 0 ? "IMPORT" : "EXPORT",
+                Timestamp.valueOf(at));
+    }
+}
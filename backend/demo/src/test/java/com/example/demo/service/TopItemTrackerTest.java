@@ -0,0 +1,145 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.ServiceEntity;
+import com.example.demo.entity.enums.OrderLineKind;
+import com.example.demo.event.OrderLinesChangedEvent;
+import com.example.demo.event.ServiceChangedEvent;
+import com.example.demo.model.params.TimeParams;
+import com.example.demo.model.statistic.OrderLineChange;
+import com.example.demo.model.statistic.StatisticTop;
+import com.example.demo.repository.OrderProductsRepository;
+import com.example.demo.repository.OrderServiceRepository;
+import com.example.demo.service.impl.SpaceSavingSummary;
+import com.example.demo.service.impl.TopItemTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TopItemTrackerTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private OrderProductsRepository orderProductsRepository;
+    private OrderServiceRepository orderServiceRepository;
+    private TopItemTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        orderProductsRepository = mock(OrderProductsRepository.class);
+        orderServiceRepository = mock(OrderServiceRepository.class);
+        when(orderProductsRepository.getDailyQuantitiesSince(any())).thenReturn(List.of(
+                new Object[]{Date.valueOf(TODAY.minusDays(2)), 1L, 5L, "Lốp", 100.0, "Cái"},
+                new Object[]{Date.valueOf(TODAY.minusDays(2)), 2L, 3L, "Nhớt", 50.0, "Chai"},
+                new Object[]{Date.valueOf(TODAY), 2L, 4L, "Nhớt", 50.0, "Chai"}));
+        when(orderServiceRepository.getDailyQuantitiesSince(any())).thenReturn(List.of());
+        tracker = new TopItemTracker(orderProductsRepository, orderServiceRepository, 3, 2, 30, "sketch");
+        tracker.initialize();
+    }
+
+    @Test
+    void testTop_mergesDaysOfTheRange() {
+        assertEquals(List.of(2L, 1L), ids(tracker.top(OrderLineKind.PRODUCT, range(-2, 0))));
+        assertEquals(List.of(1L, 2L), ids(tracker.top(OrderLineKind.PRODUCT, range(-2, -1))));
+
+        StatisticTop top = tracker.top(OrderLineKind.PRODUCT, range(-2, 0)).get().get(0);
+        assertEquals(7L, top.getQuantity());
+        assertEquals("Nhớt", top.getName());
+        assertEquals("Chai", top.getUnit());
+    }
+
+    @Test
+    void testOnOrderLinesChanged_countsCommittedChanges() {
+        tracker.onOrderLinesChanged(new OrderLinesChangedEvent(List.of(
+                change(3L, TODAY, 9), change(2L, TODAY, -4), change(1L, TODAY.minusDays(2), 1))));
+
+        Optional<List<StatisticTop>> top = tracker.top(OrderLineKind.PRODUCT, range(-2, 0));
+        assertEquals(List.of(3L, 1L), ids(top));
+        assertEquals(List.of(9L, 6L), top.get().stream().map(StatisticTop::getQuantity).toList());
+    }
+
+    @Test
+    void testTop_leavesUncoveredRangesToTheExactQuery() {
+        when(orderProductsRepository.countCreatedBefore(any())).thenReturn(1L);
+        tracker.initialize();
+
+        assertTrue(tracker.top(OrderLineKind.PRODUCT, range(-40, 0)).isEmpty());
+        assertTrue(tracker.top(OrderLineKind.PRODUCT, new TimeParams(Map.of())).isEmpty());
+        assertTrue(tracker.top(OrderLineKind.PRODUCT, range(-2, 0)).isPresent());
+        // no line older than the window: every range is covered
+        assertTrue(tracker.top(OrderLineKind.SERVICE, new TimeParams(Map.of())).isPresent());
+
+        TopItemTracker exact = new TopItemTracker(orderProductsRepository, orderServiceRepository, 3, 2, 30, "exact");
+        exact.initialize();
+        assertTrue(exact.top(OrderLineKind.PRODUCT, range(-2, 0)).isEmpty());
+    }
+
+    @Test
+    void testReload_keepsChangesCommittedWhileLoading() {
+        when(orderServiceRepository.getDailyQuantitiesSince(any())).thenAnswer(invocation -> {
+            tracker.onOrderLinesChanged(new OrderLinesChangedEvent(List.of(change(3L, TODAY, 20))));
+            // the old tracks still answer during the reload
+            assertEquals(List.of(3L, 2L), ids(tracker.top(OrderLineKind.PRODUCT, range(0, 0))));
+            return List.<Object[]>of(new Object[]{Date.valueOf(TODAY), 7L, 1L, "Thay nhớt", 30.0, null});
+        });
+
+        tracker.reload();
+
+        assertEquals(List.of(3L, 2L), ids(tracker.top(OrderLineKind.PRODUCT, range(0, 0))));
+        assertEquals(List.of(7L), ids(tracker.top(OrderLineKind.SERVICE, range(0, 0))));
+    }
+
+    @Test
+    void testOnServiceChanged_refreshesLabel() {
+        when(orderServiceRepository.getDailyQuantitiesSince(any())).thenReturn(List.<Object[]>of(
+                new Object[]{Date.valueOf(TODAY), 7L, 1L, "Thay nhớt", 30.0, null}));
+        tracker.reload();
+        ServiceEntity service = ServiceEntity.builder().name("Thay nhớt máy").price(35.0).build();
+        service.setId(7L);
+
+        tracker.onServiceChanged(new ServiceChangedEvent(service));
+
+        StatisticTop top = tracker.top(OrderLineKind.SERVICE, range(0, 0)).get().get(0);
+        assertEquals("Thay nhớt máy", top.getName());
+        assertEquals(35.0, top.getPrice());
+    }
+
+    @Test
+    void testSpaceSavingSummary_keepsHeavyHittersWithinBounds() {
+        SpaceSavingSummary summary = new SpaceSavingSummary(4);
+        for (int i = 0; i < 1000; i++) {
+            summary.add(1L, 1);
+            summary.add(100L + i % 50, 1);
+        }
+
+        Map<Long, long[]> counters = summary.snapshot();
+        assertEquals(4, summary.size());
+        assertTrue(counters.containsKey(1L));
+        // count never undercounts, count - error never overcounts
+        assertTrue(counters.get(1L)[0] >= 1000);
+        assertTrue(counters.get(1L)[0] - counters.get(1L)[1] <= 1000);
+        assertTrue(summary.getUntrackedBound() > 0);
+    }
+
+    private static TimeParams range(int fromOffset, int toOffset) {
+        return new TimeParams(Map.of("startTime", TODAY.plusDays(fromOffset).toString(),
+                "endTime", TODAY.plusDays(toOffset).toString()));
+    }
+
+    private static OrderLineChange change(Long id, LocalDate day, int quantity) {
+        return OrderLineChange.builder().kind(OrderLineKind.PRODUCT).itemId(id).day(day).quantity(quantity)
+                .name("SP" + id).price(10.0).unit("Cái").build();
+    }
+
+    private static List<Long> ids(Optional<List<StatisticTop>> top) {
+        return top.orElseThrow().stream().map(StatisticTop::getId).toList();
+    }
+}
@@ -8,3 +8,4 @@ DELETE FROM order_service;
 DELETE FROM services;
 DELETE FROM orders;
 DELETE FROM accounts;
+DELETE FROM monthly_stat;
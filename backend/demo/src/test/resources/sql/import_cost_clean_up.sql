@@ -0,0 +1,2 @@
+DELETE FROM cost_movement;
+DELETE FROM cost_layer;
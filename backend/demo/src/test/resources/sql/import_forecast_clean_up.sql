@@ -0,0 +1 @@
+DELETE FROM demand_forecast;
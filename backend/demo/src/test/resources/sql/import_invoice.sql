@@ -0,0 +1,19 @@
+INSERT INTO products (id, code, name, price_in, price_out, storage_quantity, quantity_warning, unit, is_active)
+VALUES (1, 'PROD001', 'Sản phẩm A', 50000, 70000, 97, 20, 'Hộp', TRUE),
+       (2, 'PROD002', 'Sản phẩm B', 30000, 45000, 48, 10, 'Chai', TRUE);
+
+INSERT INTO employees (id, code, name, is_active, type)
+VALUES (1, 'EMP001', 'Nguyễn Văn A', TRUE, 'REPAIRER');
+
+INSERT INTO orders (id, code, type, repairer_id, is_active)
+VALUES (10, 'HD000010', 'INVOICE', 1, TRUE),
+       (11, 'HD000011', 'INVOICE', 1, TRUE);
+
+INSERT INTO order_product (id, order_id, product_id, quantity, name, price, unit)
+VALUES (1, 10, 1, 2, 'Sản phẩm A', 70000, 'Hộp'),
+       (2, 10, 2, 2, 'Sản phẩm B', 45000, 'Chai'),
+       (3, 11, 1, 1, 'Sản phẩm A', 70000, 'Hộp');
+
+INSERT INTO invoice_outbox (order_id, status, attempts, create_at)
+VALUES (10, 'PENDING', 0, NOW()),
+       (11, 'PENDING', 0, NOW());
@@ -0,0 +1,6 @@
+DELETE FROM history_product;
+DELETE FROM invoice_outbox;
+DELETE FROM order_product;
+DELETE FROM orders;
+DELETE FROM products;
+DELETE FROM employees;
@@ -0,0 +1,5 @@
+DELETE FROM stock_transfer_line;
+DELETE FROM stock_transfer;
+DELETE FROM stock_delta;
+DELETE FROM location_stock;
+DELETE FROM stock_location;
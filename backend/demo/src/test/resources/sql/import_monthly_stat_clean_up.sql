@@ -0,0 +1 @@
+DELETE FROM monthly_stat;
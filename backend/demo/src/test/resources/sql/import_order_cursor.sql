@@ -0,0 +1,5 @@
+-- 25 đơn hàng, hai đơn liên tiếp có cùng create_date
+INSERT INTO orders (id, code, type, create_date, modify_date, is_active)
+SELECT X + 99, CONCAT('CUR', X), 'ORDER', DATEADD('HOUR', X / 2, TIMESTAMP '2025-01-01 00:00:00'),
+       DATEADD('HOUR', X / 2, TIMESTAMP '2025-01-01 00:00:00'), TRUE
+FROM SYSTEM_RANGE(1, 25);
@@ -0,0 +1,3 @@
+DELETE FROM stock_snapshot;
+DELETE FROM order_product;
+DELETE FROM orders;
@@ -0,0 +1,6 @@
+-- 30 sản phẩm, mỗi sản phẩm tồn kho 10
+INSERT INTO products (code, name, price_in, price_out, brand, storage_quantity, quantity_warning, unit, is_active,
+                      create_date, modify_date)
+SELECT CONCAT('STK', LPAD(CAST(X AS VARCHAR), 3, '0')), CONCAT('Linh kiện ', X), 1000, 1500, 'Brand', 10, 2, 'Cái',
+       TRUE, NOW(), NOW()
+FROM SYSTEM_RANGE(1, 30);
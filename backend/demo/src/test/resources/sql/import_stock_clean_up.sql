@@ -0,0 +1,5 @@
+DELETE FROM stock_delta;
+DELETE FROM location_stock;
+DELETE FROM order_product;
+DELETE FROM history_product;
+DELETE FROM products;